@@ -0,0 +1,126 @@
+package com.drivelah.benchmark;
+
+import com.drivelah.client.codec.EntityCodecs;
+import com.drivelah.model.Location;
+import com.drivelah.model.trip.SettlementLine;
+import com.drivelah.model.trip.Trip;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trip encode / decode: MappingMongoConverter (entity <-> Document <-> BSON) vs TripCodec (entity <-> BSON)
+ *
+ * Both sides start or end at BSON bytes, which is what the driver sends and receives.
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=EntityCodecBenchmark
+ * Add -prof gc (jmh { profilers = ['gc'] }) to compare allocation per document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EntityCodecBenchmark {
+
+    private MappingMongoConverter converter;
+    private Codec<Document> documentCodec;
+    private Codec<Trip> tripCodec;
+
+    private Trip trip;
+    private byte[] tripBson;
+
+    @Setup
+    public void setUp() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        documentCodec = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+        tripCodec = EntityCodecs.REGISTRY.get(Trip.class);
+
+        trip = sampleTrip();
+        tripBson = converterEncode();
+    }
+
+    @Benchmark
+    public byte[] converterEncode() {
+        Document document = new Document();
+        converter.write(trip, document);
+        BasicOutputBuffer buffer = new BasicOutputBuffer(1024);
+        documentCodec.encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().build());
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] codecEncode() {
+        BasicOutputBuffer buffer = new BasicOutputBuffer(1024);
+        tripCodec.encode(new BsonBinaryWriter(buffer), trip, EncoderContext.builder().build());
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public Trip converterDecode() {
+        Document document = documentCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(tripBson)),
+                DecoderContext.builder().build());
+        return converter.read(Trip.class, document);
+    }
+
+    @Benchmark
+    public Trip codecDecode() {
+        return tripCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(tripBson)), DecoderContext.builder().build());
+    }
+
+    // A completed, settled trip: the largest documents the trip lists read
+    private static Trip sampleTrip() {
+        Trip trip = new Trip("renter1", "vehicle1", "owner1", location(1.3000, 103.8000), location(1.3521, 103.8198));
+        trip.setId(new ObjectId().toHexString());
+        trip.setVersion(4L);
+        trip.setPlannedStartTimeEpoch(1_700_000_000_000L);
+        trip.setPlannedEndTimeEpoch(1_700_086_400_000L);
+        trip.setActualStartTimeEpoch(1_700_000_300_000L);
+        trip.setActualEndTimeEpoch(1_700_090_000_000L);
+        trip.setStatus("COMPLETED");
+        trip.setPaymentStatus("PAID");
+        trip.setStartOdometerReading(12_000L);
+        trip.setEndOdometerReading(12_180L);
+        trip.setQuotedAmount(310.2);
+        trip.setIncludedKm(150.0);
+        trip.setSurgeMultiplier(1.25);
+        trip.setTotalAmount(348.6);
+        trip.setSecurityDeposit(62.04);
+        trip.setSpecialInstructions("Completion Notes: returned with full tank");
+        trip.setSettlementLines(List.of(
+                new SettlementLine("TIME", "25h at 12.00", 300.0),
+                new SettlementLine("EXTRA_KM", "30km at 0.56", 16.9),
+                new SettlementLine("SERVICE_FEE", "10%", 31.7)));
+        trip.setSettledAtEpoch(1_700_090_001_000L);
+        trip.setCancellationPolicy("MODERATE");
+        return trip;
+    }
+
+    private static Location location(double lat, double lon) {
+        Location location = new Location();
+        location.setLat(lat);
+        location.setLon(lon);
+        return location;
+    }
+}
@@ -0,0 +1,149 @@
+package com.drivelah.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.drivelah.model.pricing.PricingCalculation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.slf4j.MDC;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request log cost under contention: System.out + concatenation vs the async SLF4J setup
+ *
+ * Both sides write to a discarding stream, so the numbers show the cost on the request
+ * thread (locking, formatting, flushing), not terminal speed. The async side mirrors
+ * logback-spring.xml: pattern with correlation id, AsyncAppender with neverBlock.
+ *
+ * The requestPath* pair measures a whole /calculate-pricing request as it logged before
+ * and after the switch: one quote computation plus the service and controller lines.
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=LoggingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class LoggingBenchmark {
+
+    private static final OutputStream DISCARD = OutputStream.nullOutputStream();
+
+    private PrintStream stdoutLike;
+    private LoggerContext context;
+    private Logger asyncLogger;
+
+    private final String vehicleType = "STANDARD";
+    private final double hours = 24.0;
+    private final double km = 180.0;
+    private final double total = 441.54;
+
+    @Setup
+    public void setUp() {
+        // System.out is a PrintStream with autoflush on println
+        stdoutLike = new PrintStream(DISCARD, true);
+
+        context = new LoggerContext();
+        context.start();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} level=%-5level thread=%thread " +
+                "logger=%logger{36} cid=%X{correlationId:--} msg=\"%msg\"%n%ex");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> sink = new OutputStreamAppender<>();
+        sink.setContext(context);
+        sink.setEncoder(encoder);
+        sink.setOutputStream(DISCARD);
+        sink.start();
+
+        AsyncAppender async = new AsyncAppender();
+        async.setContext(context);
+        async.setQueueSize(8192);
+        async.setDiscardingThreshold(1638);
+        async.setNeverBlock(true);
+        async.addAppender(sink);
+        async.start();
+
+        asyncLogger = context.getLogger("com.drivelah.service.PricingService");
+        asyncLogger.setLevel(Level.INFO);
+        asyncLogger.setAdditive(false);
+        asyncLogger.addAppender(async);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+    }
+
+    /**
+     * Each benchmark thread acts as a request thread with a correlation id set
+     */
+    @State(Scope.Thread)
+    public static class RequestThread {
+        @Setup
+        public void setUp() {
+            MDC.put("correlationId", Long.toHexString(Thread.currentThread().getId()));
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.clear();
+        }
+    }
+
+    @Benchmark
+    public void systemOutConcatenation() {
+        stdoutLike.println("Pricing calculated for " + vehicleType +
+                ": " + hours + "h, " + km + "km = SGD$" + total);
+    }
+
+    @Benchmark
+    public void asyncParameterized(RequestThread requestThread) {
+        asyncLogger.info("Pricing calculated for {}: {}h, {}km = SGD${}", vehicleType, hours, km, total);
+    }
+
+    /**
+     * /calculate-pricing before: PricingService and ApiController each println the quote
+     */
+    @Benchmark
+    public PricingCalculation requestPathSystemOut() {
+        PricingCalculation pricing = new PricingCalculation(vehicleType, 12.0, 0.45, hours, km, 1.0);
+        stdoutLike.println("Pricing calculated for " + vehicleType + ": " + hours + "h, " + km + "km = SGD$"
+                + pricing.getTotalAmount());
+        stdoutLike.println("Pricing calculated for " + vehicleType + " vehicle: SGD$" + pricing.getTotalAmount());
+        return pricing;
+    }
+
+    /**
+     * /calculate-pricing after: the same two lines at DEBUG, with INFO configured
+     */
+    @Benchmark
+    public PricingCalculation requestPathAsync(RequestThread requestThread) {
+        PricingCalculation pricing = new PricingCalculation(vehicleType, 12.0, 0.45, hours, km, 1.0);
+        asyncLogger.debug("Pricing calculated for {}: {}h, {}km = SGD${}", vehicleType, hours, km, pricing.getTotalAmount());
+        asyncLogger.debug("Pricing calculated for {} vehicle: SGD${}", vehicleType, pricing.getTotalAmount());
+        return pricing;
+    }
+
+    @Benchmark
+    public void asyncParameterizedDisabledLevel() {
+        // Hot-path quote logs are DEBUG; with INFO configured this is a level check only
+        asyncLogger.debug("Pricing calculated for {}: {}h, {}km = SGD${}", vehicleType, hours, km, total);
+    }
+}
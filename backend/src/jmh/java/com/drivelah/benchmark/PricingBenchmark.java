@@ -0,0 +1,83 @@
+package com.drivelah.benchmark;
+
+import com.drivelah.model.pricing.Money;
+import com.drivelah.model.pricing.PricingCalculation;
+import com.drivelah.model.pricing.PricingKernel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quote arithmetic: the previous boxed-Double path vs the fixed-point kernel
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=PricingBenchmark
+ * Add -prof gc (jmh { profilers = ['gc'] }) to compare allocation per quote.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PricingBenchmark {
+
+    private double baseRate;
+    private double perKmRate;
+    private double hours;
+    private double km;
+    private double surge;
+
+    private long baseRateMinor;
+    private long perKmRateMinor;
+    private final long[] amounts = new long[PricingKernel.SLOTS];
+
+    @Setup
+    public void setUp() {
+        baseRate = 12.0;
+        perKmRate = 0.45;
+        hours = 26.5;
+        km = 180.0;
+        surge = 1.25;
+        baseRateMinor = Money.ofMajor(baseRate);
+        perKmRateMinor = Money.ofMajor(perKmRate);
+    }
+
+    @Benchmark
+    public void boxedDoubles(Blackhole blackhole) {
+        // The pre-kernel PricingCalculation.calculatePricing() body, field for field
+        Double plannedHours = hours;
+        Double estimatedKm = km;
+        Double baseAmount = plannedHours * baseRate;
+        Double distanceAmount = estimatedKm * perKmRate;
+        Double surgeAmount = (baseAmount + distanceAmount) * (surge - 1.0);
+        Double subtotal = baseAmount + distanceAmount + surgeAmount;
+        Double securityDeposit = Math.max(subtotal * 0.20, 50.0);
+        Double serviceFee = subtotal * 0.10;
+        Double totalAmount = subtotal + serviceFee;
+        blackhole.consume(securityDeposit);
+        blackhole.consume(totalAmount);
+    }
+
+    @Benchmark
+    public void kernel(Blackhole blackhole) {
+        PricingKernel.compute(baseRateMinor, perKmRateMinor,
+                Money.quantity(hours), Money.quantity(km), Money.basisPoints(surge), amounts);
+        blackhole.consume(amounts[PricingKernel.DEPOSIT]);
+        blackhole.consume(amounts[PricingKernel.TOTAL]);
+    }
+
+    @Benchmark
+    public void kernelTotalOnly(Blackhole blackhole) {
+        blackhole.consume(PricingKernel.total(baseRateMinor, perKmRateMinor,
+                Money.quantity(hours), Money.quantity(km), Money.basisPoints(surge)));
+    }
+
+    @Benchmark
+    public PricingCalculation pricingCalculation() {
+        return new PricingCalculation("STANDARD", baseRate, perKmRate, hours, km, surge);
+    }
+}
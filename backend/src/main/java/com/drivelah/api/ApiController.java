@@ -1,44 +1,82 @@
 package com.drivelah.api;
 
 import com.drivelah.model.ApiModel.*;
+import com.drivelah.model.Landmark;
 import com.drivelah.model.Location;
 import com.drivelah.model.Vehicle;
+import com.drivelah.model.VehicleCard;
 import com.drivelah.model.auth.AuthRequest;
 import com.drivelah.model.auth.AuthResponse;
 import com.drivelah.model.auth.AuthUser;
+import com.drivelah.model.pricing.BatchPricingResult;
 import com.drivelah.model.pricing.PricingCalculation;
 import com.drivelah.model.pricing.PricingRequest;
 import com.drivelah.model.trip.Trip;
+import com.drivelah.model.trip.TripSummary;
 import com.drivelah.persistence.TripService;
 import com.drivelah.persistence.VehicleService;
 import com.drivelah.service.AuthService;
+import com.drivelah.service.CancellationPolicyEngine;
+import com.drivelah.service.PricingBatchService;
 import com.drivelah.service.PricingService;
+import com.drivelah.service.SettlementEngine;
+import com.drivelah.service.SurgePricingEngine;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 public class ApiController {
 
+    private static final Logger log = LoggerFactory.getLogger(ApiController.class);
+
     private static final String NUM = "10";
+    private static final double SEARCH_QUOTE_HOURS = 24.0;
     private final VehicleService vehicleService;
     private final TripService tripService;
     private final AuthService authService;
     private final PricingService pricingService;
+    private final SurgePricingEngine surgeEngine;
+    private final PricingBatchService pricingBatchService;
+    private final ObjectMapper objectMapper;
+    private final SettlementEngine settlementEngine;
+    private final CancellationPolicyEngine cancellationPolicyEngine;
 
     @Autowired
     public ApiController(VehicleService vehicleService, TripService tripService,
-                         AuthService authService, PricingService pricingService) {
+                         AuthService authService, PricingService pricingService,
+                         SurgePricingEngine surgeEngine, PricingBatchService pricingBatchService,
+                         ObjectMapper objectMapper, SettlementEngine settlementEngine,
+                         CancellationPolicyEngine cancellationPolicyEngine) {
         this.vehicleService = vehicleService;
         this.tripService = tripService;
         this.authService = authService;
         this.pricingService = pricingService;
+        this.surgeEngine = surgeEngine;
+        this.pricingBatchService = pricingBatchService;
+        this.objectMapper = objectMapper;
+        this.settlementEngine = settlementEngine;
+        this.cancellationPolicyEngine = cancellationPolicyEngine;
     }
 
     @GetMapping(value = "/test")
@@ -51,48 +89,51 @@ public class ApiController {
     @PostMapping(value = "/auth/login")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public AuthResponse login(@RequestBody AuthRequest request) {
-        try {
-            AuthResponse response = authService.login(request);
-
-            if (response.isSuccess()) {
-                System.out.println("[SUCCESS] Mock login successful: " + request.getEmail() +
-                        " | Role: " + response.getUser().getRole());
-            } else {
-                System.out.println("[FAILED] Mock login failed: " + request.getEmail() +
-                        " | Reason: " + response.getMessage());
-            }
-
-            return response;
-
-        } catch (Exception e) {
-            System.err.println("Login endpoint error: " + e.getMessage());
-            return AuthResponse.failure("Login failed due to server error");
-        }
+    public CompletableFuture<AuthResponse> login(@RequestBody AuthRequest request) {
+        // Password check runs on the hashing pool; the servlet thread is released until it completes
+        return authService.login(request)
+                .thenApply(response -> {
+                    if (response.isSuccess()) {
+                        log.info("Mock login successful: {} | Role: {}",
+                                request.getEmail(), response.getUser().getRole());
+                    } else {
+                        log.info("Mock login failed: {} | Reason: {}", request.getEmail(), response.getMessage());
+                    }
+
+                    return response;
+                })
+                .exceptionally(e -> {
+                    log.error("Login endpoint error", e);
+                    return AuthResponse.failure("Login failed due to server error");
+                });
     }
 
     @PostMapping(value = "/auth/register")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public AuthResponse register(@RequestBody AuthRequest request) {
-        try {
-            AuthResponse response = authService.register(request);
-
-            if (response.isSuccess()) {
-                System.out.println("Mock registration successful: " + request.getEmail() +
-                        " | Role: " + request.getRole() +
-                        " | UserID: " + response.getUser().getUserId());
-            } else {
-                System.out.println("Mock registration failed: " + request.getEmail() +
-                        " | Reason: " + response.getMessage());
-            }
-
-            return response;
-
-        } catch (Exception e) {
-            System.err.println("Registration endpoint error: " + e.getMessage());
-            return AuthResponse.failure("Registration failed due to server error");
-        }
+    public CompletableFuture<ResponseEntity<AuthResponse>> register(@RequestBody AuthRequest request) {
+        return authService.register(request)
+                .thenApply(response -> {
+                    if (response.isSuccess()) {
+                        log.info("Mock registration successful: {} | Role: {} | UserID: {}",
+                                request.getEmail(), request.getRole(), response.getUser().getUserId());
+                    } else {
+                        log.info("Mock registration failed: {} | Reason: {}",
+                                request.getEmail(), response.getMessage());
+                    }
+
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof DuplicateKeyException) {
+                        // Email taken, possibly by a registration on another instance (unique index)
+                        log.info("Mock registration failed: {} | Reason: {}", request.getEmail(), cause.getMessage());
+                        return ResponseEntity.status(HttpStatus.CONFLICT).body(AuthResponse.failure(cause.getMessage()));
+                    }
+                    log.error("Registration endpoint error", e);
+                    return ResponseEntity.ok(AuthResponse.failure("Registration failed due to server error"));
+                });
     }
 
     /**
@@ -119,11 +160,55 @@ public class ApiController {
             return AuthResponse.success(token, user);
 
         } catch (Exception e) {
-            System.err.println("Get current user error: " + e.getMessage());
+            log.error("Get current user error", e);
             return AuthResponse.failure("Failed to get user profile");
         }
     }
 
+    @PostMapping(value = "/auth/logout")
+    @Produces(MediaType.APPLICATION_JSON)
+    public AuthResponse logout(@RequestHeader("Authorization") String authHeader) {
+        try {
+            String token = extractTokenFromHeader(authHeader);
+            if (token == null) {
+                return AuthResponse.failure("Authorization header missing or invalid");
+            }
+
+            return authService.logout(token);
+
+        } catch (Exception e) {
+            log.error("Logout error", e);
+            return AuthResponse.failure("Logout failed due to server error");
+        }
+    }
+
+    /**
+     * Forced revocation of another user's token, admin only
+     *
+     * @param body {"token": "MOCK-TOKEN-..."}
+     */
+    @PostMapping(value = "/auth/revoke")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public AuthResponse revokeToken(@RequestBody Map<String, String> body,
+                                    @RequestHeader("Authorization") String authHeader) {
+        try {
+            String adminToken = extractTokenFromHeader(authHeader);
+            String targetToken = body.get("token");
+            if (adminToken == null || targetToken == null || targetToken.trim().isEmpty()) {
+                return AuthResponse.failure("Admin authorization and token to revoke are required");
+            }
+
+            AuthResponse response = authService.revokeToken(adminToken, targetToken);
+            log.info("Token revocation requested: {}", response.getMessage());
+            return response;
+
+        } catch (Exception e) {
+            log.error("Token revocation error", e);
+            return AuthResponse.failure("Token revocation failed due to server error");
+        }
+    }
+
     //Pricing Endpoints
 
     @PostMapping(value = "/calculate-pricing")
@@ -132,43 +217,55 @@ public class ApiController {
     public PricingCalculation calculatePricing(@RequestBody PricingRequest request) {
         try {
             // Validate basic request
-            if (request.getVehicleType() == null || request.getVehicleType().trim().isEmpty()) {
-                throw new IllegalArgumentException("Vehicle type is required");
-            }
-
-            if (request.getPlannedStartTime() == null || request.getPlannedEndTime() == null) {
-                throw new IllegalArgumentException("Start and end times are required");
-            }
-
-            if (request.getPlannedEndTime() <= request.getPlannedStartTime()) {
-                throw new IllegalArgumentException("End time must be after start time");
-            }
+            pricingService.validateRequest(request);
 
             // Calculate pricing
             PricingCalculation pricing = pricingService.calculatePricing(request);
 
-            System.out.println("Pricing calculated for " + request.getVehicleType() +
-                    " vehicle: SGD$" + pricing.getTotalAmount());
+            log.debug("Pricing calculated for {} vehicle: SGD${}", request.getVehicleType(), pricing.getTotalAmount());
 
             return pricing;
 
         } catch (IllegalArgumentException e) {
-            System.err.println("Pricing calculation validation error: " + e.getMessage());
+            log.warn("Pricing calculation validation error: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
-            System.err.println("Unexpected error during pricing calculation: " + e.getMessage());
-            e.printStackTrace(); // for logging
+            log.error("Unexpected error during pricing calculation", e);
             throw new RuntimeException("Failed to calculate pricing. Please try again.", e);
         }
     }
 
+    @PostMapping(value = "/calculate-pricing/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public ResponseEntity<StreamingResponseBody> calculatePricingBatch(@RequestBody List<PricingRequest> requests) {
+        // Step 1: Reject empty or oversized batches before the response is committed
+        pricingBatchService.validateBatch(requests);
+
+        // Step 2: Stream a JSON array of BatchPricingResult in request order; a bad item
+        // becomes a failure entry instead of failing the whole batch
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.writeStartArray();
+                pricingBatchService.evaluate(requests, result -> writeBatchResult(generator, result));
+                generator.writeEndArray();
+            }
+        };
+
+        log.info("Batch pricing requested for {} items", requests.size());
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
     @GetMapping(value = "/vehicle-types")
     @Produces(MediaType.APPLICATION_JSON)
     public Map<String, PricingService.VehicleTypeRates> getVehicleTypes() {
         try {
             return pricingService.getAllRates();
         } catch (Exception e) {
-            System.err.println("Error fetching vehicle types: " + e.getMessage());
+            log.error("Error fetching vehicle types", e);
             throw new RuntimeException("Failed to fetch vehicle types", e);
         }
     }
@@ -187,22 +284,26 @@ public class ApiController {
         // dropLocation will be used to calculate the fare and charges
 
         try {
-            // Step 1: Get all verified and available vehicles
-            List<Vehicle> availableVehicles = vehicleService.getVerifiedVehicles()
-                    .stream()
-                    .filter(vehicle -> "FREE".equals(vehicle.getStatus()))
-                    .collect(java.util.stream.Collectors.toList());
+            // Step 0: Searches feed surge demand for the pickup cell
+            surgeEngine.recordSearch(pickUpLocation);
+
+            // Step 1: Get all verified and available vehicles (card fields only)
+            List<VehicleCard> availableVehicles = vehicleService.getAvailableVehicleCards();
+
+            // Step 2: Quote a default-length rental per vehicle, with the surge of the cell Step 0 counted in
+            List<Double> fares = pricingService.getSearchFares(availableVehicles, SEARCH_QUOTE_HOURS, pickUpLocation);
 
-            // Step 2: Create response object
+            // Step 3: Create response object
             VehicleResponse response = new VehicleResponse();
             response.setVehicles(availableVehicles);
+            response.setFare(fares);
             response.setTotalCount(availableVehicles.size());
             response.setPickupLocation(pickUpLocation);
             response.setDropLocation(dropLocation);
             response.setSuccess(true);
             response.setMessage("Found " + availableVehicles.size() + " available vehicles");
 
-            // Step 3: Future enhancements
+            // Step 4: Future enhancements
             // TODO: Implement geospatial filtering based on pickup location
             // TODO: Add date/time availability checking
             // TODO: Add vehicle type/category filtering
@@ -266,12 +367,11 @@ public class ApiController {
             }
             // Validate vehicle type
             if (!isValidVehicleType(vehicle.getVehicleType())) {
-                throw new IllegalArgumentException("Invalid vehicle type. Must be: ECONOMY, STANDARD, or PREMIUM");
+                throw new IllegalArgumentException("Invalid vehicle type. Must be one of: " + pricingService.getAllRates().keySet());
             }
 
             // Step 4: Check for duplicate license plates
-            List<Vehicle> existingVehicles = vehicleService.findByLicensePlate(vehicle.getLicensePlate());
-            if (!existingVehicles.isEmpty()) {
+            if (vehicleService.existsByLicensePlate(vehicle.getLicensePlate())) {
                 throw new IllegalArgumentException("Vehicle with license plate " + vehicle.getLicensePlate() + " is already registered");
             }
 
@@ -279,8 +379,8 @@ public class ApiController {
             Vehicle savedVehicle = vehicleService.saveVehicle(vehicle);
 
             // Step 6: Log successful registration
-            System.out.println("Vehicle registered successfully: " + savedVehicle.getLicensePlate() +
-                    " by host: " + currentUser.getName() + " (" + currentUser.getUserId() + ")");
+            log.info("Vehicle registered successfully: {} by host: {} ({})",
+                    savedVehicle.getLicensePlate(), currentUser.getName(), currentUser.getUserId());
 
             // TODO: Send notification to host about next steps
             // TODO: Trigger vehicle verification workflow
@@ -290,13 +390,12 @@ public class ApiController {
 
         } catch (IllegalArgumentException e) {
             // Return error response (in production, use proper error handling with ResponseEntity)
-            System.err.println("Vehicle registration validation error: " + e.getMessage());
+            log.warn("Vehicle registration validation error: {}", e.getMessage());
             throw e; // Re-throw for proper HTTP error response
 
         } catch (Exception e) {
             // Handle unexpected errors
-            System.err.println("Unexpected error during vehicle registration: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Unexpected error during vehicle registration", e);
             throw new RuntimeException("Failed to register vehicle. Please try again.", e);
         }
     }
@@ -363,7 +462,11 @@ public class ApiController {
                 throw new IllegalStateException("Vehicle already has an active rental trip");
             }
 
-            // Step 5: Calculate pricing for the rental
+            // Step 5: Create Location objects from location names
+            Location pickup = createLocationFromName(pickupLocation);
+            Location drop = createLocationFromName(dropLocation);
+
+            // Step 6: Calculate pricing for the rental (surge applies at the pickup location)
             String renterId = currentUser.getUserId();
             Long startTime = java.time.Instant.now().toEpochMilli();
             Long endTime = startTime + (24 * 60 * 60 * 1000); // 24 hours default
@@ -372,36 +475,53 @@ public class ApiController {
             PricingRequest pricingRequest = new PricingRequest();
             pricingRequest.setVehicleId(vehicle.getId());
             pricingRequest.setVehicleType(vehicle.getVehicleType() != null ? vehicle.getVehicleType() : "STANDARD");
+            pricingRequest.setPickupLocation(pickup);
+            pricingRequest.setDropLocation(drop);
             pricingRequest.setPlannedStartTime(startTime);
             pricingRequest.setPlannedEndTime(endTime);
 
             // Calculate pricing
-            PricingCalculation pricing = pricingService.calculatePricing(pricingRequest);
-
-            // Step 6: Create Location objects from location names
-            Location pickup = createLocationFromName(pickupLocation);
-            Location drop = createLocationFromName(dropLocation);
-
-            // Create trip record with pricing and locations
-            Trip trip = tripService.createTrip(renterId, vehicle.getId(), vehicle.getOwnerId(), startTime, endTime);
-            trip.setPickUpLocation(pickup);
-            trip.setDropLocation(drop);
-
-            // Set pricing details in trip
-            trip.setTotalAmount(pricing.getTotalAmount());
-            trip.setSecurityDeposit(pricing.getSecurityDeposit());
-            trip = tripService.saveTrip(trip);
+            PricingCalculation pricing = pricingService.calculatePricing(pricingRequest, vehicle);
+
+            // Step 7: Claim the vehicle. FREE is re-checked on the copy each retry reads, so of
+            // two renters who both passed Step 3 only one gets the car; the other gets a 409
+            Vehicle rentedVehicle = vehicleService.updateVehicle(vehicle.getId(), v -> {
+                if (!"FREE".equals(v.getStatus())) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "Vehicle is not available for rent. Current status: " + v.getStatus());
+                }
+                v.setStatus("RENTED");
+            });
+
+            // Step 8: Create trip record with pricing and locations; hand the vehicle back if that fails
+            Trip trip = null;
+            try {
+                trip = tripService.createTrip(renterId, vehicle.getId(), vehicle.getOwnerId(), startTime, endTime);
+                trip.setPickUpLocation(pickup);
+                trip.setDropLocation(drop);
+
+                // Set pricing details in trip
+                trip.setTotalAmount(pricing.getTotalAmount());
+                trip.setSecurityDeposit(pricing.getSecurityDeposit());
+                trip.setQuotedAmount(pricing.getTotalAmount());
+                trip.setIncludedKm(pricing.getEstimatedKm());
+                trip.setSurgeMultiplier(pricing.getSurgeMultiplier());
+                trip.setBookedHourlyRate(pricing.getBaseRate());
+                trip.setBookedPerKmRate(pricing.getPerKmRate());
+                trip.setBookedRateVersion(pricing.getRateVersion());
+                trip.setCancellationPolicy(cancellationPolicyEngine.getDefaultPolicy());
+                trip = tripService.saveTrip(trip);
+            } catch (RuntimeException e) {
+                releaseVehicle(vehicle.getId(), trip);
+                throw e;
+            }
 
-            // Step 7: Update vehicle status to rented
-            vehicle.setStatus("RENTED");
-            Vehicle rentedVehicle = vehicleService.saveVehicle(vehicle);
+            surgeEngine.recordBooking(pickup);
 
-            // Step 8: Log rental transaction with pricing
-            System.out.println("Vehicle rented successfully: " + rentedVehicle.getLicensePlate() +
-                    " by renter " + currentUser.getName() + " (" + renterId +
-                    "). Trip ID: " + trip.getId() +
-                    ". Total: SGD$" + pricing.getTotalAmount() +
-                    ", Deposit: SGD$" + pricing.getSecurityDeposit());
+            // Step 9: Log rental transaction with pricing
+            log.info("Vehicle rented successfully: {} by renter {} ({}). Trip ID: {}. Total: SGD${}, Deposit: SGD${}",
+                    rentedVehicle.getLicensePlate(), currentUser.getName(), renterId, trip.getId(),
+                    pricing.getTotalAmount(), pricing.getSecurityDeposit());
 
             // TODO: Process payment integration (Stripe/PayPal)
             // TODO: Send notification to host about rental
@@ -410,12 +530,11 @@ public class ApiController {
 
             return rentedVehicle;
 
-        } catch (IllegalArgumentException | IllegalStateException e) {
-            System.err.println("Vehicle rental validation error: " + e.getMessage());
+        } catch (IllegalArgumentException | IllegalStateException | ResponseStatusException e) {
+            log.warn("Vehicle rental validation error: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
-            System.err.println("Unexpected error during vehicle rental: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Unexpected error during vehicle rental", e);
             throw new RuntimeException("Failed to rent vehicle. Please try again.", e);
         }
     }
@@ -440,9 +559,8 @@ public class ApiController {
             }
 
             // Step 3: Log access for audit purposes
-            System.out.println("Trip details accessed: " + tripId +
-                    " | Status: " + trip.getStatus() +
-                    " | Renter: " + trip.getRenterId());
+            log.info("Trip details accessed: {} | Status: {} | Renter: {}",
+                    tripId, trip.getStatus(), trip.getRenterId());
 
             // TODO: Add authorization check - ensure user can access this trip
             // TODO: Add trip access logging for security audit
@@ -451,11 +569,10 @@ public class ApiController {
             return trip;
 
         } catch (IllegalArgumentException e) {
-            System.err.println("Trip retrieval validation error: " + e.getMessage());
+            log.warn("Trip retrieval validation error: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
-            System.err.println("Unexpected error during trip retrieval: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Unexpected error during trip retrieval", e);
             throw new RuntimeException("Failed to retrieve trip details. Please try again.", e);
         }
     }
@@ -498,30 +615,24 @@ public class ApiController {
             Trip startedTrip = tripService.startTrip(tripId, request.getStartOdometerReading());
 
             // Step 6: Add any additional notes or issue reports
+            List<String> notes = new ArrayList<>();
             if (request.getNotes() != null && !request.getNotes().trim().isEmpty()) {
-                startedTrip.setSpecialInstructions(
-                        (startedTrip.getSpecialInstructions() != null ? startedTrip.getSpecialInstructions() + "\n" : "") +
-                                "Start Notes: " + request.getNotes()
-                );
+                notes.add("Start Notes: " + request.getNotes());
             }
 
             if (request.getHasVehicleIssues()) {
-                String issueNote = "VEHICLE ISSUES REPORTED AT START: " +
-                        (request.getIssueDescription() != null ? request.getIssueDescription() : "Not specified");
-                startedTrip.setSpecialInstructions(
-                        (startedTrip.getSpecialInstructions() != null ? startedTrip.getSpecialInstructions() + "\n" : "") +
-                                issueNote
-                );
-                System.out.println("WARNING: Vehicle issues reported for trip " + tripId + ": " + request.getIssueDescription());
+                notes.add("VEHICLE ISSUES REPORTED AT START: " +
+                        (request.getIssueDescription() != null ? request.getIssueDescription() : "Not specified"));
+                log.warn("Vehicle issues reported for trip {}: {}", tripId, request.getIssueDescription());
             }
 
-            // Step 7: Save any updates
-            Trip finalTrip = tripService.saveTrip(startedTrip);
+            // Step 7: Save any updates (re-applied to the latest copy if the trip changed meanwhile)
+            Trip finalTrip = notes.isEmpty() ? startedTrip
+                    : tripService.updateTrip(tripId, t -> appendSpecialInstructions(t, notes));
 
             // Step 8: Log trip start
-            System.out.println("Trip started successfully: " + tripId +
-                    " by renter " + currentUser.getName() +
-                    " | Odometer: " + request.getStartOdometerReading());
+            log.info("Trip started successfully: {} by renter {} | Odometer: {}",
+                    tripId, currentUser.getName(), request.getStartOdometerReading());
 
             // TODO: Send notification to host about trip start
             // TODO: Update vehicle location tracking
@@ -530,11 +641,10 @@ public class ApiController {
             return finalTrip;
 
         } catch (IllegalArgumentException | IllegalStateException e) {
-            System.err.println("Trip start validation error: " + e.getMessage());
+            log.warn("Trip start validation error: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
-            System.err.println("Unexpected error during trip start: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Unexpected error during trip start", e);
             throw new RuntimeException("Failed to start trip. Please try again.", e);
         }
     }
@@ -575,62 +685,57 @@ public class ApiController {
 
             // Step 4: Complete the trip using service
             Trip completedTrip = tripService.completeTrip(tripId, request.getEndOdometerReading());
+            Vehicle vehicle = vehicleService.findById(completedTrip.getVehicleId());
+
+            String vehicleType = vehicle != null && vehicle.getVehicleType() != null ? vehicle.getVehicleType() : "STANDARD";
+            // Current rates only matter for trips booked before rates were snapshotted on the trip
+            Double customPricePerHour = vehicle != null ? vehicle.getCustomPricePerHour() : null;
 
             // Step 5: Add completion notes and issue reports
+            List<String> notes = new ArrayList<>();
             if (request.getNotes() != null && !request.getNotes().trim().isEmpty()) {
-                completedTrip.setSpecialInstructions(
-                        (completedTrip.getSpecialInstructions() != null ? completedTrip.getSpecialInstructions() + "\n" : "") +
-                                "Completion Notes: " + request.getNotes()
-                );
+                notes.add("Completion Notes: " + request.getNotes());
             }
 
             if (request.getHasVehicleIssues()) {
-                String issueNote = "VEHICLE ISSUES REPORTED AT RETURN: " +
-                        (request.getIssueDescription() != null ? request.getIssueDescription() : "Not specified");
-                completedTrip.setSpecialInstructions(
-                        (completedTrip.getSpecialInstructions() != null ? completedTrip.getSpecialInstructions() + "\n" : "") +
-                                issueNote
-                );
-                System.out.println("WARNING: Vehicle issues reported at trip completion " + tripId + ": " + request.getIssueDescription());
+                notes.add("VEHICLE ISSUES REPORTED AT RETURN: " +
+                        (request.getIssueDescription() != null ? request.getIssueDescription() : "Not specified"));
+                log.warn("Vehicle issues reported at trip completion {}: {}", tripId, request.getIssueDescription());
             }
 
             // Step 6: Record additional completion details
             if (request.getFuelLevel() != null) {
                 // In a real system, we'd have a fuel level field in Trip model
-                String fuelNote = "Fuel level at return: " + (request.getFuelLevel() * 100) + "%";
-                completedTrip.setSpecialInstructions(
-                        (completedTrip.getSpecialInstructions() != null ? completedTrip.getSpecialInstructions() + "\n" : "") +
-                                fuelNote
-                );
+                notes.add("Fuel level at return: " + (request.getFuelLevel() * 100) + "%");
             }
 
             if (request.getRequiresCleaning()) {
-                String cleaningNote = "Vehicle requires cleaning - additional fee may apply";
-                completedTrip.setSpecialInstructions(
-                        (completedTrip.getSpecialInstructions() != null ? completedTrip.getSpecialInstructions() + "\n" : "") +
-                                cleaningNote
-                );
+                notes.add("Vehicle requires cleaning - cleaning fee applied");
             }
 
             // Step 7: Update vehicle status back to available
-            List<Vehicle> vehicles = vehicleService.findByLicensePlate(completedTrip.getVehicleId()); // Using workaround
-            if (!vehicles.isEmpty()) {
-                Vehicle vehicle = vehicles.get(0);
-                vehicle.setStatus("FREE");
-                vehicleService.saveVehicle(vehicle);
+            if (vehicle != null) {
+                vehicleService.updateVehicle(vehicle.getId(), v -> v.setStatus("FREE"));
             }
 
-            // Step 8: Save final trip
-            Trip finalTrip = tripService.saveTrip(completedTrip);
+            // Step 8: Settle the final fare from actual duration and distance, and save the final trip
+            // (settled and annotated again on the latest copy if the trip changed meanwhile)
+            Trip finalTrip = tripService.updateTrip(tripId, t -> {
+                SettlementEngine.Settlement settlement =
+                        settlementEngine.settle(t, vehicleType, customPricePerHour, request.getRequiresCleaning());
+                t.setTotalAmount(settlement.getTotal());
+                t.setSettlementLines(settlement.getLines());
+                t.setSettledAtEpoch(java.time.Instant.now().toEpochMilli());
+                appendSpecialInstructions(t, notes);
+            });
 
             // Step 9: Calculate distance traveled
             Long distanceTraveled = finalTrip.getDistanceTraveled();
 
             // Step 10: Log trip completion
-            System.out.println("Trip completed successfully: " + tripId +
-                    " by renter " + currentUser.getName() +
-                    " | Distance: " + (distanceTraveled != null ? distanceTraveled + "km" : "N/A") +
-                    " | Total: SGD$" + finalTrip.getTotalAmount());
+            log.info("Trip completed successfully: {} by renter {} | Distance: {} | Quoted: SGD${} | Settled: SGD${}",
+                    tripId, currentUser.getName(), distanceTraveled != null ? distanceTraveled + "km" : "N/A",
+                    finalTrip.getQuotedAmount(), finalTrip.getTotalAmount());
 
             // TODO: Process final payment and release security deposit
             // TODO: Send completion notifications to both parties
@@ -639,11 +744,10 @@ public class ApiController {
             return finalTrip;
 
         } catch (IllegalArgumentException | IllegalStateException e) {
-            System.err.println("Trip completion validation error: " + e.getMessage());
+            log.warn("Trip completion validation error: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
-            System.err.println("Unexpected error during trip completion: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Unexpected error during trip completion", e);
             throw new RuntimeException("Failed to complete trip. Please try again.", e);
         }
     }
@@ -693,57 +797,53 @@ public class ApiController {
                 throw new IllegalArgumentException("Cancellation reason is required");
             }
 
-            // Step 4: Cancel the trip using service
-            Trip cancelledTrip = tripService.cancelTrip(tripId, cancellationReason);
+            // Step 4: Work out the cancellation fee and cancel the trip using service
+            boolean feeWaived = !currentUser.getUserId().equals(trip.getRenterId());
+            CancellationPolicyEngine.CancellationQuote cancellation =
+                    cancellationPolicyEngine.quote(trip, java.time.Instant.now().toEpochMilli(), feeWaived);
+            Trip cancelledTrip = tripService.cancelTrip(tripId, cancellationReason,
+                    cancellation.getFee(), cancellation.getRefund());
 
             // Step 5: Add additional cancellation details
+            List<String> notes = new ArrayList<>();
             if (request.getAdditionalNotes() != null && !request.getAdditionalNotes().trim().isEmpty()) {
-                cancelledTrip.setSpecialInstructions(
-                        (cancelledTrip.getSpecialInstructions() != null ? cancelledTrip.getSpecialInstructions() + "\n" : "") +
-                                "Cancellation Notes: " + request.getAdditionalNotes()
-                );
+                notes.add("Cancellation Notes: " + request.getAdditionalNotes());
             }
 
             // Step 6: Update vehicle status back to available if needed
-            List<Vehicle> vehicles = vehicleService.findByLicensePlate(trip.getVehicleId());
-            if (!vehicles.isEmpty()) {
-                Vehicle vehicle = vehicles.get(0);
-                if ("RENTED".equals(vehicle.getStatus())) {
-                    vehicle.setStatus("FREE");
-                    vehicleService.saveVehicle(vehicle);
-                }
+            Vehicle vehicle = vehicleService.findById(cancelledTrip.getVehicleId());
+            if (vehicle != null && "RENTED".equals(vehicle.getStatus())) {
+                vehicleService.updateVehicle(vehicle.getId(), v -> {
+                    if ("RENTED".equals(v.getStatus())) {
+                        v.setStatus("FREE");
+                    }
+                });
             }
 
             // Step 7: Set cancellation metadata
             String cancelledBy = currentUser.isAdmin() ? "ADMIN" :
                     currentUser.getUserId().equals(trip.getRenterId()) ? "RENTER" : "HOST";
+            notes.add("Cancelled by: " + cancelledBy + " (" + currentUser.getName() + ")");
 
-            cancelledTrip.setSpecialInstructions(
-                    (cancelledTrip.getSpecialInstructions() != null ? cancelledTrip.getSpecialInstructions() + "\n" : "") +
-                            "Cancelled by: " + cancelledBy + " (" + currentUser.getName() + ")"
-            );
-
-            // Step 8: Save final trip
-            Trip finalTrip = tripService.saveTrip(cancelledTrip);
+            // Step 8: Save final trip (re-applied to the latest copy if the trip changed meanwhile)
+            Trip finalTrip = tripService.updateTrip(tripId, t -> appendSpecialInstructions(t, notes));
 
             // Step 9: Log cancellation
-            System.out.println("Trip cancelled: " + tripId +
-                    " by " + cancelledBy + " (" + currentUser.getName() + ")" +
-                    " | Reason: " + cancellationReason);
+            log.info("Trip cancelled: {} by {} ({}) | Reason: {} | Policy: {} | Fee: SGD${} ({}%) | Refund: SGD${}",
+                    tripId, cancelledBy, currentUser.getName(), cancellationReason, cancellation.getPolicy(),
+                    cancellation.getFee(), cancellation.getFeePercent(), cancellation.getRefund());
 
-            // TODO: Calculate and process cancellation fees
-            // TODO: Process refunds if applicable
+            // TODO: Process refunds with the payment provider
             // TODO: Send cancellation notifications
             // TODO: Update analytics/metrics
 
             return finalTrip;
 
-        } catch (IllegalArgumentException e) {
-            System.err.println("Trip cancellation validation error: " + e.getMessage());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.warn("Trip cancellation validation error: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
-            System.err.println("Unexpected error during trip cancellation: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Unexpected error during trip cancellation", e);
             throw new RuntimeException("Failed to cancel trip. Please try again.", e);
         }
     }
@@ -805,19 +905,17 @@ public class ApiController {
             if (isRenter) {
                 // Renter rating the host/vehicle
                 ratedTrip = tripService.addRatingsAndReviews(tripId, rating, null, comments, null);
-                System.out.println("Renter rating submitted for trip " + tripId + ": " + rating + " stars");
+                log.info("Renter rating submitted for trip {}: {} stars", tripId, rating);
             } else {
                 // Host rating the renter
                 ratedTrip = tripService.addRatingsAndReviews(tripId, null, rating, null, comments);
-                System.out.println("Host rating submitted for trip " + tripId + ": " + rating + " stars");
+                log.info("Host rating submitted for trip {}: {} stars", tripId, rating);
             }
 
             // Step 6: Log the rating submission
             String raterType = isRenter ? "RENTER" : "HOST";
-            System.out.println("Rating submitted for trip " + tripId +
-                    " by " + raterType + " (" + currentUser.getName() + ")" +
-                    " | Rating: " + rating + "/5" +
-                    (comments != null ? " | Comment: " + comments : ""));
+            log.info("Rating submitted for trip {} by {} ({}) | Rating: {}/5 | Comment: {}",
+                    tripId, raterType, currentUser.getName(), rating, comments != null ? comments : "-");
 
             // TODO: Update user reputation scores
             // TODO: Send notification to the other party
@@ -826,11 +924,10 @@ public class ApiController {
             return ratedTrip;
 
         } catch (IllegalArgumentException | IllegalStateException e) {
-            System.err.println("Trip rating validation error: " + e.getMessage());
+            log.warn("Trip rating validation error: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
-            System.err.println("Unexpected error during trip rating: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Unexpected error during trip rating", e);
             throw new RuntimeException("Failed to submit rating. Please try again.", e);
         }
     }
@@ -862,20 +959,53 @@ public class ApiController {
                     .orElse(null);
 
             if (activeTrip != null) {
-                System.out.println("Active trip found for user " + currentUser.getName() + ": " + activeTrip.getId());
+                log.info("Active trip found for user {}: {}", currentUser.getName(), activeTrip.getId());
             }
 
             return activeTrip;
 
         } catch (Exception e) {
-            System.err.println("Error getting active trip: " + e.getMessage());
+            log.error("Error getting active trip", e);
             throw new RuntimeException("Failed to get active trip", e);
         }
     }
 
+    @GetMapping(value = "/trips/report")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getBookingReport(@RequestHeader("Authorization") String authHeader,
+                                                @RequestParam Long startEpoch, @RequestParam Long endEpoch) {
+        try {
+            // Step 0: Authentication; the report covers every user's trips, so admins only
+            AuthUser currentUser = getAuthenticatedUser(authHeader);
+            if (currentUser == null) {
+                throw new IllegalArgumentException("Authentication required. Please login.");
+            }
+            if (!currentUser.isAdmin()) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only admins can view booking reports");
+            }
+
+            // Step 1: Validate the range
+            if (endEpoch < startEpoch) {
+                throw new IllegalArgumentException("End of the range must not be before its start");
+            }
+
+            // Step 2: Aggregate batch by batch
+            Map<String, Object> report = tripService.getBookingReport(startEpoch, endEpoch);
+            log.info("Booking report for {} - {}: {} trips", startEpoch, endEpoch, report.get("trips"));
+            return report;
+
+        } catch (IllegalArgumentException | ResponseStatusException e) {
+            log.warn("Booking report validation error: {}", e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            log.error("Unexpected error building booking report", e);
+            throw new RuntimeException("Failed to build booking report. Please try again.", e);
+        }
+    }
+
     @GetMapping(value = "/trips/my-trips")
     @Produces(MediaType.APPLICATION_JSON)
-    public List<Trip> getUserTrips(@RequestHeader("Authorization") String authHeader) {
+    public List<TripSummary> getUserTrips(@RequestHeader("Authorization") String authHeader) {
         try {
             // Step 0: Authentication
             AuthUser currentUser = getAuthenticatedUser(authHeader);
@@ -883,14 +1013,14 @@ public class ApiController {
                 throw new IllegalArgumentException("Authentication required. Please login.");
             }
 
-            // Step 1: Find all trips for user
-            List<Trip> userTrips;
+            // Step 1: Find all trips for user (list fields only)
+            List<TripSummary> userTrips;
             if (currentUser.isRenter()) {
-                userTrips = tripService.findTripsByRenter(currentUser.getUserId());
-                System.out.println("Found " + userTrips.size() + " trips for renter: " + currentUser.getName());
+                userTrips = tripService.findTripSummariesByRenter(currentUser.getUserId());
+                log.info("Found {} trips for renter: {}", userTrips.size(), currentUser.getName());
             } else if (currentUser.isHost()) {
-                userTrips = tripService.findTripsByOwner(currentUser.getUserId());
-                System.out.println("Found " + userTrips.size() + " trips for host: " + currentUser.getName());
+                userTrips = tripService.findTripSummariesByOwner(currentUser.getUserId());
+                log.info("Found {} trips for host: {}", userTrips.size(), currentUser.getName());
             } else {
                 return new ArrayList<>(); // Admins don't have personal trips
             }
@@ -898,13 +1028,22 @@ public class ApiController {
             return userTrips;
 
         } catch (Exception e) {
-            System.err.println("Error getting user trips: " + e.getMessage());
+            log.error("Error getting user trips", e);
             throw new RuntimeException("Failed to get user trips", e);
         }
     }
 
     // Helper Methods
 
+    private void writeBatchResult(JsonGenerator generator, BatchPricingResult result) {
+        try {
+            generator.writeObject(result);
+        } catch (IOException e) {
+            // Client went away mid-stream; abort the rest of the batch
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private String extractTokenFromHeader(String authHeader) {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             return authHeader.substring("Bearer ".length());
@@ -912,6 +1051,31 @@ public class ApiController {
         return null;
     }
 
+    // Undo a rentVehicle claim whose trip could not be saved: cancel the trip if it was
+    // created, and put the vehicle back to FREE if it is still RENTED
+    private void releaseVehicle(String vehicleId, Trip trip) {
+        try {
+            if (trip != null && trip.getId() != null) {
+                tripService.cancelTrip(trip.getId(), "Booking failed", 0.0, 0.0);
+            }
+            vehicleService.updateVehicle(vehicleId, v -> {
+                if ("RENTED".equals(v.getStatus())) {
+                    v.setStatus("FREE");
+                }
+            });
+        } catch (Exception e) {
+            log.error("Failed to release vehicle {} after a failed booking", vehicleId, e);
+        }
+    }
+
+    // One note per line, after any existing instructions
+    private static void appendSpecialInstructions(Trip trip, List<String> notes) {
+        for (String note : notes) {
+            trip.setSpecialInstructions(
+                    (trip.getSpecialInstructions() != null ? trip.getSpecialInstructions() + "\n" : "") + note);
+        }
+    }
+
     private AuthUser getAuthenticatedUser(String authHeader) {
         String token = extractTokenFromHeader(authHeader);
         if (token == null) {
@@ -921,47 +1085,12 @@ public class ApiController {
     }
 
     private boolean isValidVehicleType(String vehicleType) {
-        return vehicleType != null &&
-                ("ECONOMY".equalsIgnoreCase(vehicleType) ||
-                        "STANDARD".equalsIgnoreCase(vehicleType) ||
-                        "PREMIUM".equalsIgnoreCase(vehicleType));
+        // Valid types come from the live rate table, so newly configured types are accepted without a redeploy
+        return vehicleType != null && pricingService.getRatesForVehicleType(vehicleType) != null;
     }
 
     private Location createLocationFromName(String locationName) {
-        Location location = new Location();
-
-        switch (locationName) {
-            case "Connaught Place":
-                location.setLat(28.6315);
-                location.setLon(77.2167);
-                break;
-            case "India Gate":
-                location.setLat(28.6129);
-                location.setLon(77.2295);
-                break;
-            case "Red Fort":
-                location.setLat(28.6562);
-                location.setLon(77.2410);
-                break;
-            case "Karol Bagh":
-                location.setLat(28.6519);
-                location.setLon(77.1909);
-                break;
-            case "Saket":
-                location.setLat(28.5245);
-                location.setLon(77.2066);
-                break;
-            case "Gurgaon Cyber City":
-                location.setLat(28.4950);
-                location.setLon(77.0890);
-                break;
-            default:
-                // Default to Connaught Place if unknown location
-                location.setLat(28.6315);
-                location.setLon(77.2167);
-                break;
-        }
-
-        return location;
+        // Unknown names default to Connaught Place
+        return Landmark.fromName(locationName).toLocation();
     }
 }
@@ -0,0 +1,164 @@
+package com.drivelah.api;
+
+import com.drivelah.client.ConnectionPoolMetrics;
+import com.drivelah.client.IndexInitializer;
+import com.drivelah.client.MongoRepo;
+import com.drivelah.client.ReactiveMongoRepo;
+import com.drivelah.persistence.UserService;
+import com.drivelah.service.AuthService;
+import com.drivelah.service.DistanceEstimator;
+import com.drivelah.service.PricingBatchService;
+import com.drivelah.service.PricingRateTable;
+import com.drivelah.service.PricingService;
+import com.drivelah.service.RateLimiter;
+import com.drivelah.service.SurgePricingEngine;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Monitoring endpoints: counters from the in-process components
+ */
+@RestController
+public class MetricsController {
+
+    private final AuthService authService;
+    private final RateLimiter rateLimiter;
+    private final SurgePricingEngine surgeEngine;
+    private final PricingService pricingService;
+    private final PricingRateTable pricingRates;
+    private final PricingBatchService pricingBatchService;
+    private final DistanceEstimator distanceEstimator;
+    private final UserService userService;
+    // Absent with the inmemory profile
+    private final Optional<IndexInitializer> indexInitializer;
+    private final MongoRepo<?> mongoRepo;
+    private final ReactiveMongoRepo<?> reactiveMongoRepo;
+    private final List<ConnectionPoolMetrics> mongoPoolMetrics;
+
+    @Autowired
+    public MetricsController(AuthService authService, RateLimiter rateLimiter, SurgePricingEngine surgeEngine,
+                             PricingService pricingService, PricingRateTable pricingRates,
+                             PricingBatchService pricingBatchService,
+                             DistanceEstimator distanceEstimator, UserService userService,
+                             Optional<IndexInitializer> indexInitializer, MongoRepo<?> mongoRepo,
+                             ReactiveMongoRepo<?> reactiveMongoRepo, List<ConnectionPoolMetrics> mongoPoolMetrics) {
+        this.authService = authService;
+        this.rateLimiter = rateLimiter;
+        this.surgeEngine = surgeEngine;
+        this.pricingService = pricingService;
+        this.pricingRates = pricingRates;
+        this.pricingBatchService = pricingBatchService;
+        this.distanceEstimator = distanceEstimator;
+        this.userService = userService;
+        this.indexInitializer = indexInitializer;
+        this.mongoRepo = mongoRepo;
+        this.reactiveMongoRepo = reactiveMongoRepo;
+        this.mongoPoolMetrics = mongoPoolMetrics;
+    }
+
+    @GetMapping(value = "/metrics/password-hashing")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getPasswordHashingMetrics() {
+        return authService.getPasswordHashingStats();
+    }
+
+    @GetMapping(value = "/metrics/token-revocation")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getTokenRevocationMetrics() {
+        return authService.getRevocationStats();
+    }
+
+    @GetMapping(value = "/metrics/rate-limits")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getRateLimitMetrics() {
+        return rateLimiter.getStats();
+    }
+
+    @GetMapping(value = "/metrics/surge")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getSurgeMetrics() {
+        return surgeEngine.getStats();
+    }
+
+    @GetMapping(value = "/metrics/quote-cache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getQuoteCacheMetrics() {
+        return pricingService.getQuoteCacheStats();
+    }
+
+    @GetMapping(value = "/metrics/pricing-rates")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getPricingRateMetrics() {
+        return pricingRates.getStats();
+    }
+
+    @GetMapping(value = "/metrics/batch-pricing")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getBatchPricingMetrics() {
+        return pricingBatchService.getStats();
+    }
+
+    @GetMapping(value = "/metrics/distance")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getDistanceMetrics() {
+        return distanceEstimator.getStats();
+    }
+
+    @GetMapping(value = "/metrics/batch-writes")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getBatchWriteMetrics() {
+        return userService.getLastLoginWriterStats();
+    }
+
+    @GetMapping(value = "/metrics/user-cache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getUserCacheMetrics() {
+        return userService.getCacheStats();
+    }
+
+    @GetMapping(value = "/metrics/indexes")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getIndexMetrics() {
+        return indexInitializer.map(IndexInitializer::getStats).orElseGet(LinkedHashMap::new);
+    }
+
+    @GetMapping(value = "/metrics/entity-cache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getEntityCacheMetrics() {
+        return mongoRepo.getEntityCacheStats();
+    }
+
+    @GetMapping(value = "/metrics/query-shapes")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getQueryShapeMetrics(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return mongoRepo.getQueryShapeStats(limit);
+    }
+
+    // Same counters for the /reactive endpoints' reads (ReactiveMongoRepo has its own profiler)
+    @GetMapping(value = "/metrics/reactive-query-shapes")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getReactiveQueryShapeMetrics(
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return reactiveMongoRepo.getQueryShapeStats(limit);
+    }
+
+    @GetMapping(value = "/metrics/mongo-pool")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getMongoPoolMetrics() {
+        Map<String, Object> pools = new LinkedHashMap<>();
+        for (ConnectionPoolMetrics pool : mongoPoolMetrics) {
+            Map<String, Object> stats = pool.getStats();
+            pools.put((String) stats.get("client"), stats);
+        }
+        return pools;
+    }
+}
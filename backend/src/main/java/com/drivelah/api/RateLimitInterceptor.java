@@ -0,0 +1,65 @@
+package com.drivelah.api;
+
+import com.drivelah.model.auth.AuthUser;
+import com.drivelah.service.AuthService;
+import com.drivelah.service.RateLimiter;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects requests over the configured rate with 429 before any controller work runs.
+ * Buckets are per mapping pattern, so /trip/A/start and /trip/B/start share a limit.
+ * Only the initial REQUEST dispatch is charged: async handlers (CompletableFuture, Mono,
+ * StreamingResponseBody) are dispatched again with ASYNC once their result is ready.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimiter rateLimiter;
+    private final AuthService authService;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter, AuthService authService) {
+        this.rateLimiter = rateLimiter;
+        this.authService = authService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod)) {
+            return true;
+        }
+
+        String route = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (!rateLimiter.isLimited(route)) {
+            return true;
+        }
+
+        // Token validation is served from memory (user cache + revocation filter)
+        AuthUser user = null;
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            user = authService.validateToken(authHeader.substring("Bearer ".length()));
+        }
+
+        String clientKey = user != null ? user.getUserId() : "ip:" + request.getRemoteAddr();
+        long waitNanos = rateLimiter.tryAcquire(route, user != null ? user.getRole() : null, clientKey);
+        if (waitNanos == 0) {
+            return true;
+        }
+
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+        response.setStatus(429);
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.getWriter().write("{\"success\":false,\"message\":\"Too many requests, retry in "
+                + retryAfterSeconds + "s\"}");
+        return false;
+    }
+}
@@ -0,0 +1,164 @@
+package com.drivelah.api;
+
+import com.drivelah.model.ApiModel.VehicleRequest;
+import com.drivelah.model.ApiModel.VehicleResponse;
+import com.drivelah.model.Location;
+import com.drivelah.model.auth.AuthUser;
+import com.drivelah.model.trip.Trip;
+import com.drivelah.model.trip.TripSummary;
+import com.drivelah.persistence.TripService;
+import com.drivelah.persistence.VehicleService;
+import com.drivelah.service.AuthService;
+import com.drivelah.service.PricingService;
+import com.drivelah.service.SurgePricingEngine;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-blocking variants of the read-heavy endpoints, under /reactive
+ *
+ * Same request / response shapes as the ApiController versions, but the Mongo reads go
+ * through ReactiveMongoRepo and the handlers return Mono / Flux. The servlet thread is
+ * released as soon as the query is issued, so a slow Mongo backs up in the driver's
+ * connection pool instead of exhausting Tomcat's thread pool.
+ */
+@RestController
+@RequestMapping("/reactive")
+public class ReactiveApiController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveApiController.class);
+
+    private static final double SEARCH_QUOTE_HOURS = 24.0;
+
+    private final VehicleService vehicleService;
+    private final TripService tripService;
+    private final AuthService authService;
+    private final PricingService pricingService;
+    private final SurgePricingEngine surgeEngine;
+
+    @Autowired
+    public ReactiveApiController(VehicleService vehicleService, TripService tripService, AuthService authService,
+                                 PricingService pricingService, SurgePricingEngine surgeEngine) {
+        this.vehicleService = vehicleService;
+        this.tripService = tripService;
+        this.authService = authService;
+        this.pricingService = pricingService;
+        this.surgeEngine = surgeEngine;
+    }
+
+    @PostMapping(value = "/get-vehicles")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Mono<VehicleResponse> getVehicles(@RequestBody VehicleRequest request) {
+        Location pickUpLocation = request.getPickUpLocation();
+        Location dropLocation = request.getDropLocation();
+
+        // Step 0: Searches feed surge demand for the pickup cell
+        surgeEngine.recordSearch(pickUpLocation);
+
+        // Step 1: Verified FREE vehicles as cards, then quote each (pricing is in-memory)
+        return vehicleService.streamAvailableVehicleCards()
+                .collectList()
+                .map(vehicles -> {
+                    // Surge of the cell Step 0 counted this search in
+                    List<Double> fares = pricingService.getSearchFares(vehicles, SEARCH_QUOTE_HOURS, pickUpLocation);
+
+                    VehicleResponse response = new VehicleResponse();
+                    response.setVehicles(vehicles);
+                    response.setFare(fares);
+                    response.setTotalCount(vehicles.size());
+                    response.setPickupLocation(pickUpLocation);
+                    response.setDropLocation(dropLocation);
+                    response.setSuccess(true);
+                    response.setMessage("Found " + vehicles.size() + " available vehicles");
+                    return response;
+                })
+                .onErrorResume(e -> {
+                    VehicleResponse errorResponse = new VehicleResponse();
+                    errorResponse.setSuccess(false);
+                    errorResponse.setMessage("Error retrieving vehicles: " + e.getMessage());
+                    errorResponse.setVehicles(new ArrayList<>());
+                    errorResponse.setTotalCount(0);
+                    return Mono.just(errorResponse);
+                });
+    }
+
+    @GetMapping(value = "/trip/{tripId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Mono<Trip> getTripById(@PathVariable String tripId,
+                                  @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        // Step 0: Authentication (token validation is served from memory)
+        AuthUser currentUser = getAuthenticatedUser(authHeader);
+        if (currentUser == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED,
+                    "Authentication required. Please login."));
+        }
+
+        // Step 1: Validate input
+        if (tripId == null || tripId.trim().isEmpty()) {
+            return Mono.error(new IllegalArgumentException("Trip ID cannot be empty"));
+        }
+
+        // Step 2: Find the trip; only its renter, its vehicle's owner or an admin may read it
+        return tripService.findByIdAsync(tripId)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Trip not found with ID: " + tripId)))
+                .flatMap(trip -> {
+                    if (!canView(currentUser, trip)) {
+                        return Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN,
+                                "You are not authorized to view this trip"));
+                    }
+                    return Mono.just(trip);
+                })
+                .doOnNext(trip -> log.info("Trip details accessed: {} | Status: {} | Renter: {}",
+                        tripId, trip.getStatus(), trip.getRenterId()))
+                .doOnError(ResponseStatusException.class,
+                        e -> log.warn("Trip retrieval rejected: {}", e.getReason()));
+    }
+
+    @GetMapping(value = "/trips/my-trips")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Flux<TripSummary> getUserTrips(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        // Step 0: Authentication (token validation is served from memory)
+        AuthUser currentUser = getAuthenticatedUser(authHeader);
+        if (currentUser == null) {
+            return Flux.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED,
+                    "Authentication required. Please login."));
+        }
+
+        // Step 1: Trips for the user, emitted as they are read
+        if (currentUser.isRenter()) {
+            return tripService.streamTripSummariesByRenter(currentUser.getUserId());
+        } else if (currentUser.isHost()) {
+            return tripService.streamTripSummariesByOwner(currentUser.getUserId());
+        }
+        return Flux.empty(); // Admins don't have personal trips
+    }
+
+    // Helper Methods
+
+    private AuthUser getAuthenticatedUser(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        return authService.validateToken(authHeader.substring("Bearer ".length()));
+    }
+
+    private static boolean canView(AuthUser user, Trip trip) {
+        return user.isAdmin()
+                || user.getUserId().equals(trip.getRenterId())
+                || user.getUserId().equals(trip.getOwnerId());
+    }
+}
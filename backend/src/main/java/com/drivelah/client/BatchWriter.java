@@ -0,0 +1,340 @@
+package com.drivelah.client;
+
+import com.mongodb.bulk.BulkWriteError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind buffer for one collection, flushed as bulk writes
+ *
+ * Callers queue partial updates / upserts and return immediately. A background thread
+ * sends them through MongoRepo.bulkUpdate / bulkUpsert every flush-interval, or as soon
+ * as max-batch-size writes are pending. Writes queued under the same key coalesce (last
+ * one wins), so e.g. repeated logins by one user cost one write per flush.
+ *
+ * A failed flush is logged and its writes are re-queued unless a newer write for the
+ * same key has arrived meanwhile. When the bulk write reports which writes failed (e.g. a
+ * validation or duplicate-key error), only those are charged an attempt and re-queued;
+ * the others count as written, or are re-queued uncharged if an ORDERED write stopped
+ * before them. A write that fails max-attempts times is logged and dropped, so one bad
+ * document cannot be retried forever. close() flushes whatever is left.
+ *
+ * @param <T> The document type
+ */
+public class BatchWriter<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchWriter.class);
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    private final String name;
+    private final MongoRepo<T> repository;
+    private final Class<T> entityClass;
+    private final int maxBatchSize;
+    private final int maxAttempts;
+    private final BulkOperations.BulkMode mode;
+    private final ScheduledExecutorService flusher;
+    private final long flushIntervalMillis;
+
+    // Pending writes by key, in arrival order; guarded by "this"
+    private LinkedHashMap<Object, PendingWrite> pending = new LinkedHashMap<>();
+    private long sequence;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    // Metrics
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+
+    public BatchWriter(String name, MongoRepo<T> repository, Class<T> entityClass,
+                       int maxBatchSize, long flushIntervalMillis, BulkOperations.BulkMode mode) {
+        this(name, repository, entityClass, maxBatchSize, flushIntervalMillis, mode, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * @param maxAttempts Failed writes are retried on later flushes, then dropped after this many failures
+     */
+    public BatchWriter(String name, MongoRepo<T> repository, Class<T> entityClass,
+                       int maxBatchSize, long flushIntervalMillis, BulkOperations.BulkMode mode, int maxAttempts) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.name = name;
+        this.repository = repository;
+        this.entityClass = entityClass;
+        this.maxBatchSize = maxBatchSize;
+        this.maxAttempts = maxAttempts;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.mode = mode;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-writer-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the background thread and write everything still pending
+     */
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Queue an update of the first document matching the query
+     *
+     * @param key Coalescing key (e.g. the document ID); null never coalesces
+     */
+    public void update(Object key, Query query, Update update) {
+        enqueue(key, new PendingWrite(query, update, false));
+    }
+
+    /**
+     * Queue an upsert: update the first matching document, or insert one
+     *
+     * @param key Coalescing key (e.g. the document ID); null never coalesces
+     */
+    public void upsert(Object key, Query query, Update update) {
+        enqueue(key, new PendingWrite(query, update, true));
+    }
+
+    /**
+     * Write everything pending now, in batches of at most max-batch-size
+     */
+    public void flush() {
+        flushRequested.set(false);
+        Map<Object, PendingWrite> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        List<Map.Entry<Object, PendingWrite>> entries = new ArrayList<>(batch.entrySet());
+        for (int from = 0; from < entries.size(); from += maxBatchSize) {
+            List<Map.Entry<Object, PendingWrite>> chunk = entries.subList(from, Math.min(from + maxBatchSize, entries.size()));
+            write(chunk);
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (this) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Batch sizes and flush latency, for monitoring
+     */
+    public Map<String, Object> getStats() {
+        long batchCount = batches.sum();
+        long documents = written.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", getPendingCount());
+        stats.put("queued", queued.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("batches", batchCount);
+        stats.put("written", documents);
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("avgBatchSize", batchCount > 0 ? (double) documents / batchCount : 0.0);
+        stats.put("largestBatch", largestBatch.get());
+        stats.put("avgFlushMillis", batchCount > 0 ? flushNanos.sum() / 1_000_000.0 / batchCount : 0.0);
+        stats.put("maxFlushMillis", maxFlushNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    // Private helper methods
+
+    private void enqueue(Object key, PendingWrite write) {
+        int size;
+        synchronized (this) {
+            Object effectiveKey = key != null ? key : new Unkeyed(sequence++);
+            if (pending.remove(effectiveKey) != null) {
+                coalesced.increment();
+            }
+            pending.put(effectiveKey, write);
+            size = pending.size();
+        }
+        queued.increment();
+
+        if (size >= maxBatchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flush);
+            } catch (Exception e) {
+                // Shutting down; close() flushes what is left
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private void write(List<Map.Entry<Object, PendingWrite>> chunk) {
+        List<Map.Entry<Object, PendingWrite>> updates = new ArrayList<>();
+        List<Map.Entry<Object, PendingWrite>> upserts = new ArrayList<>();
+        for (Map.Entry<Object, PendingWrite> entry : chunk) {
+            (entry.getValue().upsert ? upserts : updates).add(entry);
+        }
+
+        long started = System.nanoTime();
+        List<Map.Entry<Object, PendingWrite>> failed = new ArrayList<>();
+        List<Map.Entry<Object, PendingWrite>> notAttempted = new ArrayList<>();
+        Exception failure = null;
+        for (List<Map.Entry<Object, PendingWrite>> entries : List.of(updates, upserts)) {
+            if (entries.isEmpty()) {
+                continue;
+            }
+            try {
+                send(entries);
+            } catch (BulkOperationException e) {
+                failure = e;
+                collectFailures(entries, e.getErrors(), failed, notAttempted);
+            } catch (Exception e) {
+                failure = e;
+                failed.addAll(entries);
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        written.add(chunk.size() - failed.size() - notAttempted.size());
+        if (failure == null) {
+            batches.increment();
+            flushNanos.add(elapsed);
+            maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+            largestBatch.accumulateAndGet(chunk.size(), Math::max);
+        } else {
+            failedBatches.increment();
+            log.error("Batch write to {} failed for {} of {} writes, re-queued", name,
+                    failed.size() + notAttempted.size(), chunk.size(), failure);
+            requeue(failed, true);
+            requeue(notAttempted, false);
+        }
+    }
+
+    private void send(List<Map.Entry<Object, PendingWrite>> entries) {
+        List<Pair<Query, Update>> writes = new ArrayList<>(entries.size());
+        for (Map.Entry<Object, PendingWrite> entry : entries) {
+            writes.add(Pair.of(entry.getValue().query, entry.getValue().update));
+        }
+        if (entries.get(0).getValue().upsert) {
+            repository.bulkUpsert(writes, mode, entityClass);
+        } else {
+            repository.bulkUpdate(writes, mode, entityClass);
+        }
+    }
+
+    // The errors name the failed writes by index; ORDERED writes stop at the first one
+    private void collectFailures(List<Map.Entry<Object, PendingWrite>> entries, List<BulkWriteError> errors,
+                                 List<Map.Entry<Object, PendingWrite>> failed,
+                                 List<Map.Entry<Object, PendingWrite>> notAttempted) {
+        if (errors == null || errors.isEmpty()) {
+            failed.addAll(entries);
+            return;
+        }
+        int firstError = entries.size();
+        for (BulkWriteError error : errors) {
+            failed.add(entries.get(error.getIndex()));
+            firstError = Math.min(firstError, error.getIndex());
+        }
+        if (mode == BulkOperations.BulkMode.ORDERED) {
+            notAttempted.addAll(entries.subList(firstError + 1, entries.size()));
+        }
+    }
+
+    private void requeue(List<Map.Entry<Object, PendingWrite>> entries, boolean charge) {
+        synchronized (this) {
+            for (Map.Entry<Object, PendingWrite> entry : entries) {
+                PendingWrite write = entry.getValue();
+                if (charge) {
+                    write = write.failedOnce();
+                    if (write.attempts >= maxAttempts) {
+                        dropped.increment();
+                        log.error("Dropping write to {} after {} failed attempts: {} {}", name, write.attempts,
+                                write.query.getQueryObject().toJson(), write.update.getUpdateObject().toJson());
+                        continue;
+                    }
+                }
+                // A newer write for the same key supersedes the failed one
+                pending.putIfAbsent(entry.getKey(), write);
+            }
+        }
+    }
+
+    private static final class PendingWrite {
+        private final Query query;
+        private final Update update;
+        private final boolean upsert;
+        // Failed flushes so far
+        private final int attempts;
+
+        PendingWrite(Query query, Update update, boolean upsert) {
+            this(query, update, upsert, 0);
+        }
+
+        private PendingWrite(Query query, Update update, boolean upsert, int attempts) {
+            this.query = query;
+            this.update = update;
+            this.upsert = upsert;
+            this.attempts = attempts;
+        }
+
+        PendingWrite failedOnce() {
+            return new PendingWrite(query, update, upsert, attempts + 1);
+        }
+    }
+
+    // Distinct key for writes that must not coalesce
+    private static final class Unkeyed {
+        private final long sequence;
+
+        Unkeyed(long sequence) {
+            this.sequence = sequence;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Unkeyed && ((Unkeyed) o).sequence == sequence;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(sequence);
+        }
+    }
+}
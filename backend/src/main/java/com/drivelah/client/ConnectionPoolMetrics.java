@@ -0,0 +1,105 @@
+package com.drivelah.client;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolClearedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection pool counters for one MongoClient, fed by the driver's pool events
+ *
+ * Summed over every server the client talks to. "waiting" is the number of threads
+ * queued for a connection right now; a non-zero value with checkout timeouts means
+ * max-pool-size (or the server) is the bottleneck.
+ */
+public class ConnectionPoolMetrics implements ConnectionPoolListener {
+
+    private final String name;
+
+    private final AtomicLong open = new AtomicLong();
+    private final AtomicLong inUse = new AtomicLong();
+    private final AtomicLong waiting = new AtomicLong();
+
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder checkoutWaitMicros = new LongAdder();
+    private final AtomicLong maxCheckoutWaitMicros = new AtomicLong();
+    private final Map<String, LongAdder> checkoutFailures = new ConcurrentHashMap<>();
+    private final LongAdder poolsCleared = new LongAdder();
+
+    public ConnectionPoolMetrics(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        open.incrementAndGet();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        open.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        waiting.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        waiting.decrementAndGet();
+        inUse.incrementAndGet();
+        checkouts.increment();
+        long waitMicros = event.getElapsedTime(TimeUnit.MICROSECONDS);
+        checkoutWaitMicros.add(waitMicros);
+        maxCheckoutWaitMicros.accumulateAndGet(waitMicros, Math::max);
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        waiting.decrementAndGet();
+        checkoutFailures.computeIfAbsent(event.getReason().name(), reason -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        inUse.decrementAndGet();
+    }
+
+    @Override
+    public void connectionPoolCleared(ConnectionPoolClearedEvent event) {
+        poolsCleared.increment();
+    }
+
+    /**
+     * Pool gauges and checkout counters, for monitoring
+     */
+    public Map<String, Object> getStats() {
+        long checkoutCount = checkouts.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("client", name);
+        stats.put("open", open.get());
+        stats.put("inUse", inUse.get());
+        stats.put("waiting", waiting.get());
+        stats.put("checkouts", checkoutCount);
+        stats.put("avgCheckoutWaitMillis", checkoutCount > 0 ? checkoutWaitMicros.sum() / 1000.0 / checkoutCount : 0.0);
+        stats.put("maxCheckoutWaitMillis", maxCheckoutWaitMicros.get() / 1000.0);
+        Map<String, Long> failures = new LinkedHashMap<>();
+        checkoutFailures.forEach((reason, count) -> failures.put(reason, count.sum()));
+        stats.put("checkoutFailures", failures);
+        stats.put("poolsCleared", poolsCleared.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,158 @@
+package com.drivelah.client;
+
+import com.drivelah.util.TtlCache;
+import org.bson.Document;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Documents by ID for MongoRepo.findById: a per-request memo in front of a bounded TtlCache per collection
+ *
+ * Raw BSON documents are cached, not entities, so every hit is converted into a fresh
+ * object and callers can mutate what they get back exactly as before. Inside an HTTP
+ * request, documents are also memoized in a request attribute: the controller and the
+ * service looking up the same trip cost one Mongo read, and the request sees one version
+ * of it. Outside a request (schedulers, startup) only the shared cache is used.
+ *
+ * Writes through MongoRepo invalidate by ID, or the whole collection when the write's
+ * query is not by ID. Each collection carries a generation counter, bumped on every
+ * invalidation; a read that started before a write does not cache what it read. Writes
+ * from other instances are only picked up when the entry expires, so the TTL bounds how
+ * stale a read can be; state transitions must keep their conditional updates.
+ */
+class EntityCache {
+
+    private static final String MEMO_ATTRIBUTE = EntityCache.class.getName() + ".memo";
+
+    private final Set<String> collections;
+    private final int maxEntriesPerCollection;
+    private final long ttlMillis;
+
+    private final Map<String, TtlCache<String, Document>> caches = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final LongAdder memoHits = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder collectionInvalidations = new LongAdder();
+    private final LongAdder staleLoadsSkipped = new LongAdder();
+
+    EntityCache(Set<String> collections, int maxEntriesPerCollection, long ttlMillis) {
+        this.collections = Set.copyOf(collections);
+        this.maxEntriesPerCollection = maxEntriesPerCollection;
+        this.ttlMillis = ttlMillis;
+        for (String collection : this.collections) {
+            caches.put(collection, new TtlCache<>(maxEntriesPerCollection, ttlMillis));
+            generations.put(collection, new AtomicLong());
+        }
+    }
+
+    boolean isCached(String collection) {
+        return collections.contains(collection);
+    }
+
+    /**
+     * Current generation of a collection; pass it back to put() after loading
+     */
+    long generation(String collection) {
+        return generations.get(collection).get();
+    }
+
+    /**
+     * Cached document, from the request memo first, or null on a miss
+     */
+    Document get(String collection, String id) {
+        Map<String, Document> memo = requestMemo(true);
+        String memoKey = collection + '/' + id;
+        if (memo != null) {
+            Document memoized = memo.get(memoKey);
+            if (memoized != null) {
+                memoHits.increment();
+                return memoized;
+            }
+        }
+
+        Document document = caches.get(collection).get(id);
+        if (document != null && memo != null) {
+            memo.put(memoKey, document);
+        }
+        return document;
+    }
+
+    /**
+     * Cache a freshly loaded document, unless the collection was written since loadGeneration
+     */
+    void put(String collection, String id, Document document, long loadGeneration) {
+        if (generation(collection) != loadGeneration) {
+            staleLoadsSkipped.increment();
+            return;
+        }
+        caches.get(collection).put(id, document);
+        Map<String, Document> memo = requestMemo(true);
+        if (memo != null) {
+            memo.put(collection + '/' + id, document);
+        }
+    }
+
+    void invalidate(String collection, String id) {
+        generations.get(collection).incrementAndGet();
+        caches.get(collection).invalidate(id);
+        Map<String, Document> memo = requestMemo(false);
+        if (memo != null) {
+            memo.remove(collection + '/' + id);
+        }
+        invalidations.increment();
+    }
+
+    void invalidateAll(String collection) {
+        generations.get(collection).incrementAndGet();
+        caches.get(collection).invalidateAll();
+        Map<String, Document> memo = requestMemo(false);
+        if (memo != null) {
+            memo.keySet().removeIf(key -> key.startsWith(collection + '/'));
+        }
+        collectionInvalidations.increment();
+    }
+
+    /**
+     * Per-collection hit / miss counters plus memo and invalidation counts, for monitoring
+     */
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxEntriesPerCollection", maxEntriesPerCollection);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("requestMemoHits", memoHits.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("collectionInvalidations", collectionInvalidations.sum());
+        stats.put("staleLoadsSkipped", staleLoadsSkipped.sum());
+        Map<String, Object> perCollection = new LinkedHashMap<>();
+        caches.forEach((collection, cache) -> perCollection.put(collection, cache.getStats()));
+        stats.put("collections", perCollection);
+        return stats;
+    }
+
+    // Private helper methods
+
+    // Memo lives in the current request's attributes; null outside a request (or when not creating)
+    @SuppressWarnings("unchecked")
+    private static Map<String, Document> requestMemo(boolean create) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Map<String, Document> memo =
+                (Map<String, Document>) attributes.getAttribute(MEMO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null && create) {
+            memo = new HashMap<>();
+            attributes.setAttribute(MEMO_ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return memo;
+    }
+}
@@ -0,0 +1,244 @@
+package com.drivelah.client;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.result.UpdateResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * MongoRepo served from InMemoryStore, for running the app, its tests and load tests without a Mongo server
+ *
+ * Active with the "inmemory" profile (--spring.profiles.active=inmemory), which also leaves
+ * out MongoConfig, IndexInitializer and Spring Boot's Mongo auto-configuration (see
+ * application-inmemory.yml). Every MongoRepo operation keeps its contract, including
+ * @Version checks and conditional findAndModify. What differs:
+ *
+ * - data lives in the heap and is gone on restart
+ * - stream() / forEachBatch() read the whole result before handing it out
+ * - analytics reads go to the same store
+ * - no entity cache or query profiler; getQueryShapeStats() reports the store's
+ *   id / index / scan counts instead
+ *
+ * @param <T> The document type (Vehicle, User, Trip, etc.)
+ */
+@Repository
+@Profile(InMemoryMongoRepo.PROFILE)
+public class InMemoryMongoRepo<T> extends MongoRepo<T> {
+
+    public static final String PROFILE = "inmemory";
+
+    private final InMemoryStore store;
+
+    @Value("${drivelah.mongo.optimistic-retry.max-attempts:5}")
+    private int optimisticRetryMaxAttempts = 5;
+
+    public InMemoryMongoRepo(InMemoryStore store) {
+        this.store = store;
+    }
+
+    // Nothing to set up: no entity cache, QueryMapper or profiler, and no MongoTemplate to give them
+    @Override
+    void init() {
+    }
+
+    @Override
+    public List<T> findAll(Class<T> entityClass) {
+        return store.find(new Query(), entityClass);
+    }
+
+    @Override
+    public List<T> find(Query query, Class<T> entityClass) {
+        return store.find(query, entityClass);
+    }
+
+    @Override
+    public Stream<T> stream(Query query, Class<T> entityClass) {
+        return store.find(query, entityClass).stream();
+    }
+
+    @Override
+    public Stream<T> analyticsStream(Query query, Class<T> entityClass) {
+        return stream(query, entityClass);
+    }
+
+    @Override
+    public long forEachBatch(Query query, int batchSize, Class<T> entityClass, Consumer<List<T>> consumer) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        List<T> documents = store.find(query, entityClass);
+        for (int from = 0; from < documents.size(); from += batchSize) {
+            consumer.accept(new ArrayList<>(documents.subList(from, Math.min(from + batchSize, documents.size()))));
+        }
+        return documents.size();
+    }
+
+    @Override
+    public long analyticsForEachBatch(Query query, int batchSize, Class<T> entityClass, Consumer<List<T>> consumer) {
+        return forEachBatch(query, batchSize, entityClass, consumer);
+    }
+
+    @Override
+    public <P> List<P> findProjected(Query query, Class<T> entityClass, Class<P> projection) {
+        return store.findProjected(query, entityClass, projection);
+    }
+
+    @Override
+    public T save(T entity) {
+        return store.save(entity);
+    }
+
+    // Conflicts can only come from other threads in this JVM, so retry straight away
+    @Override
+    public T updateWithRetry(String id, Class<T> entityClass, Consumer<T> mutation) {
+        for (int attempt = 1; ; attempt++) {
+            T entity = store.findById(id, entityClass);
+            if (entity == null) {
+                return null;
+            }
+            mutation.accept(entity);
+            try {
+                return store.save(entity);
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= optimisticRetryMaxAttempts) {
+                    throw e;
+                }
+                Thread.yield();
+            }
+        }
+    }
+
+    // Same outcome as the bulk write: stale documents are skipped, the rest saved, then the stale ones reported
+    @Override
+    public List<T> saveAll(Collection<T> entities, Class<T> entityClass) {
+        List<T> saved = new ArrayList<>(entities.size());
+        OptimisticLockingFailureException firstConflict = null;
+        int conflicts = 0;
+        for (T entity : entities) {
+            try {
+                saved.add(store.save(entity));
+            } catch (OptimisticLockingFailureException e) {
+                firstConflict = firstConflict == null ? e : firstConflict;
+                conflicts++;
+            }
+        }
+        if (firstConflict != null) {
+            throw new OptimisticLockingFailureException(conflicts + " of " + entities.size()
+                    + " documents were saved or deleted by someone else since they were read", firstConflict);
+        }
+        return saved;
+    }
+
+    @Override
+    public BulkWriteResult bulkUpdate(List<Pair<Query, Update>> updates, BulkOperations.BulkMode mode,
+                                      Class<T> entityClass) {
+        return bulkWrite(updates, entityClass, false);
+    }
+
+    @Override
+    public BulkWriteResult bulkUpsert(List<Pair<Query, Update>> upserts, BulkOperations.BulkMode mode,
+                                      Class<T> entityClass) {
+        return bulkWrite(upserts, entityClass, true);
+    }
+
+    @Override
+    public long updateFirst(Query query, Update update, Class<T> entityClass) {
+        return store.update(query, update, entityClass, false, false).getModifiedCount();
+    }
+
+    @Override
+    public long updateMulti(Query query, Update update, Class<T> entityClass) {
+        return store.update(query, update, entityClass, true, false).getModifiedCount();
+    }
+
+    @Override
+    public T findAndModify(Query query, Update update, Class<T> entityClass) {
+        return store.findAndModify(query, update, entityClass);
+    }
+
+    @Override
+    public T findById(String id, Class<T> entityClass) {
+        return store.findById(id, entityClass);
+    }
+
+    @Override
+    public Map<String, Object> getEntityCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", false);
+        return stats;
+    }
+
+    @Override
+    public Map<String, Object> getQueryShapeStats(int limit) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", false);
+        stats.put("inMemoryStore", store.getStats());
+        return stats;
+    }
+
+    @Override
+    public void delete(T entity) {
+        store.delete(entity);
+    }
+
+    @Override
+    public long count(Class<T> entityClass) {
+        return store.count(new Query(), entityClass);
+    }
+
+    @Override
+    public long count(Query query, Class<T> entityClass) {
+        return store.count(query, entityClass);
+    }
+
+    @Override
+    public List<T> findWithPagination(int page, int size, Class<T> entityClass) {
+        Query query = new Query();
+        query.skip((long) page * size).limit(size);
+        return store.find(query, entityClass);
+    }
+
+    @Override
+    public T findOne(Query query, Class<T> entityClass) {
+        return store.findOne(query, entityClass);
+    }
+
+    @Override
+    public boolean exists(Query query, Class<T> entityClass) {
+        return store.exists(query, entityClass);
+    }
+
+    // Private helper methods
+
+    // Applied in order and stopping at the first failure, whatever the mode
+    private BulkWriteResult bulkWrite(List<Pair<Query, Update>> operations, Class<T> entityClass, boolean upsert) {
+        int matched = 0;
+        int modified = 0;
+        List<BulkWriteUpsert> upserts = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            Pair<Query, Update> operation = operations.get(i);
+            UpdateResult result = store.update(operation.getFirst(), operation.getSecond(), entityClass, false, upsert);
+            matched += (int) result.getMatchedCount();
+            modified += (int) result.getModifiedCount();
+            if (result.getUpsertedId() != null) {
+                upserts.add(new BulkWriteUpsert(i, result.getUpsertedId()));
+            }
+        }
+        return BulkWriteResult.acknowledged(0, matched, 0, modified, upserts, List.of());
+    }
+}
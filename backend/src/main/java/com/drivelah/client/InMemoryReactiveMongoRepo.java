@@ -0,0 +1,61 @@
+package com.drivelah.client;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * ReactiveMongoRepo served from InMemoryStore, active with the "inmemory" profile (see InMemoryMongoRepo)
+ *
+ * The store answers from the heap without blocking on I/O, so results are computed on
+ * subscription on the subscribing thread.
+ *
+ * @param <T> The document type (Vehicle, Trip, etc.)
+ */
+@Repository
+@Profile(InMemoryMongoRepo.PROFILE)
+public class InMemoryReactiveMongoRepo<T> extends ReactiveMongoRepo<T> {
+
+    private final InMemoryStore store;
+
+    public InMemoryReactiveMongoRepo(InMemoryStore store) {
+        this.store = store;
+    }
+
+    // Nothing to set up: no QueryMapper or profiler, and no ReactiveMongoTemplate to give them
+    @Override
+    void init() {
+    }
+
+    @Override
+    public Mono<T> findById(String id, Class<T> entityClass) {
+        return Mono.fromCallable(() -> store.findById(id, entityClass));
+    }
+
+    @Override
+    public Flux<T> find(Query query, Class<T> entityClass) {
+        return Flux.defer(() -> Flux.fromIterable(store.find(query, entityClass)));
+    }
+
+    @Override
+    public <P> Flux<P> findProjected(Query query, Class<T> entityClass, Class<P> projection) {
+        return Flux.defer(() -> Flux.fromIterable(store.findProjected(query, entityClass, projection)));
+    }
+
+    @Override
+    public Mono<T> findOne(Query query, Class<T> entityClass) {
+        return Mono.fromCallable(() -> store.findOne(query, entityClass));
+    }
+
+    @Override
+    public Mono<Long> count(Query query, Class<T> entityClass) {
+        return Mono.fromCallable(() -> store.count(query, entityClass));
+    }
+
+    @Override
+    public Mono<Boolean> exists(Query query, Class<T> entityClass) {
+        return Mono.fromCallable(() -> store.exists(query, entityClass));
+    }
+}
@@ -0,0 +1,930 @@
+package com.drivelah.client;
+
+import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonInt64;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.convert.UpdateMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Heap-resident document store behind InMemoryMongoRepo and InMemoryReactiveMongoRepo
+ *
+ * Entities are written and read with a MappingMongoConverter, and queries / updates are
+ * mapped by the same QueryMapper / UpdateMapper MongoTemplate uses, so stored documents
+ * have the layout they would have in Mongo (_id as ObjectId, _class, FM field names) and
+ * the services' Criteria run unchanged. Supported:
+ *
+ * query:  equality, $eq $ne $in $nin $gt $gte $lt $lte $exists $regex $not, $and $or $nor,
+ *         dotted paths and array membership; sort, skip, limit, field projection
+ * update: $set $unset $inc $min $max $push $addToSet $setOnInsert
+ *
+ * Anything else throws UnsupportedOperationException instead of matching wrongly.
+ * @Version entities behave as with MongoTemplate: save() inserts at version 0, then only
+ * succeeds against the stored version and bumps it (else OptimisticLockingFailureException),
+ * and updates bump the version unless they set it themselves.
+ *
+ * Every field in IndexInitializer.INDEXES gets a hash index (value -> ids) that serves
+ * equality and $in filters; _id lookups are direct, other filters scan the collection.
+ * Single-field unique indexes reject a write that would give a second document the same
+ * value (DuplicateKeyException), as Mongo does.
+ * Stored documents are never modified in place (writes store a copy), so entities are
+ * converted outside the collection lock.
+ */
+@Component
+@Profile(InMemoryMongoRepo.PROFILE)
+public class InMemoryStore {
+
+    // Value of a path that does not exist in the document (distinct from a stored null)
+    private static final Object MISSING = new Object();
+
+    private final MongoMappingContext mappingContext;
+    private final MappingMongoConverter converter;
+    private final QueryMapper queryMapper;
+    private final UpdateMapper updateMapper;
+
+    // Collection -> fields with a hash index
+    private final Map<String, Set<String>> indexedFields = new HashMap<>();
+    // Collection -> fields with a unique index
+    private final Map<String, Set<String>> uniqueFields = new HashMap<>();
+    private final Map<String, StoredCollection> collections = new ConcurrentHashMap<>();
+
+    private final LongAdder idLookups = new LongAdder();
+    private final LongAdder indexLookups = new LongAdder();
+    private final LongAdder collectionScans = new LongAdder();
+
+    public InMemoryStore() {
+        mappingContext = new MongoMappingContext();
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        queryMapper = new QueryMapper(converter);
+        updateMapper = new UpdateMapper(converter);
+
+        for (IndexInitializer.IndexSpec spec : IndexInitializer.INDEXES) {
+            String collection = entity(spec.getEntityClass()).getCollection();
+            indexedFields.computeIfAbsent(collection, c -> new LinkedHashSet<>()).addAll(List.of(spec.getFields()));
+            if (spec.isUnique() && spec.getFields().length == 1) {
+                uniqueFields.computeIfAbsent(collection, c -> new LinkedHashSet<>()).add(spec.getFields()[0]);
+            }
+        }
+    }
+
+    <T> List<T> find(Query query, Class<T> entityClass) {
+        return read(query, entityClass, entityClass, query.getSkip(), query.getLimit());
+    }
+
+    <P> List<P> findProjected(Query query, Class<?> entityClass, Class<P> projection) {
+        return read(query, entityClass, projection, query.getSkip(), query.getLimit());
+    }
+
+    <T> T findOne(Query query, Class<T> entityClass) {
+        List<T> found = read(query, entityClass, entityClass, query.getSkip(), 1);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    <T> T findById(Object id, Class<T> entityClass) {
+        return id == null ? null : findOne(new Query(Criteria.where("_id").is(id)), entityClass);
+    }
+
+    long count(Query query, Class<?> entityClass) {
+        return select(entity(entityClass), query, query.getSkip(), query.getLimit()).size();
+    }
+
+    boolean exists(Query query, Class<?> entityClass) {
+        return !select(entity(entityClass), query, 0, 1).isEmpty();
+    }
+
+    /**
+     * Insert or replace by ID, generating a missing ID; checks and bumps @Version like MongoTemplate.save()
+     */
+    <T> T save(T entity) {
+        MongoPersistentEntity<?> persistentEntity = entity(entity.getClass());
+        PersistentPropertyAccessor<T> accessor = persistentEntity.getPropertyAccessor(entity);
+        StoredCollection collection = collection(persistentEntity);
+
+        collection.lock.writeLock().lock();
+        try {
+            assignIdIfMissing(persistentEntity, accessor);
+            Document document = new Document();
+            converter.write(accessor.getBean(), document);
+            Object id = document.get("_id");
+
+            MongoPersistentProperty versionProperty = persistentEntity.getVersionProperty();
+            if (versionProperty != null) {
+                Object version = checkedVersion(collection, persistentEntity, versionProperty, id,
+                        (Number) accessor.getProperty(versionProperty));
+                accessor.setProperty(versionProperty, version);
+                document.put(versionProperty.getFieldName(), version);
+            }
+            collection.put(id, document);
+            return accessor.getBean();
+        } finally {
+            collection.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove by ID; a versioned entity is only removed at its stored version, like MongoTemplate.remove()
+     */
+    void delete(Object entity) {
+        MongoPersistentEntity<?> persistentEntity = entity(entity.getClass());
+        StoredCollection collection = collection(persistentEntity);
+        Document document = new Document();
+        converter.write(entity, document);
+        Object id = document.get("_id");
+
+        collection.lock.writeLock().lock();
+        try {
+            Document stored = collection.documents.get(id);
+            MongoPersistentProperty versionProperty = persistentEntity.getVersionProperty();
+            if (stored == null || (versionProperty != null && document.get(versionProperty.getFieldName()) != null
+                    && !valuesEqual(stored.get(versionProperty.getFieldName()), document.get(versionProperty.getFieldName())))) {
+                return;
+            }
+            collection.remove(id);
+        } finally {
+            collection.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply an update to the first (or every) matching document, inserting one on upsert if nothing matches
+     */
+    UpdateResult update(Query query, Update update, Class<?> entityClass, boolean multi, boolean upsert) {
+        MongoPersistentEntity<?> persistentEntity = entity(entityClass);
+        StoredCollection collection = collection(persistentEntity);
+        Document mappedUpdate = mappedUpdate(update, persistentEntity);
+
+        collection.lock.writeLock().lock();
+        try {
+            List<Document> targets = select(persistentEntity, query, 0, multi ? 0 : 1);
+            if (targets.isEmpty() && upsert) {
+                Document inserted = seed(queryMapper.getMappedObject(query.getQueryObject(), persistentEntity));
+                applyUpdate(inserted, mappedUpdate, true);
+                if (!inserted.containsKey("_id")) {
+                    inserted.put("_id", new ObjectId());
+                }
+                collection.put(inserted.get("_id"), inserted);
+                return UpdateResult.acknowledged(0, 0L, toBsonValue(inserted.get("_id")));
+            }
+
+            long modified = 0;
+            for (Document target : targets) {
+                Document updated = copy(target);
+                applyUpdate(updated, mappedUpdate, false);
+                if (!updated.equals(target)) {
+                    collection.put(updated.get("_id"), updated);
+                    modified++;
+                }
+            }
+            return UpdateResult.acknowledged(targets.size(), modified, null);
+        } finally {
+            collection.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Update the first matching document (in sort order) and return it as updated, or null if nothing matched
+     */
+    <T> T findAndModify(Query query, Update update, Class<T> entityClass) {
+        MongoPersistentEntity<?> persistentEntity = entity(entityClass);
+        StoredCollection collection = collection(persistentEntity);
+        Document mappedUpdate = mappedUpdate(update, persistentEntity);
+
+        Document updated;
+        collection.lock.writeLock().lock();
+        try {
+            List<Document> targets = select(persistentEntity, query, 0, 1);
+            if (targets.isEmpty()) {
+                return null;
+            }
+            updated = copy(targets.get(0));
+            applyUpdate(updated, mappedUpdate, false);
+            collection.put(updated.get("_id"), updated);
+        } finally {
+            collection.lock.writeLock().unlock();
+        }
+        return converter.read(entityClass, updated);
+    }
+
+    /**
+     * Documents and indexes per collection, and how many queries used _id, an index or a scan
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("idLookups", idLookups.sum());
+        stats.put("indexLookups", indexLookups.sum());
+        stats.put("collectionScans", collectionScans.sum());
+        Map<String, Object> perCollection = new LinkedHashMap<>();
+        collections.forEach((name, collection) -> {
+            Map<String, Object> collectionStats = new LinkedHashMap<>();
+            collection.lock.readLock().lock();
+            try {
+                collectionStats.put("documents", collection.documents.size());
+            } finally {
+                collection.lock.readLock().unlock();
+            }
+            collectionStats.put("indexes", new ArrayList<>(collection.indexes.keySet()));
+            perCollection.put(name, collectionStats);
+        });
+        stats.put("collections", perCollection);
+        return stats;
+    }
+
+    // Private helper methods
+
+    private MongoPersistentEntity<?> entity(Class<?> entityClass) {
+        return mappingContext.getRequiredPersistentEntity(entityClass);
+    }
+
+    private StoredCollection collection(MongoPersistentEntity<?> persistentEntity) {
+        return collections.computeIfAbsent(persistentEntity.getCollection(),
+                name -> new StoredCollection(name, indexedFields.getOrDefault(name, Set.of()),
+                        uniqueFields.getOrDefault(name, Set.of())));
+    }
+
+    private <R> List<R> read(Query query, Class<?> entityClass, Class<R> resultType, long skip, int limit) {
+        MongoPersistentEntity<?> persistentEntity = entity(entityClass);
+        List<Document> documents = select(persistentEntity, query, skip, limit);
+        Document fields = query.getFieldsObject().isEmpty() ? null
+                : queryMapper.getMappedFields(query.getFieldsObject(), persistentEntity);
+
+        List<R> results = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            results.add(converter.read(resultType, fields == null ? document : project(document, fields)));
+        }
+        return results;
+    }
+
+    // Matching stored documents in sort order, after skip; limit 0 means all
+    private List<Document> select(MongoPersistentEntity<?> persistentEntity, Query query, long skip, int limit) {
+        Document filter = queryMapper.getMappedObject(query.getQueryObject(), persistentEntity);
+        Document sort = query.getSortObject().isEmpty() ? null
+                : queryMapper.getMappedSort(query.getSortObject(), persistentEntity);
+        // Without a sort the scan can stop as soon as enough documents matched
+        long wanted = sort == null && limit > 0 ? skip + limit : Long.MAX_VALUE;
+
+        StoredCollection collection = collection(persistentEntity);
+        List<Document> matches = new ArrayList<>();
+        collection.lock.readLock().lock();
+        try {
+            for (Document document : candidates(collection, filter)) {
+                if (matches(document, filter)) {
+                    matches.add(document);
+                    if (matches.size() >= wanted) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            collection.lock.readLock().unlock();
+        }
+
+        if (sort != null) {
+            matches.sort(comparator(sort));
+        }
+        int from = (int) Math.min(skip, matches.size());
+        int to = limit > 0 ? (int) Math.min((long) from + limit, matches.size()) : matches.size();
+        return matches.subList(from, to);
+    }
+
+    // Documents that may match: by _id, through the first indexed equality / $in field, else all of them
+    private Collection<Document> candidates(StoredCollection collection, Document filter) {
+        List<Object> ids = filter.containsKey("_id") ? equalityValues(filter.get("_id")) : null;
+        if (ids != null) {
+            idLookups.increment();
+            List<Document> documents = new ArrayList<>(ids.size());
+            for (Object id : ids) {
+                Document document = collection.documents.get(id);
+                if (document != null) {
+                    documents.add(document);
+                }
+            }
+            return documents;
+        }
+
+        for (Map.Entry<String, Object> clause : filter.entrySet()) {
+            Map<Object, Set<Object>> index = collection.indexes.get(clause.getKey());
+            List<Object> values = index == null ? null : equalityValues(clause.getValue());
+            if (values != null) {
+                indexLookups.increment();
+                Set<Object> matchingIds = new LinkedHashSet<>();
+                for (Object value : values) {
+                    matchingIds.addAll(index.getOrDefault(indexKey(value), Set.of()));
+                }
+                List<Document> documents = new ArrayList<>(matchingIds.size());
+                for (Object id : matchingIds) {
+                    documents.add(collection.documents.get(id));
+                }
+                return documents;
+            }
+        }
+
+        collectionScans.increment();
+        return collection.documents.values();
+    }
+
+    // Values an equality or $in condition accepts, or null if the condition is anything else
+    private static List<Object> equalityValues(Object condition) {
+        if (condition instanceof Document) {
+            Document operators = (Document) condition;
+            if (operators.size() == 1 && operators.containsKey("$eq")) {
+                return equalityValues(operators.get("$eq"));
+            }
+            if (operators.size() == 1 && operators.get("$in") instanceof List) {
+                List<Object> values = new ArrayList<>();
+                for (Object value : (List<?>) operators.get("$in")) {
+                    if (value instanceof Pattern || value instanceof Document || value instanceof List) {
+                        return null;
+                    }
+                    values.add(value);
+                }
+                return values;
+            }
+            return null;
+        }
+        if (condition instanceof Pattern || condition instanceof List) {
+            return null;
+        }
+        List<Object> values = new ArrayList<>(1);
+        values.add(condition);
+        return values;
+    }
+
+    private static boolean matches(Document document, Document filter) {
+        for (Map.Entry<String, Object> clause : filter.entrySet()) {
+            String key = clause.getKey();
+            boolean matched;
+            switch (key) {
+                case "$and":
+                    matched = clauses(clause.getValue()).stream().allMatch(c -> matches(document, c));
+                    break;
+                case "$or":
+                    matched = clauses(clause.getValue()).stream().anyMatch(c -> matches(document, c));
+                    break;
+                case "$nor":
+                    matched = clauses(clause.getValue()).stream().noneMatch(c -> matches(document, c));
+                    break;
+                default:
+                    if (key.startsWith("$")) {
+                        throw unsupported("query operator " + key);
+                    }
+                    matched = fieldMatches(valueAt(document, key), clause.getValue());
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Document> clauses(Object value) {
+        List<Document> clauses = new ArrayList<>();
+        for (Object clause : (List<?>) value) {
+            clauses.add((Document) clause);
+        }
+        return clauses;
+    }
+
+    private static boolean fieldMatches(Object actual, Object condition) {
+        if (condition instanceof Document && isOperatorDocument((Document) condition)) {
+            Document operators = (Document) condition;
+            for (Map.Entry<String, Object> operator : operators.entrySet()) {
+                if (!"$options".equals(operator.getKey())
+                        && !operatorMatches(actual, operator.getKey(), operator.getValue(), operators)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (condition instanceof Pattern) {
+            return anyValue(actual, value -> value instanceof String && ((Pattern) condition).matcher((String) value).find());
+        }
+        return equalsCondition(actual, condition);
+    }
+
+    private static boolean operatorMatches(Object actual, String operator, Object argument, Document operators) {
+        switch (operator) {
+            case "$eq":
+                return equalsCondition(actual, argument);
+            case "$ne":
+                return !equalsCondition(actual, argument);
+            case "$in":
+                return ((List<?>) argument).stream().anyMatch(candidate -> fieldMatches(actual, candidate));
+            case "$nin":
+                return ((List<?>) argument).stream().noneMatch(candidate -> fieldMatches(actual, candidate));
+            case "$gt":
+                return compares(actual, argument, c -> c > 0);
+            case "$gte":
+                return compares(actual, argument, c -> c >= 0);
+            case "$lt":
+                return compares(actual, argument, c -> c < 0);
+            case "$lte":
+                return compares(actual, argument, c -> c <= 0);
+            case "$exists":
+                return (actual != MISSING) == isTruthy(argument);
+            case "$regex":
+                return fieldMatches(actual, argument instanceof Pattern ? argument
+                        : Pattern.compile(argument.toString(), regexFlags(operators.getString("$options"))));
+            case "$not":
+                return !fieldMatches(actual, argument);
+            default:
+                throw unsupported("query operator " + operator);
+        }
+    }
+
+    private static boolean isOperatorDocument(Document document) {
+        return !document.isEmpty() && document.keySet().iterator().next().startsWith("$");
+    }
+
+    // {field: null} matches a null or missing field; otherwise the value or any array element must be equal
+    private static boolean equalsCondition(Object actual, Object expected) {
+        if (expected == null) {
+            return actual == MISSING || actual == null || (actual instanceof List && ((List<?>) actual).contains(null));
+        }
+        if (actual == MISSING) {
+            return false;
+        }
+        return valuesEqual(actual, expected)
+                || (actual instanceof List && ((List<?>) actual).stream().anyMatch(e -> valuesEqual(e, expected)));
+    }
+
+    private static boolean compares(Object actual, Object bound, IntPredicate test) {
+        return bound != null && anyValue(actual,
+                value -> value != null && typeRank(value) == typeRank(bound) && test.test(compareValues(value, bound)));
+    }
+
+    private static boolean anyValue(Object actual, Predicate<Object> test) {
+        if (actual == MISSING) {
+            return false;
+        }
+        if (test.test(actual)) {
+            return true;
+        }
+        return actual instanceof List && ((List<?>) actual).stream().anyMatch(test);
+    }
+
+    private static boolean isTruthy(Object value) {
+        return value instanceof Boolean ? (Boolean) value : value instanceof Number && ((Number) value).doubleValue() != 0;
+    }
+
+    private static int regexFlags(String options) {
+        int flags = 0;
+        if (options != null) {
+            flags |= options.indexOf('i') >= 0 ? Pattern.CASE_INSENSITIVE : 0;
+            flags |= options.indexOf('m') >= 0 ? Pattern.MULTILINE : 0;
+            flags |= options.indexOf('s') >= 0 ? Pattern.DOTALL : 0;
+            flags |= options.indexOf('x') >= 0 ? Pattern.COMMENTS : 0;
+        }
+        return flags;
+    }
+
+    // Dotted path lookup; through an array it collects the path from every element
+    private static Object valueAt(Object current, String path) {
+        int dot = path.indexOf('.');
+        String head = dot < 0 ? path : path.substring(0, dot);
+        if (current instanceof Map) {
+            Map<?, ?> fields = (Map<?, ?>) current;
+            if (!fields.containsKey(head)) {
+                return MISSING;
+            }
+            Object value = fields.get(head);
+            return dot < 0 ? value : valueAt(value, path.substring(dot + 1));
+        }
+        if (current instanceof List) {
+            List<Object> values = new ArrayList<>();
+            for (Object element : (List<?>) current) {
+                Object value = valueAt(element, path);
+                if (value != MISSING) {
+                    values.add(value);
+                }
+            }
+            return values.isEmpty() ? MISSING : values;
+        }
+        return MISSING;
+    }
+
+    private static Comparator<Document> comparator(Document sort) {
+        Comparator<Document> comparator = (a, b) -> 0;
+        for (Map.Entry<String, Object> key : sort.entrySet()) {
+            String path = key.getKey();
+            int direction = ((Number) key.getValue()).intValue() < 0 ? -1 : 1;
+            comparator = comparator.thenComparing((a, b) -> direction * compareValues(valueAt(a, path), valueAt(b, path)));
+        }
+        return comparator;
+    }
+
+    // BSON comparison order: missing / null, numbers, strings, documents, arrays, ObjectIds, booleans, dates
+    private static int compareValues(Object a, Object b) {
+        int rank = Integer.compare(typeRank(a), typeRank(b));
+        if (rank != 0) {
+            return rank;
+        }
+        if (a instanceof Number) {
+            return compareNumbers((Number) a, (Number) b);
+        }
+        if (a instanceof String) {
+            return ((String) a).compareTo((String) b);
+        }
+        if (a instanceof ObjectId) {
+            return ((ObjectId) a).compareTo((ObjectId) b);
+        }
+        if (a instanceof Boolean) {
+            return Boolean.compare((Boolean) a, (Boolean) b);
+        }
+        if (a instanceof Date) {
+            return ((Date) a).compareTo((Date) b);
+        }
+        return 0;
+    }
+
+    private static int typeRank(Object value) {
+        if (value == MISSING || value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return 1;
+        }
+        if (value instanceof String) {
+            return 2;
+        }
+        if (value instanceof Map) {
+            return 3;
+        }
+        if (value instanceof List) {
+            return 4;
+        }
+        if (value instanceof ObjectId) {
+            return 5;
+        }
+        if (value instanceof Boolean) {
+            return 6;
+        }
+        if (value instanceof Date) {
+            return 7;
+        }
+        return 8;
+    }
+
+    private static boolean valuesEqual(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            return compareNumbers((Number) a, (Number) b) == 0;
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static int compareNumbers(Number a, Number b) {
+        if (isIntegral(a) && isIntegral(b)) {
+            return Long.compare(a.longValue(), b.longValue());
+        }
+        return Double.compare(a.doubleValue(), b.doubleValue());
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+    }
+
+    // Hash index key: numbers by value so 5, 5L and 5.0 land together; missing fields index as null
+    private static Object indexKey(Object value) {
+        if (value == MISSING) {
+            return null;
+        }
+        return value instanceof Number ? (Object) ((Number) value).doubleValue() : value;
+    }
+
+    // Mapped update, with the version bump MongoTemplate adds when the update does not set the version itself
+    private Document mappedUpdate(Update update, MongoPersistentEntity<?> persistentEntity) {
+        Document mapped = new Document(updateMapper.getMappedObject(update.getUpdateObject(), persistentEntity));
+        MongoPersistentProperty versionProperty = persistentEntity.getVersionProperty();
+        if (versionProperty != null && !update.modifies(versionProperty.getFieldName())) {
+            Document increments = mapped.get("$inc") instanceof Document
+                    ? new Document((Document) mapped.get("$inc")) : new Document();
+            increments.put(versionProperty.getFieldName(), 1);
+            mapped.put("$inc", increments);
+        }
+        return mapped;
+    }
+
+    private static void applyUpdate(Document document, Document update, boolean inserting) {
+        for (Map.Entry<String, Object> operation : update.entrySet()) {
+            Document fields = (Document) operation.getValue();
+            switch (operation.getKey()) {
+                case "$set":
+                    fields.forEach((path, value) -> setAt(document, path, copyValue(value)));
+                    break;
+                case "$setOnInsert":
+                    if (inserting) {
+                        fields.forEach((path, value) -> setAt(document, path, copyValue(value)));
+                    }
+                    break;
+                case "$unset":
+                    fields.keySet().forEach(path -> removeAt(document, path));
+                    break;
+                case "$inc":
+                    fields.forEach((path, value) -> setAt(document, path, add(valueAt(document, path), (Number) value)));
+                    break;
+                case "$min":
+                case "$max":
+                    int sign = "$min".equals(operation.getKey()) ? -1 : 1;
+                    fields.forEach((path, value) -> {
+                        Object current = valueAt(document, path);
+                        if (current == MISSING || sign * compareValues(value, current) > 0) {
+                            setAt(document, path, copyValue(value));
+                        }
+                    });
+                    break;
+                case "$push":
+                case "$addToSet":
+                    boolean unique = "$addToSet".equals(operation.getKey());
+                    fields.forEach((path, value) -> push(document, path, value, unique));
+                    break;
+                default:
+                    throw unsupported("update operator " + operation.getKey());
+            }
+        }
+    }
+
+    private static Object add(Object current, Number increment) {
+        if (current == MISSING || current == null) {
+            return increment;
+        }
+        if (!(current instanceof Number)) {
+            throw new InvalidDataAccessApiUsageException("Cannot $inc a non-numeric field");
+        }
+        Number number = (Number) current;
+        if (isIntegral(number) && isIntegral(increment)) {
+            long sum = number.longValue() + increment.longValue();
+            boolean ints = number instanceof Integer && increment instanceof Integer
+                    && sum >= Integer.MIN_VALUE && sum <= Integer.MAX_VALUE;
+            return ints ? (Object) (int) sum : (Object) sum;
+        }
+        return number.doubleValue() + increment.doubleValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void push(Document document, String path, Object value, boolean unique) {
+        List<Object> additions = value instanceof Document && ((Document) value).get("$each") instanceof List
+                ? (List<Object>) ((Document) value).get("$each") : List.of(value);
+        Object current = valueAt(document, path);
+        if (current != MISSING && current != null && !(current instanceof List)) {
+            throw new InvalidDataAccessApiUsageException("Cannot push to non-array field " + path);
+        }
+        List<Object> list = current instanceof List ? new ArrayList<>((List<Object>) current) : new ArrayList<>();
+        for (Object addition : additions) {
+            if (!unique || list.stream().noneMatch(existing -> valuesEqual(existing, addition))) {
+                list.add(copyValue(addition));
+            }
+        }
+        setAt(document, path, list);
+    }
+
+    private static void setAt(Document document, String path, Object value) {
+        String[] parts = path.split("\\.");
+        Document current = document;
+        for (int i = 0; i < parts.length - 1; i++) {
+            Object next = current.get(parts[i]);
+            if (next == null) {
+                next = new Document();
+                current.put(parts[i], next);
+            } else if (!(next instanceof Document)) {
+                throw unsupported("update through non-document field " + path);
+            }
+            current = (Document) next;
+        }
+        current.put(parts[parts.length - 1], value);
+    }
+
+    private static void removeAt(Document document, String path) {
+        String[] parts = path.split("\\.");
+        Document current = document;
+        for (int i = 0; i < parts.length - 1; i++) {
+            Object next = current.get(parts[i]);
+            if (!(next instanceof Document)) {
+                return;
+            }
+            current = (Document) next;
+        }
+        current.remove(parts[parts.length - 1]);
+    }
+
+    // Upserted document starts from the filter's equality conditions, as in Mongo
+    private static Document seed(Document filter) {
+        Document document = new Document();
+        for (Map.Entry<String, Object> clause : filter.entrySet()) {
+            Object value = clause.getValue();
+            if ("$and".equals(clause.getKey())) {
+                for (Document nested : clauses(value)) {
+                    seed(nested).forEach((path, v) -> setAt(document, path, v));
+                }
+            } else if (!clause.getKey().startsWith("$")) {
+                List<Object> values = equalityValues(value);
+                if (values != null && values.size() == 1 && !(value instanceof Document && ((Document) value).containsKey("$in"))) {
+                    setAt(document, clause.getKey(), copyValue(values.get(0)));
+                }
+            }
+        }
+        return document;
+    }
+
+    private static Document project(Document document, Document fields) {
+        boolean inclusion = fields.entrySet().stream()
+                .anyMatch(field -> !"_id".equals(field.getKey()) && isTruthy(field.getValue()));
+        if (!inclusion) {
+            Document projected = copy(document);
+            fields.keySet().forEach(path -> removeAt(projected, path));
+            return projected;
+        }
+        Document projected = new Document();
+        if (!fields.containsKey("_id") || isTruthy(fields.get("_id"))) {
+            projected.put("_id", document.get("_id"));
+        }
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            Object value = valueAt(document, field.getKey());
+            if (!"_id".equals(field.getKey()) && isTruthy(field.getValue()) && value != MISSING) {
+                setAt(projected, field.getKey(), copyValue(value));
+            }
+        }
+        return projected;
+    }
+
+    private static Document copy(Document document) {
+        Document copy = new Document();
+        document.forEach((key, value) -> copy.put(key, copyValue(value)));
+        return copy;
+    }
+
+    private static Object copyValue(Object value) {
+        if (value instanceof Document) {
+            return copy((Document) value);
+        }
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>(((List<?>) value).size());
+            for (Object element : (List<?>) value) {
+                copy.add(copyValue(element));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    private void assignIdIfMissing(MongoPersistentEntity<?> persistentEntity, PersistentPropertyAccessor<?> accessor) {
+        MongoPersistentProperty idProperty = persistentEntity.getRequiredIdProperty();
+        if (accessor.getProperty(idProperty) != null) {
+            return;
+        }
+        if (idProperty.getType() == String.class) {
+            accessor.setProperty(idProperty, new ObjectId().toHexString());
+        } else if (idProperty.getType() == ObjectId.class) {
+            accessor.setProperty(idProperty, new ObjectId());
+        } else {
+            throw new InvalidDataAccessApiUsageException("Cannot generate an ID of type " + idProperty.getType().getName());
+        }
+    }
+
+    // Version to store: 0 for a new document, stored + 1 if the entity was read at the stored version
+    private Object checkedVersion(StoredCollection collection, MongoPersistentEntity<?> persistentEntity,
+                                  MongoPersistentProperty versionProperty, Object id, Number version) {
+        Document stored = collection.documents.get(id);
+        long next;
+        if (version == null) {
+            if (stored != null) {
+                throw new DuplicateKeyException("Duplicate _id " + id + " in collection " + persistentEntity.getCollection());
+            }
+            next = 0;
+        } else {
+            Object storedVersion = stored == null ? null : stored.get(versionProperty.getFieldName());
+            if (!(storedVersion instanceof Number) || ((Number) storedVersion).longValue() != version.longValue()) {
+                throw new OptimisticLockingFailureException(String.format(
+                        "Cannot save entity %s with version %s to collection %s; Has it been modified meanwhile",
+                        id, version, persistentEntity.getCollection()));
+            }
+            next = version.longValue() + 1;
+        }
+        return converter.getConversionService().convert(next, versionProperty.getType());
+    }
+
+    private static BsonValue toBsonValue(Object id) {
+        if (id instanceof ObjectId) {
+            return new BsonObjectId((ObjectId) id);
+        }
+        if (id instanceof Number) {
+            return new BsonInt64(((Number) id).longValue());
+        }
+        return new BsonString(String.valueOf(id));
+    }
+
+    private static UnsupportedOperationException unsupported(String what) {
+        return new UnsupportedOperationException("The in-memory store does not support " + what);
+    }
+
+    // One collection: documents by _id in insertion order, plus value -> ids per indexed field
+    private static final class StoredCollection {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Object, Document> documents = new LinkedHashMap<>();
+        private final Map<String, Map<Object, Set<Object>>> indexes = new HashMap<>();
+        private final String name;
+        private final Set<String> uniqueFields;
+
+        StoredCollection(String name, Set<String> indexedFields, Set<String> uniqueFields) {
+            this.name = name;
+            this.uniqueFields = uniqueFields;
+            for (String field : indexedFields) {
+                indexes.put(field, new HashMap<>());
+            }
+        }
+
+        void put(Object id, Document document) {
+            checkUnique(id, document);
+            Document previous = documents.put(id, document);
+            if (previous != null) {
+                unindex(id, previous);
+            }
+            indexes.forEach((field, index) -> {
+                for (Object key : indexKeys(document, field)) {
+                    index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(id);
+                }
+            });
+        }
+
+        void remove(Object id) {
+            Document previous = documents.remove(id);
+            if (previous != null) {
+                unindex(id, previous);
+            }
+        }
+
+        // Checked before anything is written, so a rejected write leaves the collection unchanged
+        private void checkUnique(Object id, Document document) {
+            for (String field : uniqueFields) {
+                Map<Object, Set<Object>> index = indexes.get(field);
+                Object key = indexKey(valueAt(document, field));
+                Set<Object> ids = index.getOrDefault(key, Set.of());
+                if (!ids.isEmpty() && !ids.equals(Set.of(id))) {
+                    throw new DuplicateKeyException("Duplicate key " + field + ": " + key + " in collection " + name);
+                }
+            }
+        }
+
+                private void unindex(Object id, Document document) {
+            indexes.forEach((field, index) -> {
+                for (Object key : indexKeys(document, field)) {
+                    Set<Object> ids = index.get(key);
+                    if (ids != null) {
+                        ids.remove(id);
+                        if (ids.isEmpty()) {
+                            index.remove(key);
+                        }
+                    }
+                }
+            });
+        }
+
+        // Arrays are indexed by element (multikey), like Mongo
+        private static List<Object> indexKeys(Document document, String field) {
+            Object value = valueAt(document, field);
+            List<Object> keys = new ArrayList<>();
+            if (value instanceof List) {
+                for (Object element : (List<?>) value) {
+                    keys.add(indexKey(element));
+                }
+            }
+            keys.add(indexKey(value));
+            return keys;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.drivelah.client;
+
+import com.drivelah.model.Admin;
+import com.drivelah.model.Host;
+import com.drivelah.model.Renter;
+import com.drivelah.model.User;
+import com.drivelah.model.Vehicle;
+import com.drivelah.model.trip.Trip;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Index catalog for the trip, vehicle and user collections, applied and verified on startup
+ *
+ * INDEXES lists every index the services rely on; they are created if missing (an
+ * existing index with the same keys is left alone). QUERY_SHAPES lists the filters the
+ * services actually run, with sample values. Each shape is explain()ed after the indexes
+ * are in place and any plan that scans the whole collection (COLLSCAN) is reported:
+ *
+ * drivelah.mongo.indexes.verify: WARN  log and continue (default)
+ *                                FAIL  refuse to start
+ *                                OFF   skip explain
+ *
+ * When adding a query to TripService or VehicleService, add its shape here too.
+ *
+ * The email indexes on host / renter / admin are unique: they are what makes registration
+ * safe across instances, since UserService only sees its own in-flight sign-ups.
+ *
+ * Not created with the "inmemory" profile; InMemoryStore builds hash indexes on the same fields.
+ */
+@Component
+@Profile("!" + InMemoryMongoRepo.PROFILE)
+public class IndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexInitializer.class);
+
+    static final List<IndexSpec> INDEXES = List.of(
+            new IndexSpec(Trip.class, "trip_renter", false, Trip.FM.RENTER_ID),
+            new IndexSpec(Trip.class, "trip_owner", false, Trip.FM.OWNER_ID),
+            new IndexSpec(Trip.class, "trip_vehicle_status", false, Trip.FM.VEHICLE_ID, Trip.FM.STATUS),
+            new IndexSpec(Trip.class, "trip_status", false, Trip.FM.STATUS),
+            new IndexSpec(Trip.class, "trip_insurance_claim", false, Trip.FM.HAS_INSURANCE_CLAIM),
+            new IndexSpec(Trip.class, "trip_booked_at", false, Trip.FM.DATE_OF_BOOKING_EPOCH),
+            new IndexSpec(Vehicle.class, "vehicle_license_plate", false, Vehicle.FM.LICENSE_PLATE),
+            new IndexSpec(Vehicle.class, "vehicle_owner", false, Vehicle.FM.OWNER_ID),
+            new IndexSpec(Vehicle.class, "vehicle_verified_status", false, Vehicle.FM.IS_VERIFIED, Vehicle.FM.STATUS),
+            new IndexSpec(Host.class, "host_email", false, User.FM.EMAIL).unique(),
+            new IndexSpec(Renter.class, "renter_email", false, User.FM.EMAIL).unique(),
+            new IndexSpec(Admin.class, "admin_email", false, User.FM.EMAIL).unique()
+    );
+
+    static final List<QueryShape> QUERY_SHAPES = List.of(
+            new QueryShape("TripService.findTripsByRenter", Trip.class,
+                    new Document(Trip.FM.RENTER_ID, "shape-check")),
+            new QueryShape("TripService.findTripsByOwner", Trip.class,
+                    new Document(Trip.FM.OWNER_ID, "shape-check")),
+            new QueryShape("TripService.findTripsByVehicle", Trip.class,
+                    new Document(Trip.FM.VEHICLE_ID, "shape-check")),
+            new QueryShape("TripService.findActiveTrip", Trip.class,
+                    new Document(Trip.FM.VEHICLE_ID, "shape-check").append(Trip.FM.STATUS, "IN_PROGRESS")),
+            new QueryShape("TripService.validateNoConflictingTrips", Trip.class,
+                    new Document(Trip.FM.VEHICLE_ID, "shape-check")
+                            .append(Trip.FM.STATUS, new Document("$in", List.of("CONFIRMED", "IN_PROGRESS")))),
+            new QueryShape("TripService.backfillIncludedKm", Trip.class,
+                    new Document(Trip.FM.STATUS, new Document("$in", List.of("PENDING", "CONFIRMED", "IN_PROGRESS")))
+                            .append(Trip.FM.INCLUDED_KM, new Document("$exists", false))
+                            .append(Trip.FM.VERSION, new Document("$exists", true))),
+            new QueryShape("TripService.streamTripsByStatus", Trip.class,
+                    new Document(Trip.FM.STATUS, "COMPLETED")),
+            new QueryShape("TripService.streamTripsWithInsuranceClaims", Trip.class,
+                    new Document(Trip.FM.HAS_INSURANCE_CLAIM, true)),
+            new QueryShape("TripService.forEachTripInDateRange", Trip.class,
+                    new Document(Trip.FM.DATE_OF_BOOKING_EPOCH, new Document("$gte", 0L).append("$lte", 1L))),
+            new QueryShape("VehicleService.findByLicensePlate", Vehicle.class,
+                    new Document(Vehicle.FM.LICENSE_PLATE, "shape-check")),
+            new QueryShape("VehicleService.findByOwnerId", Vehicle.class,
+                    new Document(Vehicle.FM.OWNER_ID, "shape-check")),
+            new QueryShape("VehicleService.getVerifiedVehicles", Vehicle.class,
+                    new Document(Vehicle.FM.IS_VERIFIED, true)),
+            new QueryShape("VehicleService.getAvailableVehicleCards", Vehicle.class,
+                    new Document(Vehicle.FM.IS_VERIFIED, true).append(Vehicle.FM.STATUS, "FREE")),
+            new QueryShape("UserService.findByEmail (host)", Host.class,
+                    new Document(User.FM.EMAIL, "shape-check")),
+            new QueryShape("UserService.findByEmail (renter)", Renter.class,
+                    new Document(User.FM.EMAIL, "shape-check")),
+            new QueryShape("UserService.findByEmail (admin)", Admin.class,
+                    new Document(User.FM.EMAIL, "shape-check"))
+    );
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean createIndexes;
+    private final String verifyMode;
+
+    // Query shape -> winning plan summary from the last verification
+    private final Map<String, String> plans = new LinkedHashMap<>();
+
+    public IndexInitializer(MongoTemplate mongoTemplate,
+                            @Value("${drivelah.mongo.indexes.create:true}") boolean createIndexes,
+                            @Value("${drivelah.mongo.indexes.verify:WARN}") String verifyMode) {
+        this.mongoTemplate = mongoTemplate;
+        this.createIndexes = createIndexes;
+        this.verifyMode = verifyMode.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Create missing indexes, then explain every registered query shape.
+     * Unless verify is FAIL, a database problem here is logged and startup continues.
+     */
+    @PostConstruct
+    public void initialize() {
+        List<String> collectionScans;
+        try {
+            if (createIndexes) {
+                createIndexes();
+            }
+            collectionScans = "OFF".equals(verifyMode) ? List.of() : verify();
+        } catch (Exception e) {
+            if ("FAIL".equals(verifyMode)) {
+                throw new IllegalStateException("Index verification failed: " + e.getMessage(), e);
+            }
+            log.error("Index verification failed, continuing", e);
+            return;
+        }
+
+        if (collectionScans.isEmpty()) {
+            if (!"OFF".equals(verifyMode)) {
+                log.info("All {} registered query shapes use an index", QUERY_SHAPES.size());
+            }
+        } else if ("FAIL".equals(verifyMode)) {
+            throw new IllegalStateException("Query shapes without a usable index (COLLSCAN): " + collectionScans);
+        } else {
+            log.warn("Query shapes without a usable index (COLLSCAN): {}", collectionScans);
+        }
+    }
+
+    /**
+     * Winning plan per query shape from the startup verification, for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("indexes", INDEXES.size());
+        stats.put("verifyMode", verifyMode);
+        synchronized (plans) {
+            stats.put("queryShapes", new LinkedHashMap<>(plans));
+        }
+        return stats;
+    }
+
+    // Private helper methods
+
+    private void createIndexes() {
+        int created = 0;
+        for (IndexSpec spec : INDEXES) {
+            try {
+                mongoTemplate.indexOps(spec.entityClass).ensureIndex(spec.toIndex());
+                created++;
+            } catch (Exception e) {
+                // Typically the same keys already indexed under another name; verification shows if it is usable
+                log.warn("Could not create index {}: {}", spec.name, e.getMessage());
+            }
+        }
+        log.info("Ensured {} of {} indexes on trip, vehicle and user collections", created, INDEXES.size());
+    }
+
+    private List<String> verify() {
+        List<String> collectionScans = new ArrayList<>();
+        for (QueryShape shape : QUERY_SHAPES) {
+            Document explain = mongoTemplate.getCollection(mongoTemplate.getCollectionName(shape.entityClass))
+                    .find(shape.filter)
+                    .explain();
+            Object winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan");
+            List<String> stages = new ArrayList<>();
+            collectStages(winningPlan, stages);
+
+            String summary = String.join(" <- ", stages);
+            synchronized (plans) {
+                plans.put(shape.name, summary);
+            }
+            if (stages.contains("COLLSCAN")) {
+                collectionScans.add(shape.name);
+            }
+            log.debug("Query shape {}: {}", shape.name, summary);
+        }
+        return collectionScans;
+    }
+
+    // Walk the plan tree (inputStage / inputStages / queryPlan) collecting stage names, root first; also used by QueryProfiler
+    static void collectStages(Object node, List<String> stages) {
+        if (node instanceof Document) {
+            Document plan = (Document) node;
+            Object stage = plan.get("stage");
+            if (stage != null) {
+                stages.add(stage.toString());
+            }
+            collectStages(plan.get("queryPlan"), stages);
+            collectStages(plan.get("inputStage"), stages);
+            collectStages(plan.get("inputStages"), stages);
+        } else if (node instanceof List) {
+            for (Object child : (List<?>) node) {
+                collectStages(child, stages);
+            }
+        }
+    }
+
+    static final class IndexSpec {
+        private final Class<?> entityClass;
+        private final String name;
+        private final boolean sparse;
+        private final boolean unique;
+        private final String[] fields;
+
+        IndexSpec(Class<?> entityClass, String name, boolean sparse, String... fields) {
+            this(entityClass, name, sparse, false, fields);
+        }
+
+        private IndexSpec(Class<?> entityClass, String name, boolean sparse, boolean unique, String... fields) {
+            this.entityClass = entityClass;
+            this.name = name;
+            this.sparse = sparse;
+            this.unique = unique;
+            this.fields = fields;
+        }
+
+        /**
+         * Same index, rejecting a second document with the same key (DuplicateKeyException)
+         */
+        IndexSpec unique() {
+            return new IndexSpec(entityClass, name, sparse, true, fields);
+        }
+
+        Class<?> getEntityClass() {
+            return entityClass;
+        }
+
+        String[] getFields() {
+            return fields;
+        }
+
+        boolean isUnique() {
+            return unique;
+        }
+
+        Index toIndex() {
+            Index index = new Index().named(name);
+            for (String field : fields) {
+                index.on(field, Sort.Direction.ASC);
+            }
+            if (unique) {
+                index.unique();
+            }
+            return sparse ? index.sparse() : index;
+        }
+    }
+
+    static final class QueryShape {
+        private final String name;
+        private final Class<?> entityClass;
+        private final Document filter;
+
+        QueryShape(String name, Class<?> entityClass, Document filter) {
+            this.name = name;
+            this.entityClass = entityClass;
+            this.filter = filter;
+        }
+    }
+}
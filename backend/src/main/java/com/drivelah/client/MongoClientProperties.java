@@ -0,0 +1,115 @@
+package com.drivelah.client;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mongo driver tuning bound from application.yml
+ *
+ * drivelah:
+ *   mongo:
+ *     client:
+ *       min-pool-size: 10
+ *       max-pool-size: 100
+ *       wait-queue-timeout-ms: 2000
+ *       connect-timeout-ms: 5000
+ *       socket-timeout-ms: 15000
+ *       compressors: zstd,snappy
+ *       read-preference: primary
+ *       analytics-read-preference: secondaryPreferred
+ *
+ * Pool settings apply per client; the sync and reactive clients each get a pool of this
+ * size. Compressors are offered in order and the server picks the first it supports, so
+ * listing one the server lacks is harmless. read-preference applies to everything that
+ * goes through MongoRepo; analytics-read-preference only to the analytics template used
+ * for report queries (see MongoRepo.analyticsStream).
+ */
+@Component
+@ConfigurationProperties(prefix = "drivelah.mongo.client")
+public class MongoClientProperties {
+
+    private int minPoolSize = 0;
+    private int maxPoolSize = 100;
+    private long waitQueueTimeoutMs = 2000;
+    private long maxConnectionIdleTimeMs = 60000;
+    private int connectTimeoutMs = 5000;
+    private int socketTimeoutMs = 0;
+    private List<String> compressors = new ArrayList<>();
+    private String readPreference = "primary";
+    private String analyticsReadPreference = "secondaryPreferred";
+
+    public int getMinPoolSize() {
+        return minPoolSize;
+    }
+
+    public void setMinPoolSize(int minPoolSize) {
+        this.minPoolSize = minPoolSize;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public long getWaitQueueTimeoutMs() {
+        return waitQueueTimeoutMs;
+    }
+
+    public void setWaitQueueTimeoutMs(long waitQueueTimeoutMs) {
+        this.waitQueueTimeoutMs = waitQueueTimeoutMs;
+    }
+
+    public long getMaxConnectionIdleTimeMs() {
+        return maxConnectionIdleTimeMs;
+    }
+
+    public void setMaxConnectionIdleTimeMs(long maxConnectionIdleTimeMs) {
+        this.maxConnectionIdleTimeMs = maxConnectionIdleTimeMs;
+    }
+
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public void setConnectTimeoutMs(int connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    public int getSocketTimeoutMs() {
+        return socketTimeoutMs;
+    }
+
+    public void setSocketTimeoutMs(int socketTimeoutMs) {
+        this.socketTimeoutMs = socketTimeoutMs;
+    }
+
+    public List<String> getCompressors() {
+        return compressors;
+    }
+
+    public void setCompressors(List<String> compressors) {
+        this.compressors = compressors;
+    }
+
+    public String getReadPreference() {
+        return readPreference;
+    }
+
+    public void setReadPreference(String readPreference) {
+        this.readPreference = readPreference;
+    }
+
+    public String getAnalyticsReadPreference() {
+        return analyticsReadPreference;
+    }
+
+    public void setAnalyticsReadPreference(String analyticsReadPreference) {
+        this.analyticsReadPreference = analyticsReadPreference;
+    }
+}
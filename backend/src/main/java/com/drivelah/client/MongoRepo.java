@@ -1,11 +1,53 @@
 package com.drivelah.client;
 
+import com.drivelah.client.codec.EntityCodecs;
+import com.mongodb.ExplainVerbosity;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mapping.IdentifierAccessor;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Generic MongoDB Repository for CRUD operations in Drive-Lah P2P Car Rental Service
@@ -19,6 +61,9 @@ import java.util.List;
  * - Optimized for car rental business logic
  * - Thread-safe operations
  * 
+ * With the "inmemory" profile this bean is replaced by InMemoryMongoRepo, which keeps
+ * the same contract without a Mongo server.
+ * 
  * @param <T> The document type (Vehicle, User, Booking, etc.)
  * 
  * @author Drive-Lah Development Team
@@ -26,10 +71,96 @@ import java.util.List;
  * @since 2024-01-01
  */
 @Repository
+@Profile("!" + InMemoryMongoRepo.PROFILE)
 public class MongoRepo<T> {
 
+    // Query shape recorded for operations by ID (findById, save, delete)
+    static final String BY_ID_SHAPE = "{_id: ?}";
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+
+    // Same client on analytics-read-preference (secondaries), for report reads only
+    private final MongoTemplate analyticsMongoTemplate;
+
+    // Documents per cursor round trip for stream() / forEachBatch() unless the query sets one
+    @Value("${drivelah.mongo.cursor-batch-size:500}")
+    private int cursorBatchSize = 500;
+
+    // Read-through cache behind findById (see EntityCache), for the listed collections only
+    @Value("${drivelah.mongo.entity-cache.enabled:true}")
+    private boolean entityCacheEnabled = true;
+
+    @Value("${drivelah.mongo.entity-cache.collections:trip,vehicle}")
+    private String[] entityCacheCollections = {"trip", "vehicle"};
+
+    @Value("${drivelah.mongo.entity-cache.max-entries:10000}")
+    private int entityCacheMaxEntries = 10000;
+
+    @Value("${drivelah.mongo.entity-cache.ttl-ms:30000}")
+    private long entityCacheTtlMillis = 30000;
+
+    private EntityCache entityCache;
+
+    // find() / stream() decode Trip, Vehicle and InsuranceClaim with EntityCodecs instead of MappingMongoConverter
+    @Value("${drivelah.mongo.codecs.enabled:true}")
+    private boolean codecReadsEnabled = true;
+
+    private final MongoExceptionTranslator exceptionTranslator = new MongoExceptionTranslator();
+    private QueryMapper queryMapper;
+
+    // updateWithRetry: attempts per call, and the upper bound of the random pause before attempt n is n * backoff
+    @Value("${drivelah.mongo.optimistic-retry.max-attempts:5}")
+    private int optimisticRetryMaxAttempts = 5;
+
+    @Value("${drivelah.mongo.optimistic-retry.backoff-ms:10}")
+    private long optimisticRetryBackoffMillis = 10;
+
+    // Every operation is timed per query shape (see QueryProfiler); slow ones are logged and explained
+    @Value("${drivelah.mongo.profiling.enabled:true}")
+    private boolean profilingEnabled = true;
+
+    @Value("${drivelah.mongo.profiling.slow-ms:100}")
+    private long profilingSlowMillis = 100;
+
+    @Value("${drivelah.mongo.profiling.explain-interval-ms:600000}")
+    private long profilingExplainIntervalMillis = 600000;
+
+    @Value("${drivelah.mongo.profiling.max-shapes:500}")
+    private int profilingMaxShapes = 500;
+
+    private QueryProfiler queryProfiler;
+
     @Autowired
-    private MongoTemplate mongoTemplate;
+    public MongoRepo(MongoTemplate mongoTemplate,
+                     @Qualifier("analyticsMongoTemplate") MongoTemplate analyticsMongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.analyticsMongoTemplate = analyticsMongoTemplate;
+    }
+
+    // For storage engines that override every operation and never reach MongoTemplate (InMemoryMongoRepo)
+    protected MongoRepo() {
+        this.mongoTemplate = null;
+        this.analyticsMongoTemplate = null;
+    }
+
+    @PostConstruct
+    void init() {
+        Set<String> collections = entityCacheEnabled ? Set.of(entityCacheCollections) : Set.of();
+        entityCache = new EntityCache(collections, entityCacheMaxEntries, entityCacheTtlMillis);
+        queryMapper = new QueryMapper(mongoTemplate.getConverter());
+        if (profilingEnabled) {
+            queryProfiler = new QueryProfiler(profilingSlowMillis, profilingExplainIntervalMillis, profilingMaxShapes);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (queryProfiler != null) {
+            queryProfiler.shutdown();
+        }
+    }
 
     /**
      * Find all documents of the specified type
@@ -40,10 +171,10 @@ public class MongoRepo<T> {
      * @param entityClass The class type of the document
      * @return List of all documents
      * 
-     * @apiNote For large datasets, prefer findWithPagination()
+     * @apiNote For large datasets, prefer stream() or forEachBatch()
      */
     public List<T> findAll(Class<T> entityClass) {
-        return mongoTemplate.findAll(entityClass);
+        return profiled("findAll", entityClass, new Query(), () -> mongoTemplate.findAll(entityClass));
     }
 
     /**
@@ -70,7 +201,130 @@ public class MongoRepo<T> {
      * @return List of matching documents
      */
     public List<T> find(Query query, Class<T> entityClass) {
-        return mongoTemplate.find(query, entityClass);
+        return profiled("find", entityClass, query, () -> {
+            if (!usesCodec(query, entityClass)) {
+                return mongoTemplate.find(query, entityClass);
+            }
+            try {
+                return codecFind(query, entityClass).into(new ArrayList<>());
+            } catch (RuntimeException e) {
+                throw translate(e);
+            }
+        });
+    }
+
+    /**
+     * Stream documents matching the query from a server-side cursor
+     *
+     * Documents are fetched cursor-batch-size at a time as the stream is consumed, so
+     * memory stays bounded whatever the result size. The stream holds an open cursor and
+     * MUST be closed; use try-with-resources:
+     *
+     * try (Stream<Trip> trips = mongoRepo.stream(query, Trip.class)) {
+     *     trips.forEach(report::add);
+     * }
+     *
+     * @param query The MongoDB query with criteria
+     * @param entityClass The class type of the document
+     * @return Lazily populated stream of matching documents
+     */
+    public Stream<T> stream(Query query, Class<T> entityClass) {
+        if (!usesCodec(query, entityClass)) {
+            return openStream(mongoTemplate, query, entityClass);
+        }
+        if (query.getMeta().getCursorBatchSize() == null) {
+            query.cursorBatchSize(cursorBatchSize);
+        }
+        return profiled("stream", entityClass, query, () -> {
+            try {
+                MongoCursor<T> cursor = codecFind(query, entityClass).cursor();
+                return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false)
+                        .onClose(cursor::close);
+            } catch (RuntimeException e) {
+                throw translate(e);
+            }
+        });
+    }
+
+    /**
+     * Like stream(), but read on drivelah.mongo.client.analytics-read-preference
+     *
+     * For reports and dashboards that tolerate replication lag: with the default
+     * secondaryPreferred they run on a secondary and leave the primary to bookings.
+     * Never use this for reads that feed a write.
+     */
+    public Stream<T> analyticsStream(Query query, Class<T> entityClass) {
+        return openStream(analyticsMongoTemplate, query, entityClass);
+    }
+
+    /**
+     * Hand matching documents to the consumer in lists of at most batchSize
+     *
+     * Backed by stream(); the cursor is always closed, including when the consumer
+     * throws. Only one batch is held in memory at a time.
+     *
+     * @param query The MongoDB query with criteria
+     * @param batchSize Maximum documents per consumer call (also used as cursor batch size)
+     * @param entityClass The class type of the document
+     * @param consumer Called once per batch, in cursor order
+     * @return Total number of documents processed
+     */
+    public long forEachBatch(Query query, int batchSize, Class<T> entityClass, Consumer<List<T>> consumer) {
+        return forEachBatch(mongoTemplate, query, batchSize, entityClass, consumer);
+    }
+
+    /**
+     * Like forEachBatch(), but read on the analytics read preference (see analyticsStream)
+     */
+    public long analyticsForEachBatch(Query query, int batchSize, Class<T> entityClass, Consumer<List<T>> consumer) {
+        return forEachBatch(analyticsMongoTemplate, query, batchSize, entityClass, consumer);
+    }
+
+    private long forEachBatch(MongoTemplate template, Query query, int batchSize, Class<T> entityClass,
+                              Consumer<List<T>> consumer) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        if (query.getMeta().getCursorBatchSize() == null) {
+            query.cursorBatchSize(batchSize);
+        }
+
+        long processed = 0;
+        List<T> batch = new ArrayList<>(batchSize);
+        try (Stream<T> documents = openStream(template, query, entityClass)) {
+            for (T document : (Iterable<T>) documents::iterator) {
+                batch.add(document);
+                if (batch.size() == batchSize) {
+                    consumer.accept(batch);
+                    processed += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+            processed += batch.size();
+        }
+        return processed;
+    }
+
+    /**
+     * Find documents by query, reading only the fields of a slim read model
+     *
+     * The projection class lists the fields to fetch (same names as the document), so
+     * Mongo sends and the driver decodes only those instead of the full document:
+     *
+     * // Search result cards without registration details
+     * List<VehicleCard> cards = mongoRepo.findProjected(query, Vehicle.class, VehicleCard.class);
+     *
+     * @param query The MongoDB query with criteria
+     * @param entityClass The class type of the document (selects the collection)
+     * @param projection The read model to map each document into
+     * @return List of matching documents as read models
+     */
+    public <P> List<P> findProjected(Query query, Class<T> entityClass, Class<P> projection) {
+        return profiled("findProjected", entityClass, query,
+                () -> mongoTemplate.query(entityClass).as(projection).matching(query).all());
     }
 
     /**
@@ -91,12 +345,303 @@ public class MongoRepo<T> {
      * @throws org.springframework.dao.DuplicateKeyException if unique constraints are violated
      */
     public T save(T entity) {
-        return mongoTemplate.save(entity);
+        T saved = profiled("save", entity.getClass(), null, () -> mongoTemplate.save(entity));
+        invalidateById(saved);
+        return saved;
+    }
+
+    /**
+     * Read-modify-write a versioned document, retrying when someone else saved it first
+     *
+     * For entities with a @Version field, save() only succeeds if the document was not
+     * saved by anyone else since it was read, and throws OptimisticLockingFailureException
+     * instead of overwriting their changes. This re-reads the current document and
+     * re-applies the mutation, up to drivelah.mongo.optimistic-retry.max-attempts times,
+     * with a short random pause between attempts. No lock is held while the mutation runs.
+     *
+     * The mutation may run more than once, so it should only change the entity; it can
+     * throw to abort (e.g. IllegalStateException when the trip is no longer in the
+     * expected status), and the exception reaches the caller unchanged:
+     *
+     * // Rate a trip without clobbering a concurrent completion
+     * Trip rated = mongoRepo.updateWithRetry(tripId, Trip.class, trip -> trip.setOwnerRating(5));
+     *
+     * @param id The document ID
+     * @param entityClass The class type of the document (must have a @Version field)
+     * @param mutation Applied to the freshly read document before each save attempt
+     * @return The saved document, or null if no document has this ID
+     *
+     * @throws OptimisticLockingFailureException if every attempt lost the race
+     */
+    public T updateWithRetry(String id, Class<T> entityClass, Consumer<T> mutation) {
+        String collection = mongoTemplate.getCollectionName(entityClass);
+        for (int attempt = 1; ; attempt++) {
+            // After a conflict the cached copy is known stale; go to Mongo
+            T entity = attempt == 1 ? findById(id, entityClass) : loadById(id, entityClass);
+            if (entity == null) {
+                return null;
+            }
+            mutation.accept(entity);
+            try {
+                return save(entity);
+            } catch (OptimisticLockingFailureException e) {
+                if (entityCache.isCached(collection)) {
+                    entityCache.invalidate(collection, id);
+                }
+                if (attempt >= optimisticRetryMaxAttempts) {
+                    throw e;
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Save many documents with at most two round trips, with the same @Version checks as save()
+     *
+     * New documents (no ID, or a versioned one without a version) go in one batch insert,
+     * which fills in their IDs and versions. Existing ones are replaced in one unordered
+     * bulk write: a versioned document only if it is still at the version it was read at
+     * (its version is bumped, as save() does), any other by ID, upserting if missing.
+     * Use this for imports, backfills and multi-document updates instead of save() in a loop.
+     *
+     * A versioned document that someone else saved or deleted since it was read is not
+     * written and keeps its version. The rest of the batch is still saved, then the
+     * conflicting IDs are reported so the caller can re-read and retry just those:
+     *
+     * // Update many trips; re-read and re-apply the few that changed meanwhile
+     * try {
+     *     mongoRepo.saveAll(trips, Trip.class);
+     * } catch (OptimisticLockingFailureException e) { ... }
+     *
+     * @param entities The documents to save
+     * @param entityClass The class type of the documents
+     * @return The saved documents, new ones with generated IDs
+     *
+     * @throws OptimisticLockingFailureException naming the documents that were not saved
+     */
+    public List<T> saveAll(Collection<T> entities, Class<T> entityClass) {
+        MongoPersistentEntity<?> persistentEntity =
+                mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(entityClass);
+        MongoPersistentProperty versionProperty = persistentEntity.getVersionProperty();
+
+        List<T> inserts = new ArrayList<>();
+        List<T> replaced = new ArrayList<>();
+        List<Long> readVersions = new ArrayList<>();
+        BulkOperations replacements = null;
+        for (T entity : entities) {
+            PersistentPropertyAccessor<T> accessor = persistentEntity.getPropertyAccessor(entity);
+            Object id = idOf(entity);
+            Number version = versionProperty != null ? (Number) accessor.getProperty(versionProperty) : null;
+            if (id == null || (versionProperty != null && version == null)) {
+                inserts.add(entity);
+                continue;
+            }
+            if (replacements == null) {
+                replacements = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityClass);
+            }
+            if (versionProperty == null) {
+                replacements.replaceOne(new Query(Criteria.where("_id").is(id)), entity,
+                        FindAndReplaceOptions.options().upsert());
+                readVersions.add(null);
+            } else {
+                // Upsert, so a stale version fails with a duplicate _id instead of matching nothing
+                // silently; the bulk errors then name exactly which documents conflicted
+                accessor.setProperty(versionProperty, version.longValue() + 1);
+                replacements.replaceOne(new Query(Criteria.where("_id").is(id)
+                                .and(versionProperty.getFieldName()).is(version.longValue())), entity,
+                        FindAndReplaceOptions.options().upsert());
+                readVersions.add(version.longValue());
+            }
+            replaced.add(entity);
+        }
+
+        List<T> saved = new ArrayList<>(entities.size());
+        List<Object> conflicts = new ArrayList<>();
+        if (replacements != null) {
+            boolean[] conflicted = new boolean[replaced.size()];
+            BulkWriteResult result;
+            try {
+                result = profiled("saveAll", entityClass, null, replacements::execute);
+            } catch (BulkOperationException e) {
+                // Failed writes were not applied; the others were
+                boolean otherError = false;
+                for (BulkWriteError error : e.getErrors()) {
+                    conflicted[error.getIndex()] = true;
+                    otherError |= !isVersionConflict(error, readVersions.get(error.getIndex()));
+                }
+                if (otherError) {
+                    restoreVersions(persistentEntity, versionProperty, replaced, readVersions, conflicted);
+                    throw e;
+                }
+                result = e.getResult();
+            } catch (RuntimeException e) {
+                // Unknown which writes were applied; the caller has to re-read either way
+                Arrays.fill(conflicted, true);
+                restoreVersions(persistentEntity, versionProperty, replaced, readVersions, conflicted);
+                throw e;
+            } finally {
+                for (T entity : replaced) {
+                    invalidateById(entity);
+                }
+            }
+
+            // A versioned document that was upserted had been deleted since it was read; take it out again
+            for (BulkWriteUpsert upsert : result.getUpserts()) {
+                Long readVersion = readVersions.get(upsert.getIndex());
+                if (readVersion != null) {
+                    mongoTemplate.remove(new Query(Criteria.where("_id").is(idOf(replaced.get(upsert.getIndex())))
+                            .and(versionProperty.getFieldName()).is(readVersion + 1)), entityClass);
+                    conflicted[upsert.getIndex()] = true;
+                }
+            }
+
+            restoreVersions(persistentEntity, versionProperty, replaced, readVersions, conflicted);
+            for (int i = 0; i < replaced.size(); i++) {
+                if (conflicted[i]) {
+                    conflicts.add(idOf(replaced.get(i)));
+                } else {
+                    saved.add(replaced.get(i));
+                }
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            saved.addAll(profiled("insertAll", entityClass, null, () -> mongoTemplate.insert(inserts, entityClass)));
+        }
+
+        if (!conflicts.isEmpty()) {
+            throw new OptimisticLockingFailureException(conflicts.size() + " of " + entities.size() + " "
+                    + mongoTemplate.getCollectionName(entityClass)
+                    + " documents were saved or deleted by someone else since they were read: " + conflicts);
+        }
+        return saved;
+    }
+
+    /**
+     * Apply many partial updates in one round trip
+     *
+     * Each pair updates the first document matching its query. ORDERED stops at the
+     * first failing write; UNORDERED lets the server apply the rest (and is faster).
+     *
+     * @param updates Query / update pairs
+     * @param mode ORDERED or UNORDERED
+     * @param entityClass The class type of the documents
+     * @return Matched / modified counts for the whole batch
+     */
+    public BulkWriteResult bulkUpdate(List<Pair<Query, Update>> updates, BulkOperations.BulkMode mode,
+                                      Class<T> entityClass) {
+        BulkOperations operations = mongoTemplate.bulkOps(mode, entityClass);
+        for (Pair<Query, Update> update : updates) {
+            operations.updateOne(update.getFirst(), update.getSecond());
+        }
+        try {
+            return profiled("bulkUpdate", entityClass, firstQuery(updates), operations::execute);
+        } finally {
+            for (Pair<Query, Update> update : updates) {
+                invalidateMatching(update.getFirst(), entityClass);
+            }
+        }
+    }
+
+    /**
+     * Like bulkUpdate(), but inserts a document when a query matches nothing
+     *
+     * @param upserts Query / update pairs
+     * @param mode ORDERED or UNORDERED
+     * @param entityClass The class type of the documents
+     * @return Matched / modified / upserted counts for the whole batch
+     */
+    public BulkWriteResult bulkUpsert(List<Pair<Query, Update>> upserts, BulkOperations.BulkMode mode,
+                                      Class<T> entityClass) {
+        BulkOperations operations = mongoTemplate.bulkOps(mode, entityClass);
+        for (Pair<Query, Update> upsert : upserts) {
+            operations.upsert(upsert.getFirst(), upsert.getSecond());
+        }
+        try {
+            return profiled("bulkUpsert", entityClass, firstQuery(upserts), operations::execute);
+        } finally {
+            for (Pair<Query, Update> upsert : upserts) {
+                invalidateMatching(upsert.getFirst(), entityClass);
+            }
+        }
+    }
+
+    /**
+     * Apply a partial update to the first document matching the query
+     *
+     * Cheaper than save() when only a few fields change, since the whole
+     * document is not rewritten:
+     *
+     * // Record last login without re-saving the user
+     * Update update = new Update().set(User.FM.LAST_LOGIN_EPOCH, now);
+     * mongoRepo.updateFirst(new Query(Criteria.where(User.FM.ID).is(userId)), update, Host.class);
+     *
+     * @param query The MongoDB query selecting the document
+     * @param update The fields to set/unset/increment
+     * @param entityClass The class type of the document
+     * @return Number of documents modified (0 or 1)
+     */
+    public long updateFirst(Query query, Update update, Class<T> entityClass) {
+        long modified = profiled("updateFirst", entityClass, query,
+                () -> mongoTemplate.updateFirst(query, update, entityClass)).getModifiedCount();
+        if (modified > 0) {
+            invalidateMatching(query, entityClass);
+        }
+        return modified;
+    }
+
+    /**
+     * Apply a partial update to every document matching the query
+     *
+     * For migrations and backfills; request paths should update documents by ID.
+     *
+     * @param query The MongoDB query selecting the documents
+     * @param update The fields to set/unset/increment
+     * @param entityClass The class type of the documents
+     * @return Number of documents modified
+     */
+    public long updateMulti(Query query, Update update, Class<T> entityClass) {
+        long modified = profiled("updateMulti", entityClass, query,
+                () -> mongoTemplate.updateMulti(query, update, entityClass)).getModifiedCount();
+        if (modified > 0) {
+            invalidateMatching(query, entityClass);
+        }
+        return modified;
+    }
+
+    /**
+     * Atomically update the first document matching the query and return it
+     *
+     * The query doubles as a precondition, so a state transition happens at most once
+     * even with concurrent requests:
+     *
+     * // Cancel only if the trip is still cancellable
+     * Query query = new Query(Criteria.where(Trip.FM.ID).is(tripId)
+     *                                .and(Trip.FM.STATUS).in("PENDING", "CONFIRMED"));
+     * Trip cancelled = mongoRepo.findAndModify(query, update, Trip.class);
+     *
+     * @param query The MongoDB query selecting the document (and its expected state)
+     * @param update The fields to set/unset/increment
+     * @param entityClass The class type of the document
+     * @return The updated document, or null if nothing matched
+     */
+    public T findAndModify(Query query, Update update, Class<T> entityClass) {
+        T modified = profiled("findAndModify", entityClass, query, () -> mongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(true), entityClass));
+        if (modified != null) {
+            invalidateById(modified);
+        }
+        return modified;
     }
 
     /**
      * Find a document by its unique MongoDB ObjectId
      * 
+     * For cached collections (drivelah.mongo.entity-cache.collections) the document is
+     * served from the entity cache when present, and repeated lookups within one HTTP
+     * request read Mongo at most once. Each call still returns a new object.
+     * 
      * @param id The document ID (MongoDB ObjectId as String)
      * @param entityClass The class type of the document
      * @return The found document or null if not found
@@ -104,7 +649,45 @@ public class MongoRepo<T> {
      * @apiNote Returns null if document doesn't exist. Check for null before use.
      */
     public T findById(String id, Class<T> entityClass) {
-        return mongoTemplate.findById(id, entityClass);
+        String collection = mongoTemplate.getCollectionName(entityClass);
+        if (id == null || !entityCache.isCached(collection)) {
+            return loadById(id, entityClass);
+        }
+
+        Document cached = entityCache.get(collection, id);
+        if (cached != null) {
+            return mongoTemplate.getConverter().read(entityClass, cached);
+        }
+
+        long generation = entityCache.generation(collection);
+        T entity = loadById(id, entityClass);
+        if (entity != null) {
+            Document document = new Document();
+            mongoTemplate.getConverter().write(entity, document);
+            entityCache.put(collection, id, document, generation);
+        }
+        return entity;
+    }
+
+    /**
+     * Entity cache size and hit / miss / invalidation counters, for monitoring
+     */
+    public Map<String, Object> getEntityCacheStats() {
+        return entityCache.getStats();
+    }
+
+    /**
+     * Slow-operation and explain counters plus the query shapes with the most total time, for monitoring
+     *
+     * @param limit Number of shapes to list
+     */
+    public Map<String, Object> getQueryShapeStats(int limit) {
+        if (queryProfiler == null) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", false);
+            return stats;
+        }
+        return queryProfiler.getStats(limit);
     }
 
     /**
@@ -120,7 +703,8 @@ public class MongoRepo<T> {
      * @apiNote This performs hard delete. Consider soft delete for business entities.
      */
     public void delete(T entity) {
-        mongoTemplate.remove(entity);
+        profiled("delete", entity.getClass(), null, () -> mongoTemplate.remove(entity));
+        invalidateById(entity);
     }
 
     /**
@@ -135,7 +719,8 @@ public class MongoRepo<T> {
      * @return Total count of documents
      */
     public long count(Class<T> entityClass) {
-        return mongoTemplate.count(new Query(), entityClass);
+        Query all = new Query();
+        return profiled("count", entityClass, all, () -> mongoTemplate.count(all, entityClass));
     }
 
     /**
@@ -152,7 +737,7 @@ public class MongoRepo<T> {
      * @return Count of matching documents
      */
     public long count(Query query, Class<T> entityClass) {
-        return mongoTemplate.count(query, entityClass);
+        return profiled("count", entityClass, query, () -> mongoTemplate.count(query, entityClass));
     }
 
     /**
@@ -171,7 +756,7 @@ public class MongoRepo<T> {
     public List<T> findWithPagination(int page, int size, Class<T> entityClass) {
         Query query = new Query();
         query.skip((long) page * size).limit(size);
-        return mongoTemplate.find(query, entityClass);
+        return profiled("findWithPagination", entityClass, query, () -> mongoTemplate.find(query, entityClass));
     }
 
     /**
@@ -187,7 +772,7 @@ public class MongoRepo<T> {
      * @return The first matching document or null
      */
     public T findOne(Query query, Class<T> entityClass) {
-        return mongoTemplate.findOne(query, entityClass);
+        return profiled("findOne", entityClass, query, () -> mongoTemplate.findOne(query, entityClass));
     }
 
     /**
@@ -203,6 +788,157 @@ public class MongoRepo<T> {
      * @return true if at least one document matches, false otherwise
      */
     public boolean exists(Query query, Class<T> entityClass) {
-        return mongoTemplate.exists(query, entityClass);
+        return profiled("exists", entityClass, query, () -> mongoTemplate.exists(query, entityClass));
+    }
+
+    // Private helper methods
+
+    // Collation and index hints are left to MongoTemplate
+    private boolean usesCodec(Query query, Class<T> entityClass) {
+        return codecReadsEnabled && EntityCodecs.supports(entityClass)
+                && query.getCollation().isEmpty() && query.getHint() == null;
+    }
+
+    // Same filter / projection / sort mapping MongoTemplate applies, but decoded by the entity codec
+    private FindIterable<T> codecFind(Query query, Class<T> entityClass) {
+        MongoPersistentEntity<?> persistentEntity =
+                mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(entityClass);
+        FindIterable<T> iterable = mongoTemplate.getCollection(mongoTemplate.getCollectionName(entityClass))
+                .withDocumentClass(entityClass)
+                .find(queryMapper.getMappedObject(query.getQueryObject(), persistentEntity));
+
+        if (!query.getFieldsObject().isEmpty()) {
+            iterable.projection(queryMapper.getMappedFields(query.getFieldsObject(), persistentEntity));
+        }
+        if (!query.getSortObject().isEmpty()) {
+            iterable.sort(queryMapper.getMappedSort(query.getSortObject(), persistentEntity));
+        }
+        if (query.getSkip() > 0) {
+            iterable.skip((int) query.getSkip());
+        }
+        if (query.getLimit() > 0) {
+            iterable.limit(query.getLimit());
+        }
+        if (query.getMeta().getCursorBatchSize() != null) {
+            iterable.batchSize(query.getMeta().getCursorBatchSize());
+        }
+        return iterable;
+    }
+
+    private RuntimeException translate(RuntimeException e) {
+        DataAccessException translated = exceptionTranslator.translateExceptionIfPossible(e);
+        return translated != null ? translated : e;
+    }
+
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(optimisticRetryBackoffMillis * attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a conflicting update", e);
+        }
+    }
+
+    // Only opening the cursor (the first batch) is timed, not how long the caller takes to consume it
+    private Stream<T> openStream(MongoTemplate template, Query query, Class<T> entityClass) {
+        if (query.getMeta().getCursorBatchSize() == null) {
+            query.cursorBatchSize(cursorBatchSize);
+        }
+        return profiled("stream", template, entityClass, query, () -> template.stream(query, entityClass));
+    }
+
+    private T loadById(String id, Class<T> entityClass) {
+        return profiled("findById", entityClass, null, () -> mongoTemplate.findById(id, entityClass));
+    }
+
+    private <R> R profiled(String operation, Class<?> entityClass, Query query, Supplier<R> action) {
+        return profiled(operation, mongoTemplate, entityClass, query, action);
+    }
+
+    // Times the action for QueryProfiler; a null query means by ID. Failed operations are timed too
+    private <R> R profiled(String operation, MongoTemplate template, Class<?> entityClass, Query query,
+                           Supplier<R> action) {
+        if (queryProfiler == null) {
+            return action.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            String collection = template.getCollectionName(entityClass);
+            String shape = query == null ? BY_ID_SHAPE
+                    : QueryProfiler.shapeOf(query.getQueryObject(), query.getSortObject());
+            String explainKey = queryProfiler.record(operation, collection, shape, elapsed);
+            if (explainKey != null && query != null && !query.getQueryObject().isEmpty()) {
+                explainLater(explainKey, template, collection, entityClass, query);
+            }
+        }
+    }
+
+    // Writes and counts are explained as a find with the same filter: the index choice is what matters
+    private void explainLater(String explainKey, MongoTemplate template, String collection, Class<?> entityClass,
+                              Query query) {
+        MongoPersistentEntity<?> persistentEntity =
+                template.getConverter().getMappingContext().getPersistentEntity(entityClass);
+        Document filter = queryMapper.getMappedObject(query.getQueryObject(), persistentEntity);
+        Document sort = query.getSortObject().isEmpty() ? null
+                : queryMapper.getMappedSort(query.getSortObject(), persistentEntity);
+        queryProfiler.explain(explainKey, () -> template.getCollection(collection)
+                .find(filter)
+                .sort(sort)
+                .explain(ExplainVerbosity.EXECUTION_STATS));
+    }
+
+    // saveAll(): only a duplicate _id on a versioned replacement means "stale version"
+    private static boolean isVersionConflict(BulkWriteError error, Long readVersion) {
+        return readVersion != null && error.getCode() == DUPLICATE_KEY
+                && error.getMessage() != null && error.getMessage().contains("_id_");
+    }
+
+    // Unwritten documents go back to the version they were read at, so the caller can retry them
+    private void restoreVersions(MongoPersistentEntity<?> persistentEntity, MongoPersistentProperty versionProperty,
+                                 List<T> replaced, List<Long> readVersions, boolean[] unwritten) {
+        if (versionProperty == null) {
+            return;
+        }
+        for (int i = 0; i < replaced.size(); i++) {
+            if (unwritten[i]) {
+                persistentEntity.getPropertyAccessor(replaced.get(i)).setProperty(versionProperty, readVersions.get(i));
+            }
+        }
+    }
+
+    private static Query firstQuery(List<Pair<Query, Update>> operations) {
+        return operations.isEmpty() ? null : operations.get(0).getFirst();
+    }
+
+    private Object idOf(Object entity) {
+        MongoPersistentEntity<?> persistentEntity =
+                mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(entity.getClass());
+        IdentifierAccessor identifier = persistentEntity.getIdentifierAccessor(entity);
+        return identifier.getIdentifier();
+    }
+
+    private void invalidateById(Object entity) {
+        String collection = mongoTemplate.getCollectionName(entity.getClass());
+        Object id = idOf(entity);
+        if (entityCache.isCached(collection) && id != null) {
+            entityCache.invalidate(collection, id.toString());
+        }
+    }
+
+    // Writes by ID drop that document; any other query may have touched anything in the collection
+    private void invalidateMatching(Query query, Class<T> entityClass) {
+        String collection = mongoTemplate.getCollectionName(entityClass);
+        if (!entityCache.isCached(collection)) {
+            return;
+        }
+        Object id = query.getQueryObject().get("_id");
+        if (id instanceof String || id instanceof ObjectId) {
+            entityCache.invalidate(collection, id.toString());
+        } else {
+            entityCache.invalidateAll(collection);
+        }
     }
 }
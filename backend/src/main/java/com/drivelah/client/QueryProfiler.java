@@ -0,0 +1,285 @@
+package com.drivelah.client;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Timing per query shape for MongoRepo: slow-operation log, sampled explain plans, top shapes
+ *
+ * A shape is the operation, the collection and the filter / sort with every value
+ * replaced by "?", so {renterId: "u1"} and {renterId: "u2"} count as one shape. Each
+ * operation over the slow threshold is logged at WARN. The first slow operation of a
+ * shape, and then at most one per explain interval, gets its plan explained on a single
+ * background thread (executionStats, so it re-runs the query) and the summary is kept
+ * with the shape. Explains that cannot be queued are dropped.
+ *
+ * Shapes come from code, not data, so the table stays small; past maxShapes new shapes
+ * are only counted as untracked.
+ */
+class QueryProfiler {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryProfiler.class);
+
+    // Most shapes a topShapes() call returns, whatever limit is asked for
+    static final int MAX_TOP_SHAPES = 100;
+
+    private final long slowThresholdNanos;
+    private final long explainIntervalNanos;
+    private final int maxShapes;
+    private final ThreadPoolExecutor explainer;
+
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder slowOperations = new LongAdder();
+    private final LongAdder untrackedOperations = new LongAdder();
+    private final LongAdder explainsRun = new LongAdder();
+    private final LongAdder explainsFailed = new LongAdder();
+    private final LongAdder explainsDropped = new LongAdder();
+
+    QueryProfiler(long slowThresholdMillis, long explainIntervalMillis, int maxShapes) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.explainIntervalNanos = TimeUnit.MILLISECONDS.toNanos(explainIntervalMillis);
+        this.maxShapes = maxShapes;
+        this.explainer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mongo-query-explainer");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, executor) -> explainsDropped.increment());
+    }
+
+    /**
+     * Record one operation; returns the shape if it was slow and is due an explain, else null
+     *
+     * @param operation MongoRepo method, e.g. "find"
+     * @param collection Collection the operation ran against
+     * @param shape Normalized filter / sort, see shapeOf()
+     * @param elapsedNanos Wall time of the operation
+     */
+    String record(String operation, String collection, String shape, long elapsedNanos) {
+        operations.increment();
+        String key = collection + ' ' + operation + ' ' + shape;
+        ShapeStats stats = shapes.get(key);
+        if (stats == null) {
+            if (shapes.size() >= maxShapes) {
+                untrackedOperations.increment();
+                return null;
+            }
+            stats = shapes.computeIfAbsent(key, k -> new ShapeStats(operation, collection, shape));
+        }
+        stats.record(elapsedNanos);
+
+        if (elapsedNanos < slowThresholdNanos) {
+            return null;
+        }
+        slowOperations.increment();
+        stats.slow.increment();
+        log.warn("Slow Mongo {} on {} took {} ms: {}", operation, collection,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), shape);
+        return stats.claimExplain(System.nanoTime(), explainIntervalNanos) ? key : null;
+    }
+
+    /**
+     * Run the explain in the background and keep its plan summary on the shape returned by record()
+     */
+    void explain(String key, Supplier<Document> explain) {
+        explainer.execute(() -> {
+            try {
+                String plan = summarizePlan(explain.get());
+                explainsRun.increment();
+                ShapeStats stats = shapes.get(key);
+                if (stats != null) {
+                    stats.plan = plan;
+                }
+                log.warn("Plan for slow Mongo query {}: {}", key, plan);
+            } catch (Exception e) {
+                explainsFailed.increment();
+                log.debug("Explain failed for {}: {}", key, e.getMessage());
+            }
+        });
+    }
+
+    void shutdown() {
+        explainer.shutdownNow();
+    }
+
+    /**
+     * Shapes by total time spent, most expensive first
+     *
+     * @param limit Clamped to 0..MAX_TOP_SHAPES, since it comes straight from a request parameter
+     */
+    List<Map<String, Object>> topShapes(int limit) {
+        List<ShapeStats> sorted = new ArrayList<>(shapes.values());
+        sorted.sort(Comparator.comparingLong((ShapeStats stats) -> stats.totalNanos.sum()).reversed());
+
+        int count = Math.min(Math.max(0, Math.min(limit, MAX_TOP_SHAPES)), sorted.size());
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (ShapeStats stats : sorted.subList(0, count)) {
+            top.add(stats.toMap());
+        }
+        return top;
+    }
+
+    /**
+     * Operation, slow and explain counters plus the top shapes, for monitoring
+     */
+    Map<String, Object> getStats(int limit) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("slowThresholdMillis", TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos));
+        stats.put("operations", operations.sum());
+        stats.put("slowOperations", slowOperations.sum());
+        stats.put("shapes", shapes.size());
+        stats.put("untrackedOperations", untrackedOperations.sum());
+        stats.put("explainsRun", explainsRun.sum());
+        stats.put("explainsFailed", explainsFailed.sum());
+        stats.put("explainsDropped", explainsDropped.sum());
+        stats.put("topShapes", topShapes(limit));
+        return stats;
+    }
+
+    /**
+     * Filter and sort with values replaced by "?": {status: {$in: ?}, renterId: ?} sort {dateOfBookingEpoch: -1}
+     *
+     * Field names and operators are kept, in document order; sort directions are kept
+     * since they pick the index. $and / $or / $nor clauses are normalized one by one.
+     */
+    static String shapeOf(Document filter, Document sort) {
+        StringBuilder shape = new StringBuilder();
+        appendShape(shape, filter != null ? filter : new Document());
+        if (sort != null && !sort.isEmpty()) {
+            shape.append(" sort ").append(sort.toJson());
+        }
+        return shape.toString();
+    }
+
+    /**
+     * Stage chain of an explain's winning plan, root first, plus executionStats counters when present
+     */
+    static String summarizePlan(Document explain) {
+        List<String> stages = new ArrayList<>();
+        Document queryPlanner = explain.get("queryPlanner", Document.class);
+        if (queryPlanner != null) {
+            IndexInitializer.collectStages(queryPlanner.get("winningPlan"), stages);
+        }
+        StringBuilder summary = new StringBuilder(String.join(" <- ", stages));
+        Document executionStats = explain.get("executionStats", Document.class);
+        if (executionStats != null) {
+            summary.append(" (returned ").append(executionStats.get("nReturned"))
+                    .append(", keys examined ").append(executionStats.get("totalKeysExamined"))
+                    .append(", docs examined ").append(executionStats.get("totalDocsExamined"))
+                    .append(", ").append(executionStats.get("executionTimeMillis")).append(" ms)");
+        }
+        return summary.toString();
+    }
+
+    // Private helper methods
+
+    private static void appendShape(StringBuilder shape, Object value) {
+        if (value instanceof Map) {
+            shape.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> field : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    shape.append(", ");
+                }
+                first = false;
+                String name = String.valueOf(field.getKey());
+                shape.append(name).append(": ");
+                if (isLogical(name) && field.getValue() instanceof List) {
+                    appendClauses(shape, (List<?>) field.getValue());
+                } else if (field.getValue() instanceof Map && !((Map<?, ?>) field.getValue()).isEmpty()) {
+                    appendShape(shape, field.getValue());
+                } else {
+                    shape.append('?');
+                }
+            }
+            shape.append('}');
+        } else {
+            shape.append('?');
+        }
+    }
+
+    private static void appendClauses(StringBuilder shape, List<?> clauses) {
+        shape.append('[');
+        for (int i = 0; i < clauses.size(); i++) {
+            if (i > 0) {
+                shape.append(", ");
+            }
+            appendShape(shape, clauses.get(i));
+        }
+        shape.append(']');
+    }
+
+    private static boolean isLogical(String name) {
+        return "$and".equals(name) || "$or".equals(name) || "$nor".equals(name);
+    }
+
+    private static final class ShapeStats {
+        private final String operation;
+        private final String collection;
+        private final String shape;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder slow = new LongAdder();
+        // System.nanoTime() of the last explain claimed; Long.MIN_VALUE until the first
+        private final AtomicLong lastExplainNanos = new AtomicLong(Long.MIN_VALUE);
+        private volatile String plan;
+
+        ShapeStats(String operation, String collection, String shape) {
+            this.operation = operation;
+            this.collection = collection;
+            this.shape = shape;
+        }
+
+        void record(long elapsedNanos) {
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+        }
+
+        boolean claimExplain(long now, long intervalNanos) {
+            long last = lastExplainNanos.get();
+            if (last != Long.MIN_VALUE && now - last < intervalNanos) {
+                return false;
+            }
+            return lastExplainNanos.compareAndSet(last, now);
+        }
+
+        Map<String, Object> toMap() {
+            long calls = count.sum();
+            long total = totalNanos.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("collection", collection);
+            map.put("operation", operation);
+            map.put("shape", shape);
+            map.put("count", calls);
+            map.put("totalMillis", total / 1_000_000.0);
+            map.put("avgMillis", calls == 0 ? 0.0 : total / 1_000_000.0 / calls);
+            map.put("maxMillis", maxNanos.get() / 1_000_000.0);
+            map.put("slow", slow.sum());
+            if (plan != null) {
+                map.put("plan", plan);
+            }
+            return map;
+        }
+    }
+}
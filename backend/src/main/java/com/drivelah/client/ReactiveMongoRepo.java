@@ -0,0 +1,191 @@
+package com.drivelah.client;
+
+import com.mongodb.ExplainVerbosity;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Non-blocking counterpart of MongoRepo for read-heavy endpoints
+ *
+ * Same query model as MongoRepo (Query / Criteria / FM constants), but results arrive as
+ * Mono / Flux on the reactive driver's threads instead of blocking a servlet thread while
+ * Mongo answers. Controllers can return these directly; Spring MVC completes the response
+ * asynchronously, so slow queries queue in the driver's connection pool rather than
+ * tying up Tomcat threads.
+ *
+ * Writes stay on MongoRepo. With the "inmemory" profile, InMemoryReactiveMongoRepo
+ * serves the same calls from the in-memory store.
+ *
+ * Operations are profiled per query shape like MongoRepo's, with their own QueryProfiler
+ * (same drivelah.mongo.profiling settings). An operation is timed from subscription to
+ * its terminal signal or cancellation, so a Flux the caller stops early counts only the
+ * part that was read.
+ *
+ * @param <T> The document type (Vehicle, Trip, etc.)
+ */
+@Repository
+@Profile("!" + InMemoryMongoRepo.PROFILE)
+public class ReactiveMongoRepo<T> {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private QueryMapper queryMapper;
+
+    // See MongoRepo: every operation is timed per query shape; slow ones are logged and explained
+    @Value("${drivelah.mongo.profiling.enabled:true}")
+    private boolean profilingEnabled = true;
+
+    @Value("${drivelah.mongo.profiling.slow-ms:100}")
+    private long profilingSlowMillis = 100;
+
+    @Value("${drivelah.mongo.profiling.explain-interval-ms:600000}")
+    private long profilingExplainIntervalMillis = 600000;
+
+    @Value("${drivelah.mongo.profiling.max-shapes:500}")
+    private int profilingMaxShapes = 500;
+
+    private QueryProfiler queryProfiler;
+
+    @Autowired
+    public ReactiveMongoRepo(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    // See MongoRepo(): for engines that override every operation (InMemoryReactiveMongoRepo)
+    protected ReactiveMongoRepo() {
+        this.reactiveMongoTemplate = null;
+    }
+
+    @PostConstruct
+    void init() {
+        queryMapper = new QueryMapper(reactiveMongoTemplate.getConverter());
+        if (profilingEnabled) {
+            queryProfiler = new QueryProfiler(profilingSlowMillis, profilingExplainIntervalMillis, profilingMaxShapes);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (queryProfiler != null) {
+            queryProfiler.shutdown();
+        }
+    }
+
+    /**
+     * Find a document by its ID
+     *
+     * @return The document, or an empty Mono if not found
+     */
+    public Mono<T> findById(String id, Class<T> entityClass) {
+        return profiled("findById", entityClass, null, reactiveMongoTemplate.findById(id, entityClass));
+    }
+
+    /**
+     * Find documents by a custom MongoDB query, emitted as they are read from the cursor
+     */
+    public Flux<T> find(Query query, Class<T> entityClass) {
+        return profiled("find", entityClass, query, reactiveMongoTemplate.find(query, entityClass));
+    }
+
+    /**
+     * Find documents by query, reading only the fields of a slim read model
+     *
+     * @see MongoRepo#findProjected(Query, Class, Class)
+     */
+    public <P> Flux<P> findProjected(Query query, Class<T> entityClass, Class<P> projection) {
+        return profiled("findProjected", entityClass, query,
+                reactiveMongoTemplate.query(entityClass).as(projection).matching(query).all());
+    }
+
+    /**
+     * Find the first document matching the query
+     *
+     * @return The document, or an empty Mono if none matches
+     */
+    public Mono<T> findOne(Query query, Class<T> entityClass) {
+        return profiled("findOne", entityClass, query, reactiveMongoTemplate.findOne(query, entityClass));
+    }
+
+    public Mono<Long> count(Query query, Class<T> entityClass) {
+        return profiled("count", entityClass, query, reactiveMongoTemplate.count(query, entityClass));
+    }
+
+    public Mono<Boolean> exists(Query query, Class<T> entityClass) {
+        return profiled("exists", entityClass, query, reactiveMongoTemplate.exists(query, entityClass));
+    }
+
+    /**
+     * Slow-operation and explain counters plus the query shapes with the most total time, for monitoring
+     *
+     * @param limit Number of shapes to list
+     * @see MongoRepo#getQueryShapeStats(int)
+     */
+    public Map<String, Object> getQueryShapeStats(int limit) {
+        if (queryProfiler == null) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", false);
+            return stats;
+        }
+        return queryProfiler.getStats(limit);
+    }
+
+    // Private helper methods
+
+    private <R> Mono<R> profiled(String operation, Class<?> entityClass, Query query, Mono<R> action) {
+        if (queryProfiler == null) {
+            return action;
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return action.doFinally(signal -> record(operation, entityClass, query, System.nanoTime() - start));
+        });
+    }
+
+    private <R> Flux<R> profiled(String operation, Class<?> entityClass, Query query, Flux<R> action) {
+        if (queryProfiler == null) {
+            return action;
+        }
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return action.doFinally(signal -> record(operation, entityClass, query, System.nanoTime() - start));
+        });
+    }
+
+    // Failed and cancelled operations are timed too; a null query means by ID
+    private void record(String operation, Class<?> entityClass, Query query, long elapsedNanos) {
+        String collection = reactiveMongoTemplate.getCollectionName(entityClass);
+        String shape = query == null ? MongoRepo.BY_ID_SHAPE
+                : QueryProfiler.shapeOf(query.getQueryObject(), query.getSortObject());
+        String explainKey = queryProfiler.record(operation, collection, shape, elapsedNanos);
+        if (explainKey != null && query != null && !query.getQueryObject().isEmpty()) {
+            explainLater(explainKey, collection, entityClass, query);
+        }
+    }
+
+    // Blocks only the profiler's own explain thread, never a driver or request thread
+    private void explainLater(String explainKey, String collection, Class<?> entityClass, Query query) {
+        MongoPersistentEntity<?> persistentEntity =
+                reactiveMongoTemplate.getConverter().getMappingContext().getPersistentEntity(entityClass);
+        Document filter = queryMapper.getMappedObject(query.getQueryObject(), persistentEntity);
+        Document sort = query.getSortObject().isEmpty() ? null
+                : queryMapper.getMappedSort(query.getSortObject(), persistentEntity);
+        queryProfiler.explain(explainKey, () -> reactiveMongoTemplate.getCollection(collection)
+                .flatMap(mongoCollection -> Mono.from(mongoCollection.find(filter)
+                        .sort(sort)
+                        .explain(ExplainVerbosity.EXECUTION_STATS)))
+                .block());
+    }
+}
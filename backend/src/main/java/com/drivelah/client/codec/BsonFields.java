@@ -0,0 +1,136 @@
+package com.drivelah.client.codec;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.types.ObjectId;
+
+/**
+ * Field-level read / write helpers shared by the entity codecs
+ *
+ * Writes mirror MappingMongoConverter so documents written either way are identical:
+ * null fields are omitted, Long / Integer / Double keep their BSON width, and String
+ * IDs that are valid ObjectId hex are stored as ObjectId. Reads accept any numeric
+ * width, since older documents and shell edits do not always match the Java type.
+ */
+final class BsonFields {
+
+    static final String ID = "_id";
+    static final String CLASS = "_class";
+
+    private BsonFields() {}
+
+    static void writeId(BsonWriter writer, String id) {
+        if (id == null) {
+            return;
+        }
+        if (ObjectId.isValid(id)) {
+            writer.writeObjectId(ID, new ObjectId(id));
+        } else {
+            writer.writeString(ID, id);
+        }
+    }
+
+    static String readId(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        if (type == BsonType.OBJECT_ID) {
+            return reader.readObjectId().toHexString();
+        }
+        return readString(reader);
+    }
+
+    static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+
+    static void writeLong(BsonWriter writer, String name, Long value) {
+        if (value != null) {
+            writer.writeInt64(name, value);
+        }
+    }
+
+    static void writeInteger(BsonWriter writer, String name, Integer value) {
+        if (value != null) {
+            writer.writeInt32(name, value);
+        }
+    }
+
+    static void writeDouble(BsonWriter writer, String name, Double value) {
+        if (value != null) {
+            writer.writeDouble(name, value);
+        }
+    }
+
+    static String readString(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.NULL) {
+            reader.readNull();
+            return null;
+        }
+        if (reader.getCurrentBsonType() == BsonType.OBJECT_ID) {
+            return reader.readObjectId().toHexString();
+        }
+        return reader.readString();
+    }
+
+    static Long readLong(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT64:
+                return reader.readInt64();
+            case INT32:
+                return (long) reader.readInt32();
+            case DOUBLE:
+                return (long) reader.readDouble();
+            case DECIMAL128:
+                return reader.readDecimal128().longValue();
+            case NULL:
+                reader.readNull();
+                return null;
+            default:
+                throw new IllegalStateException("Expected a number but found " + reader.getCurrentBsonType());
+        }
+    }
+
+    static Integer readInteger(BsonReader reader) {
+        Long value = readLong(reader);
+        return value != null ? Math.toIntExact(value) : null;
+    }
+
+    static Double readDouble(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case DOUBLE:
+                return reader.readDouble();
+            case INT32:
+                return (double) reader.readInt32();
+            case INT64:
+                return (double) reader.readInt64();
+            case DECIMAL128:
+                return reader.readDecimal128().doubleValue();
+            case NULL:
+                reader.readNull();
+                return null;
+            default:
+                throw new IllegalStateException("Expected a number but found " + reader.getCurrentBsonType());
+        }
+    }
+
+    static boolean readBoolean(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.NULL) {
+            reader.readNull();
+            return false;
+        }
+        return reader.readBoolean();
+    }
+
+    /**
+     * True if the current value is BSON null (consumed), so the caller keeps its default
+     */
+    static boolean skipNull(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.NULL) {
+            reader.readNull();
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package com.drivelah.client.codec;
+
+import com.drivelah.model.Vehicle;
+import com.drivelah.model.insurance.InsuranceClaim;
+import com.drivelah.model.trip.Trip;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.util.Set;
+
+/**
+ * The hand-written entity codecs, registered on the Mongo clients by MongoConfig
+ *
+ * MongoTemplate still maps through MappingMongoConverter (entity -> Document -> BSON);
+ * these codecs are used where MongoRepo reads through the driver directly (find and
+ * stream on the primary), decoding BSON straight into entities with no reflection or
+ * intermediate Document. Both paths read and write the same document layout.
+ */
+public final class EntityCodecs {
+
+    private static final LocationCodec LOCATION = new LocationCodec();
+
+    public static final CodecRegistry REGISTRY = CodecRegistries.fromCodecs(
+            LOCATION,
+            new TripCodec(LOCATION),
+            new VehicleCodec(LOCATION),
+            new InsuranceClaimCodec());
+
+    private static final Set<Class<?>> ENTITIES = Set.of(Trip.class, Vehicle.class, InsuranceClaim.class);
+
+    private EntityCodecs() {}
+
+    /**
+     * True if the entity class has a codec in REGISTRY
+     */
+    public static boolean supports(Class<?> entityClass) {
+        return ENTITIES.contains(entityClass);
+    }
+}
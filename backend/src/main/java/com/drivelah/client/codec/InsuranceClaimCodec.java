@@ -0,0 +1,121 @@
+package com.drivelah.client.codec;
+
+import com.drivelah.model.insurance.InsuranceClaim;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * InsuranceClaim <-> BSON without reflection; additionalProperties is a string-to-string subdocument
+ */
+public class InsuranceClaimCodec implements CollectibleCodec<InsuranceClaim> {
+
+    @Override
+    public void encode(BsonWriter writer, InsuranceClaim claim, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        BsonFields.writeId(writer, claim.getId());
+        BsonFields.writeString(writer, "tripId", claim.getTripId());
+        BsonFields.writeString(writer, "renterId", claim.getRenterId());
+        BsonFields.writeString(writer, "ownerId", claim.getOwnerId());
+        BsonFields.writeString(writer, "vehicleId", claim.getVehicleId());
+        BsonFields.writeString(writer, "status", claim.getStatus());
+        if (claim.getAdditionalProperties() != null) {
+            writer.writeStartDocument("additionalProperties");
+            for (Map.Entry<String, String> property : claim.getAdditionalProperties().entrySet()) {
+                if (property.getValue() != null) {
+                    writer.writeString(property.getKey(), property.getValue());
+                }
+            }
+            writer.writeEndDocument();
+        }
+        writer.writeString(BsonFields.CLASS, InsuranceClaim.class.getName());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public InsuranceClaim decode(BsonReader reader, DecoderContext decoderContext) {
+        InsuranceClaim claim = new InsuranceClaim();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case BsonFields.ID:
+                    claim.setId(BsonFields.readId(reader));
+                    break;
+                case "tripId":
+                    claim.setTripId(BsonFields.readString(reader));
+                    break;
+                case "renterId":
+                    claim.setRenterId(BsonFields.readString(reader));
+                    break;
+                case "ownerId":
+                    claim.setOwnerId(BsonFields.readString(reader));
+                    break;
+                case "vehicleId":
+                    claim.setVehicleId(BsonFields.readString(reader));
+                    break;
+                case "status":
+                    claim.setStatus(BsonFields.readString(reader));
+                    break;
+                case "additionalProperties":
+                    claim.setAdditionalProperties(decodeProperties(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return claim;
+    }
+
+    @Override
+    public Class<InsuranceClaim> getEncoderClass() {
+        return InsuranceClaim.class;
+    }
+
+    @Override
+    public InsuranceClaim generateIdIfAbsentFromDocument(InsuranceClaim claim) {
+        if (claim.getId() == null) {
+            claim.setId(new ObjectId().toHexString());
+        }
+        return claim;
+    }
+
+    @Override
+    public boolean documentHasId(InsuranceClaim claim) {
+        return claim.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(InsuranceClaim claim) {
+        if (claim.getId() == null) {
+            throw new IllegalStateException("Insurance claim has no ID");
+        }
+        return ObjectId.isValid(claim.getId()) ? new BsonObjectId(new ObjectId(claim.getId())) : new BsonString(claim.getId());
+    }
+
+    // Private helper methods
+
+    private static Map<String, String> decodeProperties(BsonReader reader) {
+        if (BsonFields.skipNull(reader)) {
+            return null;
+        }
+        Map<String, String> properties = new HashMap<>();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String key = reader.readName();
+            properties.put(key, BsonFields.readString(reader));
+        }
+        reader.readEndDocument();
+        return properties;
+    }
+}
@@ -0,0 +1,61 @@
+package com.drivelah.client.codec;
+
+import com.drivelah.model.Location;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * { lat, lon } subdocument, embedded in trips and vehicles
+ */
+public class LocationCodec implements Codec<Location> {
+
+    @Override
+    public void encode(BsonWriter writer, Location location, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writer.writeDouble("lat", location.getLat());
+        writer.writeDouble("lon", location.getLon());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Location decode(BsonReader reader, DecoderContext decoderContext) {
+        Location location = new Location();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "lat":
+                    Double lat = BsonFields.readDouble(reader);
+                    location.setLat(lat != null ? lat : 0.0);
+                    break;
+                case "lon":
+                    Double lon = BsonFields.readDouble(reader);
+                    location.setLon(lon != null ? lon : 0.0);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return location;
+    }
+
+    @Override
+    public Class<Location> getEncoderClass() {
+        return Location.class;
+    }
+
+    void encodeField(BsonWriter writer, String name, Location location, EncoderContext encoderContext) {
+        if (location != null) {
+            writer.writeName(name);
+            encode(writer, location, encoderContext);
+        }
+    }
+
+    Location decodeField(BsonReader reader, DecoderContext decoderContext) {
+        return BsonFields.skipNull(reader) ? null : decode(reader, decoderContext);
+    }
+}
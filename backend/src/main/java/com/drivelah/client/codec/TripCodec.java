@@ -0,0 +1,277 @@
+package com.drivelah.client.codec;
+
+import com.drivelah.model.trip.SettlementLine;
+import com.drivelah.model.trip.Trip;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trip <-> BSON without reflection; same document layout as MappingMongoConverter
+ *
+ * Field names are the Trip field names. When adding a field to Trip, add it to both
+ * encode() and decode() here, or codec reads will silently drop it.
+ */
+public class TripCodec implements CollectibleCodec<Trip> {
+
+    private final LocationCodec locationCodec;
+
+    public TripCodec(LocationCodec locationCodec) {
+        this.locationCodec = locationCodec;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Trip trip, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        BsonFields.writeId(writer, trip.getId());
+        BsonFields.writeLong(writer, "version", trip.getVersion());
+        BsonFields.writeString(writer, "ownerId", trip.getOwnerId());
+        BsonFields.writeString(writer, "vehicleId", trip.getVehicleId());
+        BsonFields.writeString(writer, "renterId", trip.getRenterId());
+        locationCodec.encodeField(writer, "pickUpLocation", trip.getPickUpLocation(), encoderContext);
+        locationCodec.encodeField(writer, "dropLocation", trip.getDropLocation(), encoderContext);
+        BsonFields.writeLong(writer, "dateOfBookingEpoch", trip.getDateOfBookingEpoch());
+        BsonFields.writeLong(writer, "plannedStartTimeEpoch", trip.getPlannedStartTimeEpoch());
+        BsonFields.writeLong(writer, "plannedEndTimeEpoch", trip.getPlannedEndTimeEpoch());
+        BsonFields.writeLong(writer, "actualStartTimeEpoch", trip.getActualStartTimeEpoch());
+        BsonFields.writeLong(writer, "actualEndTimeEpoch", trip.getActualEndTimeEpoch());
+        BsonFields.writeString(writer, "status", trip.getStatus());
+        BsonFields.writeDouble(writer, "totalAmount", trip.getTotalAmount());
+        BsonFields.writeDouble(writer, "securityDeposit", trip.getSecurityDeposit());
+        BsonFields.writeString(writer, "paymentStatus", trip.getPaymentStatus());
+        BsonFields.writeString(writer, "specialInstructions", trip.getSpecialInstructions());
+        BsonFields.writeLong(writer, "startOdometerReading", trip.getStartOdometerReading());
+        BsonFields.writeLong(writer, "endOdometerReading", trip.getEndOdometerReading());
+        BsonFields.writeInteger(writer, "renterRating", trip.getRenterRating());
+        BsonFields.writeInteger(writer, "ownerRating", trip.getOwnerRating());
+        BsonFields.writeString(writer, "renterComments", trip.getRenterComments());
+        BsonFields.writeString(writer, "ownerComments", trip.getOwnerComments());
+        writer.writeBoolean("hasInsuranceClaim", trip.isHasInsuranceClaim());
+        BsonFields.writeString(writer, "insuranceClaimId", trip.getInsuranceClaimId());
+        BsonFields.writeDouble(writer, "quotedAmount", trip.getQuotedAmount());
+        BsonFields.writeDouble(writer, "includedKm", trip.getIncludedKm());
+        BsonFields.writeDouble(writer, "surgeMultiplier", trip.getSurgeMultiplier());
+        BsonFields.writeDouble(writer, "bookedHourlyRate", trip.getBookedHourlyRate());
+        BsonFields.writeDouble(writer, "bookedPerKmRate", trip.getBookedPerKmRate());
+        BsonFields.writeLong(writer, "bookedRateVersion", trip.getBookedRateVersion());
+        encodeSettlementLines(writer, trip.getSettlementLines());
+        BsonFields.writeLong(writer, "settledAtEpoch", trip.getSettledAtEpoch());
+        BsonFields.writeString(writer, "cancellationPolicy", trip.getCancellationPolicy());
+        BsonFields.writeDouble(writer, "cancellationFee", trip.getCancellationFee());
+        BsonFields.writeDouble(writer, "refundAmount", trip.getRefundAmount());
+        BsonFields.writeLong(writer, "cancelledAtEpoch", trip.getCancelledAtEpoch());
+        writer.writeString(BsonFields.CLASS, Trip.class.getName());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Trip decode(BsonReader reader, DecoderContext decoderContext) {
+        // Fields missing from the document keep the constructor defaults, as with MappingMongoConverter
+        Trip trip = new Trip();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case BsonFields.ID:
+                    trip.setId(BsonFields.readId(reader));
+                    break;
+                case "version":
+                    trip.setVersion(BsonFields.readLong(reader));
+                    break;
+                case "ownerId":
+                    trip.setOwnerId(BsonFields.readString(reader));
+                    break;
+                case "vehicleId":
+                    trip.setVehicleId(BsonFields.readString(reader));
+                    break;
+                case "renterId":
+                    trip.setRenterId(BsonFields.readString(reader));
+                    break;
+                case "pickUpLocation":
+                    trip.setPickUpLocation(locationCodec.decodeField(reader, decoderContext));
+                    break;
+                case "dropLocation":
+                    trip.setDropLocation(locationCodec.decodeField(reader, decoderContext));
+                    break;
+                case "dateOfBookingEpoch":
+                    trip.setDateOfBookingEpoch(BsonFields.readLong(reader));
+                    break;
+                case "plannedStartTimeEpoch":
+                    trip.setPlannedStartTimeEpoch(BsonFields.readLong(reader));
+                    break;
+                case "plannedEndTimeEpoch":
+                    trip.setPlannedEndTimeEpoch(BsonFields.readLong(reader));
+                    break;
+                case "actualStartTimeEpoch":
+                    trip.setActualStartTimeEpoch(BsonFields.readLong(reader));
+                    break;
+                case "actualEndTimeEpoch":
+                    trip.setActualEndTimeEpoch(BsonFields.readLong(reader));
+                    break;
+                case "status":
+                    trip.setStatus(BsonFields.readString(reader));
+                    break;
+                case "totalAmount":
+                    trip.setTotalAmount(BsonFields.readDouble(reader));
+                    break;
+                case "securityDeposit":
+                    trip.setSecurityDeposit(BsonFields.readDouble(reader));
+                    break;
+                case "paymentStatus":
+                    trip.setPaymentStatus(BsonFields.readString(reader));
+                    break;
+                case "specialInstructions":
+                    trip.setSpecialInstructions(BsonFields.readString(reader));
+                    break;
+                case "startOdometerReading":
+                    trip.setStartOdometerReading(BsonFields.readLong(reader));
+                    break;
+                case "endOdometerReading":
+                    trip.setEndOdometerReading(BsonFields.readLong(reader));
+                    break;
+                case "renterRating":
+                    trip.setRenterRating(BsonFields.readInteger(reader));
+                    break;
+                case "ownerRating":
+                    trip.setOwnerRating(BsonFields.readInteger(reader));
+                    break;
+                case "renterComments":
+                    trip.setRenterComments(BsonFields.readString(reader));
+                    break;
+                case "ownerComments":
+                    trip.setOwnerComments(BsonFields.readString(reader));
+                    break;
+                case "hasInsuranceClaim":
+                    trip.setHasInsuranceClaim(BsonFields.readBoolean(reader));
+                    break;
+                case "insuranceClaimId":
+                    trip.setInsuranceClaimId(BsonFields.readString(reader));
+                    break;
+                case "quotedAmount":
+                    trip.setQuotedAmount(BsonFields.readDouble(reader));
+                    break;
+                case "includedKm":
+                    trip.setIncludedKm(BsonFields.readDouble(reader));
+                    break;
+                case "surgeMultiplier":
+                    trip.setSurgeMultiplier(BsonFields.readDouble(reader));
+                    break;
+                case "bookedHourlyRate":
+                    trip.setBookedHourlyRate(BsonFields.readDouble(reader));
+                    break;
+                case "bookedPerKmRate":
+                    trip.setBookedPerKmRate(BsonFields.readDouble(reader));
+                    break;
+                case "bookedRateVersion":
+                    trip.setBookedRateVersion(BsonFields.readLong(reader));
+                    break;
+                case "settlementLines":
+                    trip.setSettlementLines(decodeSettlementLines(reader));
+                    break;
+                case "settledAtEpoch":
+                    trip.setSettledAtEpoch(BsonFields.readLong(reader));
+                    break;
+                case "cancellationPolicy":
+                    trip.setCancellationPolicy(BsonFields.readString(reader));
+                    break;
+                case "cancellationFee":
+                    trip.setCancellationFee(BsonFields.readDouble(reader));
+                    break;
+                case "refundAmount":
+                    trip.setRefundAmount(BsonFields.readDouble(reader));
+                    break;
+                case "cancelledAtEpoch":
+                    trip.setCancelledAtEpoch(BsonFields.readLong(reader));
+                    break;
+                default:
+                    // _class and fields this version does not know
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return trip;
+    }
+
+    @Override
+    public Class<Trip> getEncoderClass() {
+        return Trip.class;
+    }
+
+    @Override
+    public Trip generateIdIfAbsentFromDocument(Trip trip) {
+        if (trip.getId() == null) {
+            trip.setId(new ObjectId().toHexString());
+        }
+        return trip;
+    }
+
+    @Override
+    public boolean documentHasId(Trip trip) {
+        return trip.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Trip trip) {
+        if (trip.getId() == null) {
+            throw new IllegalStateException("Trip has no ID");
+        }
+        return ObjectId.isValid(trip.getId()) ? new BsonObjectId(new ObjectId(trip.getId())) : new BsonString(trip.getId());
+    }
+
+    // Private helper methods
+
+    private static void encodeSettlementLines(BsonWriter writer, List<SettlementLine> lines) {
+        if (lines == null) {
+            return;
+        }
+        writer.writeStartArray("settlementLines");
+        for (SettlementLine line : lines) {
+            writer.writeStartDocument();
+            BsonFields.writeString(writer, "code", line.getCode());
+            BsonFields.writeString(writer, "description", line.getDescription());
+            BsonFields.writeDouble(writer, "amount", line.getAmount());
+            writer.writeEndDocument();
+        }
+        writer.writeEndArray();
+    }
+
+    private static List<SettlementLine> decodeSettlementLines(BsonReader reader) {
+        if (BsonFields.skipNull(reader)) {
+            return null;
+        }
+        List<SettlementLine> lines = new ArrayList<>();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            SettlementLine line = new SettlementLine();
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                switch (reader.readName()) {
+                    case "code":
+                        line.setCode(BsonFields.readString(reader));
+                        break;
+                    case "description":
+                        line.setDescription(BsonFields.readString(reader));
+                        break;
+                    case "amount":
+                        line.setAmount(BsonFields.readDouble(reader));
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+            lines.add(line);
+        }
+        reader.readEndArray();
+        return lines;
+    }
+}
@@ -0,0 +1,146 @@
+package com.drivelah.client.codec;
+
+import com.drivelah.model.Vehicle;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+/**
+ * Vehicle <-> BSON without reflection; same document layout as MappingMongoConverter
+ *
+ * When adding a field to Vehicle, add it to both encode() and decode() here.
+ */
+public class VehicleCodec implements CollectibleCodec<Vehicle> {
+
+    private final LocationCodec locationCodec;
+
+    public VehicleCodec(LocationCodec locationCodec) {
+        this.locationCodec = locationCodec;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Vehicle vehicle, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        BsonFields.writeId(writer, vehicle.getId());
+        BsonFields.writeLong(writer, "version", vehicle.getVersion());
+        BsonFields.writeString(writer, "licensePlate", vehicle.getLicensePlate());
+        BsonFields.writeString(writer, "ownerId", vehicle.getOwnerId());
+        BsonFields.writeLong(writer, "dateOfRegEpoch", vehicle.getDateOfRegEpoch());
+        writer.writeBoolean("isVerified", vehicle.isVerified());
+        BsonFields.writeString(writer, "status", vehicle.getStatus());
+        BsonFields.writeString(writer, "vehicleType", vehicle.getVehicleType());
+        BsonFields.writeString(writer, "make", vehicle.getMake());
+        BsonFields.writeString(writer, "model", vehicle.getModel());
+        BsonFields.writeInteger(writer, "year", vehicle.getYear());
+        BsonFields.writeString(writer, "color", vehicle.getColor());
+        BsonFields.writeString(writer, "transmission", vehicle.getTransmission());
+        BsonFields.writeInteger(writer, "seatingCapacity", vehicle.getSeatingCapacity());
+        locationCodec.encodeField(writer, "pickupLocation", vehicle.getPickupLocation(), encoderContext);
+        BsonFields.writeString(writer, "features", vehicle.getFeatures());
+        BsonFields.writeString(writer, "description", vehicle.getDescription());
+        BsonFields.writeDouble(writer, "customPricePerHour", vehicle.getCustomPricePerHour());
+        writer.writeString(BsonFields.CLASS, Vehicle.class.getName());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Vehicle decode(BsonReader reader, DecoderContext decoderContext) {
+        Vehicle vehicle = new Vehicle();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case BsonFields.ID:
+                    vehicle.setId(BsonFields.readId(reader));
+                    break;
+                case "version":
+                    vehicle.setVersion(BsonFields.readLong(reader));
+                    break;
+                case "licensePlate":
+                    vehicle.setLicensePlate(BsonFields.readString(reader));
+                    break;
+                case "ownerId":
+                    vehicle.setOwnerId(BsonFields.readString(reader));
+                    break;
+                case "dateOfRegEpoch":
+                    vehicle.setDateOfRegEpoch(BsonFields.readLong(reader));
+                    break;
+                case "isVerified":
+                    vehicle.setVerified(BsonFields.readBoolean(reader));
+                    break;
+                case "status":
+                    vehicle.setStatus(BsonFields.readString(reader));
+                    break;
+                case "vehicleType":
+                    vehicle.setVehicleType(BsonFields.readString(reader));
+                    break;
+                case "make":
+                    vehicle.setMake(BsonFields.readString(reader));
+                    break;
+                case "model":
+                    vehicle.setModel(BsonFields.readString(reader));
+                    break;
+                case "year":
+                    vehicle.setYear(BsonFields.readInteger(reader));
+                    break;
+                case "color":
+                    vehicle.setColor(BsonFields.readString(reader));
+                    break;
+                case "transmission":
+                    vehicle.setTransmission(BsonFields.readString(reader));
+                    break;
+                case "seatingCapacity":
+                    vehicle.setSeatingCapacity(BsonFields.readInteger(reader));
+                    break;
+                case "pickupLocation":
+                    vehicle.setPickupLocation(locationCodec.decodeField(reader, decoderContext));
+                    break;
+                case "features":
+                    vehicle.setFeatures(BsonFields.readString(reader));
+                    break;
+                case "description":
+                    vehicle.setDescription(BsonFields.readString(reader));
+                    break;
+                case "customPricePerHour":
+                    vehicle.setCustomPricePerHour(BsonFields.readDouble(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return vehicle;
+    }
+
+    @Override
+    public Class<Vehicle> getEncoderClass() {
+        return Vehicle.class;
+    }
+
+    @Override
+    public Vehicle generateIdIfAbsentFromDocument(Vehicle vehicle) {
+        if (vehicle.getId() == null) {
+            vehicle.setId(new ObjectId().toHexString());
+        }
+        return vehicle;
+    }
+
+    @Override
+    public boolean documentHasId(Vehicle vehicle) {
+        return vehicle.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Vehicle vehicle) {
+        if (vehicle.getId() == null) {
+            throw new IllegalStateException("Vehicle has no ID");
+        }
+        return ObjectId.isValid(vehicle.getId()) ? new BsonObjectId(new ObjectId(vehicle.getId())) : new BsonString(vehicle.getId());
+    }
+}
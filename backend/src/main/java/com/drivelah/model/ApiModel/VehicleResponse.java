@@ -1,13 +1,13 @@
 package com.drivelah.model.ApiModel;
 
 import com.drivelah.model.Location;
-import com.drivelah.model.Vehicle;
+import com.drivelah.model.VehicleCard;
 
 import java.util.List;
 
 public class VehicleResponse {
 
-    private List<Vehicle> vehicleList;
+    private List<VehicleCard> vehicleList;
 
     private List<Double> fare;
 
@@ -35,19 +35,19 @@ public class VehicleResponse {
     }
 
     // Existing getters and setters
-    public List<Vehicle> getVehicleList() {
+    public List<VehicleCard> getVehicleList() {
         return vehicleList;
     }
 
-    public void setVehicleList(List<Vehicle> vehicleList) {
+    public void setVehicleList(List<VehicleCard> vehicleList) {
         this.vehicleList = vehicleList;
     }
 
-    public void setVehicles(List<Vehicle> vehicles) {
+    public void setVehicles(List<VehicleCard> vehicles) {
         this.vehicleList = vehicles;
     }
 
-    public List<Vehicle> getVehicles() {
+    public List<VehicleCard> getVehicles() {
         return this.vehicleList;
     }
 
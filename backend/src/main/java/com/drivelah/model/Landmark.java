@@ -0,0 +1,65 @@
+package com.drivelah.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Named pickup / drop points offered by the frontend
+ */
+public enum Landmark {
+
+    CONNAUGHT_PLACE("Connaught Place", 28.6315, 77.2167),
+    INDIA_GATE("India Gate", 28.6129, 77.2295),
+    RED_FORT("Red Fort", 28.6562, 77.2410),
+    KAROL_BAGH("Karol Bagh", 28.6519, 77.1909),
+    SAKET("Saket", 28.5245, 77.2066),
+    GURGAON_CYBER_CITY("Gurgaon Cyber City", 28.4950, 77.0890);
+
+    // Unknown names fall back to this one
+    public static final Landmark DEFAULT = CONNAUGHT_PLACE;
+
+    private static final Map<String, Landmark> BY_NAME = new HashMap<>();
+
+    static {
+        for (Landmark landmark : values()) {
+            BY_NAME.put(landmark.displayName, landmark);
+        }
+    }
+
+    private final String displayName;
+    private final double lat;
+    private final double lon;
+
+    Landmark(String displayName, double lat, double lon) {
+        this.displayName = displayName;
+        this.lat = lat;
+        this.lon = lon;
+    }
+
+    /**
+     * Landmark by display name, or DEFAULT if unknown
+     */
+    public static Landmark fromName(String displayName) {
+        Landmark landmark = displayName != null ? BY_NAME.get(displayName) : null;
+        return landmark != null ? landmark : DEFAULT;
+    }
+
+    public Location toLocation() {
+        Location location = new Location();
+        location.setLat(lat);
+        location.setLon(lon);
+        return location;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLon() {
+        return lon;
+    }
+}
@@ -1,11 +1,107 @@
 package com.drivelah.model;
 
+import com.drivelah.model.auth.AuthUser;
+
 public abstract class User {
 
     private String id;
     private String name;
     private String phoneNumber;
     private Address address;
+
     //Both  - Host & Renter - needs to be verified and then only are capable to move ahead
     private boolean isVerified;
+
+    // Login details
+    private String email;          // stored lower-case, unique across host/renter/admin
+    private String role;           // HOST, RENTER, ADMIN
+    private String passwordHash;   // PBKDF2 encoded hash, never the plain password
+    //epoch in millisecs, written behind by UserService
+    private Long lastLoginEpoch;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+
+    public Address getAddress() {
+        return address;
+    }
+
+    public void setAddress(Address address) {
+        this.address = address;
+    }
+
+    public boolean isVerified() {
+        return isVerified;
+    }
+
+    public void setVerified(boolean verified) {
+        isVerified = verified;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public void setPasswordHash(String passwordHash) {
+        this.passwordHash = passwordHash;
+    }
+
+    public Long getLastLoginEpoch() {
+        return lastLoginEpoch;
+    }
+
+    public void setLastLoginEpoch(Long lastLoginEpoch) {
+        this.lastLoginEpoch = lastLoginEpoch;
+    }
+
+    /**
+     * Public view of this user for auth responses (no password hash)
+     */
+    public AuthUser toAuthUser() {
+        return new AuthUser(id, email, name, role, phoneNumber, isVerified);
+    }
+
+    public interface FM {
+        String ID = "_id";
+        String EMAIL = "email";
+        String PASSWORD_HASH = "passwordHash";
+        String LAST_LOGIN_EPOCH = "lastLoginEpoch";
+    }
 }
@@ -2,6 +2,7 @@ package com.drivelah.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -10,6 +11,9 @@ import java.time.Instant;
 public class Vehicle {
     @Id
     private String id;
+    // Optimistic locking: bumped on every save, stale saves fail (see MongoRepo.updateWithRetry)
+    @Version
+    private Long version;
     private String licensePlate;
     private String ownerId;
     //epoch in millisecs
@@ -182,6 +186,14 @@ public class Vehicle {
         this.description = description;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Double getCustomPricePerHour() {
         return customPricePerHour;
     }
@@ -191,11 +203,14 @@ public class Vehicle {
     }
 
     public interface FM {
+        String VERSION = "version";
         String IS_VERIFIED = "isVerified";
+        String STATUS = "status";
         String LICENSE_PLATE = "licensePlate";
         String OWNER_ID = "ownerId";
         String VEHICLE_TYPE = "vehicleType";
         String MAKE = "make";
         String MODEL = "model";
+        String CUSTOM_PRICE_PER_HOUR = "customPricePerHour";
     }
 }
@@ -0,0 +1,97 @@
+package com.drivelah.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Slim read model of a Vehicle for search result cards
+ *
+ * Read with MongoRepo.findProjected, so only these fields are fetched and decoded;
+ * registration details are left out. Field names match Vehicle, so the JSON is a subset
+ * of the full vehicle.
+ */
+public class VehicleCard {
+
+    private String id;
+    private String licensePlate;
+    private String ownerId;
+    private boolean isVerified;
+    private String status;
+    private String vehicleType;
+    private String make;
+    private String model;
+    private Integer year;
+    private String color;
+    private String transmission;
+    private Integer seatingCapacity;
+    private Location pickupLocation;
+    private String features;
+    private String description;
+    private Double customPricePerHour;
+
+    public VehicleCard() {}
+
+    public String getId() {
+        return id;
+    }
+
+    public String getLicensePlate() {
+        return licensePlate;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    @JsonProperty("isVerified")
+    public boolean isVerified() {
+        return isVerified;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getVehicleType() {
+        return vehicleType;
+    }
+
+    public String getMake() {
+        return make;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public String getTransmission() {
+        return transmission;
+    }
+
+    public Integer getSeatingCapacity() {
+        return seatingCapacity;
+    }
+
+    public Location getPickupLocation() {
+        return pickupLocation;
+    }
+
+    public String getFeatures() {
+        return features;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Double getCustomPricePerHour() {
+        return customPricePerHour;
+    }
+}
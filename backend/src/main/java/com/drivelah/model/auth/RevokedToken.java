@@ -0,0 +1,75 @@
+package com.drivelah.model.auth;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Authoritative record of a revoked auth token (logout or forced revocation).
+ * Records are only needed until the token would have expired anyway.
+ */
+@Document(collection = "revokedToken")
+public class RevokedToken {
+
+    @Id
+    private String id;              // token id (jti) embedded in the token
+    private String userId;
+    private String revokedBy;       // userId of who revoked it (same as userId for logout)
+    private Long revokedAtEpoch;
+    private Long expiresAtEpoch;    // token expiry; the record is irrelevant afterwards
+
+    public RevokedToken() {}
+
+    public RevokedToken(String id, String userId, String revokedBy, Long revokedAtEpoch, Long expiresAtEpoch) {
+        this.id = id;
+        this.userId = userId;
+        this.revokedBy = revokedBy;
+        this.revokedAtEpoch = revokedAtEpoch;
+        this.expiresAtEpoch = expiresAtEpoch;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getRevokedBy() {
+        return revokedBy;
+    }
+
+    public void setRevokedBy(String revokedBy) {
+        this.revokedBy = revokedBy;
+    }
+
+    public Long getRevokedAtEpoch() {
+        return revokedAtEpoch;
+    }
+
+    public void setRevokedAtEpoch(Long revokedAtEpoch) {
+        this.revokedAtEpoch = revokedAtEpoch;
+    }
+
+    public Long getExpiresAtEpoch() {
+        return expiresAtEpoch;
+    }
+
+    public void setExpiresAtEpoch(Long expiresAtEpoch) {
+        this.expiresAtEpoch = expiresAtEpoch;
+    }
+
+    public interface FM {
+        String ID = "_id";
+        String USER_ID = "userId";
+        String EXPIRES_AT_EPOCH = "expiresAtEpoch";
+    }
+}
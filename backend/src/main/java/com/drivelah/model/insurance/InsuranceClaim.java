@@ -30,6 +30,14 @@ public class InsuranceClaim {
         additionalProperties.put(key, value);
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getTripId() {
         return tripId;
     }
@@ -0,0 +1,62 @@
+package com.drivelah.model.pricing;
+
+/**
+ * One entry of a /calculate-pricing/batch response, in request order
+ */
+public class BatchPricingResult {
+
+    private int index;
+    private boolean success;
+    private PricingCalculation pricing;
+    private String error;
+
+    public BatchPricingResult() {}
+
+    public static BatchPricingResult success(int index, PricingCalculation pricing) {
+        BatchPricingResult result = new BatchPricingResult();
+        result.index = index;
+        result.success = true;
+        result.pricing = pricing;
+        return result;
+    }
+
+    public static BatchPricingResult failure(int index, String error) {
+        BatchPricingResult result = new BatchPricingResult();
+        result.index = index;
+        result.success = false;
+        result.error = error;
+        return result;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public PricingCalculation getPricing() {
+        return pricing;
+    }
+
+    public void setPricing(PricingCalculation pricing) {
+        this.pricing = pricing;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
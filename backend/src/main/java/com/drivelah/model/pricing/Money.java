@@ -0,0 +1,58 @@
+package com.drivelah.model.pricing;
+
+/**
+ * Fixed-point money in minor units (paise), carried as a primitive long
+ *
+ * Amounts never go through double arithmetic once converted, so sums and percentages
+ * are exact and nothing is boxed. Conversions to and from major units (rupees as a
+ * double) happen only at the API boundary. All rounding is half-up.
+ */
+public final class Money {
+
+    public static final long MINOR_PER_MAJOR = 100;
+
+    // Quantities (hours, km) are fixed-point with three decimals
+    public static final long QUANTITY_SCALE = 1000;
+
+    // Ratios (surge, fee, deposit) are expressed in basis points
+    public static final long BASIS_POINTS = 10_000;
+
+    private Money() {
+    }
+
+    public static long ofMajor(double major) {
+        return Math.round(major * MINOR_PER_MAJOR);
+    }
+
+    public static double toMajor(long minor) {
+        return minor / (double) MINOR_PER_MAJOR;
+    }
+
+    public static long quantity(double value) {
+        return Math.round(value * QUANTITY_SCALE);
+    }
+
+    public static long basisPoints(double ratio) {
+        return Math.round(ratio * BASIS_POINTS);
+    }
+
+    /**
+     * rateMinor per unit x fixed-point quantity, rounded half-up
+     */
+    public static long times(long rateMinor, long quantity) {
+        return divideHalfUp(Math.multiplyExact(rateMinor, quantity), QUANTITY_SCALE);
+    }
+
+    /**
+     * amountMinor x basis points / 10000, rounded half-up
+     */
+    public static long percent(long amountMinor, long basisPoints) {
+        return divideHalfUp(Math.multiplyExact(amountMinor, basisPoints), BASIS_POINTS);
+    }
+
+    private static long divideHalfUp(long value, long divisor) {
+        return value >= 0
+                ? (value + divisor / 2) / divisor
+                : -((-value + divisor / 2) / divisor);
+    }
+}
@@ -1,5 +1,12 @@
 package com.drivelah.model.pricing;
 
+/**
+ * Price quote for one rental
+ *
+ * Inputs are kept as given; every amount is computed by PricingKernel in Money minor
+ * units and stored in a primitive long[]. The Double getters convert on read only, for
+ * JSON and for existing callers, so computing a quote boxes nothing.
+ */
 public class PricingCalculation {
 
     private String vehicleType;
@@ -7,13 +14,12 @@ public class PricingCalculation {
     private Double perKmRate;
     private Double plannedHours;
     private Double estimatedKm;
+    private Double surgeMultiplier;
+    // PricingRateTable version the rates came from, null if not quoted from the table
+    private Long rateVersion;
 
-    private Double baseAmount;
-    private Double distanceAmount;
-    private Double subtotal;
-    private Double securityDeposit;
-    private Double serviceFee;
-    private Double totalAmount;
+    // Line items in minor units, indexed by the PricingKernel slot constants
+    private final long[] amounts = new long[PricingKernel.SLOTS];
 
     private String currency;
     private String breakdown;
@@ -24,30 +30,59 @@ public class PricingCalculation {
 
     public PricingCalculation(String vehicleType, Double baseRate, Double perKmRate,
                               Double plannedHours, Double estimatedKm) {
+        this(vehicleType, baseRate, perKmRate, plannedHours, estimatedKm, 1.0);
+    }
+
+    public PricingCalculation(String vehicleType, Double baseRate, Double perKmRate,
+                              Double plannedHours, Double estimatedKm, Double surgeMultiplier) {
         this();
         this.vehicleType = vehicleType;
         this.baseRate = baseRate;
         this.perKmRate = perKmRate;
         this.plannedHours = plannedHours;
         this.estimatedKm = estimatedKm;
+        this.surgeMultiplier = surgeMultiplier;
 
         calculatePricing();
     }
 
     public void calculatePricing() {
-        this.baseAmount = (plannedHours != null && baseRate != null)
-                ? plannedHours * baseRate : 0.0;
-
-        this.distanceAmount = (estimatedKm != null && perKmRate != null)
-                ? estimatedKm * perKmRate : 0.0;
-
-        this.subtotal = baseAmount + distanceAmount;
-
-        this.securityDeposit = Math.max(subtotal * 0.20, 50.0);
-
-        this.serviceFee = subtotal * 0.10;
-
-        this.totalAmount = subtotal + serviceFee;
+        boolean hasTime = plannedHours != null && baseRate != null;
+        boolean hasDistance = estimatedKm != null && perKmRate != null;
+
+        // Surge scales the rental and distance charges; fee and deposit follow the subtotal
+        PricingKernel.compute(
+                hasTime ? Money.ofMajor(baseRate) : 0,
+                hasDistance ? Money.ofMajor(perKmRate) : 0,
+                hasTime ? Money.quantity(plannedHours) : 0,
+                hasDistance ? Money.quantity(estimatedKm) : 0,
+                surgeMultiplier != null ? Money.basisPoints(surgeMultiplier) : Money.BASIS_POINTS,
+                amounts);
+    }
+
+    /**
+     * Independent copy, so a cached quote can be handed out without sharing its state
+     */
+    public PricingCalculation copy() {
+        PricingCalculation copy = new PricingCalculation();
+        copy.vehicleType = vehicleType;
+        copy.baseRate = baseRate;
+        copy.perKmRate = perKmRate;
+        copy.plannedHours = plannedHours;
+        copy.estimatedKm = estimatedKm;
+        copy.surgeMultiplier = surgeMultiplier;
+        copy.rateVersion = rateVersion;
+        System.arraycopy(amounts, 0, copy.amounts, 0, amounts.length);
+        copy.currency = currency;
+        copy.breakdown = breakdown;
+        return copy;
+    }
+
+    /**
+     * Exact line item in minor units, e.g. amountMinor(PricingKernel.TOTAL)
+     */
+    public long amountMinor(int slot) {
+        return amounts[slot];
     }
 
 //    private void generateBreakdown() {
@@ -102,52 +137,76 @@ public class PricingCalculation {
         this.estimatedKm = estimatedKm;
     }
 
+    public Double getSurgeMultiplier() {
+        return surgeMultiplier;
+    }
+
+    public void setSurgeMultiplier(Double surgeMultiplier) {
+        this.surgeMultiplier = surgeMultiplier;
+    }
+
+    public Long getRateVersion() {
+        return rateVersion;
+    }
+
+    public void setRateVersion(Long rateVersion) {
+        this.rateVersion = rateVersion;
+    }
+
     public Double getBaseAmount() {
-        return baseAmount;
+        return Money.toMajor(amounts[PricingKernel.BASE]);
     }
 
     public void setBaseAmount(Double baseAmount) {
-        this.baseAmount = baseAmount;
+        amounts[PricingKernel.BASE] = baseAmount != null ? Money.ofMajor(baseAmount) : 0;
     }
 
     public Double getDistanceAmount() {
-        return distanceAmount;
+        return Money.toMajor(amounts[PricingKernel.DISTANCE]);
     }
 
     public void setDistanceAmount(Double distanceAmount) {
-        this.distanceAmount = distanceAmount;
+        amounts[PricingKernel.DISTANCE] = distanceAmount != null ? Money.ofMajor(distanceAmount) : 0;
+    }
+
+    public Double getSurgeAmount() {
+        return Money.toMajor(amounts[PricingKernel.SURGE]);
+    }
+
+    public void setSurgeAmount(Double surgeAmount) {
+        amounts[PricingKernel.SURGE] = surgeAmount != null ? Money.ofMajor(surgeAmount) : 0;
     }
 
     public Double getSubtotal() {
-        return subtotal;
+        return Money.toMajor(amounts[PricingKernel.SUBTOTAL]);
     }
 
     public void setSubtotal(Double subtotal) {
-        this.subtotal = subtotal;
+        amounts[PricingKernel.SUBTOTAL] = subtotal != null ? Money.ofMajor(subtotal) : 0;
     }
 
     public Double getSecurityDeposit() {
-        return securityDeposit;
+        return Money.toMajor(amounts[PricingKernel.DEPOSIT]);
     }
 
     public void setSecurityDeposit(Double securityDeposit) {
-        this.securityDeposit = securityDeposit;
+        amounts[PricingKernel.DEPOSIT] = securityDeposit != null ? Money.ofMajor(securityDeposit) : 0;
     }
 
     public Double getServiceFee() {
-        return serviceFee;
+        return Money.toMajor(amounts[PricingKernel.FEE]);
     }
 
     public void setServiceFee(Double serviceFee) {
-        this.serviceFee = serviceFee;
+        amounts[PricingKernel.FEE] = serviceFee != null ? Money.ofMajor(serviceFee) : 0;
     }
 
     public Double getTotalAmount() {
-        return totalAmount;
+        return Money.toMajor(amounts[PricingKernel.TOTAL]);
     }
 
     public void setTotalAmount(Double totalAmount) {
-        this.totalAmount = totalAmount;
+        amounts[PricingKernel.TOTAL] = totalAmount != null ? Money.ofMajor(totalAmount) : 0;
     }
 
     public String getCurrency() {
@@ -0,0 +1,76 @@
+package com.drivelah.model.pricing;
+
+/**
+ * Allocation-free pricing arithmetic on Money minor units
+ *
+ * compute() writes every line item into a caller-owned long[] indexed by the slot
+ * constants below; total() returns only the total for callers that need nothing else.
+ * Both take primitives only, so a quote costs no boxing and no garbage.
+ *
+ * base     = hours x baseRate
+ * distance = km x perKmRate
+ * surge    = (base + distance) x (multiplier - 1)
+ * subtotal = base + distance + surge
+ * deposit  = max(subtotal x 20%, 50.00)
+ * fee      = subtotal x 10%
+ * total    = subtotal + fee
+ */
+public final class PricingKernel {
+
+    public static final int BASE = 0;
+    public static final int DISTANCE = 1;
+    public static final int SURGE = 2;
+    public static final int SUBTOTAL = 3;
+    public static final int DEPOSIT = 4;
+    public static final int FEE = 5;
+    public static final int TOTAL = 6;
+    public static final int SLOTS = 7;
+
+    public static final long DEPOSIT_BASIS_POINTS = 2_000;
+    public static final long MIN_DEPOSIT_MINOR = 50 * Money.MINOR_PER_MAJOR;
+    public static final long FEE_BASIS_POINTS = 1_000;
+
+    private PricingKernel() {
+    }
+
+    /**
+     * @param baseRateMinor Hourly rate in minor units
+     * @param perKmRateMinor Per-km rate in minor units
+     * @param hours Fixed-point hours (Money.quantity)
+     * @param km Fixed-point km (Money.quantity)
+     * @param surgeBasisPoints Surge multiplier in basis points (10000 = no surge)
+     * @param out Receives the line items, at least SLOTS long
+     */
+    public static void compute(long baseRateMinor, long perKmRateMinor, long hours, long km,
+                               long surgeBasisPoints, long[] out) {
+        long base = Money.times(baseRateMinor, hours);
+        long distance = Money.times(perKmRateMinor, km);
+        long surge = surge(base + distance, surgeBasisPoints);
+        long subtotal = base + distance + surge;
+        long fee = Money.percent(subtotal, FEE_BASIS_POINTS);
+
+        out[BASE] = base;
+        out[DISTANCE] = distance;
+        out[SURGE] = surge;
+        out[SUBTOTAL] = subtotal;
+        out[DEPOSIT] = Math.max(Money.percent(subtotal, DEPOSIT_BASIS_POINTS), MIN_DEPOSIT_MINOR);
+        out[FEE] = fee;
+        out[TOTAL] = subtotal + fee;
+    }
+
+    /**
+     * Same inputs as compute(), returning only the total
+     */
+    public static long total(long baseRateMinor, long perKmRateMinor, long hours, long km, long surgeBasisPoints) {
+        long charges = Money.times(baseRateMinor, hours) + Money.times(perKmRateMinor, km);
+        long subtotal = charges + surge(charges, surgeBasisPoints);
+        return subtotal + Money.percent(subtotal, FEE_BASIS_POINTS);
+    }
+
+    // Surge never discounts: anything at or below 1x adds nothing
+    private static long surge(long charges, long surgeBasisPoints) {
+        return surgeBasisPoints > Money.BASIS_POINTS
+                ? Money.percent(charges, surgeBasisPoints - Money.BASIS_POINTS)
+                : 0;
+    }
+}
@@ -0,0 +1,43 @@
+package com.drivelah.model.trip;
+
+/**
+ * One line of a trip's final bill (e.g. TIME, EXTRA_KM, CLEANING), stored on the Trip
+ */
+public class SettlementLine {
+
+    private String code;
+    private String description;
+    private Double amount;
+
+    public SettlementLine() {}
+
+    public SettlementLine(String code, String description, Double amount) {
+        this.code = code;
+        this.description = description;
+        this.amount = amount;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+}
@@ -2,9 +2,11 @@ package com.drivelah.model.trip;
 
 import com.drivelah.model.Location;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.List;
 
 @Document(collection = "trip")
 public class Trip {
@@ -12,6 +14,10 @@ public class Trip {
     @Id
     private String id;
 
+    // Bumped on every save; a save from a stale copy fails instead of overwriting (see MongoRepo.updateWithRetry)
+    @Version
+    private Long version;
+
     private String ownerId;
     private String vehicleId;
     private String renterId;
@@ -39,6 +45,26 @@ public class Trip {
     private boolean hasInsuranceClaim;
     private String insuranceClaimId;
 
+    // Booking quote inputs, kept for settlement at completion
+    private Double quotedAmount;
+    private Double includedKm;
+    private Double surgeMultiplier;
+    // Effective rates (host price or type rate) and rate table version the trip was booked at;
+    // settlement bills from these so a price change during the rental does not change the bill
+    private Double bookedHourlyRate;
+    private Double bookedPerKmRate;
+    private Long bookedRateVersion;
+
+    // Final bill computed by SettlementEngine when the trip is completed
+    private List<SettlementLine> settlementLines;
+    private Long settledAtEpoch;
+
+    // Cancellation terms fixed at booking, and the outcome if the trip is cancelled
+    private String cancellationPolicy;
+    private Double cancellationFee;
+    private Double refundAmount;
+    private Long cancelledAtEpoch;
+
     public Trip() {
         this.dateOfBookingEpoch = Instant.now().toEpochMilli();
         this.status = "PENDING";
@@ -258,6 +284,110 @@ public class Trip {
         }
     }
 
+    public Double getQuotedAmount() {
+        return quotedAmount;
+    }
+
+    public void setQuotedAmount(Double quotedAmount) {
+        this.quotedAmount = quotedAmount;
+    }
+
+    public Double getIncludedKm() {
+        return includedKm;
+    }
+
+    public void setIncludedKm(Double includedKm) {
+        this.includedKm = includedKm;
+    }
+
+    public Double getSurgeMultiplier() {
+        return surgeMultiplier;
+    }
+
+    public void setSurgeMultiplier(Double surgeMultiplier) {
+        this.surgeMultiplier = surgeMultiplier;
+    }
+
+    public Double getBookedHourlyRate() {
+        return bookedHourlyRate;
+    }
+
+    public void setBookedHourlyRate(Double bookedHourlyRate) {
+        this.bookedHourlyRate = bookedHourlyRate;
+    }
+
+    public Double getBookedPerKmRate() {
+        return bookedPerKmRate;
+    }
+
+    public void setBookedPerKmRate(Double bookedPerKmRate) {
+        this.bookedPerKmRate = bookedPerKmRate;
+    }
+
+    public Long getBookedRateVersion() {
+        return bookedRateVersion;
+    }
+
+    public void setBookedRateVersion(Long bookedRateVersion) {
+        this.bookedRateVersion = bookedRateVersion;
+    }
+
+    public List<SettlementLine> getSettlementLines() {
+        return settlementLines;
+    }
+
+    public void setSettlementLines(List<SettlementLine> settlementLines) {
+        this.settlementLines = settlementLines;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getSettledAtEpoch() {
+        return settledAtEpoch;
+    }
+
+    public void setSettledAtEpoch(Long settledAtEpoch) {
+        this.settledAtEpoch = settledAtEpoch;
+    }
+
+    public String getCancellationPolicy() {
+        return cancellationPolicy;
+    }
+
+    public void setCancellationPolicy(String cancellationPolicy) {
+        this.cancellationPolicy = cancellationPolicy;
+    }
+
+    public Double getCancellationFee() {
+        return cancellationFee;
+    }
+
+    public void setCancellationFee(Double cancellationFee) {
+        this.cancellationFee = cancellationFee;
+    }
+
+    public Double getRefundAmount() {
+        return refundAmount;
+    }
+
+    public void setRefundAmount(Double refundAmount) {
+        this.refundAmount = refundAmount;
+    }
+
+    public Long getCancelledAtEpoch() {
+        return cancelledAtEpoch;
+    }
+
+    public void setCancelledAtEpoch(Long cancelledAtEpoch) {
+        this.cancelledAtEpoch = cancelledAtEpoch;
+    }
+
     public Double getPlannedDurationHours() {
         if (plannedStartTimeEpoch != null && plannedEndTimeEpoch != null) {
             return (plannedEndTimeEpoch - plannedStartTimeEpoch) / (1000.0 * 60.0 * 60.0);
@@ -292,6 +422,8 @@ public class Trip {
     }
 
     public interface FM {
+        String ID = "_id";
+        String VERSION = "version";
         String OWNER_ID = "ownerId";
         String VEHICLE_ID = "vehicleId";
         String RENTER_ID = "renterId";
@@ -301,6 +433,11 @@ public class Trip {
         String HAS_INSURANCE_CLAIM = "hasInsuranceClaim";
         String PLANNED_START_TIME_EPOCH = "plannedStartTimeEpoch";
         String PLANNED_END_TIME_EPOCH = "plannedEndTimeEpoch";
+        String INCLUDED_KM = "includedKm";
+        String SPECIAL_INSTRUCTIONS = "specialInstructions";
+        String CANCELLATION_FEE = "cancellationFee";
+        String REFUND_AMOUNT = "refundAmount";
+        String CANCELLED_AT_EPOCH = "cancelledAtEpoch";
     }
 
     @Override
@@ -0,0 +1,111 @@
+package com.drivelah.model.trip;
+
+import com.drivelah.model.Location;
+
+/**
+ * Slim read model of a Trip for trip lists
+ *
+ * Read with MongoRepo.findProjected; comments, special instructions, settlement lines
+ * and odometer readings are not fetched. Field names match Trip, so the JSON is a subset
+ * of the full trip (GET /trip/{tripId} still returns everything).
+ */
+public class TripSummary {
+
+    private String id;
+    private String ownerId;
+    private String vehicleId;
+    private String renterId;
+
+    private Location pickUpLocation;
+    private Location dropLocation;
+
+    private Long dateOfBookingEpoch;
+    private Long plannedStartTimeEpoch;
+    private Long plannedEndTimeEpoch;
+    private Long actualStartTimeEpoch;
+    private Long actualEndTimeEpoch;
+
+    private String status;
+    private String paymentStatus;
+    private Double totalAmount;
+    private Double securityDeposit;
+    private Integer renterRating;
+    private Integer ownerRating;
+
+    public TripSummary() {}
+
+    public String getId() {
+        return id;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    public String getVehicleId() {
+        return vehicleId;
+    }
+
+    public String getRenterId() {
+        return renterId;
+    }
+
+    public Location getPickUpLocation() {
+        return pickUpLocation;
+    }
+
+    public Location getDropLocation() {
+        return dropLocation;
+    }
+
+    public Long getDateOfBookingEpoch() {
+        return dateOfBookingEpoch;
+    }
+
+    public Long getPlannedStartTimeEpoch() {
+        return plannedStartTimeEpoch;
+    }
+
+    public Long getPlannedEndTimeEpoch() {
+        return plannedEndTimeEpoch;
+    }
+
+    public Long getActualStartTimeEpoch() {
+        return actualStartTimeEpoch;
+    }
+
+    public Long getActualEndTimeEpoch() {
+        return actualEndTimeEpoch;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getPaymentStatus() {
+        return paymentStatus;
+    }
+
+    public Double getTotalAmount() {
+        return totalAmount;
+    }
+
+    public Double getSecurityDeposit() {
+        return securityDeposit;
+    }
+
+    public Integer getRenterRating() {
+        return renterRating;
+    }
+
+    public Integer getOwnerRating() {
+        return ownerRating;
+    }
+
+    public Double getPlannedDurationHours() {
+        if (plannedStartTimeEpoch != null && plannedEndTimeEpoch != null) {
+            return (plannedEndTimeEpoch - plannedStartTimeEpoch) / (1000.0 * 60.0 * 60.0);
+        }
+        return null;
+    }
+}
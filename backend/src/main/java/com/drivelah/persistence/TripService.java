@@ -1,21 +1,92 @@
 package com.drivelah.persistence;
 
 import com.drivelah.client.MongoRepo;
+import com.drivelah.client.ReactiveMongoRepo;
 import com.drivelah.model.trip.Trip;
+import com.drivelah.model.trip.TripSummary;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class TripService {
 
+    private static final Logger log = LoggerFactory.getLogger(TripService.class);
+
+    // Trips per saveAll() round trip in backfills
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    // Trips per forEachTripInDateRange() batch in reports
+    private static final int REPORT_BATCH_SIZE = 500;
+
     private final MongoRepo<Trip> tripMongoRepo;
+    private final ReactiveMongoRepo<Trip> reactiveTripMongoRepo;
 
-    public TripService(MongoRepo<Trip> mongoRepo) {
+    public TripService(MongoRepo<Trip> mongoRepo, ReactiveMongoRepo<Trip> reactiveMongoRepo) {
         this.tripMongoRepo = mongoRepo;
+        this.reactiveTripMongoRepo = reactiveMongoRepo;
+    }
+
+    /**
+     * Give trips saved before versioning a version, so save() treats them as existing
+     * documents (a null version means "new" and would be inserted)
+     */
+    @PostConstruct
+    public void backfillVersions() {
+        try {
+            long updated = tripMongoRepo.updateMulti(new Query(Criteria.where(Trip.FM.VERSION).exists(false)),
+                    new Update().set(Trip.FM.VERSION, 0L), Trip.class);
+            if (updated > 0) {
+                log.info("Backfilled version on {} trips", updated);
+            }
+        } catch (Exception e) {
+            log.error("Failed to backfill trip versions", e);
+        }
+        backfillIncludedKm();
+    }
+
+    /**
+     * Record included km on unsettled trips booked before it was stored, using the quote's
+     * old default (25 km per planned hour, at most 200), so settlement reads it from the trip.
+     * Saved a batch per round trip; a trip someone changed meanwhile is left for the next run.
+     */
+    void backfillIncludedKm() {
+        Query query = new Query(Criteria.where(Trip.FM.STATUS).in("PENDING", "CONFIRMED", "IN_PROGRESS")
+                                       .and(Trip.FM.INCLUDED_KM).exists(false)
+                                       .and(Trip.FM.VERSION).exists(true));
+        try {
+            long backfilled = tripMongoRepo.forEachBatch(query, BACKFILL_BATCH_SIZE, Trip.class, trips -> {
+                for (Trip trip : trips) {
+                    Double plannedHours = trip.getPlannedDurationHours();
+                    trip.setIncludedKm(plannedHours != null ? Math.min(plannedHours * 25.0, 200.0) : 0.0);
+                }
+                try {
+                    tripMongoRepo.saveAll(trips, Trip.class);
+                } catch (OptimisticLockingFailureException e) {
+                    log.warn("Included km backfill skipped trips changed meanwhile: {}", e.getMessage());
+                }
+            });
+            if (backfilled > 0) {
+                log.info("Backfilled included km on {} trips", backfilled);
+            }
+        } catch (Exception e) {
+            log.error("Failed to backfill trip included km", e);
+        }
     }
 
     public Trip saveTrip(Trip trip) {
@@ -62,6 +133,35 @@ public class TripService {
         return tripMongoRepo.findById(tripId, Trip.class);
     }
     
+    /**
+     * Non-blocking findById
+     * 
+     * @param tripId Trip ID to search for
+     * @return Trip, or an empty Mono if not found
+     */
+    public Mono<Trip> findByIdAsync(String tripId) {
+        return reactiveTripMongoRepo.findById(tripId, Trip.class);
+    }
+    
+    /**
+     * Apply a change to a trip, re-reading and re-applying it if someone else saved the
+     * trip in between (optimistic locking, see MongoRepo.updateWithRetry)
+     * 
+     * @param tripId Trip ID to update
+     * @param mutation Change to apply; may run more than once, may throw to abort
+     * @return Updated trip
+     */
+    public Trip updateTrip(String tripId, Consumer<Trip> mutation) {
+        Trip updated = tripMongoRepo.updateWithRetry(tripId, Trip.class, trip -> {
+            mutation.accept(trip);
+            validateTripData(trip);
+        });
+        if (updated == null) {
+            throw new IllegalArgumentException("Trip not found: " + tripId);
+        }
+        return updated;
+    }
+    
     /**
      * Find all trips for a specific renter
      * Useful for renter's trip history
@@ -86,6 +186,50 @@ public class TripService {
         return tripMongoRepo.find(query, Trip.class);
     }
     
+    /**
+     * Renter's trips as list summaries (no comments, instructions or settlement lines)
+     * 
+     * @param renterId Renter's user ID
+     * @return Trip summaries for the renter
+     */
+    public List<TripSummary> findTripSummariesByRenter(String renterId) {
+        Query query = new Query(Criteria.where(Trip.FM.RENTER_ID).is(renterId));
+        return tripMongoRepo.findProjected(query, Trip.class, TripSummary.class);
+    }
+    
+    /**
+     * Non-blocking findTripSummariesByRenter
+     * 
+     * @param renterId Renter's user ID
+     * @return Trip summaries for the renter, emitted as read
+     */
+    public Flux<TripSummary> streamTripSummariesByRenter(String renterId) {
+        Query query = new Query(Criteria.where(Trip.FM.RENTER_ID).is(renterId));
+        return reactiveTripMongoRepo.findProjected(query, Trip.class, TripSummary.class);
+    }
+    
+    /**
+     * Non-blocking findTripSummariesByOwner
+     * 
+     * @param ownerId Owner's user ID
+     * @return Trip summaries for the owner's vehicles, emitted as read
+     */
+    public Flux<TripSummary> streamTripSummariesByOwner(String ownerId) {
+        Query query = new Query(Criteria.where(Trip.FM.OWNER_ID).is(ownerId));
+        return reactiveTripMongoRepo.findProjected(query, Trip.class, TripSummary.class);
+    }
+    
+    /**
+     * Trips for an owner's vehicles as list summaries
+     * 
+     * @param ownerId Owner's user ID
+     * @return Trip summaries for the owner's vehicles
+     */
+    public List<TripSummary> findTripSummariesByOwner(String ownerId) {
+        Query query = new Query(Criteria.where(Trip.FM.OWNER_ID).is(ownerId));
+        return tripMongoRepo.findProjected(query, Trip.class, TripSummary.class);
+    }
+    
     /**
      * Find all trips for a specific vehicle
      * Useful for vehicle history and maintenance scheduling
@@ -112,42 +256,85 @@ public class TripService {
     }
     
     /**
-     * Find trips by status
+     * Stream trips by status
      * Useful for admin dashboard and monitoring
      * 
+     * Reads from a cursor, so memory is bounded for any number of trips. The stream
+     * must be closed (try-with-resources). Served from a secondary when one is available,
+     * so results may lag the latest writes slightly.
+     * 
      * @param status Trip status to filter by
-     * @return List of trips with the specified status
+     * @return Stream of trips with the specified status
      */
-    public List<Trip> findTripsByStatus(String status) {
+    public Stream<Trip> streamTripsByStatus(String status) {
         Query query = new Query(Criteria.where(Trip.FM.STATUS).is(status));
-        return tripMongoRepo.find(query, Trip.class);
+        return tripMongoRepo.analyticsStream(query, Trip.class);
     }
     
     /**
-     * Find trips with insurance claims
+     * Stream trips with insurance claims
      * Useful for insurance reporting and analytics
      * 
-     * @return List of trips that have insurance claims
+     * @return Stream of trips that have insurance claims; must be closed
      */
-    public List<Trip> findTripsWithInsuranceClaims() {
+    public Stream<Trip> streamTripsWithInsuranceClaims() {
         Query query = new Query(Criteria.where(Trip.FM.HAS_INSURANCE_CLAIM).is(true));
-        return tripMongoRepo.find(query, Trip.class);
+        return tripMongoRepo.analyticsStream(query, Trip.class);
     }
     
     /**
-     * Find trips within a date range
+     * Process trips booked within a date range, batch by batch
      * Useful for reporting and analytics
      * 
      * @param startEpoch Start timestamp (epoch milliseconds)
      * @param endEpoch End timestamp (epoch milliseconds)
-     * @return List of trips within the date range
+     * @param batchSize Maximum trips per consumer call
+     * @param consumer Called with each batch of trips
+     * @return Number of trips processed
      */
-    public List<Trip> findTripsByDateRange(Long startEpoch, Long endEpoch) {
+    public long forEachTripInDateRange(Long startEpoch, Long endEpoch, int batchSize, Consumer<List<Trip>> consumer) {
         Query query = new Query(Criteria.where(Trip.FM.DATE_OF_BOOKING_EPOCH)
                                        .gte(startEpoch).lte(endEpoch));
-        return tripMongoRepo.find(query, Trip.class);
+        return tripMongoRepo.analyticsForEachBatch(query, batchSize, Trip.class, consumer);
     }
     
+    /**
+     * Booking report for trips booked within a date range: counts per status, the amount
+     * booked on trips that were not cancelled, and how many have an insurance claim
+     *
+     * Read batch by batch from a secondary (see forEachTripInDateRange), so memory is
+     * bounded for any range and the primary is left to bookings.
+     *
+     * @param startEpoch Start timestamp (epoch milliseconds)
+     * @param endEpoch End timestamp (epoch milliseconds)
+     * @return Report fields, in a stable order
+     */
+    public Map<String, Object> getBookingReport(Long startEpoch, Long endEpoch) {
+        Map<String, Long> byStatus = new TreeMap<>();
+        double[] bookedAmount = {0.0};
+        long[] insuranceClaims = {0};
+        long trips = forEachTripInDateRange(startEpoch, endEpoch, REPORT_BATCH_SIZE, batch -> {
+            for (Trip trip : batch) {
+                byStatus.merge(String.valueOf(trip.getStatus()), 1L, Long::sum);
+                if (!"CANCELLED".equals(trip.getStatus()) && trip.getTotalAmount() != null) {
+                    bookedAmount[0] += trip.getTotalAmount();
+                }
+                if (trip.isHasInsuranceClaim()) {
+                    insuranceClaims[0]++;
+                }
+            }
+        });
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startEpoch", startEpoch);
+        report.put("endEpoch", endEpoch);
+        report.put("trips", trips);
+        report.put("byStatus", byStatus);
+        report.put("bookedAmount", Math.round(bookedAmount[0] * 100) / 100.0);
+        report.put("insuranceClaims", insuranceClaims[0]);
+        return report;
+    }
+
     /**
      * Start a trip (vehicle pickup)
      * 
@@ -162,20 +349,15 @@ public class TripService {
      * @return Updated trip
      */
     public Trip startTrip(String tripId, Long startOdometer) {
-        Trip trip = findById(tripId);
-        if (trip == null) {
-            throw new IllegalArgumentException("Trip not found: " + tripId);
-        }
-        
-        if (!"CONFIRMED".equals(trip.getStatus()) && !"PENDING".equals(trip.getStatus())) {
-            throw new IllegalStateException("Trip must be confirmed or pending to start. Current status: " + trip.getStatus());
-        }
-        
-        trip.setActualStartTimeEpoch(Instant.now().toEpochMilli());
-        trip.setStatus("IN_PROGRESS");
-        trip.setStartOdometerReading(startOdometer);
-        
-        return saveTrip(trip);
+        return updateTrip(tripId, trip -> {
+            if (!"CONFIRMED".equals(trip.getStatus()) && !"PENDING".equals(trip.getStatus())) {
+                throw new IllegalStateException("Trip must be confirmed or pending to start. Current status: " + trip.getStatus());
+            }
+            
+            trip.setActualStartTimeEpoch(Instant.now().toEpochMilli());
+            trip.setStatus("IN_PROGRESS");
+            trip.setStartOdometerReading(startOdometer);
+        });
     }
     
     /**
@@ -193,25 +375,20 @@ public class TripService {
      * @return Updated trip
      */
     public Trip completeTrip(String tripId, Long endOdometer) {
-        Trip trip = findById(tripId);
-        if (trip == null) {
-            throw new IllegalArgumentException("Trip not found: " + tripId);
-        }
-        
-        if (!"IN_PROGRESS".equals(trip.getStatus())) {
-            throw new IllegalStateException("Trip must be in progress to complete. Current status: " + trip.getStatus());
-        }
-        
-        trip.setActualEndTimeEpoch(Instant.now().toEpochMilli());
-        trip.setStatus("COMPLETED");
-        trip.setEndOdometerReading(endOdometer);
-        
-        // TODO: Calculate final charges based on actual duration
+        // Final charges are settled by SettlementEngine from the actual duration and distance
         // TODO: Process payment and release security deposit
         // TODO: Update vehicle status to available
         // TODO: Send completion notifications
         
-        return saveTrip(trip);
+        return updateTrip(tripId, trip -> {
+            if (!"IN_PROGRESS".equals(trip.getStatus())) {
+                throw new IllegalStateException("Trip must be in progress to complete. Current status: " + trip.getStatus());
+            }
+            
+            trip.setActualEndTimeEpoch(Instant.now().toEpochMilli());
+            trip.setStatus("COMPLETED");
+            trip.setEndOdometerReading(endOdometer);
+        });
     }
     
     /**
@@ -219,31 +396,42 @@ public class TripService {
      * 
      * Business Rules:
      * - Can only cancel PENDING or CONFIRMED trips
-     * - Cancellation fees may apply based on timing
+     * - Cancellation fee and refund are worked out by the caller (CancellationPolicyEngine)
+     * 
+     * Status, fee and refund are written in one conditional update that only matches
+     * while the trip is still cancellable, so two concurrent cancels (or a cancel racing
+     * a trip start) cannot both succeed.
      * 
      * @param tripId Trip ID to cancel
      * @param reason Cancellation reason
+     * @param cancellationFee Fee kept from the amount paid
+     * @param refundAmount Amount to refund to the renter
      * @return Updated trip
      */
-    public Trip cancelTrip(String tripId, String reason) {
-        Trip trip = findById(tripId);
-        if (trip == null) {
-            throw new IllegalArgumentException("Trip not found: " + tripId);
-        }
-        
-        if (!trip.canBeCancelled()) {
+    public Trip cancelTrip(String tripId, String reason, Double cancellationFee, Double refundAmount) {
+        Query query = new Query(Criteria.where(Trip.FM.ID).is(tripId)
+                                       .and(Trip.FM.STATUS).in("PENDING", "CONFIRMED"));
+        Update update = new Update()
+                .set(Trip.FM.STATUS, "CANCELLED")
+                .set(Trip.FM.SPECIAL_INSTRUCTIONS, "Cancelled: " + reason)
+                .set(Trip.FM.CANCELLATION_FEE, cancellationFee)
+                .set(Trip.FM.REFUND_AMOUNT, refundAmount)
+                .set(Trip.FM.CANCELLED_AT_EPOCH, Instant.now().toEpochMilli())
+                .inc(Trip.FM.VERSION, 1);
+
+        Trip cancelled = tripMongoRepo.findAndModify(query, update, Trip.class);
+        if (cancelled == null) {
+            Trip trip = findById(tripId);
+            if (trip == null) {
+                throw new IllegalArgumentException("Trip not found: " + tripId);
+            }
             throw new IllegalStateException("Trip cannot be cancelled. Current status: " + trip.getStatus());
         }
         
-        trip.setStatus("CANCELLED");
-        trip.setSpecialInstructions("Cancelled: " + reason);
-        
-        // TODO: Calculate cancellation fees
-        // TODO: Process refunds
-        // TODO: Update vehicle availability
+        // TODO: Process refunds with the payment provider
         // TODO: Send cancellation notifications
         
-        return saveTrip(trip);
+        return cancelled;
     }
     
     /**
@@ -258,29 +446,29 @@ public class TripService {
      */
     public Trip addRatingsAndReviews(String tripId, Integer renterRating, Integer ownerRating,
                                    String renterComments, String ownerComments) {
-        Trip trip = findById(tripId);
-        if (trip == null) {
-            throw new IllegalArgumentException("Trip not found: " + tripId);
-        }
-        
-        if (!"COMPLETED".equals(trip.getStatus())) {
-            throw new IllegalStateException("Trip must be completed to add ratings");
-        }
-        
         if (renterRating != null) {
             validateRating(renterRating);
-            trip.setRenterRating(renterRating);
         }
-        
         if (ownerRating != null) {
             validateRating(ownerRating);
-            trip.setOwnerRating(ownerRating);
         }
         
-        trip.setRenterComments(renterComments);
-        trip.setOwnerComments(ownerComments);
-        
-        return saveTrip(trip);
+        // Renter and host rate independently; only the side being rated is touched
+        return updateTrip(tripId, trip -> {
+            if (!"COMPLETED".equals(trip.getStatus())) {
+                throw new IllegalStateException("Trip must be completed to add ratings");
+            }
+            
+            if (renterRating != null) {
+                trip.setRenterRating(renterRating);
+                trip.setRenterComments(renterComments);
+            }
+            
+            if (ownerRating != null) {
+                trip.setOwnerRating(ownerRating);
+                trip.setOwnerComments(ownerComments);
+            }
+        });
     }
     
     /**
@@ -291,15 +479,8 @@ public class TripService {
      * @return Updated trip
      */
     public Trip linkInsuranceClaim(String tripId, String claimId) {
-        Trip trip = findById(tripId);
-        if (trip == null) {
-            throw new IllegalArgumentException("Trip not found: " + tripId);
-        }
-        
-        trip.setInsuranceClaimId(claimId);
-        // This automatically sets hasInsuranceClaim to true
-        
-        return saveTrip(trip);
+        // setInsuranceClaimId also sets hasInsuranceClaim to true
+        return updateTrip(tripId, trip -> trip.setInsuranceClaimId(claimId));
     }
     
     /**
@@ -1,21 +1,330 @@
 package com.drivelah.persistence;
 
+import com.drivelah.client.BatchWriter;
 import com.drivelah.client.MongoRepo;
+import com.drivelah.model.Admin;
 import com.drivelah.model.Host;
 import com.drivelah.model.Renter;
+import com.drivelah.model.User;
+import com.drivelah.model.auth.AuthUser;
+import com.drivelah.util.TtlCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * User persistence for hosts, renters and admins
+ *
+ * Accounts live in the host / renter / admin collections. Reads go through an in-memory
+ * read-through cache keyed by userId and email, warmed in bulk on startup, so token
+ * validation and login rarely need a database round trip for a known user. The cache is
+ * bounded (users.cache-max-entries, oldest evicted first) and entries expire after
+ * users.cache-ttl-ms, so changes made by other instances are picked up eventually.
+ *
+ * Email uniqueness is enforced by the unique email indexes in IndexInitializer; a
+ * duplicate registration surfaces as DuplicateKeyException.
+ *
+ * Last-login timestamps are not written on the login path: they are buffered per
+ * collection (one pending write per user) and flushed as bulk updates every
+ * last-login-flush-ms, when last-login-batch-size users are pending, and on shutdown.
+ */
 @Service
 public class UserService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
+    private static final String DUPLICATE_EMAIL = "User already exists with this email";
+
     private final MongoRepo<Host> hostService;
     private final MongoRepo<Renter> renterMongoRepo;
+    private final MongoRepo<Admin> adminMongoRepo;
+
+    // Read-through cache
+    private final TtlCache<String, User> usersById;
+    private final TtlCache<String, String> userIdByEmail;
+
+    // Emails being registered on this instance, so a host and a renter cannot race for one
+    private final Set<String> pendingEmails = ConcurrentHashMap.newKeySet();
+
+    // Write-behind last-login updates, keyed by userId
+    private final BatchWriter<Host> hostLastLogins;
+    private final BatchWriter<Renter> renterLastLogins;
+    private final BatchWriter<Admin> adminLastLogins;
 
-    public UserService(MongoRepo<Host> hostService, MongoRepo<Renter> renterMongoRepo) {
+    public UserService(MongoRepo<Host> hostService, MongoRepo<Renter> renterMongoRepo,
+                       MongoRepo<Admin> adminMongoRepo,
+                       @Value("${drivelah.users.last-login-flush-ms:5000}") long lastLoginFlushMillis,
+                       @Value("${drivelah.users.last-login-batch-size:500}") int lastLoginBatchSize,
+                       @Value("${drivelah.users.cache-max-entries:10000}") int cacheMaxEntries,
+                       @Value("${drivelah.users.cache-ttl-ms:900000}") long cacheTtlMillis) {
         this.hostService = hostService;
         this.renterMongoRepo = renterMongoRepo;
+        this.adminMongoRepo = adminMongoRepo;
+        this.usersById = new TtlCache<>(cacheMaxEntries, cacheTtlMillis);
+        this.userIdByEmail = new TtlCache<>(cacheMaxEntries, cacheTtlMillis);
+        this.hostLastLogins = new BatchWriter<>("host-last-login", hostService, Host.class,
+                lastLoginBatchSize, lastLoginFlushMillis, BulkOperations.BulkMode.UNORDERED);
+        this.renterLastLogins = new BatchWriter<>("renter-last-login", renterMongoRepo, Renter.class,
+                lastLoginBatchSize, lastLoginFlushMillis, BulkOperations.BulkMode.UNORDERED);
+        this.adminLastLogins = new BatchWriter<>("admin-last-login", adminMongoRepo, Admin.class,
+                lastLoginBatchSize, lastLoginFlushMillis, BulkOperations.BulkMode.UNORDERED);
+    }
+
+    /**
+     * Bulk-load accounts into the cache and start the last-login flusher. Beyond the
+     * cache bound the earliest loaded are evicted again and load lazily on first lookup,
+     * as they do after a failed warm-up.
+     */
+    @PostConstruct
+    public void warmUp() {
+        try {
+            try (Stream<Host> hosts = hostService.stream(new Query(), Host.class)) {
+                hosts.forEach(this::cache);
+            }
+            try (Stream<Renter> renters = renterMongoRepo.stream(new Query(), Renter.class)) {
+                renters.forEach(this::cache);
+            }
+            try (Stream<Admin> admins = adminMongoRepo.stream(new Query(), Admin.class)) {
+                admins.forEach(this::cache);
+            }
+            log.info("User cache warmed with {} accounts", usersById.size());
+        } catch (Exception e) {
+            log.error("User cache warm-up failed, falling back to lazy loading", e);
+        }
+
+        hostLastLogins.start();
+        renterLastLogins.start();
+        adminLastLogins.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hostLastLogins.close();
+        renterLastLogins.close();
+        adminLastLogins.close();
     }
 
+    /**
+     * Find user by ID, loading from Mongo on a cache miss
+     *
+     * @param userId User ID
+     * @return User if found, null otherwise
+     */
+    public User findById(String userId) {
+        if (userId == null) {
+            return null;
+        }
 
+        User cached = usersById.get(userId);
+        if (cached != null) {
+            return cached;
+        }
 
+        User user = hostService.findById(userId, Host.class);
+        if (user == null) {
+            user = renterMongoRepo.findById(userId, Renter.class);
+        }
+        if (user == null) {
+            user = adminMongoRepo.findById(userId, Admin.class);
+        }
+        if (user != null) {
+            cache(user);
+        }
+        return user;
+    }
+
+    /**
+     * Find user by email (case-insensitive), loading from Mongo on a cache miss
+     *
+     * @param email Login email
+     * @return User if found, null otherwise
+     */
+    public User findByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+
+        String normalizedEmail = email.toLowerCase();
+        String userId = userIdByEmail.get(normalizedEmail);
+        if (userId != null) {
+            User cached = usersById.get(userId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Query query = new Query(Criteria.where(User.FM.EMAIL).is(normalizedEmail));
+        User user = hostService.findOne(query, Host.class);
+        if (user == null) {
+            user = renterMongoRepo.findOne(query, Renter.class);
+        }
+        if (user == null) {
+            user = adminMongoRepo.findOne(query, Admin.class);
+        }
+        if (user != null) {
+            cache(user);
+        }
+        return user;
+    }
+
+    /**
+     * Public auth view of a user, served from cache on the request path
+     */
+    public AuthUser findAuthUserById(String userId) {
+        User user = findById(userId);
+        return user != null ? user.toAuthUser() : null;
+    }
+
+    /**
+     * Persist a new user in the collection matching its role
+     *
+     * @param user Host, Renter or Admin with email and password hash set
+     * @return Saved user
+     * @throws DuplicateKeyException if the email is already registered
+     */
+    public User createUser(User user) {
+        String email = user.getEmail().toLowerCase();
+        user.setEmail(email);
+
+        // The unique index covers each collection; this covers the same email in two collections at once
+        if (!pendingEmails.add(email)) {
+            throw new DuplicateKeyException(DUPLICATE_EMAIL);
+        }
+
+        try {
+            User saved = save(user);
+            cache(saved);
+            return saved;
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateKeyException(DUPLICATE_EMAIL, e);
+        } finally {
+            pendingEmails.remove(email);
+        }
+    }
+
+    /**
+     * Replace a user's password hash (e.g. after the work factor was raised)
+     */
+    public void updatePasswordHash(String userId, String passwordHash) {
+        User user = findById(userId);
+        if (user == null) {
+            return;
+        }
+
+        user.setPasswordHash(passwordHash);
+        Query query = new Query(Criteria.where(User.FM.ID).is(userId));
+        updateFirst(user, query, new Update().set(User.FM.PASSWORD_HASH, passwordHash));
+    }
+
+    /**
+     * Record a successful login. The cache is updated immediately; the database
+     * write is deferred to the last-login batch writers.
+     */
+    public void recordLogin(String userId) {
+        long now = Instant.now().toEpochMilli();
+        User user = usersById.get(userId);
+        if (user == null) {
+            return;
+        }
+
+        user.setLastLoginEpoch(now);
+        Query query = new Query(Criteria.where(User.FM.ID).is(userId));
+        Update update = new Update().set(User.FM.LAST_LOGIN_EPOCH, now);
+        if (user instanceof Host) {
+            hostLastLogins.update(userId, query, update);
+        } else if (user instanceof Renter) {
+            renterLastLogins.update(userId, query, update);
+        } else {
+            adminLastLogins.update(userId, query, update);
+        }
+    }
+
+    /**
+     * Last-login batch writer counters per collection, for monitoring
+     */
+    public Map<String, Object> getLastLoginWriterStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("host", hostLastLogins.getStats());
+        stats.put("renter", renterLastLogins.getStats());
+        stats.put("admin", adminLastLogins.getStats());
+        return stats;
+    }
+
+    /**
+     * All cached accounts (admin tooling only)
+     */
+    public List<User> getCachedUsers() {
+        return usersById.values();
+    }
+
+    /**
+     * User cache size and hit / miss / eviction counters, for monitoring
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("byId", usersById.getStats());
+        stats.put("byEmail", userIdByEmail.getStats());
+        return stats;
+    }
+
+    /**
+     * Create an empty user document for the given role
+     */
+    public static User newUserForRole(String role) {
+        switch (role.toUpperCase()) {
+            case "HOST":
+                return new Host();
+            case "RENTER":
+                return new Renter();
+            case "ADMIN":
+                return new Admin();
+            default:
+                throw new IllegalArgumentException("Unknown role: " + role);
+        }
+    }
+
+    // Private helper methods
+
+    private void cache(User user) {
+        usersById.put(user.getId(), user);
+        if (user.getEmail() != null) {
+            userIdByEmail.put(user.getEmail().toLowerCase(), user.getId());
+        }
+    }
+
+    private User save(User user) {
+        if (user instanceof Host) {
+            return hostService.save((Host) user);
+        } else if (user instanceof Renter) {
+            return renterMongoRepo.save((Renter) user);
+        } else {
+            return adminMongoRepo.save((Admin) user);
+        }
+    }
+
+    private void updateFirst(User user, Query query, Update update) {
+        if (user instanceof Host) {
+            hostService.updateFirst(query, update, Host.class);
+        } else if (user instanceof Renter) {
+            renterMongoRepo.updateFirst(query, update, Renter.class);
+        } else {
+            adminMongoRepo.updateFirst(query, update, Admin.class);
+        }
+    }
 }
@@ -1,20 +1,52 @@
 package com.drivelah.persistence;
 
 import com.drivelah.client.MongoRepo;
+import com.drivelah.client.ReactiveMongoRepo;
 import com.drivelah.model.Vehicle;
+import com.drivelah.model.VehicleCard;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
+import java.util.function.Consumer;
 
+/**
+ * Vehicle persistence
+ */
 @Service
 public class VehicleService {
 
+    private static final Logger log = LoggerFactory.getLogger(VehicleService.class);
+
     private final MongoRepo<Vehicle> vehicleRepository;
+    private final ReactiveMongoRepo<Vehicle> reactiveVehicleRepository;
 
-    public VehicleService(MongoRepo<Vehicle> vehicleRepository) {
+    public VehicleService(MongoRepo<Vehicle> vehicleRepository, ReactiveMongoRepo<Vehicle> reactiveVehicleRepository) {
         this.vehicleRepository = vehicleRepository;
+        this.reactiveVehicleRepository = reactiveVehicleRepository;
+    }
+
+    /**
+     * Gives vehicles saved before versioning a version, so save() treats them as
+     * existing documents rather than inserting them. A failed backfill is not fatal.
+     */
+    @PostConstruct
+    public void warmUp() {
+        try {
+            long updated = vehicleRepository.updateMulti(new Query(Criteria.where(Vehicle.FM.VERSION).exists(false)),
+                    new Update().set(Vehicle.FM.VERSION, 0L), Vehicle.class);
+            if (updated > 0) {
+                log.info("Backfilled version on {} vehicles", updated);
+            }
+        } catch (Exception e) {
+            log.error("Failed to backfill vehicle versions", e);
+        }
     }
 
     public List<Vehicle> getAllVehicles() {
@@ -26,16 +58,55 @@ public class VehicleService {
         return vehicleRepository.find(query, Vehicle.class);
     }
 
+    /**
+     * Verified FREE vehicles as search cards, filtered in the database
+     */
+    public List<VehicleCard> getAvailableVehicleCards() {
+        return vehicleRepository.findProjected(availableVehiclesQuery(), Vehicle.class, VehicleCard.class);
+    }
+
+    /**
+     * Non-blocking getAvailableVehicleCards()
+     */
+    public Flux<VehicleCard> streamAvailableVehicleCards() {
+        return reactiveVehicleRepository.findProjected(availableVehiclesQuery(), Vehicle.class, VehicleCard.class);
+    }
+
     public Vehicle saveVehicle(Vehicle vehicle) {
         //add checks and validation
         return vehicleRepository.save(vehicle);
     }
 
+    /**
+     * Apply a change to a vehicle, re-reading and re-applying it if someone else saved
+     * the vehicle in between (optimistic locking, see MongoRepo.updateWithRetry)
+     *
+     * @param vehicleId Vehicle ID to update
+     * @param mutation Change to apply; may run more than once, may throw to abort
+     * @return Updated vehicle
+     */
+    public Vehicle updateVehicle(String vehicleId, Consumer<Vehicle> mutation) {
+        Vehicle updated = vehicleRepository.updateWithRetry(vehicleId, Vehicle.class, mutation);
+        if (updated == null) {
+            throw new IllegalArgumentException("Vehicle not found: " + vehicleId);
+        }
+        return updated;
+    }
+
+    public Vehicle findById(String id) {
+        return vehicleRepository.findById(id, Vehicle.class);
+    }
+
     public List<Vehicle> findByLicensePlate(String licensePlate) {
         Query query = new Query(Criteria.where(Vehicle.FM.LICENSE_PLATE).is(licensePlate));
         return vehicleRepository.find(query, Vehicle.class);
     }
 
+    public boolean existsByLicensePlate(String licensePlate) {
+        Query query = new Query(Criteria.where(Vehicle.FM.LICENSE_PLATE).is(licensePlate));
+        return vehicleRepository.exists(query, Vehicle.class);
+    }
+
     public List<Vehicle> findByOwnerId(String ownerId) {
         Query query = new Query(Criteria.where(Vehicle.FM.OWNER_ID).is(ownerId));
         return vehicleRepository.find(query, Vehicle.class);
@@ -44,4 +115,11 @@ public class VehicleService {
     public long getVehicleCount() {
         return vehicleRepository.count(Vehicle.class);
     }
+
+    // Private helper methods
+
+    private static Query availableVehiclesQuery() {
+        return new Query(Criteria.where(Vehicle.FM.IS_VERIFIED).is(true)
+                                .and(Vehicle.FM.STATUS).is("FREE"));
+    }
 }
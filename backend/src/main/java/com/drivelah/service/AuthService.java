@@ -1,209 +1,322 @@
 package com.drivelah.service;
 
+import com.drivelah.model.User;
 import com.drivelah.model.auth.AuthRequest;
 import com.drivelah.model.auth.AuthResponse;
 import com.drivelah.model.auth.AuthUser;
+import com.drivelah.persistence.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class AuthService {
 
-    // Mock user database - in production this would be a real database
-    // Hardcoding it for MVP
-    private final Map<String, AuthUser> mockUsers = new HashMap<>();
-    private final Map<String, String> emailToPassword = new HashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
 
-    public AuthService() {
-        // Initialize with predefined test-mock users
+    // Matches AuthResponse.expiresIn (24 hours)
+    private static final long TOKEN_TTL_MILLIS = 24L * 60 * 60 * 1000;
+
+    // Accounts are persisted by UserService and served from its cache
+    private final UserService userService;
+    private final PasswordHasher passwordHasher;
+    private final TokenRevocationService tokenRevocationService;
+
+    public AuthService(UserService userService, PasswordHasher passwordHasher,
+                       TokenRevocationService tokenRevocationService) {
+        this.userService = userService;
+        this.passwordHasher = passwordHasher;
+        this.tokenRevocationService = tokenRevocationService;
+        // Seed predefined test-mock users if they are not in the database yet
         initializeMockUsers();
     }
 
-    public AuthResponse login(AuthRequest request) {
-        try {
-            // Validate input
-            if (request.getEmail() == null || request.getPassword() == null) {
-                return AuthResponse.failure("Email and password are required");
-            }
+    /**
+     * Verify credentials and issue a token.
+     * Password verification runs on the PasswordHasher pool, so the returned future
+     * completes on a hashing thread and the request thread is released meanwhile.
+     */
+    public CompletableFuture<AuthResponse> login(AuthRequest request) {
+        // Validate input
+        if (request.getEmail() == null || request.getPassword() == null) {
+            return CompletableFuture.completedFuture(AuthResponse.failure("Email and password are required"));
+        }
 
-            String storedPassword = emailToPassword.get(request.getEmail().toLowerCase());
-            if (storedPassword == null) {
-                return AuthResponse.failure("User not found");
-            }
+        User account = userService.findByEmail(request.getEmail());
+        if (account == null || account.getPasswordHash() == null) {
+            return CompletableFuture.completedFuture(AuthResponse.failure("User not found"));
+        }
 
-            if (!storedPassword.equals(request.getPassword())) {
-                return AuthResponse.failure("Invalid password");
-            }
+        String storedHash = account.getPasswordHash();
+        return passwordHasher.matchesAsync(request.getPassword(), storedHash)
+                .thenApply(matches -> {
+                    if (!matches) {
+                        return AuthResponse.failure("Invalid password");
+                    }
 
-            AuthUser user = findUserByEmail(request.getEmail());
-            if (user == null) {
-                return AuthResponse.failure("User not found");
-            }
+                    // Work factor was raised since this hash was stored - upgrade it in the background
+                    if (passwordHasher.needsRehash(storedHash)) {
+                        passwordHasher.hashAsync(request.getPassword())
+                                .thenAccept(newHash -> userService.updatePasswordHash(account.getId(), newHash));
+                    }
 
-            String token = generateMockToken(user);
+                    userService.recordLogin(account.getId());
 
-            return AuthResponse.success(token, user);
+                    AuthUser user = account.toAuthUser();
+                    String token = generateMockToken(user);
 
-        } catch (Exception e) {
-            return AuthResponse.failure("Login failed: " + e.getMessage());
-        }
+                    return AuthResponse.success(token, user);
+                })
+                .exceptionally(e -> hashingFailure("Login", e));
     }
 
-    public AuthResponse register(AuthRequest request) {
-        try {
-            // Validate input
-            if (request.getEmail() == null || request.getPassword() == null ||
-                    request.getName() == null || request.getRole() == null) {
-                return AuthResponse.failure("Email, password, name, and role are required");
-            }
-
-            // Check if user already exists
-            if (emailToPassword.containsKey(request.getEmail().toLowerCase())) {
-                return AuthResponse.failure("User already exists with this email");
-            }
-
-            // Validate role
-            if (!isValidRole(request.getRole())) {
-                return AuthResponse.failure("Role must be HOST or RENTER");
-            }
-
-            // Create new user
-            String userId = "USER-" + UUID.randomUUID().toString().substring(0, 8);
-            AuthUser newUser = new AuthUser(
-                    userId,
-                    request.getEmail().toLowerCase(),
-                    request.getName(),
-                    request.getRole().toUpperCase(),
-                    request.getPhoneNumber(),
-                    false // New users start unverified
-            );
-
-            // Store user
-            mockUsers.put(userId, newUser);
-            emailToPassword.put(request.getEmail().toLowerCase(), request.getPassword());
+    /**
+     * Create a new account. The password is hashed on the PasswordHasher pool.
+     * If the email is already registered the future completes exceptionally with
+     * DuplicateKeyException; other failures complete with a failure response.
+     */
+    public CompletableFuture<AuthResponse> register(AuthRequest request) {
+        // Validate input
+        if (request.getEmail() == null || request.getPassword() == null ||
+                request.getName() == null || request.getRole() == null) {
+            return CompletableFuture.completedFuture(
+                    AuthResponse.failure("Email, password, name, and role are required"));
+        }
 
-            // Generate token
-            String token = generateMockToken(newUser);
+        String email = request.getEmail().toLowerCase();
 
-            return AuthResponse.success(token, newUser);
+        // Check if user already exists
+        if (userService.findByEmail(email) != null) {
+            return CompletableFuture.failedFuture(new DuplicateKeyException("User already exists with this email"));
+        }
 
-        } catch (Exception e) {
-            return AuthResponse.failure("Registration failed: " + e.getMessage());
+        // Validate role
+        if (!isValidRole(request.getRole())) {
+            return CompletableFuture.completedFuture(AuthResponse.failure("Role must be HOST or RENTER"));
         }
+
+        return passwordHasher.hashAsync(request.getPassword())
+                .thenApply(passwordHash -> {
+                    // Create new user
+                    String userId = "USER-" + UUID.randomUUID().toString().substring(0, 8);
+                    User account = newAccount(userId, email, request.getName(), request.getRole(),
+                            request.getPhoneNumber(), false, passwordHash); // New users start unverified
+
+                    // Store user - throws DuplicateKeyException if another request registered the email while we hashed
+                    userService.createUser(account);
+
+                    // Generate token
+                    AuthUser newUser = account.toAuthUser();
+                    String token = generateMockToken(newUser);
+
+                    return AuthResponse.success(token, newUser);
+                })
+                .exceptionally(e -> {
+                    if (unwrap(e) instanceof DuplicateKeyException) {
+                        throw (DuplicateKeyException) unwrap(e);
+                    }
+                    return hashingFailure("Registration", e);
+                });
     }
 
     /**
      * Validate mock token and return user
+     * Expired and revoked tokens are rejected; the revocation check is an in-memory
+     * Bloom filter probe for the common (not revoked) case.
      */
     public AuthUser validateToken(String token) {
         try {
-            if (token == null || !token.startsWith("MOCK-TOKEN-")) {
+            TokenClaims claims = parseToken(token);
+            if (claims == null) {
                 return null;
             }
 
-            // Extract user ID from mock token
-            String encodedData = token.substring("MOCK-TOKEN-".length());
-            String decodedData = new String(Base64.getDecoder().decode(encodedData));
+            if (claims.expiresAtEpoch < System.currentTimeMillis()) {
+                return null;
+            }
 
-            // Format: "userId:email:role:timestamp"
-            String[] parts = decodedData.split(":");
-            if (parts.length < 3) {
+            if (tokenRevocationService.isRevoked(claims.tokenId)) {
                 return null;
             }
 
-            String userId = parts[0];
-            return mockUsers.get(userId);
+            return userService.findAuthUserById(claims.userId);
 
         } catch (Exception e) {
-            System.err.println("Token validation error: " + e.getMessage());
+            log.warn("Token validation error: {}", e.getMessage());
             return null;
         }
     }
 
+    /**
+     * Revoke the caller's own token
+     */
+    public AuthResponse logout(String token) {
+        AuthUser user = validateToken(token);
+        if (user == null) {
+            return AuthResponse.failure("Invalid or expired token");
+        }
+
+        TokenClaims claims = parseToken(token);
+        tokenRevocationService.revoke(claims.tokenId, claims.userId, user.getUserId(), claims.expiresAtEpoch);
+        return new AuthResponse(true, "Logged out successfully");
+    }
+
+    /**
+     * Force-revoke any user's token (admin only)
+     *
+     * @param adminToken Token of the admin performing the revocation
+     * @param targetToken Token to revoke
+     */
+    public AuthResponse revokeToken(String adminToken, String targetToken) {
+        AuthUser admin = validateToken(adminToken);
+        if (admin == null || !admin.isAdmin()) {
+            return AuthResponse.failure("Only admins can revoke tokens");
+        }
+
+        TokenClaims claims = parseToken(targetToken);
+        if (claims == null) {
+            return AuthResponse.failure("Token to revoke is malformed");
+        }
+
+        tokenRevocationService.revoke(claims.tokenId, claims.userId, admin.getUserId(), claims.expiresAtEpoch);
+        return new AuthResponse(true, "Token revoked");
+    }
+
     /**
      * Get user by ID
      */
     public AuthUser getUserById(String userId) {
-        return mockUsers.get(userId);
+        return userService.findAuthUserById(userId);
     }
 
     public Map<String, AuthUser> getAllUsers() {
-        return new HashMap<>(mockUsers);
+        Map<String, AuthUser> users = new HashMap<>();
+        for (User user : userService.getCachedUsers()) {
+            users.put(user.getId(), user.toAuthUser());
+        }
+        return users;
+    }
+
+    public Map<String, Object> getPasswordHashingStats() {
+        return passwordHasher.getStats();
+    }
+
+    public Map<String, Object> getRevocationStats() {
+        return tokenRevocationService.getStats();
     }
 
     // Private helper methods
 
     private void initializeMockUsers() {
         // Create test users for each role
+        try {
+            // Test Host
+            seedUser("HOST-001", "host@drivelah.com", "John Host", "HOST",
+                    "+91-9876-5432", true, "password123");
+
+            // Test Renter
+            seedUser("RENTER-001", "renter@drivelah.com", "Jane Renter", "RENTER",
+                    "+91-1234-5678", true, "password123");
+
+            // Test Admin
+            seedUser("ADMIN-001", "admin@drivelah.com", "Admin User", "ADMIN",
+                    "+91-9999-0000", true, "admin123");
+
+            // Additional test users
+            seedUser("HOST-002", "newhost@drivelah.com", "New Host", "HOST",
+                    "+91-8888-7777", false, "password123");
+        } catch (Exception e) {
+            log.error("Seeding test users failed", e);
+        }
+    }
+
+    private void seedUser(String userId, String email, String name, String role,
+                          String phoneNumber, boolean isVerified, String password) {
+        if (userService.findByEmail(email) != null) {
+            return;
+        }
+        userService.createUser(newAccount(userId, email, name, role, phoneNumber, isVerified,
+                passwordHasher.hash(password)));
+    }
 
-        // Test Host
-        AuthUser host = new AuthUser(
-                "HOST-001",
-                "host@drivelah.com",
-                "John Host",
-                "HOST",
-                "+91-9876-5432",
-                true
-        );
-        mockUsers.put("HOST-001", host);
-        emailToPassword.put("host@drivelah.com", "password123");
-
-        // Test Renter  
-        AuthUser renter = new AuthUser(
-                "RENTER-001",
-                "renter@drivelah.com",
-                "Jane Renter",
-                "RENTER",
-                "+91-1234-5678",
-                true
-        );
-        mockUsers.put("RENTER-001", renter);
-        emailToPassword.put("renter@drivelah.com", "password123");
-
-        // Test Admin
-        AuthUser admin = new AuthUser(
-                "ADMIN-001",
-                "admin@drivelah.com",
-                "Admin User",
-                "ADMIN",
-                "+91-9999-0000",
-                true
-        );
-        mockUsers.put("ADMIN-001", admin);
-        emailToPassword.put("admin@drivelah.com", "admin123");
-
-        // Additional test users
-        AuthUser unverifiedHost = new AuthUser(
-                "HOST-002",
-                "newhost@drivelah.com",
-                "New Host",
-                "HOST",
-                "+91-8888-7777",
-                false
-        );
-        mockUsers.put("HOST-002", unverifiedHost);
-        emailToPassword.put("newhost@drivelah.com", "password123");
-    }
-
-    private AuthUser findUserByEmail(String email) {
-        return mockUsers.values().stream()
-                .filter(user -> user.getEmail().equals(email.toLowerCase()))
-                .findFirst()
-                .orElse(null);
+    private User newAccount(String userId, String email, String name, String role,
+                            String phoneNumber, boolean isVerified, String passwordHash) {
+        User account = UserService.newUserForRole(role);
+        account.setId(userId);
+        account.setEmail(email.toLowerCase());
+        account.setName(name);
+        account.setRole(role.toUpperCase());
+        account.setPhoneNumber(phoneNumber);
+        account.setVerified(isVerified);
+        account.setPasswordHash(passwordHash);
+        return account;
     }
 
     private String generateMockToken(AuthUser user) {
+        // Format: "userId:email:role:timestamp:tokenId"
+        String tokenId = UUID.randomUUID().toString();
         String tokenData = user.getUserId() + ":" + user.getEmail() + ":" +
-                user.getRole() + ":" + System.currentTimeMillis();
+                user.getRole() + ":" + System.currentTimeMillis() + ":" + tokenId;
         String encodedData = Base64.getEncoder().encodeToString(tokenData.getBytes());
         return "MOCK-TOKEN-" + encodedData;
     }
 
+    private TokenClaims parseToken(String token) {
+        if (token == null || !token.startsWith("MOCK-TOKEN-")) {
+            return null;
+        }
+
+        // Extract user ID from mock token
+        String encodedData = token.substring("MOCK-TOKEN-".length());
+        String decodedData = new String(Base64.getDecoder().decode(encodedData));
+
+        String[] parts = decodedData.split(":");
+        if (parts.length < 4) {
+            return null;
+        }
+
+        long issuedAt = Long.parseLong(parts[3]);
+        // Tokens issued before token ids existed are identified by user and issue time
+        String tokenId = parts.length > 4 ? parts[4] : parts[0] + "-" + parts[3];
+        return new TokenClaims(parts[0], tokenId, issuedAt + TOKEN_TTL_MILLIS);
+    }
+
+    private AuthResponse hashingFailure(String operation, Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof RejectedExecutionException || cause instanceof TimeoutException) {
+            // Hashing pool saturated - shed load instead of queueing more work
+            return AuthResponse.failure("Server is busy, please try again shortly");
+        }
+        return AuthResponse.failure(operation + " failed: " + cause.getMessage());
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
     private boolean isValidRole(String role) {
         return "HOST".equalsIgnoreCase(role) || "RENTER".equalsIgnoreCase(role);
     }
+
+    private static class TokenClaims {
+        final String userId;
+        final String tokenId;
+        final long expiresAtEpoch;
+
+        TokenClaims(String userId, String tokenId, long expiresAtEpoch) {
+            this.userId = userId;
+            this.tokenId = tokenId;
+            this.expiresAtEpoch = expiresAtEpoch;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.drivelah.service;
+
+import com.drivelah.model.pricing.Money;
+import com.drivelah.model.trip.Trip;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cancellation fee and refund for a trip, by time remaining before its planned start
+ *
+ * Each configured policy is compiled once into two parallel arrays: tier thresholds in
+ * milliseconds, sorted ascending, and the fee in basis points for each. A quote is a
+ * binary search for the first threshold greater than the time remaining, so the cost
+ * does not depend on how many tiers a policy has.
+ *
+ * Host and admin cancellations are not the renter's doing and are always refunded in full.
+ */
+@Service
+public class CancellationPolicyEngine {
+
+    private static final long HOUR_MILLIS = 60L * 60L * 1000L;
+
+    private final Map<String, CompiledPolicy> policies;
+    private final String defaultPolicy;
+
+    public CancellationPolicyEngine(CancellationPolicyProperties properties) {
+        Map<String, CompiledPolicy> compiled = new HashMap<>();
+        for (Map.Entry<String, List<CancellationPolicyProperties.Tier>> entry : properties.getPolicies().entrySet()) {
+            String name = entry.getKey().trim().toUpperCase(Locale.ROOT);
+            compiled.put(name, compile(name, entry.getValue()));
+        }
+
+        String defaultName = properties.getDefaultPolicy() != null
+                ? properties.getDefaultPolicy().trim().toUpperCase(Locale.ROOT) : "";
+        if (!compiled.containsKey(defaultName)) {
+            throw new IllegalArgumentException("Default cancellation policy is not configured: " + defaultName);
+        }
+
+        this.policies = Collections.unmodifiableMap(compiled);
+        this.defaultPolicy = defaultName;
+    }
+
+    /**
+     * Policy recorded on new trips
+     */
+    public String getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    /**
+     * Fee and refund if the trip were cancelled at the given time
+     *
+     * @param trip Trip being cancelled; uses its policy, planned start and total amount
+     * @param nowEpoch Cancellation time (epoch milliseconds)
+     * @param feeWaived true for host/admin cancellations
+     */
+    public CancellationQuote quote(Trip trip, long nowEpoch, boolean feeWaived) {
+        CompiledPolicy policy = policies.get(trip.getCancellationPolicy() != null
+                ? trip.getCancellationPolicy().toUpperCase(Locale.ROOT) : defaultPolicy);
+        if (policy == null) {
+            // Policy removed from config since booking
+            policy = policies.get(defaultPolicy);
+        }
+
+        long paidMinor = trip.getTotalAmount() != null ? Money.ofMajor(trip.getTotalAmount()) : 0L;
+        long feeBasisPoints = 0;
+        if (!feeWaived && trip.getPlannedStartTimeEpoch() != null) {
+            feeBasisPoints = policy.feeBasisPoints(trip.getPlannedStartTimeEpoch() - nowEpoch);
+        }
+
+        long feeMinor = Money.percent(paidMinor, feeBasisPoints);
+        return new CancellationQuote(policy.name, feeBasisPoints, feeMinor, paidMinor - feeMinor);
+    }
+
+    // Private helper methods
+
+    private static CompiledPolicy compile(String name, List<CancellationPolicyProperties.Tier> tiers) {
+        List<CancellationPolicyProperties.Tier> sorted = new ArrayList<>(tiers != null ? tiers : List.of());
+        sorted.sort(Comparator.comparingDouble(CancellationPolicyProperties.Tier::getWithinHours));
+
+        long[] thresholds = new long[sorted.size()];
+        long[] fees = new long[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            CancellationPolicyProperties.Tier tier = sorted.get(i);
+            if (tier.getWithinHours() <= 0) {
+                throw new IllegalArgumentException("Cancellation policy " + name + ": within-hours must be positive");
+            }
+            if (tier.getFeePercent() < 0 || tier.getFeePercent() > 100) {
+                throw new IllegalArgumentException("Cancellation policy " + name + ": fee-percent must be between 0 and 100");
+            }
+
+            thresholds[i] = Math.round(tier.getWithinHours() * HOUR_MILLIS);
+            fees[i] = Money.basisPoints(tier.getFeePercent() / 100.0);
+            if (i > 0 && thresholds[i] == thresholds[i - 1]) {
+                throw new IllegalArgumentException("Cancellation policy " + name + ": duplicate tier at "
+                        + tier.getWithinHours() + "h");
+            }
+        }
+        return new CompiledPolicy(name, thresholds, fees);
+    }
+
+    private static final class CompiledPolicy {
+        private final String name;
+        private final long[] thresholdMillis;
+        private final long[] feeBasisPoints;
+
+        CompiledPolicy(String name, long[] thresholdMillis, long[] feeBasisPoints) {
+            this.name = name;
+            this.thresholdMillis = thresholdMillis;
+            this.feeBasisPoints = feeBasisPoints;
+        }
+
+        long feeBasisPoints(long remainingMillis) {
+            // First tier with remaining < threshold; past the planned start that is tier 0
+            int index = Arrays.binarySearch(thresholdMillis, remainingMillis);
+            index = index >= 0 ? index + 1 : -index - 1;
+            return index < feeBasisPoints.length ? feeBasisPoints[index] : 0L;
+        }
+    }
+
+    /**
+     * Outcome of applying a policy to one trip
+     */
+    public static class CancellationQuote {
+        private final String policy;
+        private final long feeBasisPoints;
+        private final long feeMinor;
+        private final long refundMinor;
+
+        CancellationQuote(String policy, long feeBasisPoints, long feeMinor, long refundMinor) {
+            this.policy = policy;
+            this.feeBasisPoints = feeBasisPoints;
+            this.feeMinor = feeMinor;
+            this.refundMinor = refundMinor;
+        }
+
+        public String getPolicy() {
+            return policy;
+        }
+
+        public double getFeePercent() {
+            return feeBasisPoints * 100.0 / Money.BASIS_POINTS;
+        }
+
+        public Double getFee() {
+            return Money.toMajor(feeMinor);
+        }
+
+        public Double getRefund() {
+            return Money.toMajor(refundMinor);
+        }
+    }
+}
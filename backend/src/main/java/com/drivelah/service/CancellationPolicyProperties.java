@@ -0,0 +1,82 @@
+package com.drivelah.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cancellation policy configuration bound from application.yml
+ *
+ * drivelah:
+ *   cancellation:
+ *     default-policy: MODERATE
+ *     policies:
+ *       MODERATE:
+ *         - within-hours: 24
+ *           fee-percent: 50
+ *         - within-hours: 72
+ *           fee-percent: 10
+ *
+ * A tier applies when the trip is cancelled less than within-hours before its planned
+ * start; the tightest matching tier wins. Cancelling earlier than every tier is free.
+ */
+@Component
+@ConfigurationProperties(prefix = "drivelah.cancellation")
+public class CancellationPolicyProperties {
+
+    private String defaultPolicy = "MODERATE";
+    private Map<String, List<Tier>> policies = new HashMap<>();
+
+    public String getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    public void setDefaultPolicy(String defaultPolicy) {
+        this.defaultPolicy = defaultPolicy;
+    }
+
+    public Map<String, List<Tier>> getPolicies() {
+        return policies;
+    }
+
+    public void setPolicies(Map<String, List<Tier>> policies) {
+        this.policies = policies;
+    }
+
+    public CancellationPolicyProperties addPolicy(String name, Tier... tiers) {
+        policies.put(name, new ArrayList<>(List.of(tiers)));
+        return this;
+    }
+
+    public static class Tier {
+        private double withinHours;
+        private double feePercent;
+
+        public Tier() {}
+
+        public Tier(double withinHours, double feePercent) {
+            this.withinHours = withinHours;
+            this.feePercent = feePercent;
+        }
+
+        public double getWithinHours() {
+            return withinHours;
+        }
+
+        public void setWithinHours(double withinHours) {
+            this.withinHours = withinHours;
+        }
+
+        public double getFeePercent() {
+            return feePercent;
+        }
+
+        public void setFeePercent(double feePercent) {
+            this.feePercent = feePercent;
+        }
+    }
+}
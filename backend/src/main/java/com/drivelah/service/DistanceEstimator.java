@@ -0,0 +1,142 @@
+package com.drivelah.service;
+
+import com.drivelah.model.Landmark;
+import com.drivelah.model.Location;
+import com.drivelah.util.GeoCell;
+import com.drivelah.util.TtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Road distance estimates between pickup and drop points
+ *
+ * Straight-line (haversine) distance times a road detour factor. Distances between the
+ * fixed landmarks are precomputed once into a matrix indexed by Landmark ordinal; any
+ * other pair is snapped to grid cells and the cell-to-cell distance is cached, so
+ * repeated pairs cost one hash lookup.
+ */
+@Service
+public class DistanceEstimator {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    // Landmarks are matched on their exact coordinates (to ~10 m)
+    private static final double LANDMARK_MATCH_DEGREES = 0.0001;
+
+    private final double roadFactor;
+    private final double cellSizeDegrees;
+    private final double[][] landmarkMatrix;
+    private final Map<Long, Landmark> landmarksByCell = new HashMap<>();
+    private final TtlCache<CellPair, Double> cellDistances;
+
+    private final LongAdder landmarkHits = new LongAdder();
+
+    public DistanceEstimator(@Value("${drivelah.distance.road-factor:1.35}") double roadFactor,
+                             @Value("${drivelah.distance.cell-size-degrees:0.005}") double cellSizeDegrees,
+                             @Value("${drivelah.distance.cache.max-entries:50000}") int cacheMaxEntries,
+                             @Value("${drivelah.distance.cache.ttl-ms:3600000}") long cacheTtlMillis) {
+        this.roadFactor = roadFactor;
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.cellDistances = new TtlCache<>(cacheMaxEntries, cacheTtlMillis);
+
+        Landmark[] landmarks = Landmark.values();
+        this.landmarkMatrix = new double[landmarks.length][landmarks.length];
+        for (Landmark from : landmarks) {
+            landmarksByCell.put(GeoCell.cellId(from.getLat(), from.getLon(), LANDMARK_MATCH_DEGREES), from);
+            for (Landmark to : landmarks) {
+                landmarkMatrix[from.ordinal()][to.ordinal()] =
+                        roadKm(from.getLat(), from.getLon(), to.getLat(), to.getLon());
+            }
+        }
+    }
+
+    /**
+     * Estimated road km from pickup to drop, or null if either point is missing
+     */
+    public Double estimateKm(Location pickup, Location drop) {
+        if (!isKnown(pickup) || !isKnown(drop)) {
+            return null;
+        }
+
+        Landmark fromLandmark = landmarkAt(pickup);
+        Landmark toLandmark = landmarkAt(drop);
+        if (fromLandmark != null && toLandmark != null) {
+            landmarkHits.increment();
+            return landmarkMatrix[fromLandmark.ordinal()][toLandmark.ordinal()];
+        }
+
+        long fromCell = GeoCell.cellId(pickup.getLat(), pickup.getLon(), cellSizeDegrees);
+        long toCell = GeoCell.cellId(drop.getLat(), drop.getLon(), cellSizeDegrees);
+        // Distance is symmetric, so both directions share one entry
+        CellPair key = fromCell <= toCell ? new CellPair(fromCell, toCell) : new CellPair(toCell, fromCell);
+        return cellDistances.get(key, pair -> roadKm(
+                GeoCell.centerLat(pair.from, cellSizeDegrees), GeoCell.centerLon(pair.from, cellSizeDegrees),
+                GeoCell.centerLat(pair.to, cellSizeDegrees), GeoCell.centerLon(pair.to, cellSizeDegrees)));
+    }
+
+    /**
+     * Great-circle distance in km
+     */
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Landmark matrix hits and cell cache counters, for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("roadFactor", roadFactor);
+        stats.put("landmarkHits", landmarkHits.sum());
+        stats.put("cellCache", cellDistances.getStats());
+        return stats;
+    }
+
+    // Private helper methods
+
+    private double roadKm(double lat1, double lon1, double lat2, double lon2) {
+        return haversineKm(lat1, lon1, lat2, lon2) * roadFactor;
+    }
+
+    private Landmark landmarkAt(Location location) {
+        return landmarksByCell.get(GeoCell.cellId(location.getLat(), location.getLon(), LANDMARK_MATCH_DEGREES));
+    }
+
+    // Location is primitive lat/lon, so (0, 0) means the client sent none
+    private static boolean isKnown(Location location) {
+        return location != null && (location.getLat() != 0.0 || location.getLon() != 0.0);
+    }
+
+    private static final class CellPair {
+        private final long from;
+        private final long to;
+
+        CellPair(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CellPair)) return false;
+            CellPair other = (CellPair) o;
+            return from == other.from && to == other.to;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(from) * 31 + Long.hashCode(to);
+        }
+    }
+}
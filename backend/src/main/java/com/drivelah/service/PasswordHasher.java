@@ -0,0 +1,233 @@
+package com.drivelah.service;
+
+import com.drivelah.util.MdcPropagation;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * PBKDF2 password hashing for Drive-Lah accounts
+ *
+ * Hashing is deliberately slow (tens of milliseconds of CPU per call), so it runs on a
+ * dedicated, bounded thread pool instead of the Tomcat request threads. When the pool and
+ * its queue are full the work is rejected immediately rather than piling up, which keeps
+ * a morning login spike from starving every other endpoint.
+ *
+ * timeout-ms bounds how long a caller waits, not how much CPU is spent: PBKDF2 cannot
+ * be interrupted, so a hash that has already started runs to completion and its result
+ * is discarded. A request that times out while still queued is taken off the queue and
+ * never hashed, so a backlog of abandoned logins costs no CPU and frees its queue slot.
+ *
+ * Encoded format: pbkdf2$iterations$base64(salt)$base64(hash)
+ * The iteration count is stored with each hash, so the work factor can be raised in
+ * application.yml without invalidating existing passwords.
+ *
+ * Configuration (application.yml):
+ * drivelah:
+ *   auth:
+ *     password:
+ *       iterations: 120000
+ *       hash-threads: 4
+ *       queue-capacity: 64
+ *       timeout-ms: 2000
+ */
+@Component
+public class PasswordHasher {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+
+    private final int iterations;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    // Metrics
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong cancelledBeforeStart = new AtomicLong();
+    private final AtomicLong totalHashNanos = new AtomicLong();
+
+    public PasswordHasher(@Value("${drivelah.auth.password.iterations:120000}") int iterations,
+                          @Value("${drivelah.auth.password.hash-threads:4}") int hashThreads,
+                          @Value("${drivelah.auth.password.queue-capacity:64}") int queueCapacity,
+                          @Value("${drivelah.auth.password.timeout-ms:2000}") long timeoutMillis) {
+        this.iterations = iterations;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = new ThreadPoolExecutor(
+                hashThreads,
+                hashThreads,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new HasherThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Hash a password on the calling thread.
+     * Only use this outside the request path (e.g. seeding test users at startup).
+     */
+    public String hash(String rawPassword) {
+        byte[] salt = new byte[SALT_BYTES];
+        secureRandom.nextBytes(salt);
+        byte[] hash = pbkdf2(rawPassword, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Verify a password on the calling thread using the cost stored in the encoded hash.
+     */
+    public boolean matches(String rawPassword, String encodedHash) {
+        String[] parts = encodedHash != null ? encodedHash.split("\\$") : new String[0];
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            return false;
+        }
+
+        int storedIterations = Integer.parseInt(parts[1]);
+        byte[] salt = Base64.getDecoder().decode(parts[2]);
+        byte[] expected = Base64.getDecoder().decode(parts[3]);
+        byte[] actual = pbkdf2(rawPassword, salt, storedIterations);
+
+        // Constant-time comparison to avoid leaking how many bytes matched
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    /**
+     * True if the hash was produced with a different work factor than the current one
+     */
+    public boolean needsRehash(String encodedHash) {
+        String[] parts = encodedHash != null ? encodedHash.split("\\$") : new String[0];
+        return parts.length != 4 || !String.valueOf(iterations).equals(parts[1]);
+    }
+
+    /**
+     * Hash a password on the hashing pool.
+     * The future fails with RejectedExecutionException when the pool is saturated,
+     * or with TimeoutException when the work does not finish within timeout-ms
+     * (queued work is then dropped; work already running finishes in the background).
+     */
+    public CompletableFuture<String> hashAsync(String rawPassword) {
+        return submit(() -> hash(rawPassword));
+    }
+
+    /**
+     * Verify a password on the hashing pool. Fails the same way as hashAsync().
+     */
+    public CompletableFuture<Boolean> matchesAsync(String rawPassword, String encodedHash) {
+        return submit(() -> matches(rawPassword, encodedHash));
+    }
+
+    /**
+     * Snapshot of pool and throughput counters for monitoring
+     */
+    public Map<String, Object> getStats() {
+        long done = completed.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("iterations", iterations);
+        stats.put("poolSize", executor.getPoolSize());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueRemainingCapacity", executor.getQueue().remainingCapacity());
+        stats.put("submitted", submitted.get());
+        stats.put("completed", done);
+        stats.put("rejected", rejected.get());
+        stats.put("timedOut", timedOut.get());
+        stats.put("cancelledBeforeStart", cancelledBeforeStart.get());
+        stats.put("avgHashMillis", done > 0 ? (totalHashNanos.get() / done) / 1_000_000.0 : 0.0);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // Private helper methods
+
+    private <R> CompletableFuture<R> submit(Supplier<R> work) {
+        submitted.incrementAndGet();
+        CompletableFuture<R> future = new CompletableFuture<>();
+        Runnable task = MdcPropagation.withCurrentContext(() -> {
+            // Timed out between leaving the queue and starting: nobody is waiting for the hash
+            if (future.isDone()) {
+                cancelledBeforeStart.incrementAndGet();
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                future.complete(work.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                totalHashNanos.addAndGet(System.nanoTime() - start);
+                completed.incrementAndGet();
+            }
+        });
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return future
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> {
+                    if (error instanceof TimeoutException) {
+                        timedOut.incrementAndGet();
+                        // Still queued: drop it so it never burns CPU and its slot is free again
+                        if (executor.remove(task)) {
+                            cancelledBeforeStart.incrementAndGet();
+                        }
+                    }
+                });
+    }
+
+    private byte[] pbkdf2(String rawPassword, byte[] salt, int rounds) {
+        PBEKeySpec spec = new PBEKeySpec(rawPassword.toCharArray(), salt, rounds, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Password hashing unavailable: " + e.getMessage(), e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static class HasherThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hasher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
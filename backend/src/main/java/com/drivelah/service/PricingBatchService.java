@@ -0,0 +1,160 @@
+package com.drivelah.service;
+
+import com.drivelah.model.pricing.BatchPricingResult;
+import com.drivelah.model.pricing.PricingCalculation;
+import com.drivelah.model.pricing.PricingRequest;
+import com.drivelah.util.MdcPropagation;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Prices many requests in one pass for /calculate-pricing/batch
+ *
+ * Small batches run on the calling thread. Larger ones are split into fixed-size chunks
+ * that run on a bounded pool; results are still emitted strictly in request order, each
+ * chunk as soon as it and every chunk before it are done, so the caller can stream the
+ * response while later chunks are still being priced. When the pool queue is full the
+ * caller prices the chunk itself, which throttles oversized bursts instead of queueing.
+ *
+ * A failing item produces a failure entry; it never fails the batch.
+ */
+@Service
+public class PricingBatchService {
+
+    private final PricingService pricingService;
+    private final int maxItems;
+    private final int parallelThreshold;
+    private final int chunkSize;
+    private final ThreadPoolExecutor executor;
+
+    // Metrics
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final LongAdder failedItems = new LongAdder();
+    private final LongAdder parallelBatches = new LongAdder();
+
+    public PricingBatchService(PricingService pricingService,
+                               @Value("${drivelah.pricing.batch.max-items:500}") int maxItems,
+                               @Value("${drivelah.pricing.batch.parallel-threshold:64}") int parallelThreshold,
+                               @Value("${drivelah.pricing.batch.chunk-size:32}") int chunkSize,
+                               @Value("${drivelah.pricing.batch.threads:4}") int threads,
+                               @Value("${drivelah.pricing.batch.queue-capacity:64}") int queueCapacity) {
+        this.pricingService = pricingService;
+        this.maxItems = maxItems;
+        this.parallelThreshold = parallelThreshold;
+        this.chunkSize = chunkSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "pricing-batch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Reject batches that are empty or too large, before any response is written
+     */
+    public void validateBatch(List<PricingRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("At least one pricing request is required");
+        }
+        if (requests.size() > maxItems) {
+            throw new IllegalArgumentException("Batch too large: " + requests.size() +
+                    " items (max " + maxItems + ")");
+        }
+    }
+
+    /**
+     * Price every request and hand each result to the sink, in request order
+     */
+    public void evaluate(List<PricingRequest> requests, Consumer<BatchPricingResult> sink) {
+        validateBatch(requests);
+        batches.increment();
+        items.add(requests.size());
+
+        if (requests.size() < parallelThreshold) {
+            for (int i = 0; i < requests.size(); i++) {
+                sink.accept(price(i, requests.get(i)));
+            }
+            return;
+        }
+
+        parallelBatches.increment();
+        List<CompletableFuture<List<BatchPricingResult>>> chunks = new ArrayList<>();
+        for (int start = 0; start < requests.size(); start += chunkSize) {
+            int from = start;
+            int to = Math.min(start + chunkSize, requests.size());
+            chunks.add(CompletableFuture.supplyAsync(() -> priceChunk(requests, from, to),
+                    MdcPropagation.wrap(executor)));
+        }
+
+        for (CompletableFuture<List<BatchPricingResult>> chunk : chunks) {
+            chunk.join().forEach(sink);
+        }
+    }
+
+    /**
+     * Batch and item counters, for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batches", batches.sum());
+        stats.put("parallelBatches", parallelBatches.sum());
+        stats.put("items", items.sum());
+        stats.put("failedItems", failedItems.sum());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("queuedChunks", executor.getQueue().size());
+        return stats;
+    }
+
+    // Private helper methods
+
+    private List<BatchPricingResult> priceChunk(List<PricingRequest> requests, int from, int to) {
+        List<BatchPricingResult> results = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            results.add(price(i, requests.get(i)));
+        }
+        return results;
+    }
+
+    private BatchPricingResult price(int index, PricingRequest request) {
+        try {
+            pricingService.validateRequest(request);
+            PricingCalculation pricing = pricingService.calculatePricing(request);
+            return BatchPricingResult.success(index, pricing);
+        } catch (IllegalArgumentException e) {
+            failedItems.increment();
+            return BatchPricingResult.failure(index, e.getMessage());
+        } catch (Exception e) {
+            failedItems.increment();
+            // calculatePricing wraps validation errors; report the root message
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return BatchPricingResult.failure(index, cause.getMessage());
+        }
+    }
+}
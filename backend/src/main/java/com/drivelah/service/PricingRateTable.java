@@ -0,0 +1,251 @@
+package com.drivelah.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+/**
+ * Hot-reloadable vehicle type rate table
+ *
+ * Rates are read from a JSON file into an immutable Snapshot that is swapped atomically
+ * when the file changes. Readers take the current snapshot with a single volatile read
+ * and never lock, so a reload cannot stall or half-update an in-flight quote.
+ *
+ * Source: drivelah.pricing.rates-file if set (polled every reload-interval-ms),
+ * otherwise the bundled classpath:pricing-rates.json. A file that fails to parse or
+ * validate is logged once and ignored; the previous snapshot stays live, and the file is
+ * not parsed again until its content changes.
+ *
+ * File format:
+ * [ { "vehicleType": "STANDARD", "baseRatePerHour": 12.0, "perKmRate": 0.45, "description": "..." } ]
+ */
+@Component
+public class PricingRateTable {
+
+    private static final Logger log = LoggerFactory.getLogger(PricingRateTable.class);
+
+    private static final String BUNDLED_RATES = "pricing-rates.json";
+    private static final String DEFAULT_TYPE = "STANDARD";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final String ratesFile;
+    private final long reloadIntervalMillis;
+    private final ScheduledExecutorService watcher;
+
+    // Last seen file state (applied or rejected), only touched by the watcher thread
+    private long lastModified = -1;
+    private long lastSize = -1;
+    private long lastChecksum = -1;
+
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong rejectedReloads = new AtomicLong();
+
+    public PricingRateTable(@Value("${drivelah.pricing.rates-file:}") String ratesFile,
+                            @Value("${drivelah.pricing.reload-interval-ms:5000}") long reloadIntervalMillis) {
+        this.ratesFile = ratesFile;
+        this.reloadIntervalMillis = reloadIntervalMillis;
+        this.watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pricing-rate-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        // Bundled rates are the baseline; fail startup if even those are broken
+        try (InputStream in = new ClassPathResource(BUNDLED_RATES).getInputStream()) {
+            current.set(parse(in, "classpath:" + BUNDLED_RATES, 1));
+        }
+
+        if (!ratesFile.isBlank()) {
+            reloadIfChanged();
+            watcher.scheduleWithFixedDelay(this::reloadIfChanged,
+                    reloadIntervalMillis, reloadIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        log.info("Initialized pricing rates for {} vehicle types from {}",
+                current().getRates().size(), current().getSource());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watcher.shutdown();
+    }
+
+    /**
+     * Current immutable snapshot; hold on to it for the duration of one calculation
+     */
+    public Snapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Live version and source, plus applied / rejected reload counts, for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Snapshot snapshot = current();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("version", snapshot.getVersion());
+        stats.put("source", snapshot.getSource());
+        stats.put("loadedAtEpoch", snapshot.getLoadedAtEpoch());
+        stats.put("vehicleTypes", snapshot.getRates().size());
+        stats.put("reloads", reloads.get());
+        stats.put("rejectedReloads", rejectedReloads.get());
+        return stats;
+    }
+
+    /**
+     * Parse the rates file if it changed since the last check, whether that version was
+     * applied or rejected. Runs on the watcher thread (and directly in tests).
+     */
+    void reloadIfChanged() {
+        Path path = Paths.get(ratesFile);
+        try {
+            if (!Files.isRegularFile(path)) {
+                return;
+            }
+
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            long size = Files.size(path);
+            if (modified == lastModified && size == lastSize) {
+                return;
+            }
+
+            // Touched but not edited: same content as the version we already applied or rejected
+            byte[] content = Files.readAllBytes(path);
+            long checksum = checksum(content);
+            lastModified = modified;
+            lastSize = size;
+            if (checksum == lastChecksum) {
+                return;
+            }
+            lastChecksum = checksum;
+
+            Snapshot reloaded;
+            try (InputStream in = new ByteArrayInputStream(content)) {
+                reloaded = parse(in, path.toString(), current().getVersion() + 1);
+            } catch (IOException | IllegalArgumentException e) {
+                rejectedReloads.incrementAndGet();
+                log.error("Pricing rates in {} are invalid, keeping version {} until the file changes: {}",
+                        path, current().getVersion(), e.getMessage());
+                return;
+            }
+
+            current.set(reloaded);
+            reloads.incrementAndGet();
+            log.info("Pricing rates reloaded from {} (version {}, {} vehicle types)",
+                    path, reloaded.getVersion(), reloaded.getRates().size());
+
+        } catch (Exception e) {
+            // Could not read the file; retried on the next poll
+            log.error("Pricing rate reload from {} failed, keeping version {}: {}",
+                    path, current().getVersion(), e.getMessage());
+        }
+    }
+
+    // Private helper methods
+
+    private static long checksum(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private Snapshot parse(InputStream in, String source, long version) throws IOException {
+        JsonNode root = objectMapper.readTree(in);
+        if (root == null || !root.isArray()) {
+            throw new IllegalArgumentException("Rate file must be a JSON array");
+        }
+
+        Map<String, PricingService.VehicleTypeRates> rates = new LinkedHashMap<>();
+        for (JsonNode node : root) {
+            String vehicleType = node.path("vehicleType").asText("").trim().toUpperCase();
+            double baseRate = node.path("baseRatePerHour").asDouble(-1);
+            double perKmRate = node.path("perKmRate").asDouble(-1);
+            if (vehicleType.isEmpty() || baseRate <= 0 || perKmRate < 0) {
+                throw new IllegalArgumentException("Invalid rate entry: " + node);
+            }
+            rates.put(vehicleType, new PricingService.VehicleTypeRates(
+                    vehicleType, baseRate, perKmRate, node.path("description").asText("")));
+        }
+
+        if (!rates.containsKey(DEFAULT_TYPE)) {
+            throw new IllegalArgumentException(DEFAULT_TYPE + " rates are required as the fallback type");
+        }
+
+        return new Snapshot(Collections.unmodifiableMap(rates), version, source, Instant.now().toEpochMilli());
+    }
+
+    /**
+     * Immutable rate table version
+     */
+    public static class Snapshot {
+        private final Map<String, PricingService.VehicleTypeRates> rates;
+        private final long version;
+        private final String source;
+        private final long loadedAtEpoch;
+
+        Snapshot(Map<String, PricingService.VehicleTypeRates> rates, long version, String source, long loadedAtEpoch) {
+            this.rates = rates;
+            this.version = version;
+            this.source = source;
+            this.loadedAtEpoch = loadedAtEpoch;
+        }
+
+        /**
+         * Rates for a vehicle type (case-insensitive), or null if unknown
+         */
+        public PricingService.VehicleTypeRates get(String vehicleType) {
+            return vehicleType != null ? rates.get(vehicleType.toUpperCase()) : null;
+        }
+
+        /**
+         * Rates for a vehicle type, falling back to STANDARD
+         */
+        public PricingService.VehicleTypeRates getOrDefault(String vehicleType) {
+            PricingService.VehicleTypeRates vehicleRates = get(vehicleType);
+            return vehicleRates != null ? vehicleRates : rates.get(DEFAULT_TYPE);
+        }
+
+        public Map<String, PricingService.VehicleTypeRates> getRates() {
+            return rates;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public long getLoadedAtEpoch() {
+            return loadedAtEpoch;
+        }
+    }
+}
@@ -1,106 +1,260 @@
 package com.drivelah.service;
 
+import com.drivelah.model.Location;
+import com.drivelah.model.Vehicle;
+import com.drivelah.model.VehicleCard;
+import com.drivelah.model.pricing.Money;
 import com.drivelah.model.pricing.PricingCalculation;
+import com.drivelah.model.pricing.PricingKernel;
 import com.drivelah.model.pricing.PricingRequest;
+import com.drivelah.persistence.VehicleService;
+import com.drivelah.util.TtlCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class PricingService {
 
-    private final Map<String, VehicleTypeRates> pricingRates;
+    private static final Logger log = LoggerFactory.getLogger(PricingService.class);
 
-    public PricingService() {
-        pricingRates = new HashMap<>();
-        initializePricingRates();
+    // Hot-reloadable; each calculation reads one immutable snapshot
+    private final PricingRateTable pricingRates;
+    private final SurgePricingEngine surgeEngine;
+    private final DistanceEstimator distanceEstimator;
+
+    // Host-set hourly prices are read from the vehicle document (entity-cached by the repo)
+    private final VehicleService vehicleService;
+
+    // Keyed by the kernel's fixed-point inputs, so only requests with the same exact price share an entry
+    private final TtlCache<QuoteKey, PricingCalculation> quoteCache;
+
+    public PricingService(PricingRateTable pricingRates, SurgePricingEngine surgeEngine,
+                          DistanceEstimator distanceEstimator, VehicleService vehicleService,
+                          @Value("${drivelah.pricing.quote-cache.max-entries:10000}") int quoteCacheMaxEntries,
+                          @Value("${drivelah.pricing.quote-cache.ttl-ms:60000}") long quoteCacheTtlMillis) {
+        this.pricingRates = pricingRates;
+        this.surgeEngine = surgeEngine;
+        this.distanceEstimator = distanceEstimator;
+        this.vehicleService = vehicleService;
+        this.quoteCache = new TtlCache<>(quoteCacheMaxEntries, quoteCacheTtlMillis);
+    }
+
+    /**
+     * Basic request checks shared by the single and batch pricing endpoints
+     *
+     * @throws IllegalArgumentException describing the first problem found
+     */
+    public void validateRequest(PricingRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Pricing request is required");
+        }
+
+        if (request.getVehicleType() == null || request.getVehicleType().trim().isEmpty()) {
+            throw new IllegalArgumentException("Vehicle type is required");
+        }
+
+        if (request.getPlannedStartTime() == null || request.getPlannedEndTime() == null) {
+            throw new IllegalArgumentException("Start and end times are required");
+        }
+
+        if (request.getPlannedEndTime() <= request.getPlannedStartTime()) {
+            throw new IllegalArgumentException("End time must be after start time");
+        }
     }
 
+    /**
+     * Quote for a rental, priced on the exact planned hours and km. Repeated identical
+     * quotes come from the cache; each caller gets its own copy.
+     */
     public PricingCalculation calculatePricing(PricingRequest request) {
+        Vehicle vehicle = request.getVehicleId() != null ? vehicleService.findById(request.getVehicleId()) : null;
+        return calculatePricing(request, vehicle);
+    }
+
+    /**
+     * calculatePricing() for a caller that has already loaded the vehicle, so its
+     * host-set hourly price is the one on that document
+     *
+     * @param vehicle Vehicle being quoted (may be null to use the type rate)
+     */
+    public PricingCalculation calculatePricing(PricingRequest request, Vehicle vehicle) {
         try {
-            VehicleTypeRates rates = pricingRates.get(request.getVehicleType().toUpperCase());
+            PricingRateTable.Snapshot rateTable = pricingRates.current();
+            VehicleTypeRates rates = rateTable.get(request.getVehicleType());
             if (rates == null) {
-                rates = pricingRates.get("STANDARD");
-                System.out.println("Vehicle type " + request.getVehicleType() +
-                        " not found, using STANDARD rates");
+                rates = rateTable.getOrDefault("STANDARD");
+                log.info("Vehicle type {} not found, using STANDARD rates", request.getVehicleType());
             }
+            rates = withCustomRate(rates, vehicle != null ? vehicle.getCustomPricePerHour() : null);
 
             Double plannedHours = request.getPlannedDurationHours();
             if (plannedHours == null || plannedHours <= 0) {
                 throw new IllegalArgumentException("Invalid rental duration");
             }
 
+            // Client estimate first, then pickup -> drop road distance, then the 25 km/h heuristic
             Double estimatedKm = request.getEstimatedKm();
+            if (estimatedKm == null || estimatedKm <= 0) {
+                estimatedKm = distanceEstimator.estimateKm(request.getPickupLocation(), request.getDropLocation());
+            }
             if (estimatedKm == null || estimatedKm <= 0) {
                 estimatedKm = Math.min(plannedHours * 25.0, 200.0);
             }
+            double quotedKm = estimatedKm;
+
+            // The multiplier itself is keyed, so a surge change in this cell is a new entry
+            double surgeMultiplier = surgeEngine.getMultiplier(request.getPickupLocation());
+
+            // Keyed by the hourly rate rather than the vehicle, so equal custom prices share entries.
+            // Hours and km are keyed at the kernel's fixed-point precision: equal keys, equal prices
+            QuoteKey key = new QuoteKey(request.getVehicleType(), rateTable.getVersion(), rates.baseRateMinor,
+                    rates.perKmRateMinor, Money.quantity(plannedHours), Money.quantity(quotedKm),
+                    Money.basisPoints(surgeMultiplier));
+            VehicleTypeRates quotedRates = rates;
 
-            PricingCalculation calculation = new PricingCalculation(
-                    request.getVehicleType(),
-                    rates.baseRatePerHour,
-                    rates.perKmRate,
-                    plannedHours,
-                    estimatedKm
-            );
+            PricingCalculation cached = quoteCache.get(key, quoteKey -> {
+                PricingCalculation calculation = new PricingCalculation(
+                        request.getVehicleType(),
+                        quotedRates.baseRatePerHour,
+                        quotedRates.perKmRate,
+                        plannedHours,
+                        quotedKm,
+                        surgeMultiplier
+                );
+                calculation.setRateVersion(rateTable.getVersion());
 
-            System.out.println("Pricing calculated for " + request.getVehicleType() +
-                    ": " + plannedHours + "h, " + estimatedKm + "km = SGD$" +
-                    calculation.getTotalAmount());
+                log.debug("Pricing calculated for {}: {}h, {}km, surge x{} = SGD${}",
+                        request.getVehicleType(), plannedHours, quotedKm, surgeMultiplier, calculation.getTotalAmount());
 
-            return calculation;
+                return calculation;
+            });
+
+            // Callers may adjust their quote; report this request's own inputs (same fixed-point values)
+            PricingCalculation quote = cached.copy();
+            quote.setPlannedHours(plannedHours);
+            quote.setEstimatedKm(quotedKm);
+            return quote;
 
         } catch (Exception e) {
-            System.err.println("Pricing calculation error: " + e.getMessage());
+            log.error("Pricing calculation error", e);
             throw new RuntimeException("Failed to calculate pricing: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Quote cache size and hit / miss counters, for monitoring
+     */
+    public Map<String, Object> getQuoteCacheStats() {
+        return quoteCache.getStats();
+    }
+
     public VehicleTypeRates getRatesForVehicleType(String vehicleType) {
-        return pricingRates.get(vehicleType.toUpperCase());
+        return pricingRates.current().get(vehicleType);
     }
 
     public Map<String, VehicleTypeRates> getAllRates() {
-        return new HashMap<>(pricingRates);
+        return new HashMap<>(pricingRates.current().getRates());
     }
 
     public Double getEstimatePrice(String vehicleType, Double hours) {
-        VehicleTypeRates rates = pricingRates.get(vehicleType.toUpperCase());
-        if (rates == null) {
-            rates = pricingRates.get("STANDARD");
+        return getEstimatePrice(vehicleType, hours, null);
+    }
+
+    /**
+     * Estimate including the current surge at the pickup location (used for search quotes)
+     */
+    public Double getEstimatePrice(String vehicleType, Double hours, Location pickupLocation) {
+        return getEstimatePrice(null, vehicleType, hours, pickupLocation);
+    }
+
+    /**
+     * Estimate for a specific vehicle, honouring its host-set hourly price
+     *
+     * @param customPricePerHour Vehicle's custom hourly price (may be null to use the type rate)
+     */
+    public Double getEstimatePrice(Double customPricePerHour, String vehicleType, Double hours, Location pickupLocation) {
+        VehicleTypeRates rates = withCustomRate(pricingRates.current().getOrDefault(vehicleType), customPricePerHour);
+
+        long totalMinor = PricingKernel.total(
+                rates.baseRateMinor,
+                rates.perKmRateMinor,
+                Money.quantity(hours),
+                Money.quantity(hours * 25.0),
+                Money.basisPoints(surgeEngine.getMultiplier(pickupLocation)));
+
+        return Money.toMajor(totalMinor);
+    }
+
+    /**
+     * Search-result quotes, one per vehicle in the same order. Surge is read at the
+     * searcher's pickup cell, the cell recordSearch() counts the search in, rather than
+     * at each vehicle's own location, so quotes rise where the searches are.
+     */
+    public List<Double> getSearchFares(List<VehicleCard> vehicles, Double hours, Location searchPickupLocation) {
+        List<Double> fares = new ArrayList<>(vehicles.size());
+        for (VehicleCard vehicle : vehicles) {
+            fares.add(getEstimatePrice(vehicle.getCustomPricePerHour(), vehicle.getVehicleType(), hours,
+                    searchPickupLocation));
         }
+        return fares;
+    }
 
-        Double baseAmount = hours * rates.baseRatePerHour;
-        Double distanceAmount = (hours * 25.0) * rates.perKmRate;
-        Double subtotal = baseAmount + distanceAmount;
-        Double serviceFee = subtotal * 0.10;
+    // Private helper methods
 
-        return subtotal + serviceFee;
+    private static VehicleTypeRates withCustomRate(VehicleTypeRates rates, Double customPricePerHour) {
+        if (customPricePerHour == null || customPricePerHour <= 0) {
+            return rates;
+        }
+        return new VehicleTypeRates(rates.vehicleType, customPricePerHour, rates.perKmRate, rates.description);
     }
 
-    private void initializePricingRates() {
-        pricingRates.put("ECONOMY", new VehicleTypeRates(
-                "ECONOMY",
-                8.0,
-                0.30,
-                "Budget-friendly cars perfect for city driving. Includes Toyota Vios, Honda City, Nissan Almera."
-        ));
-
-        pricingRates.put("STANDARD", new VehicleTypeRates(
-                "STANDARD",
-                12.0,
-                0.45,
-                "Comfortable mid-range vehicles. Includes Toyota Altis, Honda Civic, Mazda 3."
-        ));
-
-        pricingRates.put("PREMIUM", new VehicleTypeRates(
-                "PREMIUM",
-                25.0,
-                0.80,
-                "Luxury vehicles for special occasions. Includes BMW 3 Series, Mercedes C-Class, Audi A4."
-        ));
-
-        System.out.println("Initialized pricing rates for " + pricingRates.size() + " vehicle types");
+    private static final class QuoteKey {
+        private final String vehicleType;
+        private final long rateVersion;
+        private final long baseRateMinor;
+        private final long perKmRateMinor;
+        private final long hoursQuantity;
+        private final long kmQuantity;
+        private final long surgeBasisPoints;
+
+        QuoteKey(String vehicleType, long rateVersion, long baseRateMinor, long perKmRateMinor,
+                 long hoursQuantity, long kmQuantity, long surgeBasisPoints) {
+            this.vehicleType = vehicleType;
+            this.rateVersion = rateVersion;
+            this.baseRateMinor = baseRateMinor;
+            this.perKmRateMinor = perKmRateMinor;
+            this.hoursQuantity = hoursQuantity;
+            this.kmQuantity = kmQuantity;
+            this.surgeBasisPoints = surgeBasisPoints;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof QuoteKey)) return false;
+            QuoteKey other = (QuoteKey) o;
+            return rateVersion == other.rateVersion
+                    && baseRateMinor == other.baseRateMinor
+                    && perKmRateMinor == other.perKmRateMinor
+                    && hoursQuantity == other.hoursQuantity
+                    && kmQuantity == other.kmQuantity
+                    && surgeBasisPoints == other.surgeBasisPoints
+                    && Objects.equals(vehicleType, other.vehicleType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(vehicleType, rateVersion, baseRateMinor, perKmRateMinor, hoursQuantity, kmQuantity,
+                    surgeBasisPoints);
+        }
     }
 
     public static class VehicleTypeRates {
@@ -109,12 +263,18 @@ public class PricingService {
         public final Double perKmRate;
         public final String description;
 
+        // Converted once per rate table load for the kernel
+        final long baseRateMinor;
+        final long perKmRateMinor;
+
         public VehicleTypeRates(String vehicleType, Double baseRatePerHour,
                                 Double perKmRate, String description) {
             this.vehicleType = vehicleType;
             this.baseRatePerHour = baseRatePerHour;
             this.perKmRate = perKmRate;
             this.description = description;
+            this.baseRateMinor = Money.ofMajor(baseRatePerHour);
+            this.perKmRateMinor = Money.ofMajor(perKmRate);
         }
 
         public String getVehicleType() {
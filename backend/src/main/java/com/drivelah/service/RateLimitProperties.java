@@ -0,0 +1,78 @@
+package com.drivelah.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rate limit configuration bound from application.yml
+ *
+ * drivelah:
+ *   rate-limit:
+ *     enabled: true
+ *     routes:
+ *       "[/auth/login]":
+ *         capacity: 10
+ *         refill-per-second: 0.2
+ *     role-multipliers:
+ *       ADMIN: 5
+ *
+ * Route keys are controller mapping patterns (e.g. /trip/{tripId}/start), without the
+ * /api context path. Routes not listed are not limited. The role multiplier scales both
+ * capacity and refill rate; callers without a valid token use the ANONYMOUS entry.
+ */
+@Component
+@ConfigurationProperties(prefix = "drivelah.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    private Map<String, RouteLimit> routes = new HashMap<>();
+    private Map<String, Double> roleMultipliers = new HashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Map<String, RouteLimit> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, RouteLimit> routes) {
+        this.routes = routes;
+    }
+
+    public Map<String, Double> getRoleMultipliers() {
+        return roleMultipliers;
+    }
+
+    public void setRoleMultipliers(Map<String, Double> roleMultipliers) {
+        this.roleMultipliers = roleMultipliers;
+    }
+
+    public static class RouteLimit {
+        private int capacity;
+        private double refillPerSecond;
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public void setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+}
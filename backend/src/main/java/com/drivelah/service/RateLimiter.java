@@ -0,0 +1,118 @@
+package com.drivelah.service;
+
+import com.drivelah.util.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process rate limiter: one token bucket per (route, client)
+ *
+ * A client is the authenticated userId, or the remote address for anonymous callers.
+ * Buckets live in a ConcurrentHashMap and each is a single AtomicLong, so the request
+ * path takes no locks. Full (idle) buckets are evicted every minute to bound memory.
+ */
+@Service
+public class RateLimiter {
+
+    private static final String ANONYMOUS = "ANONYMOUS";
+
+    private final RateLimitProperties properties;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, RouteCounters> counters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+
+    public RateLimiter(RateLimitProperties properties) {
+        this.properties = properties;
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        properties.getRoutes().keySet().forEach(route -> counters.put(route, new RouteCounters()));
+        evictor.scheduleWithFixedDelay(this::evictIdleBuckets, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evictor.shutdown();
+    }
+
+    /**
+     * @param route Controller mapping pattern
+     * @return true if requests to this route are rate limited
+     */
+    public boolean isLimited(String route) {
+        return properties.isEnabled() && route != null && properties.getRoutes().containsKey(route);
+    }
+
+    /**
+     * Take one token for this client on this route
+     *
+     * @param route Controller mapping pattern (must be a limited route)
+     * @param role AuthUser role, or null for anonymous callers
+     * @param clientKey userId or remote address
+     * @return 0 if allowed, otherwise nanoseconds until the next token
+     */
+    public long tryAcquire(String route, String role, String clientKey) {
+        RateLimitProperties.RouteLimit limit = properties.getRoutes().get(route);
+        long now = System.nanoTime();
+
+        TokenBucket bucket = buckets.computeIfAbsent(route + "|" + clientKey, key -> {
+            double multiplier = properties.getRoleMultipliers().getOrDefault(role != null ? role : ANONYMOUS, 1.0);
+            int capacity = Math.max(1, (int) Math.round(limit.getCapacity() * multiplier));
+            return new TokenBucket(capacity, limit.getRefillPerSecond() * multiplier, now);
+        });
+
+        long waitNanos = bucket.tryAcquire(now);
+        RouteCounters routeCounters = counters.get(route);
+        if (waitNanos == 0) {
+            routeCounters.allowed.increment();
+        } else {
+            routeCounters.rejected.increment();
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Allowed / rejected counts per route, for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("activeBuckets", buckets.size());
+        Map<String, Object> routes = new LinkedHashMap<>();
+        counters.forEach((route, routeCounters) -> {
+            Map<String, Object> routeStats = new LinkedHashMap<>();
+            routeStats.put("allowed", routeCounters.allowed.sum());
+            routeStats.put("rejected", routeCounters.rejected.sum());
+            routes.put(route, routeStats);
+        });
+        stats.put("routes", routes);
+        return stats;
+    }
+
+    // Private helper methods
+
+    private void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> entry.getValue().isIdle(now));
+    }
+
+    private static class RouteCounters {
+        final LongAdder allowed = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+    }
+}
@@ -0,0 +1,268 @@
+package com.drivelah.service;
+
+import com.drivelah.model.pricing.Money;
+import com.drivelah.model.pricing.PricingKernel;
+import com.drivelah.model.trip.SettlementLine;
+import com.drivelah.model.trip.Trip;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Final fare for a completed trip, from actual duration and odometer distance
+ *
+ * The rule list (drivelah.settlement.rules) is compiled once at startup into an ordered
+ * list of functions with their parameters already converted to Money minor units; each
+ * settlement just runs the list over a fresh context. Rules see the lines added by the
+ * rules before them, so order matters (SURGE scales what is billed so far, SERVICE_FEE
+ * should come last).
+ *
+ * TIME         planned hours x hourly rate (actual hours if there was no plan)
+ * DISTANCE     min(actual km, included km) x per-km rate
+ * SURGE        charges so far x (surge at booking - 1)
+ * LATE_RETURN  hours past planned end x hourly rate x late-multiplier, once past the grace period
+ * EXTRA_KM     km beyond the included km x per-km rate x extra-km-multiplier
+ * CLEANING     flat cleaning-fee when the renter flags it on return
+ * SERVICE_FEE  10% of all charges, as in the quote
+ *
+ * Durations are billed in 15-minute steps, rounded up. Rates are the ones snapshotted on
+ * the trip at booking; the current table and host price are only used for trips booked
+ * before the snapshot was recorded.
+ */
+@Service
+public class SettlementEngine {
+
+    private static final long QUARTER_HOUR = Money.QUANTITY_SCALE / 4;
+
+    private final PricingRateTable pricingRates;
+    private final List<SettlementRule> rules;
+    private final List<String> ruleNames;
+
+    public SettlementEngine(PricingRateTable pricingRates,
+                            @Value("${drivelah.settlement.rules:TIME,DISTANCE,SURGE,LATE_RETURN,EXTRA_KM,CLEANING,SERVICE_FEE}") String[] ruleNames,
+                            @Value("${drivelah.settlement.late-grace-minutes:30}") long lateGraceMinutes,
+                            @Value("${drivelah.settlement.late-multiplier:1.5}") double lateMultiplier,
+                            @Value("${drivelah.settlement.extra-km-multiplier:1.25}") double extraKmMultiplier,
+                            @Value("${drivelah.settlement.cleaning-fee:500}") double cleaningFee) {
+        this.pricingRates = pricingRates;
+
+        long lateGrace = lateGraceMinutes * Money.QUANTITY_SCALE / 60;
+        long lateBasisPoints = Money.basisPoints(lateMultiplier);
+        long extraKmBasisPoints = Money.basisPoints(extraKmMultiplier);
+        long cleaningFeeMinor = Money.ofMajor(cleaningFee);
+
+        List<SettlementRule> compiled = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (String rawName : ruleNames) {
+            String name = rawName.trim().toUpperCase(Locale.ROOT);
+            if (name.isEmpty()) {
+                continue;
+            }
+            compiled.add(compile(name, lateGrace, lateBasisPoints, extraKmBasisPoints, cleaningFeeMinor));
+            names.add(name);
+        }
+        this.rules = Collections.unmodifiableList(compiled);
+        this.ruleNames = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Settle a trip that has actual start and end times
+     *
+     * @param trip Trip being completed (read only)
+     * @param vehicleType Vehicle type for rates; unknown types use STANDARD
+     * @param requiresCleaning Cleaning flag from the return form
+     */
+    public Settlement settle(Trip trip, String vehicleType, boolean requiresCleaning) {
+        return settle(trip, vehicleType, null, requiresCleaning);
+    }
+
+    /**
+     * Settle a trip for a vehicle with a host-set hourly price
+     *
+     * @param customPricePerHour Replaces the type's hourly rate when positive and the trip has
+     *                           no booked hourly rate
+     */
+    public Settlement settle(Trip trip, String vehicleType, Double customPricePerHour, boolean requiresCleaning) {
+        Double actualHours = trip.getActualDurationHours();
+        if (actualHours == null) {
+            throw new IllegalStateException("Trip has no actual start and end time to settle");
+        }
+
+        PricingService.VehicleTypeRates rates = pricingRates.current().getOrDefault(vehicleType);
+        Double plannedHours = trip.getPlannedDurationHours();
+        Long distanceTraveled = trip.getDistanceTraveled();
+        Double includedKm = trip.getIncludedKm();
+        if (includedKm == null) {
+            // Trips booked before included km was recorded: the quote's old default
+            includedKm = plannedHours != null ? Math.min(plannedHours * 25.0, 200.0) : 0.0;
+        }
+
+        long baseRateMinor = trip.getBookedHourlyRate() != null ? Money.ofMajor(trip.getBookedHourlyRate())
+                : customPricePerHour != null && customPricePerHour > 0 ? Money.ofMajor(customPricePerHour) : rates.baseRateMinor;
+        long perKmRateMinor = trip.getBookedPerKmRate() != null ? Money.ofMajor(trip.getBookedPerKmRate())
+                : rates.perKmRateMinor;
+
+        SettlementContext context = new SettlementContext(
+                baseRateMinor,
+                perKmRateMinor,
+                plannedHours != null ? Money.quantity(plannedHours) : -1,
+                Money.quantity(actualHours),
+                Money.quantity(includedKm),
+                distanceTraveled != null ? Money.quantity(distanceTraveled) : Money.quantity(includedKm),
+                trip.getSurgeMultiplier() != null ? Money.basisPoints(trip.getSurgeMultiplier()) : Money.BASIS_POINTS,
+                requiresCleaning);
+
+        for (SettlementRule rule : rules) {
+            rule.apply(context);
+        }
+
+        return new Settlement(context.lines, context.totalMinor);
+    }
+
+    public List<String> getRuleNames() {
+        return ruleNames;
+    }
+
+    // Private helper methods
+
+    private static SettlementRule compile(String name, long lateGrace, long lateBasisPoints,
+                                          long extraKmBasisPoints, long cleaningFeeMinor) {
+        switch (name) {
+            case "TIME":
+                return context -> {
+                    long hours = billableHours(context.plannedHours >= 0 ? context.plannedHours : context.actualHours);
+                    context.add("TIME", String.format("%s h x %s/h", quantity(hours), major(context.baseRateMinor)),
+                            Money.times(context.baseRateMinor, hours));
+                };
+            case "DISTANCE":
+                return context -> {
+                    long km = Math.min(context.actualKm, context.includedKm);
+                    context.add("DISTANCE", String.format("%s km x %s/km", quantity(km), major(context.perKmRateMinor)),
+                            Money.times(context.perKmRateMinor, km));
+                };
+            case "SURGE":
+                return context -> {
+                    if (context.surgeBasisPoints > Money.BASIS_POINTS) {
+                        context.add("SURGE", String.format("Demand surge x%s at booking",
+                                        context.surgeBasisPoints / (double) Money.BASIS_POINTS),
+                                Money.percent(context.totalMinor, context.surgeBasisPoints - Money.BASIS_POINTS));
+                    }
+                };
+            case "LATE_RETURN":
+                return context -> {
+                    if (context.plannedHours < 0) {
+                        return;
+                    }
+                    long overtime = context.actualHours - context.plannedHours;
+                    if (overtime > lateGrace) {
+                        long hours = billableHours(overtime);
+                        context.add("LATE_RETURN", String.format("%s h late x %s/h x%s", quantity(hours),
+                                        major(context.baseRateMinor), lateBasisPoints / (double) Money.BASIS_POINTS),
+                                Money.percent(Money.times(context.baseRateMinor, hours), lateBasisPoints));
+                    }
+                };
+            case "EXTRA_KM":
+                return context -> {
+                    long extraKm = context.actualKm - context.includedKm;
+                    if (extraKm > 0) {
+                        context.add("EXTRA_KM", String.format("%s km over %s included x %s/km x%s", quantity(extraKm),
+                                        quantity(context.includedKm), major(context.perKmRateMinor),
+                                        extraKmBasisPoints / (double) Money.BASIS_POINTS),
+                                Money.percent(Money.times(context.perKmRateMinor, extraKm), extraKmBasisPoints));
+                    }
+                };
+            case "CLEANING":
+                return context -> {
+                    if (context.requiresCleaning) {
+                        context.add("CLEANING", "Cleaning fee", cleaningFeeMinor);
+                    }
+                };
+            case "SERVICE_FEE":
+                return context -> context.add("SERVICE_FEE", "Service fee (10%)",
+                        Money.percent(context.totalMinor, PricingKernel.FEE_BASIS_POINTS));
+            default:
+                throw new IllegalArgumentException("Unknown settlement rule: " + name);
+        }
+    }
+
+    // Round fixed-point hours up to whole quarter hours
+    private static long billableHours(long hours) {
+        return (hours + QUARTER_HOUR - 1) / QUARTER_HOUR * QUARTER_HOUR;
+    }
+
+    private static String quantity(long fixedPoint) {
+        return String.format(Locale.ROOT, "%.2f", fixedPoint / (double) Money.QUANTITY_SCALE);
+    }
+
+    private static String major(long minor) {
+        return String.format(Locale.ROOT, "%.2f", Money.toMajor(minor));
+    }
+
+    @FunctionalInterface
+    interface SettlementRule {
+        void apply(SettlementContext context);
+    }
+
+    /**
+     * Inputs for one settlement (fixed-point, minor units) plus the lines produced so far
+     */
+    static final class SettlementContext {
+        final long baseRateMinor;
+        final long perKmRateMinor;
+        final long plannedHours;      // -1 if the trip had no planned window
+        final long actualHours;
+        final long includedKm;
+        final long actualKm;
+        final long surgeBasisPoints;
+        final boolean requiresCleaning;
+
+        final List<SettlementLine> lines = new ArrayList<>();
+        long totalMinor;
+
+        SettlementContext(long baseRateMinor, long perKmRateMinor, long plannedHours, long actualHours,
+                          long includedKm, long actualKm, long surgeBasisPoints, boolean requiresCleaning) {
+            this.baseRateMinor = baseRateMinor;
+            this.perKmRateMinor = perKmRateMinor;
+            this.plannedHours = plannedHours;
+            this.actualHours = actualHours;
+            this.includedKm = includedKm;
+            this.actualKm = actualKm;
+            this.surgeBasisPoints = surgeBasisPoints;
+            this.requiresCleaning = requiresCleaning;
+        }
+
+        void add(String code, String description, long amountMinor) {
+            lines.add(new SettlementLine(code, description, Money.toMajor(amountMinor)));
+            totalMinor += amountMinor;
+        }
+    }
+
+    /**
+     * Result of settling one trip
+     */
+    public static class Settlement {
+        private final List<SettlementLine> lines;
+        private final long totalMinor;
+
+        Settlement(List<SettlementLine> lines, long totalMinor) {
+            this.lines = lines;
+            this.totalMinor = totalMinor;
+        }
+
+        public List<SettlementLine> getLines() {
+            return lines;
+        }
+
+        public long getTotalMinor() {
+            return totalMinor;
+        }
+
+        public Double getTotal() {
+            return Money.toMajor(totalMinor);
+        }
+    }
+}
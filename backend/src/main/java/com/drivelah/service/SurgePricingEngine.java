@@ -0,0 +1,219 @@
+package com.drivelah.service;
+
+import com.drivelah.model.Location;
+import com.drivelah.util.GeoCell;
+import com.drivelah.util.SlidingWindowCounter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Demand-driven surge multipliers per geo cell
+ *
+ * Searches and bookings are counted per grid cell in sliding windows of per-second
+ * buckets (lock-free, see SlidingWindowCounter). A background thread recomputes the
+ * multiplier of every active cell once per recompute interval and publishes them as an
+ * immutable map, so pricing only does one hash lookup per quote.
+ *
+ * demand     = searches + booking-weight * bookings   (over window-seconds)
+ * multiplier = 1 + sensitivity * (demand / baseline-demand - 1), clamped to
+ *              [1, max-multiplier] and rounded down to a multiple of step
+ */
+@Service
+public class SurgePricingEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(SurgePricingEngine.class);
+
+    private final double cellSizeDegrees;
+    private final int windowSeconds;
+    private final double baselineDemand;
+    private final double bookingWeight;
+    private final double sensitivity;
+    private final double maxMultiplier;
+    private final double step;
+    private final long recomputeIntervalMillis;
+
+    private final Map<Long, CellDemand> cells = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService recomputer;
+
+    // Only cells with a multiplier above 1.0; replaced wholesale on every recompute
+    private volatile Map<Long, Double> multipliers = Collections.emptyMap();
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastRecomputeMicros;
+
+    public SurgePricingEngine(@Value("${drivelah.surge.cell-size-degrees:0.02}") double cellSizeDegrees,
+                              @Value("${drivelah.surge.window-seconds:900}") int windowSeconds,
+                              @Value("${drivelah.surge.baseline-demand:40}") double baselineDemand,
+                              @Value("${drivelah.surge.booking-weight:5}") double bookingWeight,
+                              @Value("${drivelah.surge.sensitivity:0.5}") double sensitivity,
+                              @Value("${drivelah.surge.max-multiplier:2.0}") double maxMultiplier,
+                              @Value("${drivelah.surge.step:0.05}") double step,
+                              @Value("${drivelah.surge.recompute-interval-ms:5000}") long recomputeIntervalMillis) {
+        if (cellSizeDegrees <= 0 || baselineDemand <= 0 || maxMultiplier < 1.0 || step <= 0) {
+            throw new IllegalArgumentException("Invalid surge configuration");
+        }
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.windowSeconds = windowSeconds;
+        this.baselineDemand = baselineDemand;
+        this.bookingWeight = bookingWeight;
+        this.sensitivity = sensitivity;
+        this.maxMultiplier = maxMultiplier;
+        this.step = step;
+        this.recomputeIntervalMillis = recomputeIntervalMillis;
+        this.recomputer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "surge-recompute");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        recomputer.scheduleWithFixedDelay(this::recomputeSafely,
+                recomputeIntervalMillis, recomputeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        recomputer.shutdown();
+    }
+
+    public void recordSearch(Location location) {
+        CellDemand demand = demandFor(location);
+        if (demand != null) {
+            demand.searches.increment(demand.touch());
+        }
+    }
+
+    public void recordBooking(Location location) {
+        CellDemand demand = demandFor(location);
+        if (demand != null) {
+            demand.bookings.increment(demand.touch());
+        }
+    }
+
+    /**
+     * Current multiplier for the cell containing this location, 1.0 if not surging
+     */
+    public double getMultiplier(Location location) {
+        if (!isKnown(location)) {
+            return 1.0;
+        }
+        Double multiplier = multipliers.get(GeoCell.cellId(location.getLat(), location.getLon(), cellSizeDegrees));
+        return multiplier != null ? multiplier : 1.0;
+    }
+
+    /**
+     * Incremented whenever the published multipliers change
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Recompute and publish all multipliers now
+     */
+    public void recompute() {
+        long startNanos = System.nanoTime();
+        long now = Instant.now().getEpochSecond();
+
+        Map<Long, Double> computed = new HashMap<>();
+        cells.entrySet().removeIf(entry -> {
+            CellDemand demand = entry.getValue();
+            double load = demand.searches.sum(now) + bookingWeight * demand.bookings.sum(now);
+            if (load == 0) {
+                // Nothing left in the window; a concurrent record() simply re-creates the cell
+                return now - demand.lastEventSecond >= windowSeconds;
+            }
+            double multiplier = multiplierFor(load);
+            if (multiplier > 1.0) {
+                computed.put(entry.getKey(), multiplier);
+            }
+            return false;
+        });
+
+        if (!computed.equals(multipliers)) {
+            multipliers = Collections.unmodifiableMap(computed);
+            version.incrementAndGet();
+        }
+        lastRecomputeMicros = (System.nanoTime() - startNanos) / 1000;
+    }
+
+    /**
+     * Tracked / surging cells and the hottest multiplier, for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<Long, Double> published = multipliers;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("trackedCells", cells.size());
+        stats.put("surgingCells", published.size());
+        stats.put("maxActiveMultiplier", published.values().stream().mapToDouble(Double::doubleValue).max().orElse(1.0));
+        stats.put("version", version.get());
+        stats.put("lastRecomputeMicros", lastRecomputeMicros);
+        stats.put("windowSeconds", windowSeconds);
+        stats.put("cellSizeDegrees", cellSizeDegrees);
+        return stats;
+    }
+
+    // Private helper methods
+
+    private void recomputeSafely() {
+        try {
+            recompute();
+        } catch (Exception e) {
+            log.error("Surge recompute failed", e);
+        }
+    }
+
+    private double multiplierFor(double load) {
+        double raw = 1.0 + sensitivity * (load / baselineDemand - 1.0);
+        double clamped = Math.min(maxMultiplier, Math.max(1.0, raw));
+        // Round down to whole steps so quotes do not jitter with every extra search
+        double stepped = Math.floor(clamped / step + 1e-9) * step;
+        return Math.round(stepped * 10000) / 10000.0;
+    }
+
+    private CellDemand demandFor(Location location) {
+        if (!isKnown(location)) {
+            return null;
+        }
+        long cellId = GeoCell.cellId(location.getLat(), location.getLon(), cellSizeDegrees);
+        return cells.computeIfAbsent(cellId, id -> new CellDemand(windowSeconds));
+    }
+
+    // Location is primitive lat/lon, so (0, 0) means the client sent none
+    private static boolean isKnown(Location location) {
+        return location != null && (location.getLat() != 0.0 || location.getLon() != 0.0);
+    }
+
+    private static class CellDemand {
+        final SlidingWindowCounter searches;
+        final SlidingWindowCounter bookings;
+        volatile long lastEventSecond;
+
+        CellDemand(int windowSeconds) {
+            this.searches = new SlidingWindowCounter(windowSeconds);
+            this.bookings = new SlidingWindowCounter(windowSeconds);
+        }
+
+        long touch() {
+            long now = Instant.now().getEpochSecond();
+            lastEventSecond = now;
+            return now;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.drivelah.service;
+
+import com.drivelah.client.MongoRepo;
+import com.drivelah.model.auth.RevokedToken;
+import com.drivelah.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token revocation store with a Bloom-filter fast path
+ *
+ * The revokedToken collection is authoritative. In front of it sits an in-memory Bloom
+ * filter of revoked token ids, so the common "not revoked" answer costs a few hash
+ * probes and no database round trip. Only Bloom hits (real revocations plus the
+ * occasional false positive) are checked against Mongo.
+ *
+ * The filter is rebuilt from the collection on startup and every rebuild-interval-ms,
+ * which drops expired entries and picks up revocations made by other instances.
+ * Local revocations published while a rebuild is loading are recorded and re-applied to
+ * the new filter before it is swapped in, so a rebuild never loses one.
+ *
+ * Configuration (application.yml):
+ * drivelah:
+ *   auth:
+ *     revocation:
+ *       expected-revocations: 100000
+ *       false-positive-rate: 0.01
+ *       rebuild-interval-ms: 300000
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final MongoRepo<RevokedToken> revokedTokenRepo;
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+    private final long rebuildIntervalMillis;
+    private final ScheduledExecutorService rebuilder;
+
+    private volatile BloomFilter revokedFilter;
+    // Ids confirmed revoked by the store, so repeated use of a revoked token stays off the DB
+    private volatile Set<String> confirmedRevoked = ConcurrentHashMap.newKeySet();
+
+    // Serializes local publishes with the filter swap; revokedDuringRebuild is non-null while a rebuild loads
+    private final Object publishLock = new Object();
+    private Set<String> revokedDuringRebuild;
+
+    // Metrics
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong bloomHits = new AtomicLong();
+    private final AtomicLong storeLookups = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    public TokenRevocationService(MongoRepo<RevokedToken> revokedTokenRepo,
+                                  @Value("${drivelah.auth.revocation.expected-revocations:100000}") long expectedRevocations,
+                                  @Value("${drivelah.auth.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                                  @Value("${drivelah.auth.revocation.rebuild-interval-ms:300000}") long rebuildIntervalMillis) {
+        this.revokedTokenRepo = revokedTokenRepo;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildIntervalMillis = rebuildIntervalMillis;
+        this.revokedFilter = new BloomFilter(expectedRevocations, falsePositiveRate);
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "revocation-filter-rebuilder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuildFilter();
+        rebuilder.scheduleWithFixedDelay(this::rebuildFilter,
+                rebuildIntervalMillis, rebuildIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdown();
+    }
+
+    /**
+     * Revoke a token until its natural expiry
+     *
+     * @param tokenId Token id (jti)
+     * @param userId Owner of the token
+     * @param revokedBy User performing the revocation
+     * @param expiresAtEpoch When the token would have expired anyway
+     */
+    public void revoke(String tokenId, String userId, String revokedBy, long expiresAtEpoch) {
+        revokedTokenRepo.save(new RevokedToken(tokenId, userId, revokedBy,
+                Instant.now().toEpochMilli(), expiresAtEpoch));
+        // Publish locally only after the authoritative write succeeded
+        synchronized (publishLock) {
+            revokedFilter.put(tokenId);
+            confirmedRevoked.add(tokenId);
+            if (revokedDuringRebuild != null) {
+                revokedDuringRebuild.add(tokenId);
+            }
+        }
+    }
+
+    /**
+     * @param tokenId Token id (jti)
+     * @return true if the token has been revoked
+     */
+    public boolean isRevoked(String tokenId) {
+        checks.incrementAndGet();
+        if (!revokedFilter.mightContain(tokenId)) {
+            return false;
+        }
+
+        bloomHits.incrementAndGet();
+        if (confirmedRevoked.contains(tokenId)) {
+            return true;
+        }
+
+        storeLookups.incrementAndGet();
+        Query query = new Query(Criteria.where(RevokedToken.FM.ID).is(tokenId));
+        if (revokedTokenRepo.exists(query, RevokedToken.class)) {
+            confirmedRevoked.add(tokenId);
+            return true;
+        }
+
+        falsePositives.incrementAndGet();
+        return false;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("checks", checks.get());
+        stats.put("bloomHits", bloomHits.get());
+        stats.put("storeLookups", storeLookups.get());
+        stats.put("falsePositives", falsePositives.get());
+        stats.put("confirmedRevokedCached", confirmedRevoked.size());
+        stats.put("filterBits", revokedFilter.getBitCount());
+        stats.put("filterHashFunctions", revokedFilter.getHashFunctions());
+        return stats;
+    }
+
+    // Private helper methods
+
+    private void rebuildFilter() {
+        // Anything published from here on may be missing from the load below
+        synchronized (publishLock) {
+            revokedDuringRebuild = new HashSet<>();
+        }
+        try {
+            Query live = new Query(Criteria.where(RevokedToken.FM.EXPIRES_AT_EPOCH).gt(Instant.now().toEpochMilli()));
+            List<RevokedToken> revoked = revokedTokenRepo.find(live, RevokedToken.class);
+
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2L), falsePositiveRate);
+            Set<String> confirmed = ConcurrentHashMap.newKeySet();
+            for (RevokedToken token : revoked) {
+                rebuilt.put(token.getId());
+                confirmed.add(token.getId());
+            }
+
+            synchronized (publishLock) {
+                // Tokens revoked on this instance while we were loading must survive the swap
+                for (String tokenId : revokedDuringRebuild) {
+                    rebuilt.put(tokenId);
+                    confirmed.add(tokenId);
+                }
+                revokedFilter = rebuilt;
+                confirmedRevoked = confirmed;
+            }
+            log.info("Token revocation filter rebuilt with {} revoked tokens", revoked.size());
+        } catch (Exception e) {
+            // Keep serving with the previous filter; revocations are still in Mongo
+            log.error("Token revocation filter rebuild failed", e);
+        } finally {
+            synchronized (publishLock) {
+                revokedDuringRebuild = null;
+            }
+        }
+    }
+}
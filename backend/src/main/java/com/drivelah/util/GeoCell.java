@@ -0,0 +1,34 @@
+package com.drivelah.util;
+
+/**
+ * Fixed-size lat/lon grid cells packed into a long id
+ *
+ * A cell is cellSizeDegrees on each side (0.02 degrees is roughly 2 km). The id packs
+ * the row (latitude index) in the high 32 bits and the column in the low 32 bits, so it
+ * can key hash maps without allocating a key object.
+ */
+public final class GeoCell {
+
+    private GeoCell() {
+    }
+
+    public static long cellId(double lat, double lon, double cellSizeDegrees) {
+        int row = (int) Math.floor(lat / cellSizeDegrees);
+        int col = (int) Math.floor(lon / cellSizeDegrees);
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Latitude of the cell centre
+     */
+    public static double centerLat(long cellId, double cellSizeDegrees) {
+        return ((int) (cellId >> 32) + 0.5) * cellSizeDegrees;
+    }
+
+    /**
+     * Longitude of the cell centre
+     */
+    public static double centerLon(long cellId, double cellSizeDegrees) {
+        return ((int) cellId + 0.5) * cellSizeDegrees;
+    }
+}
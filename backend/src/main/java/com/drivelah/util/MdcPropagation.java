@@ -0,0 +1,42 @@
+package com.drivelah.util;
+
+import org.slf4j.MDC;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Carries the logging MDC (correlation id etc.) from the submitting thread to pool threads
+ */
+public final class MdcPropagation {
+
+    private MdcPropagation() {
+    }
+
+    /**
+     * Executor that runs each task with the MDC of the thread that submitted it
+     */
+    public static Executor wrap(Executor delegate) {
+        return command -> delegate.execute(withCurrentContext(command));
+    }
+
+    public static Runnable withCurrentContext(Runnable task) {
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            MDC.setContextMap(context);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    MDC.setContextMap(previous);
+                } else {
+                    MDC.clear();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package com.drivelah.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free sliding-window event counter with per-second buckets
+ *
+ * A ring of windowSeconds slots; each slot packs (epoch second, count) into one long,
+ * high 32 bits for the second and low 32 bits for the count. Incrementing is a CAS on a
+ * single slot: if the slot still belongs to the current second the count goes up,
+ * otherwise the slot is recycled for the current second. Slots older than the window
+ * are ignored when summing, so no background reset is needed.
+ */
+public class SlidingWindowCounter {
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final AtomicLongArray slots;
+    private final int windowSeconds;
+
+    public SlidingWindowCounter(int windowSeconds) {
+        if (windowSeconds <= 0) {
+            throw new IllegalArgumentException("Window must be at least one second");
+        }
+        this.windowSeconds = windowSeconds;
+        this.slots = new AtomicLongArray(windowSeconds);
+    }
+
+    public void increment(long epochSecond) {
+        int index = (int) (epochSecond % windowSeconds);
+        long stamp = epochSecond & COUNT_MASK;
+        while (true) {
+            long current = slots.get(index);
+            long updated = (current >>> 32) == stamp
+                    ? current + 1
+                    : (stamp << 32) | 1;
+            if (slots.compareAndSet(index, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Events in the last windowSeconds seconds, including the current one
+     */
+    public long sum(long epochSecond) {
+        long total = 0;
+        for (int i = 0; i < windowSeconds; i++) {
+            long slot = slots.get(i);
+            long age = epochSecond - slotSecond(slot >>> 32, epochSecond);
+            if (age >= 0 && age < windowSeconds) {
+                total += slot & COUNT_MASK;
+            }
+        }
+        return total;
+    }
+
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    // Rebuild the full epoch second from its low 32 bits, assuming it is near now
+    private static long slotSecond(long stamp, long epochSecond) {
+        return (epochSecond & ~COUNT_MASK) | stamp;
+    }
+}
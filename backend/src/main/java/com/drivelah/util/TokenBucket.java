@@ -0,0 +1,58 @@
+package com.drivelah.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket held in a single AtomicLong
+ *
+ * Implemented as GCRA (generic cell rate algorithm): instead of storing a token count and
+ * a refill timestamp (two fields that would need a lock to update together), we store one
+ * "theoretical arrival time". Each permit pushes it forward by one emission interval;
+ * a request is allowed while that time is no more than capacity intervals ahead of now.
+ * This behaves exactly like a bucket of `capacity` tokens refilled at `refillPerSecond`.
+ *
+ * Times are System.nanoTime() values, so they are only compared by subtraction: the
+ * origin is arbitrary (possibly negative) and the counter may wrap.
+ */
+public class TokenBucket {
+
+    private final AtomicLong theoreticalArrivalNanos;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+
+    public TokenBucket(int capacity, double refillPerSecond, long nowNanos) {
+        if (capacity <= 0 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and refill rate must be positive");
+        }
+        this.emissionIntervalNanos = (long) (1_000_000_000L / refillPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * capacity;
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Try to take one token
+     *
+     * @param nowNanos Current System.nanoTime()
+     * @return 0 if a token was taken, otherwise nanoseconds until one becomes available
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long tat = theoreticalArrivalNanos.get();
+            long newTat = (tat - nowNanos > 0 ? tat : nowNanos) + emissionIntervalNanos;
+            long ahead = newTat - nowNanos;
+            if (ahead > burstToleranceNanos) {
+                return ahead - burstToleranceNanos;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(tat, newTat)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * True when the bucket is full again, i.e. dropping it loses no state
+     */
+    public boolean isIdle(long nowNanos) {
+        return theoreticalArrivalNanos.get() - nowNanos <= 0;
+    }
+}
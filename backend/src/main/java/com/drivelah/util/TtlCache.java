@@ -0,0 +1,216 @@
+package com.drivelah.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded concurrent cache with per-entry TTL
+ *
+ * Reads are a single ConcurrentHashMap lookup plus an expiry check. Entries are also
+ * queued in insertion order; when the map grows past maxEntries the oldest entries are
+ * evicted first (FIFO). Expired entries are dropped lazily when read and by cleanUp().
+ * Loading is not coalesced: two threads missing the same key may both compute it, and
+ * the later value wins.
+ */
+public class TtlCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry<K, V>> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public TtlCache(int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Cache size and TTL must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    /**
+     * Cached value, or null if absent or expired
+     */
+    public V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            if (entries.remove(key, entry)) {
+                expirations.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Cached value, computing and caching it on a miss (null results are not cached)
+     */
+    public V get(K key, Function<K, V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        Entry<K, V> entry = new Entry<>(key, value, System.nanoTime() + ttlNanos);
+        entries.put(key, entry);
+        insertionOrder.add(entry);
+        queued.incrementAndGet();
+        evictOverflow();
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Drop expired entries and stale queue slots; safe to call from a background thread
+     */
+    public void cleanUp() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> {
+            if (entry.isExpired(now)) {
+                expirations.increment();
+                return true;
+            }
+            return false;
+        });
+        trimQueue(0);
+    }
+
+    /**
+     * Snapshot of the values that have not expired
+     */
+    public List<V> values() {
+        long now = System.nanoTime();
+        List<V> values = new ArrayList<>(entries.size());
+        for (Entry<K, V> entry : entries.values()) {
+            if (!entry.isExpired(now)) {
+                values.add(entry.value);
+            }
+        }
+        return values;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Size and hit / miss / eviction counters, for monitoring
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMillis", ttlNanos / 1_000_000L);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", lookups > 0 ? (double) hitCount / lookups : 0.0);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        return stats;
+    }
+
+    // Private helper methods
+
+    private void evictOverflow() {
+        while (entries.size() > maxEntries) {
+            Entry<K, V> oldest = pollQueue();
+            if (oldest == null) {
+                return;
+            }
+            // Skip queue slots whose key was overwritten or already removed
+            if (entries.remove(oldest.key, oldest)) {
+                evictions.increment();
+            }
+        }
+        // Overwrites leave stale slots behind; keep the queue from outgrowing the map
+        trimQueue(maxEntries * 2);
+    }
+
+    // TTL is uniform, so the queue head is always the next entry to expire
+    private void trimQueue(int allowedQueued) {
+        long now = System.nanoTime();
+        while (queued.get() > allowedQueued) {
+            Entry<K, V> head = insertionOrder.peek();
+            if (head == null) {
+                return;
+            }
+            if (entries.get(head.key) == head) {
+                if (!head.isExpired(now)) {
+                    return;
+                }
+                if (entries.remove(head.key, head)) {
+                    expirations.increment();
+                }
+            }
+            if (insertionOrder.remove(head)) {
+                queued.decrementAndGet();
+            }
+        }
+    }
+
+    private Entry<K, V> pollQueue() {
+        Entry<K, V> entry = insertionOrder.poll();
+        if (entry != null) {
+            queued.decrementAndGet();
+        }
+        return entry;
+    }
+
+    private static final class Entry<K, V> {
+        final K key;
+        final V value;
+        final long expiresAtNanos;
+
+        Entry(K key, V value, long expiresAtNanos) {
+            this.key = key;
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long nowNanos) {
+            return nowNanos - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.drivelah.api;
+
+import com.drivelah.service.RateLimitProperties;
+import com.drivelah.service.RateLimiter;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitInterceptorTest {
+
+    private RateLimiter rateLimiter;
+
+    @AfterEach
+    public void tearDown() {
+        if (rateLimiter != null) {
+            rateLimiter.shutdown();
+        }
+    }
+
+    @Test
+    public void testStreamingBatchIsChargedOnceAcrossItsAsyncDispatch() throws Exception {
+        RateLimitInterceptor interceptor = interceptor("/calculate-pricing/batch", 2);
+
+        for (int i = 0; i < 2; i++) {
+            assertTrue(interceptor.preHandle(request("/calculate-pricing/batch", DispatcherType.REQUEST),
+                    new MockHttpServletResponse(), handler()));
+            assertTrue(interceptor.preHandle(request("/calculate-pricing/batch", DispatcherType.ASYNC),
+                    new MockHttpServletResponse(), handler()), "Async re-dispatch is never rejected");
+        }
+
+        Map<?, ?> route = routeStats("/calculate-pricing/batch");
+        assertEquals(2L, route.get("allowed"));
+        assertEquals(0L, route.get("rejected"));
+    }
+
+    @Test
+    public void testReactiveSearchConsumesExactlyOneTokenPerRequest() throws Exception {
+        RateLimitInterceptor interceptor = interceptor("/reactive/get-vehicles", 1);
+
+        // The Mono handler is dispatched twice: REQUEST, then ASYNC with the result
+        assertTrue(interceptor.preHandle(request("/reactive/get-vehicles", DispatcherType.REQUEST),
+                new MockHttpServletResponse(), handler()));
+        MockHttpServletResponse asyncResponse = new MockHttpServletResponse();
+        assertTrue(interceptor.preHandle(request("/reactive/get-vehicles", DispatcherType.ASYNC),
+                asyncResponse, handler()));
+        assertEquals(200, asyncResponse.getStatus(), "No 429 written on the async dispatch");
+
+        // The single token went to the first request, so the next one is limited
+        MockHttpServletResponse limited = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request("/reactive/get-vehicles", DispatcherType.REQUEST),
+                limited, handler()));
+        assertEquals(429, limited.getStatus());
+
+        Map<?, ?> route = routeStats("/reactive/get-vehicles");
+        assertEquals(1L, route.get("allowed"));
+        assertEquals(1L, route.get("rejected"));
+    }
+
+    // Helper methods
+
+    private RateLimitInterceptor interceptor(String route, int capacity) {
+        RateLimitProperties.RouteLimit limit = new RateLimitProperties.RouteLimit();
+        limit.setCapacity(capacity);
+        limit.setRefillPerSecond(0.001);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getRoutes().put(route, limit);
+
+        rateLimiter = new RateLimiter(properties);
+        rateLimiter.start();
+        // No Authorization header in these requests, so AuthService is never consulted
+        return new RateLimitInterceptor(rateLimiter, null);
+    }
+
+    private static MockHttpServletRequest request(String route, DispatcherType dispatcherType) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", route);
+        request.setDispatcherType(dispatcherType);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, route);
+        return request;
+    }
+
+    private static HandlerMethod handler() throws NoSuchMethodException {
+        return new HandlerMethod(new Object(), Object.class.getMethod("toString"));
+    }
+
+    private Map<?, ?> routeStats(String route) {
+        return (Map<?, ?>) ((Map<?, ?>) rateLimiter.getStats().get("routes")).get(route);
+    }
+}
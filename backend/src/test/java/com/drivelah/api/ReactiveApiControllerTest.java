@@ -0,0 +1,167 @@
+package com.drivelah.api;
+
+import com.drivelah.model.Location;
+import com.drivelah.model.Vehicle;
+import com.drivelah.model.auth.AuthRequest;
+import com.drivelah.model.trip.Trip;
+import com.drivelah.persistence.TripService;
+import com.drivelah.persistence.VehicleService;
+import com.drivelah.service.AuthService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Full app on the in-memory store; the Mono / Flux handlers complete on an async dispatch
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("inmemory")
+public class ReactiveApiControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private TripService tripService;
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Test
+    public void testGetVehiclesReturnsAvailableVehicleCardsWithFares() throws Exception {
+        Vehicle vehicle = new Vehicle("RX" + UUID.randomUUID().toString().substring(0, 6), "HOST-001", "FREE");
+        vehicle.setVerified(true);
+        vehicle.setVehicleType("STANDARD");
+        vehicle.setPickupLocation(location(1.3521, 103.8198));
+        Vehicle saved = vehicleService.saveVehicle(vehicle);
+
+        String body = "{\"pickUpLocation\":{\"lat\":1.3521,\"lon\":103.8198},"
+                + "\"dropLocation\":{\"lat\":1.2903,\"lon\":103.8520}}";
+        dispatch(post("/reactive/get-vehicles").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.vehicles[*].id", hasItem(saved.getId())))
+                .andExpect(jsonPath("$.vehicles[*].dateOfRegEpoch").isEmpty())
+                .andExpect(jsonPath("$.fare").isNotEmpty());
+    }
+
+    @Test
+    public void testRenterReadsTheirOwnTrip() throws Exception {
+        Trip trip = tripService.saveTrip(trip("RENTER-001", "HOST-001"));
+
+        dispatch(get("/reactive/trip/" + trip.getId()).header("Authorization", bearer("renter@drivelah.com")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(trip.getId()))
+                .andExpect(jsonPath("$.renterId").value("RENTER-001"));
+    }
+
+    @Test
+    public void testOwnerAndAdminReadTheTrip() throws Exception {
+        Trip trip = tripService.saveTrip(trip("RENTER-001", "HOST-001"));
+
+        dispatch(get("/reactive/trip/" + trip.getId()).header("Authorization", bearer("host@drivelah.com")))
+                .andExpect(status().isOk());
+        dispatch(get("/reactive/trip/" + trip.getId()).header("Authorization", bearer("admin@drivelah.com")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testTripOfAnotherRenterAndHostIsForbidden() throws Exception {
+        Trip trip = tripService.saveTrip(trip("RENTER-999", "HOST-999"));
+
+        dispatch(get("/reactive/trip/" + trip.getId()).header("Authorization", bearer("renter@drivelah.com")))
+                .andExpect(status().isForbidden());
+        dispatch(get("/reactive/trip/" + trip.getId()).header("Authorization", bearer("host@drivelah.com")))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void testMissingTripIsNotFound() throws Exception {
+        dispatch(get("/reactive/trip/no-such-trip").header("Authorization", bearer("renter@drivelah.com")))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testTripRequiresAuthentication() throws Exception {
+        Trip trip = tripService.saveTrip(trip("RENTER-001", "HOST-001"));
+
+        dispatch(get("/reactive/trip/" + trip.getId()))
+                .andExpect(status().isUnauthorized());
+        dispatch(get("/reactive/trip/" + trip.getId()).header("Authorization", "Bearer not-a-token"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testMyTripsListsOnlyTheCallersTrips() throws Exception {
+        Trip mine = tripService.saveTrip(trip("RENTER-001", "HOST-001"));
+        Trip other = tripService.saveTrip(trip("RENTER-999", "HOST-001"));
+
+        dispatch(get("/reactive/trips/my-trips").header("Authorization", bearer("renter@drivelah.com")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", hasItem(mine.getId())))
+                .andExpect(jsonPath("$[*].id", not(hasItem(other.getId()))))
+                .andExpect(jsonPath("$[*].specialInstructions").doesNotExist());
+
+        dispatch(get("/reactive/trips/my-trips").header("Authorization", bearer("host@drivelah.com")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", hasItem(mine.getId())))
+                .andExpect(jsonPath("$[*].id", hasItem(other.getId())));
+    }
+
+    @Test
+    public void testMyTripsRequiresAuthentication() throws Exception {
+        dispatch(get("/reactive/trips/my-trips"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    // Helper methods
+
+    // Issues the request, waits for the Mono / Flux to complete, then runs the async dispatch that writes the body
+    private ResultActions dispatch(RequestBuilder requestBuilder) throws Exception {
+        MvcResult started = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+
+    private String bearer(String email) {
+        String password = email.startsWith("admin") ? "admin123" : "password123";
+        return "Bearer " + authService.login(new AuthRequest(email, password)).join().getToken();
+    }
+
+    private static Trip trip(String renterId, String ownerId) {
+        Trip trip = new Trip(renterId, "vehicle-" + UUID.randomUUID(), ownerId, null, null);
+        trip.setStatus("CONFIRMED");
+        trip.setPlannedStartTimeEpoch(1_700_000_000_000L);
+        trip.setPlannedEndTimeEpoch(1_700_000_000_000L + 4 * 3_600_000L);
+        trip.setSpecialInstructions("Leave keys at the lobby");
+        return trip;
+    }
+
+    private static Location location(double lat, double lon) {
+        Location location = new Location();
+        location.setLat(lat);
+        location.setLon(lon);
+        return location;
+    }
+}
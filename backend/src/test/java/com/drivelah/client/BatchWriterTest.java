@@ -0,0 +1,107 @@
+package com.drivelah.client;
+
+import com.drivelah.model.Host;
+import com.drivelah.model.User;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchWriterTest {
+
+    @Test
+    public void testWritesForTheSameKeyCoalesce() {
+        RecordingRepo repo = new RecordingRepo();
+        BatchWriter<Host> writer = new BatchWriter<>("test", repo, Host.class, 100, 60_000,
+                BulkOperations.BulkMode.UNORDERED);
+
+        writer.update("u1", byId("u1"), new Update().set(User.FM.LAST_LOGIN_EPOCH, 1L));
+        writer.update("u2", byId("u2"), new Update().set(User.FM.LAST_LOGIN_EPOCH, 2L));
+        writer.update("u1", byId("u1"), new Update().set(User.FM.LAST_LOGIN_EPOCH, 3L));
+        writer.flush();
+
+        assertEquals(1, repo.batches.size(), "One bulk write per flush");
+        assertEquals(2, repo.batches.get(0).size(), "u1 written once");
+        assertEquals(3L, repo.batches.get(0).get(1).getSecond().getUpdateObject()
+                .get("$set", Document.class).get(User.FM.LAST_LOGIN_EPOCH), "Latest u1 write wins");
+        assertEquals(1L, writer.getStats().get("coalesced"));
+        assertEquals(0, writer.getPendingCount());
+    }
+
+    @Test
+    public void testFlushesInChunksAndRequeuesFailures() {
+        RecordingRepo repo = new RecordingRepo();
+        BatchWriter<Host> writer = new BatchWriter<>("test", repo, Host.class, 2, 60_000,
+                BulkOperations.BulkMode.ORDERED);
+        for (int i = 0; i < 5; i++) {
+            writer.update(null, byId("u" + i), new Update().set(User.FM.LAST_LOGIN_EPOCH, (long) i));
+        }
+
+        repo.failing = true;
+        writer.flush();
+        assertEquals(5, writer.getPendingCount(), "Failed writes stay queued");
+
+        repo.failing = false;
+        writer.flush();
+        assertEquals(List.of(2, 2, 1), repo.batches.stream().map(List::size).toList());
+        assertEquals(5L, writer.getStats().get("written"));
+        assertEquals(3L, writer.getStats().get("failedBatches"));
+        writer.close();
+    }
+
+    @Test
+    public void testWriteThatKeepsFailingIsDroppedAfterMaxAttempts() {
+        RecordingRepo repo = new RecordingRepo();
+        repo.poisonId = "u1";
+        BatchWriter<Host> writer = new BatchWriter<>("test", repo, Host.class, 1, 60_000,
+                BulkOperations.BulkMode.UNORDERED, 3);
+        writer.update("u1", byId("u1"), new Update().set(User.FM.LAST_LOGIN_EPOCH, 1L));
+        writer.update("u2", byId("u2"), new Update().set(User.FM.LAST_LOGIN_EPOCH, 2L));
+
+        writer.flush();
+        assertEquals(1, writer.getPendingCount(), "Only the failed write is re-queued");
+        writer.flush();
+        assertEquals(1, writer.getPendingCount());
+        writer.flush();
+        assertEquals(0, writer.getPendingCount(), "Dropped on the third failure");
+
+        assertEquals(1L, writer.getStats().get("written"));
+        assertEquals(1L, writer.getStats().get("dropped"));
+        writer.close();
+    }
+
+    private static Query byId(String id) {
+        return new Query(Criteria.where(User.FM.ID).is(id));
+    }
+
+    private static class RecordingRepo extends MongoRepo<Host> {
+        final List<List<Pair<Query, Update>>> batches = new CopyOnWriteArrayList<>();
+        volatile boolean failing;
+        // Any batch containing this ID fails, like a document the server rejects
+        volatile String poisonId;
+
+        @Override
+        public BulkWriteResult bulkUpdate(List<Pair<Query, Update>> updates, BulkOperations.BulkMode mode,
+                                          Class<Host> entityClass) {
+            if (failing) {
+                throw new IllegalStateException("connection refused");
+            }
+            for (Pair<Query, Update> update : updates) {
+                if (poisonId != null && poisonId.equals(update.getFirst().getQueryObject().get(User.FM.ID))) {
+                    throw new IllegalArgumentException("Document failed validation");
+                }
+            }
+            batches.add(List.copyOf(updates));
+            return null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.drivelah.client;
+
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityCacheTest {
+
+    @AfterEach
+    public void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void testOnlyConfiguredCollectionsAreCached() {
+        EntityCache cache = new EntityCache(Set.of("trip"), 10, 60_000);
+
+        assertTrue(cache.isCached("trip"));
+        assertFalse(cache.isCached("host"));
+    }
+
+    @Test
+    public void testLoadStartedBeforeAWriteIsNotCached() {
+        EntityCache cache = new EntityCache(Set.of("trip"), 10, 60_000);
+
+        long generation = cache.generation("trip");
+        cache.invalidate("trip", "t2"); // concurrent write to the collection while t1 was loading
+        cache.put("trip", "t1", new Document("_id", "t1"), generation);
+        assertNull(cache.get("trip", "t1"));
+
+        cache.put("trip", "t1", new Document("_id", "t1"), cache.generation("trip"));
+        assertNotNull(cache.get("trip", "t1"));
+
+        cache.invalidateAll("trip");
+        assertNull(cache.get("trip", "t1"));
+    }
+
+    @Test
+    public void testRequestMemoServesRepeatedLookupsUntilInvalidated() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        EntityCache cache = new EntityCache(Set.of("trip"), 10, 60_000);
+
+        Document trip = new Document("_id", "t1").append("status", "CONFIRMED");
+        cache.put("trip", "t1", trip, cache.generation("trip"));
+        assertSame(trip, cache.get("trip", "t1"));
+        assertSame(trip, cache.get("trip", "t1"));
+        assertEquals(2L, cache.getStats().get("requestMemoHits"));
+
+        cache.invalidate("trip", "t1");
+        assertNull(cache.get("trip", "t1"), "A write drops the document from the memo too");
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> tripStats = (Map<String, Object>) ((Map<String, Object>) cache.getStats().get("collections")).get("trip");
+        assertEquals(1L, tripStats.get("misses"));
+    }
+}
@@ -0,0 +1,203 @@
+package com.drivelah.client;
+
+import com.drivelah.model.Host;
+import com.drivelah.model.Vehicle;
+import com.drivelah.model.VehicleCard;
+import com.drivelah.model.trip.Trip;
+import com.mongodb.bulk.BulkWriteResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryMongoRepoTest {
+
+    private InMemoryStore store;
+    private InMemoryMongoRepo<Vehicle> vehicleRepo;
+    private InMemoryMongoRepo<Trip> tripRepo;
+
+    @BeforeEach
+    public void setUp() {
+        store = new InMemoryStore();
+        vehicleRepo = new InMemoryMongoRepo<>(store);
+        tripRepo = new InMemoryMongoRepo<>(store);
+    }
+
+    @Test
+    public void testSaveAssignsIdAndVersionAndFindsByCriteria() {
+        Vehicle saved = vehicleRepo.save(vehicle("SGX1", "owner1", true, 12.0));
+        vehicleRepo.save(vehicle("SGX2", "owner1", false, null));
+        vehicleRepo.save(vehicle("SGX3", "owner2", true, 20.0));
+
+        assertNotNull(saved.getId());
+        assertEquals(0L, saved.getVersion());
+        assertEquals("SGX1", vehicleRepo.findById(saved.getId(), Vehicle.class).getLicensePlate());
+
+        Query verifiedFree = new Query(Criteria.where(Vehicle.FM.IS_VERIFIED).is(true).and(Vehicle.FM.STATUS).is("FREE"));
+        assertEquals(2, vehicleRepo.count(verifiedFree, Vehicle.class));
+        assertTrue(vehicleRepo.exists(new Query(Criteria.where(Vehicle.FM.LICENSE_PLATE).is("SGX2")), Vehicle.class));
+        assertFalse(vehicleRepo.exists(new Query(Criteria.where(Vehicle.FM.LICENSE_PLATE).is("NONE")), Vehicle.class));
+
+        Query priced = new Query(Criteria.where(Vehicle.FM.CUSTOM_PRICE_PER_HOUR).gt(0))
+                .with(Sort.by(Sort.Direction.DESC, Vehicle.FM.CUSTOM_PRICE_PER_HOUR));
+        List<Vehicle> byPrice = vehicleRepo.find(priced, Vehicle.class);
+        assertEquals(List.of("SGX3", "SGX1"), byPrice.stream().map(Vehicle::getLicensePlate).toList());
+
+        Query byOwners = new Query(Criteria.where(Vehicle.FM.OWNER_ID).in("owner2", "owner3"));
+        assertEquals("SGX3", vehicleRepo.findOne(byOwners, Vehicle.class).getLicensePlate());
+        assertEquals(1, vehicleRepo.count(new Query(Criteria.where(Vehicle.FM.CUSTOM_PRICE_PER_HOUR).exists(false)), Vehicle.class));
+    }
+
+    @Test
+    public void testStaleSaveIsRejectedAndUpdateWithRetryReapplies() {
+        Vehicle saved = vehicleRepo.save(vehicle("SGX1", "owner1", true, 12.0));
+        Vehicle first = vehicleRepo.findById(saved.getId(), Vehicle.class);
+        Vehicle second = vehicleRepo.findById(saved.getId(), Vehicle.class);
+
+        first.setStatus("RENTED");
+        assertEquals(1L, vehicleRepo.save(first).getVersion());
+        second.setStatus("MAINTENANCE");
+        assertThrows(OptimisticLockingFailureException.class, () -> vehicleRepo.save(second));
+
+        Vehicle updated = vehicleRepo.updateWithRetry(saved.getId(), Vehicle.class, v -> v.setCustomPricePerHour(15.0));
+        assertEquals("RENTED", updated.getStatus());
+        assertEquals(2L, updated.getVersion());
+
+        Vehicle duplicate = vehicle("SGX1", "owner1", true, 12.0);
+        duplicate.setId(saved.getId());
+        assertThrows(DuplicateKeyException.class, () -> vehicleRepo.save(duplicate));
+    }
+
+    @Test
+    public void testConditionalUpdatesBumpVersionAndUseTheNewIndexValue() {
+        Trip trip = tripRepo.save(new Trip("renter1", "vehicle1", "owner1", null, null));
+        Query cancellable = new Query(Criteria.where(Trip.FM.ID).is(trip.getId())
+                .and(Trip.FM.STATUS).in("PENDING", "CONFIRMED"));
+
+        Trip cancelled = tripRepo.findAndModify(cancellable, new Update().set(Trip.FM.STATUS, "CANCELLED"), Trip.class);
+        assertEquals("CANCELLED", cancelled.getStatus());
+        assertEquals(1L, cancelled.getVersion());
+        assertNull(tripRepo.findAndModify(cancellable, new Update().set(Trip.FM.STATUS, "CANCELLED"), Trip.class),
+                "The precondition no longer holds");
+
+        // status is indexed; the index must follow the update
+        assertEquals(0, tripRepo.count(new Query(Criteria.where(Trip.FM.STATUS).is("PENDING")), Trip.class));
+        assertEquals(1, tripRepo.count(new Query(Criteria.where(Trip.FM.STATUS).is("CANCELLED")), Trip.class));
+
+        long modified = tripRepo.updateFirst(new Query(Criteria.where(Trip.FM.ID).is(trip.getId())),
+                new Update().inc(Trip.FM.VERSION, 1).set(Trip.FM.REFUND_AMOUNT, 10.0), Trip.class);
+        assertEquals(1, modified);
+        assertEquals(2L, tripRepo.findById(trip.getId(), Trip.class).getVersion(), "Explicit version bump is not doubled");
+    }
+
+    @Test
+    public void testBulkUpsertInsertsFromTheFilterAndProjectionReadsSlimModel() {
+        vehicleRepo.save(vehicle("SGX1", "owner1", true, 12.0));
+
+        BulkWriteResult result = vehicleRepo.bulkUpsert(List.of(
+                Pair.of(new Query(Criteria.where(Vehicle.FM.LICENSE_PLATE).is("SGX1")),
+                        new Update().set(Vehicle.FM.MAKE, "Toyota")),
+                Pair.of(new Query(Criteria.where(Vehicle.FM.LICENSE_PLATE).is("SGX9")),
+                        new Update().set(Vehicle.FM.MAKE, "Honda").set(Vehicle.FM.IS_VERIFIED, true))),
+                BulkOperations.BulkMode.UNORDERED, Vehicle.class);
+        assertEquals(1, result.getMatchedCount());
+        assertEquals(1, result.getUpserts().size());
+        assertEquals(1, result.getUpserts().get(0).getIndex());
+
+        List<VehicleCard> cards = vehicleRepo.findProjected(
+                new Query(Criteria.where(Vehicle.FM.IS_VERIFIED).is(true)), Vehicle.class, VehicleCard.class);
+        assertEquals(2, cards.size());
+        assertTrue(cards.stream().anyMatch(card -> "SGX9".equals(card.getLicensePlate())));
+
+        Vehicle upserted = vehicleRepo.findOne(new Query(Criteria.where(Vehicle.FM.LICENSE_PLATE).is("SGX9")), Vehicle.class);
+        assertEquals("Honda", upserted.getMake());
+        assertNotNull(upserted.getId());
+    }
+
+    @Test
+    public void testSaveAllWritesFreshDocumentsAndReportsStaleOnes() {
+        Vehicle fresh = vehicleRepo.save(vehicle("SGX1", "owner1", true, 12.0));
+        Vehicle stale = vehicleRepo.save(vehicle("SGX2", "owner1", true, 12.0));
+        Vehicle concurrent = vehicleRepo.findById(stale.getId(), Vehicle.class);
+        concurrent.setStatus("MAINTENANCE");
+        vehicleRepo.save(concurrent);
+
+        fresh.setStatus("RENTED");
+        stale.setStatus("RENTED");
+        Vehicle added = vehicle("SGX3", "owner2", true, null);
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> vehicleRepo.saveAll(List.of(fresh, stale, added), Vehicle.class));
+
+        Vehicle storedFresh = vehicleRepo.findById(fresh.getId(), Vehicle.class);
+        assertEquals("RENTED", storedFresh.getStatus());
+        assertEquals(1L, storedFresh.getVersion());
+        assertEquals("MAINTENANCE", vehicleRepo.findById(stale.getId(), Vehicle.class).getStatus(),
+                "The concurrent change is not overwritten");
+        assertEquals(0L, stale.getVersion(), "The stale copy keeps the version it was read at");
+        assertNotNull(added.getId(), "The rest of the batch is still saved");
+        assertEquals(0L, added.getVersion());
+        assertEquals(3, vehicleRepo.count(Vehicle.class));
+
+        assertEquals(2, vehicleRepo.saveAll(List.of(storedFresh, vehicleRepo.findById(stale.getId(), Vehicle.class)),
+                Vehicle.class).size(), "Re-read copies save cleanly");
+    }
+
+    @Test
+    public void testDeleteAndBatches() {
+        Vehicle first = vehicleRepo.save(vehicle("SGX1", "owner1", true, 12.0));
+        vehicleRepo.save(vehicle("SGX2", "owner1", true, 12.0));
+        vehicleRepo.save(vehicle("SGX3", "owner1", true, 12.0));
+
+        List<Integer> batchSizes = new ArrayList<>();
+        long processed = vehicleRepo.forEachBatch(new Query(), 2, Vehicle.class, batch -> batchSizes.add(batch.size()));
+        assertEquals(3, processed);
+        assertEquals(List.of(2, 1), batchSizes);
+
+        vehicleRepo.delete(first);
+        assertNull(vehicleRepo.findById(first.getId(), Vehicle.class));
+        assertEquals(2, vehicleRepo.count(Vehicle.class));
+    }
+
+    @Test
+    public void testUniqueEmailIndexRejectsSecondAccountWithSameEmail() {
+        InMemoryMongoRepo<Host> hostRepo = new InMemoryMongoRepo<>(store);
+        Host first = hostRepo.save(host("HOST-A", "same@drivelah.com"));
+
+        assertThrows(DuplicateKeyException.class, () -> hostRepo.save(host("HOST-B", "same@drivelah.com")));
+        assertNull(hostRepo.findById("HOST-B", Host.class), "Rejected write leaves nothing behind");
+
+        // Re-saving the owner of the email is not a conflict, and the email is free again once changed
+        first.setName("Renamed");
+        hostRepo.save(first);
+        first.setEmail("moved@drivelah.com");
+        hostRepo.save(first);
+        assertNotNull(hostRepo.save(host("HOST-B", "same@drivelah.com")));
+    }
+
+    // Helper methods
+
+    private static Vehicle vehicle(String licensePlate, String ownerId, boolean verified, Double pricePerHour) {
+        Vehicle vehicle = new Vehicle(licensePlate, ownerId, "FREE");
+        vehicle.setVerified(verified);
+        vehicle.setCustomPricePerHour(pricePerHour);
+        return vehicle;
+    }
+
+    private static Host host(String id, String email) {
+        Host host = new Host();
+        host.setId(id);
+        host.setEmail(email);
+        return host;
+    }
+}
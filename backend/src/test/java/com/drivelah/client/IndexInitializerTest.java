@@ -0,0 +1,107 @@
+package com.drivelah.client;
+
+import com.drivelah.model.trip.Trip;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexInitializerTest {
+
+    private MongoClient client;
+
+    @BeforeEach
+    public void setUp() {
+        // Never connects: explain() is answered by ExplainTemplate
+        client = MongoClients.create("mongodb://localhost:27017/?serverSelectionTimeoutMS=100");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void testFailModeRefusesToStartWhenAShapeScansTheCollection() {
+        IndexInitializer initializer = new IndexInitializer(
+                new ExplainTemplate(client, Trip.FM.HAS_INSURANCE_CLAIM), false, "fail");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, initializer::initialize);
+        assertTrue(thrown.getMessage().contains("COLLSCAN"));
+        assertTrue(thrown.getMessage().contains("TripService.streamTripsWithInsuranceClaims"), thrown.getMessage());
+        assertFalse(thrown.getMessage().contains("TripService.findTripsByRenter"), "Indexed shapes are not reported");
+    }
+
+    @Test
+    public void testWarnModeStartsAndRecordsTheCollectionScan() {
+        IndexInitializer initializer = new IndexInitializer(
+                new ExplainTemplate(client, Trip.FM.HAS_INSURANCE_CLAIM), false, "WARN");
+
+        initializer.initialize();
+
+        Map<?, ?> plans = (Map<?, ?>) initializer.getStats().get("queryShapes");
+        assertEquals("COLLSCAN", plans.get("TripService.streamTripsWithInsuranceClaims"));
+        assertEquals("FETCH <- IXSCAN", plans.get("TripService.findTripsByRenter"));
+        assertEquals(IndexInitializer.QUERY_SHAPES.size(), plans.size());
+    }
+
+    @Test
+    public void testFailModeStartsWhenEveryShapeUsesAnIndex() {
+        IndexInitializer initializer = new IndexInitializer(new ExplainTemplate(client, null), false, "FAIL");
+
+        assertDoesNotThrow(initializer::initialize);
+        assertEquals("FAIL", initializer.getStats().get("verifyMode"));
+    }
+
+    // Helper methods
+
+    // explain() reports a COLLSCAN for filters on the unindexed field and an index scan for the rest
+    private static class ExplainTemplate extends MongoTemplate {
+        private final String unindexedField;
+
+        ExplainTemplate(MongoClient client, String unindexedField) {
+            super(client, "test");
+            this.unindexedField = unindexedField;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public MongoCollection<Document> getCollection(String collectionName) {
+            return (MongoCollection<Document>) Proxy.newProxyInstance(ExplainTemplate.class.getClassLoader(),
+                    new Class<?>[]{MongoCollection.class}, (proxy, method, args) -> {
+                        if (!"find".equals(method.getName()) || args == null || args.length != 1) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return explained((Document) args[0]);
+                    });
+        }
+
+        private FindIterable<Document> explained(Document filter) {
+            Document winningPlan = filter.containsKey(unindexedField)
+                    ? new Document("stage", "COLLSCAN")
+                    : new Document("stage", "FETCH").append("inputStage", new Document("stage", "IXSCAN"));
+            Document explain = new Document("queryPlanner", new Document("winningPlan", winningPlan));
+
+            @SuppressWarnings("unchecked")
+            FindIterable<Document> iterable = (FindIterable<Document>) Proxy.newProxyInstance(
+                    ExplainTemplate.class.getClassLoader(), new Class<?>[]{FindIterable.class},
+                    (proxy, method, args) -> {
+                        if (!"explain".equals(method.getName()) || args != null) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return explain;
+                    });
+            return iterable;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.drivelah.client;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MongoConfigTest {
+
+    // Never connects: the clients are built but no operation is run
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(ClientPropertiesConfig.class, MongoConfig.class)
+            .withPropertyValues(
+                    "drivelah.mongo.client.min-pool-size=7",
+                    "drivelah.mongo.client.max-pool-size=42",
+                    "drivelah.mongo.client.wait-queue-timeout-ms=1500",
+                    "drivelah.mongo.client.max-connection-idle-time-ms=30000",
+                    "drivelah.mongo.client.connect-timeout-ms=3000",
+                    "drivelah.mongo.client.socket-timeout-ms=12000",
+                    "drivelah.mongo.client.compressors=zstd, snappy",
+                    "drivelah.mongo.client.read-preference=primaryPreferred",
+                    "drivelah.mongo.client.analytics-read-preference=secondary");
+
+    @Test
+    public void testShippedApplicationYmlBindsEveryClientSetting() throws Exception {
+        List<PropertySource<?>> yaml = new YamlPropertySourceLoader()
+                .load("application.yml", new ClassPathResource("application.yml"));
+        MongoClientProperties properties = new Binder(ConfigurationPropertySources.from(yaml.get(0)))
+                .bind("drivelah.mongo.client", MongoClientProperties.class)
+                .orElseThrow(() -> new AssertionError("drivelah.mongo.client is missing from application.yml"));
+
+        assertEquals(10, properties.getMinPoolSize());
+        assertEquals(100, properties.getMaxPoolSize());
+        assertEquals(2000L, properties.getWaitQueueTimeoutMs());
+        assertEquals(60000L, properties.getMaxConnectionIdleTimeMs());
+        assertEquals(5000, properties.getConnectTimeoutMs());
+        assertEquals(15000, properties.getSocketTimeoutMs());
+        assertEquals(List.of("zstd", "snappy"), properties.getCompressors());
+        assertEquals("primary", properties.getReadPreference());
+        assertEquals("secondaryPreferred", properties.getAnalyticsReadPreference());
+    }
+
+    @Test
+    public void testClientSettingsCarryTheBoundPoolTimeoutsCompressorsAndReadPreference() {
+        contextRunner.run(context -> {
+            MongoClientSettings settings = context.getBean(MongoConfig.class)
+                    .clientSettings(new ConnectionPoolMetrics("test"));
+
+            assertEquals(7, settings.getConnectionPoolSettings().getMinSize());
+            assertEquals(42, settings.getConnectionPoolSettings().getMaxSize());
+            assertEquals(1500L, settings.getConnectionPoolSettings().getMaxWaitTime(TimeUnit.MILLISECONDS));
+            assertEquals(30000L, settings.getConnectionPoolSettings().getMaxConnectionIdleTime(TimeUnit.MILLISECONDS));
+            assertEquals(3000, settings.getSocketSettings().getConnectTimeout(TimeUnit.MILLISECONDS));
+            assertEquals(12000, settings.getSocketSettings().getReadTimeout(TimeUnit.MILLISECONDS));
+            assertEquals(List.of("zstd", "snappy"), settings.getCompressorList().stream()
+                    .map(MongoCompressor::getName)
+                    .collect(Collectors.toList()), "Offered in the configured order");
+            assertEquals(ReadPreference.primaryPreferred(), settings.getReadPreference());
+        });
+    }
+
+    @Test
+    public void testOnlyTheAnalyticsTemplateOverridesTheReadPreference() {
+        contextRunner.run(context -> {
+            MongoTemplate analytics = context.getBean("analyticsMongoTemplate", MongoTemplate.class);
+            MongoTemplate primary = context.getBean(MongoTemplate.class);
+
+            assertNotSame(primary, analytics);
+            assertEquals(ReadPreference.secondary(), ReflectionTestUtils.getField(analytics, "readPreference"));
+            assertNull(ReflectionTestUtils.getField(primary, "readPreference"),
+                    "Bookings use the client's read-preference");
+        });
+    }
+
+    @Test
+    public void testUnknownCompressorFailsStartup() {
+        contextRunner.withPropertyValues("drivelah.mongo.client.compressors=lz4").run(context -> {
+            Throwable failure = context.getStartupFailure();
+            assertNotNull(failure);
+            Throwable cause = failure;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            assertInstanceOf(IllegalArgumentException.class, cause);
+            assertEquals("Unknown Mongo compressor: lz4", cause.getMessage());
+        });
+    }
+
+    // Helper methods
+
+    // MongoClientProperties is a scanned @Component in the app; here it is registered on its own
+    @Configuration
+    @EnableConfigurationProperties(MongoClientProperties.class)
+    static class ClientPropertiesConfig {
+    }
+}
@@ -0,0 +1,141 @@
+package com.drivelah.client;
+
+import com.drivelah.model.Host;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MongoRepoStreamTest {
+
+    private MongoClient client;
+    private CursorTemplate template;
+    private MongoRepo<Host> repo;
+
+    @BeforeEach
+    public void setUp() {
+        // Never connects: every read in these tests goes through CursorTemplate.stream()
+        client = MongoClients.create("mongodb://localhost:27017/?serverSelectionTimeoutMS=100");
+        template = new CursorTemplate(client, hosts(5));
+        repo = new MongoRepo<>(template, template);
+        repo.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repo.shutdown();
+        client.close();
+    }
+
+    @Test
+    public void testStreamClosesTheCursorWhenTheCallerStopsEarly() {
+        try (Stream<Host> hosts = repo.stream(new Query(), Host.class)) {
+            assertEquals("host0", hosts.findFirst().orElseThrow().getId());
+        }
+
+        assertEquals(1, template.closed.get());
+        assertEquals(1, template.read.get(), "Only the first document was pulled from the cursor");
+    }
+
+    @Test
+    public void testForEachBatchClosesTheCursorWhenABatchThrows() {
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> repo.forEachBatch(new Query(), 2, Host.class, batch -> {
+                    throw new IllegalStateException("report failed");
+                }));
+
+        assertEquals("report failed", thrown.getMessage(), "The consumer's exception reaches the caller unchanged");
+        assertEquals(1, template.closed.get());
+        assertEquals(2, template.read.get(), "Nothing is read past the failing batch");
+    }
+
+    @Test
+    public void testAnalyticsForEachBatchClosesTheCursorWhenALaterBatchThrows() {
+        List<Integer> batchSizes = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> repo.analyticsForEachBatch(new Query(), 2, Host.class, batch -> {
+            batchSizes.add(batch.size());
+            if (batchSizes.size() == 2) {
+                throw new IllegalStateException("report failed");
+            }
+        }));
+
+        assertEquals(List.of(2, 2), batchSizes);
+        assertEquals(1, template.closed.get());
+    }
+
+    @Test
+    public void testForEachBatchClosesTheCursorAfterTheLastBatch() {
+        List<Integer> batchSizes = new ArrayList<>();
+        long processed = repo.forEachBatch(new Query(), 2, Host.class, batch -> batchSizes.add(batch.size()));
+
+        assertEquals(5, processed);
+        assertEquals(List.of(2, 2, 1), batchSizes);
+        assertEquals(1, template.closed.get());
+        assertEquals(2, template.lastQuery.getMeta().getCursorBatchSize(), "Cursor fetches one batch per round trip");
+    }
+
+    @Test
+    public void testAnalyticsReadsGoThroughTheAnalyticsTemplateOnly() {
+        CursorTemplate analytics = new CursorTemplate(client, hosts(3));
+        MongoRepo<Host> splitRepo = new MongoRepo<>(template, analytics);
+        splitRepo.init();
+        try {
+            try (Stream<Host> hosts = splitRepo.analyticsStream(new Query(), Host.class)) {
+                assertEquals(3, hosts.count());
+            }
+            splitRepo.analyticsForEachBatch(new Query(), 2, Host.class, batch -> { });
+            assertEquals(6, analytics.read.get());
+            assertEquals(0, template.read.get(), "Report reads stay off the primary template");
+
+            splitRepo.forEachBatch(new Query(), 2, Host.class, batch -> { });
+            assertEquals(5, template.read.get());
+            assertEquals(6, analytics.read.get(), "Ordinary reads never use the analytics template");
+        } finally {
+            splitRepo.shutdown();
+        }
+    }
+
+    // Helper methods
+
+    private static List<Host> hosts(int count) {
+        List<Host> hosts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Host host = new Host();
+            host.setId("host" + i);
+            hosts.add(host);
+        }
+        return hosts;
+    }
+
+    // Serves stream() from a list, counting documents pulled and cursor closes
+    private static class CursorTemplate extends MongoTemplate {
+        private final List<Host> documents;
+        private final AtomicInteger read = new AtomicInteger();
+        private final AtomicInteger closed = new AtomicInteger();
+        private Query lastQuery;
+
+        CursorTemplate(MongoClient client, List<Host> documents) {
+            super(client, "test");
+            this.documents = documents;
+        }
+
+        @Override
+        public <T> Stream<T> stream(Query query, Class<T> entityType) {
+            lastQuery = query;
+            return documents.stream()
+                    .peek(document -> read.incrementAndGet())
+                    .map(entityType::cast)
+                    .onClose(closed::incrementAndGet);
+        }
+    }
+}
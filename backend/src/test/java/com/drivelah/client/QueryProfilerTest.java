@@ -0,0 +1,117 @@
+package com.drivelah.client;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryProfilerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    public void testShapeIgnoresValuesButKeepsFieldsOperatorsAndSort() {
+        Document byRenter = new Document("renterId", "u1")
+                .append("status", new Document("$in", List.of("CONFIRMED", "IN_PROGRESS")));
+        Document byOtherRenter = new Document("renterId", "u2")
+                .append("status", new Document("$in", List.of("COMPLETED")));
+
+        assertEquals("{renterId: ?, status: {$in: ?}}", QueryProfiler.shapeOf(byRenter, null));
+        assertEquals(QueryProfiler.shapeOf(byRenter, null), QueryProfiler.shapeOf(byOtherRenter, new Document()));
+
+        Document either = new Document("$or", List.of(new Document("renterId", "u1"), new Document("ownerId", "u1")));
+        assertEquals("{$or: [{renterId: ?}, {ownerId: ?}]} sort {\"dateOfBookingEpoch\": -1}",
+                QueryProfiler.shapeOf(either, new Document("dateOfBookingEpoch", -1)));
+        assertEquals("{}", QueryProfiler.shapeOf(null, null));
+    }
+
+    @Test
+    public void testSlowShapeIsExplainedOncePerInterval() {
+        QueryProfiler profiler = new QueryProfiler(100, 60_000, 10);
+        try {
+            assertNull(profiler.record("find", "trip", "{renterId: ?}", FAST));
+            String key = profiler.record("find", "trip", "{renterId: ?}", SLOW);
+            assertNotNull(key);
+            assertNull(profiler.record("find", "trip", "{renterId: ?}", SLOW), "Already explained this interval");
+            assertNotNull(profiler.record("count", "trip", "{renterId: ?}", SLOW), "Each operation is its own shape");
+
+            Map<String, Object> stats = profiler.getStats(10);
+            assertEquals(4L, stats.get("operations"));
+            assertEquals(3L, stats.get("slowOperations"));
+            assertEquals(2, stats.get("shapes"));
+        } finally {
+            profiler.shutdown();
+        }
+    }
+
+    @Test
+    public void testTopShapesAreOrderedByTotalTime() {
+        QueryProfiler profiler = new QueryProfiler(1_000, 60_000, 10);
+        try {
+            for (int i = 0; i < 100; i++) {
+                profiler.record("findById", "trip", "{_id: ?}", FAST);
+            }
+            profiler.record("find", "vehicle", "{isVerified: ?}", SLOW);
+            profiler.record("find", "vehicle", "{isVerified: ?}", SLOW);
+
+            List<Map<String, Object>> top = profiler.topShapes(10);
+            assertEquals(2, top.size());
+            assertEquals("{isVerified: ?}", top.get(0).get("shape"));
+            assertEquals(2L, top.get(0).get("count"));
+            assertEquals(500.0, (Double) top.get(0).get("maxMillis"), 0.001);
+            assertEquals(100L, top.get(1).get("count"));
+            assertEquals(1, profiler.topShapes(1).size());
+        } finally {
+            profiler.shutdown();
+        }
+    }
+
+    @Test
+    public void testTopShapesLimitIsClamped() {
+        QueryProfiler profiler = new QueryProfiler(1_000, 60_000, 200);
+        try {
+            for (int i = 0; i <= QueryProfiler.MAX_TOP_SHAPES; i++) {
+                profiler.record("find", "trip", "{field" + i + ": ?}", FAST);
+            }
+
+            assertTrue(profiler.topShapes(-1).isEmpty(), "Negative limit returns nothing instead of failing");
+            assertTrue(((List<?>) profiler.getStats(Integer.MIN_VALUE).get("topShapes")).isEmpty());
+            assertEquals(QueryProfiler.MAX_TOP_SHAPES, profiler.topShapes(Integer.MAX_VALUE).size());
+        } finally {
+            profiler.shutdown();
+        }
+    }
+
+    @Test
+    public void testShapesBeyondTheLimitAreOnlyCounted() {
+        QueryProfiler profiler = new QueryProfiler(1_000, 60_000, 1);
+        try {
+            profiler.record("find", "trip", "{renterId: ?}", FAST);
+            profiler.record("find", "trip", "{ownerId: ?}", FAST);
+
+            Map<String, Object> stats = profiler.getStats(10);
+            assertEquals(1, stats.get("shapes"));
+            assertEquals(1L, stats.get("untrackedOperations"));
+        } finally {
+            profiler.shutdown();
+        }
+    }
+
+    @Test
+    public void testPlanSummaryIncludesStagesAndExecutionStats() {
+        Document explain = new Document("queryPlanner", new Document("winningPlan",
+                new Document("stage", "FETCH").append("inputStage", new Document("stage", "IXSCAN"))))
+                .append("executionStats", new Document("nReturned", 3)
+                        .append("totalKeysExamined", 3)
+                        .append("totalDocsExamined", 3)
+                        .append("executionTimeMillis", 1));
+
+        assertEquals("FETCH <- IXSCAN (returned 3, keys examined 3, docs examined 3, 1 ms)",
+                QueryProfiler.summarizePlan(explain));
+    }
+}
@@ -0,0 +1,130 @@
+package com.drivelah.client;
+
+import com.drivelah.model.Host;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReactiveMongoRepoProfilingTest {
+
+    private MongoClient client;
+    private ListTemplate template;
+    private ReactiveMongoRepo<Host> repo;
+
+    @BeforeEach
+    public void setUp() {
+        // Never connects: every read in these tests goes through ListTemplate
+        client = MongoClients.create("mongodb://localhost:27017/?serverSelectionTimeoutMS=100");
+        template = new ListTemplate(client, hosts(5));
+        repo = new ReactiveMongoRepo<>(template);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repo.shutdown();
+        client.close();
+    }
+
+    @Test
+    public void testReadsAreRecordedPerQueryShape() {
+        repo.init();
+
+        repo.find(new Query(Criteria.where("name").is("a")), Host.class).collectList().block();
+        repo.find(new Query(Criteria.where("name").is("b")), Host.class).collectList().block();
+        repo.findById("host1", Host.class).block();
+
+        Map<String, Object> stats = repo.getQueryShapeStats(10);
+        assertEquals(3L, stats.get("operations"));
+        assertEquals(2, stats.get("shapes"));
+        Map<?, ?> byName = shape(stats, "find");
+        assertEquals("host", byName.get("collection"));
+        assertEquals("{name: ?}", byName.get("shape"));
+        assertEquals(2L, byName.get("count"), "Values do not split the shape");
+        assertEquals(MongoRepo.BY_ID_SHAPE, shape(stats, "findById").get("shape"));
+    }
+
+    @Test
+    public void testOperationIsRecordedOnSubscriptionNotOnAssembly() {
+        repo.init();
+
+        Flux<Host> notSubscribed = repo.find(new Query(), Host.class);
+        assertEquals(0L, repo.getQueryShapeStats(10).get("operations"));
+
+        // Cancelled after two documents: timed until the cancel, once
+        assertEquals(2, notSubscribed.take(2).collectList().block().size());
+        assertEquals(1L, repo.getQueryShapeStats(10).get("operations"));
+        assertEquals(1, template.cancelled.get());
+    }
+
+    @Test
+    public void testDisabledProfilingReportsDisabled() {
+        ReflectionTestUtils.setField(repo, "profilingEnabled", false);
+        repo.init();
+
+        assertEquals(5, repo.find(new Query(), Host.class).collectList().block().size());
+        assertEquals(Map.of("enabled", false), repo.getQueryShapeStats(10));
+    }
+
+    // Helper methods
+
+    @SuppressWarnings("unchecked")
+    private static Map<?, ?> shape(Map<String, Object> stats, String operation) {
+        for (Map<?, ?> shape : (List<Map<?, ?>>) stats.get("topShapes")) {
+            if (operation.equals(shape.get("operation"))) {
+                return shape;
+            }
+        }
+        throw new AssertionError("No shape recorded for " + operation);
+    }
+
+    private static List<Host> hosts(int count) {
+        List<Host> hosts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Host host = new Host();
+            host.setId("host" + i);
+            hosts.add(host);
+        }
+        return hosts;
+    }
+
+    // Serves find() and findById() from a list, counting cancelled reads
+    private static class ListTemplate extends ReactiveMongoTemplate {
+        private final List<Host> documents;
+        private final AtomicInteger cancelled = new AtomicInteger();
+
+        ListTemplate(MongoClient client, List<Host> documents) {
+            super(client, "test");
+            this.documents = documents;
+        }
+
+        @Override
+        public <T> Flux<T> find(Query query, Class<T> entityClass) {
+            return Flux.fromIterable(documents)
+                    .map(entityClass::cast)
+                    .doOnCancel(cancelled::incrementAndGet);
+        }
+
+        @Override
+        public <T> Mono<T> findById(Object id, Class<T> entityClass) {
+            return Flux.fromIterable(documents)
+                    .filter(host -> host.getId().equals(id))
+                    .next()
+                    .map(entityClass::cast);
+        }
+    }
+}
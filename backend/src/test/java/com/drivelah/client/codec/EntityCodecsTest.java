@@ -0,0 +1,99 @@
+package com.drivelah.client.codec;
+
+import com.drivelah.model.Location;
+import com.drivelah.model.Vehicle;
+import com.drivelah.model.trip.SettlementLine;
+import com.drivelah.model.trip.Trip;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The codecs must produce exactly what MappingMongoConverter writes, since both paths share collections
+ */
+public class EntityCodecsTest {
+
+    private MappingMongoConverter converter;
+
+    @BeforeEach
+    public void setUp() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+    }
+
+    @Test
+    public void testTripMatchesConverterLayout() {
+        Trip trip = new Trip("renter1", "vehicle1", "owner1", location(1.30, 103.80), location(1.35, 103.90));
+        trip.setId(new ObjectId().toHexString());
+        trip.setVersion(3L);
+        trip.setPlannedStartTimeEpoch(1_700_000_000_000L);
+        trip.setPlannedEndTimeEpoch(1_700_086_400_000L);
+        trip.setStartOdometerReading(12_000L);
+        trip.setEndOdometerReading(12_180L);
+        trip.setRenterRating(5);
+        trip.setTotalAmount(1036.34);
+        trip.setBookedHourlyRate(12.0);
+        trip.setBookedRateVersion(2L);
+        trip.setSettlementLines(List.of(new SettlementLine("TIME", "24h at 12.00", 288.0)));
+        trip.setInsuranceClaimId("claim1");
+
+        BsonDocument viaConverter = viaConverter(trip);
+        assertEquals(viaConverter, viaCodec(EntityCodecs.REGISTRY.get(Trip.class), trip));
+
+        Trip decoded = EntityCodecs.REGISTRY.get(Trip.class).decode(new BsonDocumentReader(viaConverter),
+                DecoderContext.builder().build());
+        assertEquals(viaConverter, viaConverter(decoded), "Decoding the converter's document loses nothing");
+    }
+
+    @Test
+    public void testVehicleMatchesConverterLayout() {
+        Vehicle vehicle = new Vehicle("SGX1234A", "owner1", "FREE");
+        vehicle.setId("legacy-id"); // not ObjectId hex, stored as a string
+        vehicle.setVerified(true);
+        vehicle.setYear(2021);
+        vehicle.setPickupLocation(location(1.28, 103.85));
+        vehicle.setCustomPricePerHour(14.5);
+
+        BsonDocument viaConverter = viaConverter(vehicle);
+        assertEquals(viaConverter, viaCodec(EntityCodecs.REGISTRY.get(Vehicle.class), vehicle));
+        assertEquals("legacy-id", viaConverter.getString("_id").getValue());
+    }
+
+    // Helper methods
+
+    private BsonDocument viaConverter(Object entity) {
+        Document document = new Document();
+        converter.write(entity, document);
+        return document.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    private static <T> BsonDocument viaCodec(Codec<T> codec, T entity) {
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), entity, EncoderContext.builder().build());
+        return document;
+    }
+
+    private static Location location(double lat, double lon) {
+        Location location = new Location();
+        location.setLat(lat);
+        location.setLon(lon);
+        return location;
+    }
+}
@@ -0,0 +1,132 @@
+package com.drivelah.model;
+
+import com.drivelah.client.InMemoryMongoRepo;
+import com.drivelah.client.InMemoryStore;
+import com.drivelah.model.trip.Trip;
+import com.drivelah.model.trip.TripSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadModelProjectionTest {
+
+    // Every vehicle field the search result card renders (frontend/src/components/VehicleCard.js)
+    private static final List<String> VEHICLE_CARD_FIELDS = List.of("id", "licensePlate", "status", "isVerified",
+            "vehicleType", "make", "model", "year", "color", "transmission", "seatingCapacity", "features",
+            "description");
+
+    // Every trip field the trip list renders (frontend/src/components/Dashboard.js)
+    private static final List<String> TRIP_LIST_FIELDS = List.of("id", "vehicleId", "status", "dateOfBookingEpoch",
+            "pickUpLocation", "dropLocation", "plannedDurationHours", "totalAmount", "securityDeposit",
+            "actualStartTimeEpoch", "actualEndTimeEpoch", "renterRating", "ownerRating");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private InMemoryStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new InMemoryStore();
+    }
+
+    @Test
+    public void testVehicleCardCarriesEveryRenderedFieldWithTheVehicleValue() {
+        InMemoryMongoRepo<Vehicle> vehicleRepo = new InMemoryMongoRepo<>(store);
+        Vehicle saved = vehicleRepo.save(fullVehicle());
+        VehicleCard card = vehicleRepo.findProjected(byId(saved.getId()), Vehicle.class, VehicleCard.class).get(0);
+
+        Map<String, Object> vehicleJson = json(vehicleRepo.findById(saved.getId(), Vehicle.class));
+        Map<String, Object> cardJson = json(card);
+        assertMatches(VEHICLE_CARD_FIELDS, vehicleJson, cardJson);
+        assertFalse(cardJson.containsKey("dateOfRegEpoch"), "Registration details are not fetched");
+    }
+
+    @Test
+    public void testTripSummaryCarriesEveryRenderedFieldWithTheTripValue() {
+        InMemoryMongoRepo<Trip> tripRepo = new InMemoryMongoRepo<>(store);
+        Trip saved = tripRepo.save(fullTrip());
+        TripSummary summary = tripRepo.findProjected(byId(saved.getId()), Trip.class, TripSummary.class).get(0);
+
+        Map<String, Object> tripJson = json(tripRepo.findById(saved.getId(), Trip.class));
+        Map<String, Object> summaryJson = json(summary);
+        assertMatches(TRIP_LIST_FIELDS, tripJson, summaryJson);
+        for (String left : List.of("specialInstructions", "renterComments", "startOdometerReading", "settlementLines")) {
+            assertFalse(summaryJson.containsKey(left), left + " is not fetched for lists");
+        }
+    }
+
+    // Helper methods
+
+    // Rendered fields are all present and set; every projected field equals the entity's, so the JSON is a subset
+    private static void assertMatches(List<String> rendered, Map<String, Object> entityJson,
+                                      Map<String, Object> projectedJson) {
+        for (String field : rendered) {
+            assertNotNull(entityJson.get(field), "Fixture sets " + field);
+            assertTrue(projectedJson.containsKey(field), "Projection has rendered field " + field);
+        }
+        for (Map.Entry<String, Object> field : projectedJson.entrySet()) {
+            assertTrue(entityJson.containsKey(field.getKey()), field.getKey() + " is named as on the entity");
+            assertEquals(entityJson.get(field.getKey()), field.getValue(), field.getKey() + " matches the entity");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> json(Object value) {
+        return objectMapper.convertValue(value, Map.class);
+    }
+
+    private static Query byId(String id) {
+        return new Query(Criteria.where("_id").is(id));
+    }
+
+    private static Vehicle fullVehicle() {
+        Vehicle vehicle = new Vehicle("SGX1234A", "owner1", "FREE");
+        vehicle.setVerified(true);
+        vehicle.setVehicleType("PREMIUM");
+        vehicle.setMake("Toyota");
+        vehicle.setModel("Camry");
+        vehicle.setYear(2022);
+        vehicle.setColor("Silver");
+        vehicle.setTransmission("AUTO");
+        vehicle.setSeatingCapacity(5);
+        vehicle.setPickupLocation(location(1.3521, 103.8198));
+        vehicle.setFeatures("GPS,Bluetooth");
+        vehicle.setDescription("Clean, non-smoking");
+        vehicle.setCustomPricePerHour(18.5);
+        return vehicle;
+    }
+
+    private static Trip fullTrip() {
+        long booked = 1_700_000_000_000L;
+        Trip trip = new Trip("renter1", "vehicle1", "owner1", location(1.3521, 103.8198), location(1.2903, 103.8520));
+        trip.setDateOfBookingEpoch(booked);
+        trip.setPlannedStartTimeEpoch(booked + 3_600_000L);
+        trip.setPlannedEndTimeEpoch(booked + 5 * 3_600_000L);
+        trip.setActualStartTimeEpoch(booked + 3_700_000L);
+        trip.setActualEndTimeEpoch(booked + 5 * 3_650_000L);
+        trip.setStatus("COMPLETED");
+        trip.setPaymentStatus("PAID");
+        trip.setTotalAmount(96.4);
+        trip.setSecurityDeposit(200.0);
+        trip.setRenterRating(5);
+        trip.setOwnerRating(4);
+        trip.setSpecialInstructions("Leave keys at the lobby");
+        trip.setRenterComments("Great car");
+        trip.setStartOdometerReading(12000L);
+        trip.setEndOdometerReading(12140L);
+        return trip;
+    }
+
+    private static Location location(double lat, double lon) {
+        Location location = new Location();
+        location.setLat(lat);
+        location.setLon(lon);
+        return location;
+    }
+}
@@ -0,0 +1,35 @@
+package com.drivelah.model.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PricingKernelTest {
+
+    @Test
+    public void testLineItemsAreExactMinorUnits() {
+        long[] amounts = new long[PricingKernel.SLOTS];
+
+        // 24h x 12.00 + 200km x 0.45 at 1.5x surge
+        PricingKernel.compute(1200, 45, Money.quantity(24), Money.quantity(200), Money.basisPoints(1.5), amounts);
+
+        assertEquals(28800, amounts[PricingKernel.BASE]);
+        assertEquals(9000, amounts[PricingKernel.DISTANCE]);
+        assertEquals(18900, amounts[PricingKernel.SURGE]);
+        assertEquals(56700, amounts[PricingKernel.SUBTOTAL]);
+        assertEquals(11340, amounts[PricingKernel.DEPOSIT]);
+        assertEquals(5670, amounts[PricingKernel.FEE]);
+        assertEquals(62370, amounts[PricingKernel.TOTAL]);
+        assertEquals(amounts[PricingKernel.TOTAL],
+                PricingKernel.total(1200, 45, Money.quantity(24), Money.quantity(200), Money.basisPoints(1.5)));
+    }
+
+    @Test
+    public void testMinimumDepositAndNoDrift() {
+        PricingCalculation calculation = new PricingCalculation("ECONOMY", 8.0, 0.30, 1.0, 1.0);
+
+        assertEquals(50.0, calculation.getSecurityDeposit(), "Small rentals use the minimum deposit");
+        assertEquals(9.13, calculation.getTotalAmount(), "8.00 + 0.30 + 10% fee, with no floating-point tail");
+        assertEquals(913, calculation.amountMinor(PricingKernel.TOTAL));
+    }
+}
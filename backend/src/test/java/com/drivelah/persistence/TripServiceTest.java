@@ -0,0 +1,95 @@
+package com.drivelah.persistence;
+
+import com.drivelah.client.InMemoryMongoRepo;
+import com.drivelah.client.InMemoryStore;
+import com.drivelah.model.trip.Trip;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TripServiceTest {
+
+    private InMemoryMongoRepo<Trip> tripRepo;
+    private TripService tripService;
+
+    @BeforeEach
+    public void setUp() {
+        tripRepo = new InMemoryMongoRepo<>(new InMemoryStore());
+        tripService = new TripService(tripRepo, null);
+    }
+
+    @Test
+    public void testIncludedKmIsBackfilledOnUnsettledTripsOnly() {
+        Trip confirmed = tripRepo.save(trip("CONFIRMED", 4));
+        Trip longTrip = tripRepo.save(trip("PENDING", 48));
+        Trip completed = tripRepo.save(trip("COMPLETED", 4));
+        Trip quoted = trip("CONFIRMED", 4);
+        quoted.setIncludedKm(30.0);
+        quoted = tripRepo.save(quoted);
+
+        tripService.backfillIncludedKm();
+
+        Trip backfilled = tripRepo.findById(confirmed.getId(), Trip.class);
+        assertEquals(100.0, backfilled.getIncludedKm());
+        assertEquals(1L, backfilled.getVersion(), "Saved through the versioned path");
+        assertEquals(200.0, tripRepo.findById(longTrip.getId(), Trip.class).getIncludedKm(), "Capped at 200 km");
+        assertNull(tripRepo.findById(completed.getId(), Trip.class).getIncludedKm(), "Settled trips are left alone");
+        assertEquals(30.0, tripRepo.findById(quoted.getId(), Trip.class).getIncludedKm());
+        assertEquals(0L, tripRepo.findById(quoted.getId(), Trip.class).getVersion());
+    }
+
+    @Test
+    public void testBackfillSkipsTripsWithoutAVersion() {
+        Trip unversioned = tripRepo.save(trip("CONFIRMED", 4));
+        tripRepo.updateFirst(new Query(Criteria.where(Trip.FM.ID).is(unversioned.getId())),
+                new Update().unset(Trip.FM.VERSION), Trip.class);
+
+        tripService.backfillIncludedKm();
+
+        assertNull(tripRepo.findById(unversioned.getId(), Trip.class).getIncludedKm(),
+                "saveAll() would insert a trip without a version; backfillVersions() runs first");
+        assertEquals(1, tripRepo.count(Trip.class));
+    }
+
+    @Test
+    public void testBookingReportCoversOnlyTripsBookedInTheRange() {
+        Trip completed = trip("COMPLETED", 4);
+        completed.setTotalAmount(80.0);
+        completed.setInsuranceClaimId("claim1");
+        Trip cancelled = trip("CANCELLED", 4);
+        cancelled.setTotalAmount(50.0);
+        Trip confirmed = trip("CONFIRMED", 4);
+        confirmed.setTotalAmount(40.25);
+        Trip outside = trip("COMPLETED", 4);
+        outside.setDateOfBookingEpoch(2_000_000_000_000L);
+        for (Trip trip : List.of(completed, cancelled, confirmed, outside)) {
+            tripRepo.save(trip);
+        }
+
+        Map<String, Object> report = tripService.getBookingReport(1_600_000_000_000L, 1_800_000_000_000L);
+
+        assertEquals(3L, report.get("trips"));
+        assertEquals(Map.of("CANCELLED", 1L, "COMPLETED", 1L, "CONFIRMED", 1L), report.get("byStatus"));
+        assertEquals(120.25, report.get("bookedAmount"), "Cancelled trips are not counted as booked");
+        assertEquals(1L, report.get("insuranceClaims"));
+    }
+
+    // Helper methods
+
+    private static Trip trip(String status, int plannedHours) {
+        long start = 1_700_000_000_000L;
+        Trip trip = new Trip("renter1", "vehicle1", "owner1", null, null);
+        trip.setDateOfBookingEpoch(start - 86_400_000L);
+        trip.setStatus(status);
+        trip.setPlannedStartTimeEpoch(start);
+        trip.setPlannedEndTimeEpoch(start + plannedHours * 3_600_000L);
+        return trip;
+    }
+}
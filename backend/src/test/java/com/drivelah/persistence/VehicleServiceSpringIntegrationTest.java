@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.mongodb.core.MongoTemplate;
 
 import java.time.Instant;
@@ -174,6 +175,28 @@ public class VehicleServiceSpringIntegrationTest {
         assertTrue(foundVehicles.isEmpty(), "Should return empty list for non-existent vehicle");
     }
 
+    @Test
+    public void testStaleSaveIsRejectedAndUpdateVehicleRetries() {
+        // Given - Two copies of the same vehicle, read before either is saved
+        Vehicle saved = vehicleService.saveVehicle(createSampleVehicle("VERSION1", "owner1", true));
+        Vehicle firstCopy = vehicleService.findById(saved.getId());
+        Vehicle staleCopy = vehicleService.findById(saved.getId());
+
+        // When - The first copy is saved
+        firstCopy.setColor("Red");
+        vehicleService.saveVehicle(firstCopy);
+
+        // Then - Saving the stale copy fails instead of overwriting the colour
+        staleCopy.setStatus("RENTED");
+        assertThrows(OptimisticLockingFailureException.class, () -> vehicleService.saveVehicle(staleCopy));
+
+        // And - updateVehicle applies the same change to the latest version
+        Vehicle updated = vehicleService.updateVehicle(saved.getId(), v -> v.setStatus("RENTED"));
+        assertEquals("RENTED", updated.getStatus());
+        assertEquals("Red", updated.getColor(), "Concurrent change should be kept");
+        assertEquals(saved.getVersion() + 2, updated.getVersion());
+    }
+
     /**
      * Helper method to create sample vehicle with test data
      *
@@ -0,0 +1,59 @@
+package com.drivelah.service;
+
+import com.drivelah.model.trip.Trip;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CancellationPolicyEngineTest {
+
+    private static final long HOUR = 60L * 60L * 1000L;
+    private static final long START = 1_700_000_000_000L;
+
+    private final CancellationPolicyEngine engine = new CancellationPolicyEngine(new CancellationPolicyProperties()
+            .addPolicy("MODERATE",
+                    new CancellationPolicyProperties.Tier(72, 10),
+                    new CancellationPolicyProperties.Tier(2, 100),
+                    new CancellationPolicyProperties.Tier(24, 50)));
+
+    @Test
+    public void testTierByTimeRemaining() {
+        Trip trip = trip(250.00);
+
+        assertEquals(0.0, engine.quote(trip, START - 100 * HOUR, false).getFee(), "Earlier than every tier is free");
+        assertEquals(25.00, engine.quote(trip, START - 48 * HOUR, false).getFee());
+        assertEquals(125.00, engine.quote(trip, START - 3 * HOUR, false).getFee());
+        assertEquals(250.00, engine.quote(trip, START - HOUR, false).getFee());
+        assertEquals(250.00, engine.quote(trip, START + HOUR, false).getFee(), "Past the planned start is the tightest tier");
+
+        // Exactly on a threshold is not "less than" it
+        CancellationPolicyEngine.CancellationQuote boundary = engine.quote(trip, START - 24 * HOUR, false);
+        assertEquals(25.00, boundary.getFee());
+        assertEquals(225.00, boundary.getRefund());
+        assertEquals("MODERATE", boundary.getPolicy());
+    }
+
+    @Test
+    public void testHostCancellationIsRefundedInFull() {
+        CancellationPolicyEngine.CancellationQuote quote = engine.quote(trip(250.00), START - HOUR, true);
+
+        assertEquals(0.0, quote.getFee());
+        assertEquals(250.00, quote.getRefund());
+    }
+
+    @Test
+    public void testDefaultPolicyMustExist() {
+        CancellationPolicyProperties properties = new CancellationPolicyProperties()
+                .addPolicy("FLEXIBLE", new CancellationPolicyProperties.Tier(24, 10));
+
+        assertThrows(IllegalArgumentException.class, () -> new CancellationPolicyEngine(properties));
+    }
+
+    private static Trip trip(double totalAmount) {
+        Trip trip = new Trip();
+        trip.setPlannedStartTimeEpoch(START);
+        trip.setPlannedEndTimeEpoch(START + 24 * HOUR);
+        trip.setTotalAmount(totalAmount);
+        return trip;
+    }
+}
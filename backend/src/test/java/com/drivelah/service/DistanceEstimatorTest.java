@@ -0,0 +1,79 @@
+package com.drivelah.service;
+
+import com.drivelah.model.Landmark;
+import com.drivelah.model.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DistanceEstimatorTest {
+
+    @Test
+    public void testHaversineMatchesKnownDistances() {
+        assertEquals(343.6, DistanceEstimator.haversineKm(51.5074, -0.1278, 48.8566, 2.3522), 0.5, "London - Paris");
+        assertEquals(3935.8, DistanceEstimator.haversineKm(40.7128, -74.0060, 34.0522, -118.2437), 1.0, "New York - Los Angeles");
+        assertEquals(20015.1, DistanceEstimator.haversineKm(0, 0, 0, 180), 0.5, "Half the equator");
+        assertEquals(0.0, DistanceEstimator.haversineKm(28.6315, 77.2167, 28.6315, 77.2167));
+    }
+
+    @Test
+    public void testLandmarkPairsComeFromThePrecomputedMatrix() {
+        DistanceEstimator estimator = new DistanceEstimator(1.35, 0.005, 1000, 60_000);
+        Location connaughtPlace = landmark(Landmark.CONNAUGHT_PLACE);
+        Location indiaGate = landmark(Landmark.INDIA_GATE);
+
+        // 2.416 km straight line x 1.35 road factor
+        assertEquals(3.262, estimator.estimateKm(connaughtPlace, indiaGate), 0.001);
+        assertEquals(estimator.estimateKm(connaughtPlace, indiaGate), estimator.estimateKm(indiaGate, connaughtPlace));
+        assertEquals(26.52, estimator.estimateKm(connaughtPlace, landmark(Landmark.GURGAON_CYBER_CITY)), 0.01);
+
+        Map<String, Object> stats = estimator.getStats();
+        assertEquals(4L, stats.get("landmarkHits"));
+        assertEquals(0, ((Map<?, ?>) stats.get("cellCache")).get("size"), "Landmark pairs never touch the cell cache");
+    }
+
+    @Test
+    public void testOtherPointsFallBackToCachedCellDistances() {
+        DistanceEstimator estimator = new DistanceEstimator(1.35, 0.005, 1000, 60_000);
+        Location from = location(28.6001, 77.1001);
+        Location to = location(28.7001, 77.3001);
+
+        // Snapped to 0.005 degree cells, so within a cell diagonal of the exact 30.32 road km
+        Double km = estimator.estimateKm(from, to);
+        assertEquals(30.32, km, 1.0);
+
+        // Same cells in either direction share the cached entry
+        assertEquals(km, estimator.estimateKm(location(28.6003, 77.1004), to));
+        assertEquals(km, estimator.estimateKm(to, from));
+        Map<?, ?> cellCache = (Map<?, ?>) estimator.getStats().get("cellCache");
+        assertEquals(1, cellCache.get("size"));
+        assertEquals(2L, cellCache.get("hits"));
+        assertEquals(0L, estimator.getStats().get("landmarkHits"));
+    }
+
+    @Test
+    public void testMissingPointsHaveNoEstimate() {
+        DistanceEstimator estimator = new DistanceEstimator(1.35, 0.005, 1000, 60_000);
+        Location somewhere = location(28.6, 77.2);
+
+        assertNull(estimator.estimateKm(null, somewhere));
+        assertNull(estimator.estimateKm(somewhere, null));
+        // (0, 0) is what an unset Location deserializes to
+        assertNull(estimator.estimateKm(new Location(), somewhere));
+    }
+
+    // Helper methods
+
+    private static Location landmark(Landmark landmark) {
+        return location(landmark.getLat(), landmark.getLon());
+    }
+
+    private static Location location(double lat, double lon) {
+        Location location = new Location();
+        location.setLat(lat);
+        location.setLon(lon);
+        return location;
+    }
+}
@@ -0,0 +1,103 @@
+package com.drivelah.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHasherTest {
+
+    private PasswordHasher hasher;
+
+    @AfterEach
+    public void tearDown() {
+        if (hasher != null) {
+            hasher.shutdown();
+        }
+    }
+
+    @Test
+    public void testHashAndMatch() {
+        hasher = new PasswordHasher(1000, 1, 4, 2000);
+
+        String encoded = hasher.hash("password123");
+
+        assertTrue(encoded.startsWith("pbkdf2$1000$"), "Encoded hash should carry algorithm and cost");
+        assertNotEquals(encoded, hasher.hash("password123"), "Each hash should use a fresh salt");
+        assertTrue(hasher.matches("password123", encoded), "Correct password should match");
+        assertFalse(hasher.matches("wrong-password", encoded), "Wrong password should not match");
+        assertFalse(hasher.matches("password123", "password123"), "Plain text should never match");
+    }
+
+    @Test
+    public void testNeedsRehashWhenCostChanges() {
+        hasher = new PasswordHasher(1000, 1, 4, 2000);
+        String encoded = hasher.hash("password123");
+        assertFalse(hasher.needsRehash(encoded));
+
+        PasswordHasher stronger = new PasswordHasher(2000, 1, 4, 2000);
+        try {
+            assertTrue(stronger.needsRehash(encoded), "Lower cost hash should be flagged for rehash");
+            assertTrue(stronger.matches("password123", encoded), "Old cost hashes must still verify");
+        } finally {
+            stronger.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsyncMatch() throws Exception {
+        hasher = new PasswordHasher(1000, 2, 4, 2000);
+        String encoded = hasher.hash("password123");
+
+        assertTrue(hasher.matchesAsync("password123", encoded).get(5, TimeUnit.SECONDS));
+        assertFalse(hasher.matchesAsync("nope", encoded).get(5, TimeUnit.SECONDS));
+        assertEquals(2L, hasher.getStats().get("completed"));
+    }
+
+    @Test
+    public void testRejectsWhenPoolIsSaturated() throws Exception {
+        // One worker and one queue slot: with slow hashes in flight, the third request is rejected immediately
+        hasher = new PasswordHasher(400000, 1, 1, 10000);
+
+        CompletableFuture<String> running = hasher.hashAsync("first");
+        CompletableFuture<String> queued = hasher.hashAsync("second");
+        CompletableFuture<String> rejected = hasher.hashAsync("third");
+
+        CompletionException error = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        assertEquals(1L, hasher.getStats().get("rejected"));
+
+        assertNotNull(running.get(10, TimeUnit.SECONDS));
+        assertNotNull(queued.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTimedOutRequestStillQueuedIsNeverHashed() throws Exception {
+        // One worker: the second hash waits in the queue behind a slow first one and times out there
+        hasher = new PasswordHasher(2_000_000, 1, 4, 50);
+
+        CompletableFuture<String> running = hasher.hashAsync("first");
+        CompletableFuture<String> queued = hasher.hashAsync("second");
+
+        CompletionException error = assertThrows(CompletionException.class, queued::join);
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertThrows(CompletionException.class, running::join, "The caller is not kept waiting past the timeout");
+        assertEquals(0, hasher.getStats().get("queued"), "Timed-out request is taken off the queue");
+
+        // The running hash cannot be interrupted and completes; the queued one never starts
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while ((Long) hasher.getStats().get("completed") < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(100);
+        assertEquals(1L, hasher.getStats().get("completed"));
+        assertEquals(1L, hasher.getStats().get("cancelledBeforeStart"));
+        assertEquals(2L, hasher.getStats().get("timedOut"));
+    }
+}
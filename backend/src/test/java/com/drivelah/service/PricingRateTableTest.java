@@ -0,0 +1,69 @@
+package com.drivelah.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PricingRateTableTest {
+
+    private static final String VALID_RATES =
+            "[{\"vehicleType\":\"STANDARD\",\"baseRatePerHour\":15.0,\"perKmRate\":0.5}]";
+
+    @TempDir
+    Path tempDir;
+
+    private PricingRateTable table;
+
+    @AfterEach
+    public void tearDown() {
+        if (table != null) {
+            table.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvalidFileIsRejectedOnceUntilItChanges() throws Exception {
+        Path ratesFile = tempDir.resolve("rates.json");
+        Files.writeString(ratesFile, "[{\"vehicleType\":\"STANDARD\"}]");
+        table = new PricingRateTable(ratesFile.toString(), 3_600_000);
+        table.start();
+
+        long bundledVersion = table.current().getVersion();
+        assertEquals(1L, table.getStats().get("rejectedReloads"));
+
+        // Polls with the file untouched, or touched without changing content, do not parse it again
+        table.reloadIfChanged();
+        Files.setLastModifiedTime(ratesFile, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        table.reloadIfChanged();
+        assertEquals(1L, table.getStats().get("rejectedReloads"));
+        assertEquals(bundledVersion, table.current().getVersion());
+
+        // Fixing the file is picked up on the next poll
+        Files.writeString(ratesFile, VALID_RATES);
+        Files.setLastModifiedTime(ratesFile, FileTime.fromMillis(System.currentTimeMillis() + 120_000));
+        table.reloadIfChanged();
+        assertEquals(bundledVersion + 1, table.current().getVersion());
+        assertEquals(15.0, table.current().getOrDefault("STANDARD").getBaseRatePerHour().doubleValue());
+        assertEquals(1L, table.getStats().get("reloads"));
+    }
+
+    @Test
+    public void testValidFileReplacesBundledRates() throws Exception {
+        Path ratesFile = tempDir.resolve("rates.json");
+        Files.writeString(ratesFile, VALID_RATES);
+        table = new PricingRateTable(ratesFile.toString(), 3_600_000);
+        table.start();
+
+        assertEquals(ratesFile.toString(), table.current().getSource());
+        assertEquals(0L, table.getStats().get("rejectedReloads"));
+
+        table.reloadIfChanged();
+        assertEquals(1L, table.getStats().get("reloads"), "Unchanged file is not reloaded");
+    }
+}
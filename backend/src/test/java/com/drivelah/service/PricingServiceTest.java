@@ -0,0 +1,180 @@
+package com.drivelah.service;
+
+import com.drivelah.client.InMemoryMongoRepo;
+import com.drivelah.client.InMemoryStore;
+import com.drivelah.model.Location;
+import com.drivelah.model.Vehicle;
+import com.drivelah.model.VehicleCard;
+import com.drivelah.model.pricing.PricingCalculation;
+import com.drivelah.model.pricing.PricingRequest;
+import com.drivelah.persistence.VehicleService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PricingServiceTest {
+
+    private PricingRateTable rates;
+    private SurgePricingEngine surgeEngine;
+    private InMemoryMongoRepo<Vehicle> vehicleRepo;
+    private VehicleService vehicleService;
+    private PricingService pricingService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        rates = new PricingRateTable("", 5000);
+        rates.start();
+        // baseline 40, sensitivity 0.5: 80 searches in a cell -> x1.5
+        surgeEngine = new SurgePricingEngine(0.02, 900, 40, 5, 0.5, 2.0, 0.05, 5000);
+        vehicleRepo = new InMemoryMongoRepo<>(new InMemoryStore());
+        vehicleService = new VehicleService(vehicleRepo, null);
+        pricingService = new PricingService(rates, surgeEngine, new DistanceEstimator(1.35, 0.005, 1000, 60_000),
+                vehicleService, 1000, 60_000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        rates.shutdown();
+        surgeEngine.shutdown();
+    }
+
+    @Test
+    public void testSearchQuotesUseTheSurgeOfTheCellTheSearchWasCountedIn() {
+        Location searcherPickup = location(28.6315, 77.2167);
+        Location vehicleParkedElsewhere = location(28.4950, 77.0890);
+        vehicleRepo.save(vehicle("SGX1", vehicleParkedElsewhere));
+        List<VehicleCard> cards = vehicleService.getAvailableVehicleCards();
+
+        double calmFare = pricingService.getSearchFares(cards, 24.0, searcherPickup).get(0);
+
+        // Searches count in the searcher's cell, exactly as the search endpoints record them
+        for (int i = 0; i < 80; i++) {
+            surgeEngine.recordSearch(searcherPickup);
+        }
+        surgeEngine.recompute();
+
+        assertEquals(1.5, surgeEngine.getMultiplier(searcherPickup));
+        assertEquals(1.0, surgeEngine.getMultiplier(vehicleParkedElsewhere), "No demand where the car is parked");
+        double surgedFare = pricingService.getSearchFares(cards, 24.0, searcherPickup).get(0);
+        assertEquals(calmFare * 1.5, surgedFare, 0.02, "Quote reflects the demand the searches created");
+    }
+
+    @Test
+    public void testSearchWithoutPickupIsQuotedWithoutSurge() {
+        Location busy = location(28.6315, 77.2167);
+        vehicleRepo.save(vehicle("SGX1", busy));
+        for (int i = 0; i < 80; i++) {
+            surgeEngine.recordSearch(busy);
+        }
+        surgeEngine.recompute();
+
+        List<VehicleCard> cards = vehicleService.getAvailableVehicleCards();
+        assertEquals(pricingService.getEstimatePrice("STANDARD", 24.0),
+                pricingService.getSearchFares(cards, 24.0, null).get(0));
+    }
+
+    @Test
+    public void testQuoteIsPricedOnExactDurationAndDistance() {
+        PricingService.VehicleTypeRates standard = rates.current().get("STANDARD");
+
+        PricingCalculation quote = pricingService.calculatePricing(request(61, 12.3));
+
+        PricingCalculation exact = new PricingCalculation("STANDARD", standard.baseRatePerHour, standard.perKmRate,
+                61 / 60.0, 12.3, 1.0);
+        assertEquals(exact.getTotalAmount(), quote.getTotalAmount(), "61 minutes is not billed as 75");
+        assertEquals(61 / 60.0, quote.getPlannedHours());
+        assertEquals(12.3, quote.getEstimatedKm());
+        assertTrue(quote.getTotalAmount() < pricingService.calculatePricing(request(75, 12.3)).getTotalAmount());
+    }
+
+    @Test
+    public void testDistanceFallsBackFromClientEstimateToRoadDistanceToDurationHeuristic() {
+        PricingRequest withLocations = request(120, 0);
+        withLocations.setEstimatedKm(null);
+        withLocations.setPickupLocation(location(28.6315, 77.2167));
+        withLocations.setDropLocation(location(28.6129, 77.2295));
+        assertEquals(3.262, pricingService.calculatePricing(withLocations).getEstimatedKm(), 0.001,
+                "Road distance between the two points");
+
+        PricingRequest withoutLocations = request(120, 0);
+        withoutLocations.setEstimatedKm(null);
+        assertEquals(50.0, pricingService.calculatePricing(withoutLocations).getEstimatedKm(), 0.001,
+                "No distance at all: 25 km per planned hour");
+
+        assertEquals(200.0, pricingService.calculatePricing(request(24 * 60, 0)).getEstimatedKm(), 0.001,
+                "Heuristic is capped at 200 km");
+    }
+
+    @Test
+    public void testCachedQuoteIsNotSharedBetweenCallers() {
+        PricingCalculation first = pricingService.calculatePricing(request(120, 40.0));
+        double total = first.getTotalAmount();
+
+        first.setTotalAmount(0.0);
+        first.setSurgeMultiplier(3.0);
+        PricingCalculation second = pricingService.calculatePricing(request(120, 40.0));
+
+        assertNotSame(first, second);
+        assertEquals(total, second.getTotalAmount(), "Changing one caller's quote leaves the cached one intact");
+        assertEquals(1.0, second.getSurgeMultiplier());
+        assertEquals(1L, pricingService.getQuoteCacheStats().get("hits"));
+    }
+
+    @Test
+    public void testHostPriceChangedOutOfBandIsQuotedWithoutARestart() {
+        Vehicle saved = vehicleRepo.save(vehicle("SGX1", location(28.6315, 77.2167)));
+        PricingRequest rent = request(120, 40.0);
+        rent.setVehicleId(saved.getId());
+        Double typeRateTotal = pricingService.calculatePricing(rent).getTotalAmount();
+
+        // Written straight to the collection, as another instance or an admin script would
+        vehicleRepo.updateFirst(new Query(Criteria.where("_id").is(saved.getId())),
+                new Update().set(Vehicle.FM.CUSTOM_PRICE_PER_HOUR, 30.0), Vehicle.class);
+
+        PricingCalculation quote = pricingService.calculatePricing(rent);
+        assertEquals(30.0, quote.getBaseRate());
+        assertNotEquals(typeRateTotal, quote.getTotalAmount());
+        assertEquals(quote.getTotalAmount(), pricingService.calculatePricing(rent, vehicleRepo.findById(saved.getId(),
+                Vehicle.class)).getTotalAmount(), "Same price whether the caller or the service loads the vehicle");
+
+        List<VehicleCard> cards = vehicleService.getAvailableVehicleCards();
+        assertEquals(pricingService.getEstimatePrice(30.0, "STANDARD", 24.0, null),
+                pricingService.getSearchFares(cards, 24.0, null).get(0), "Search fare uses the new price too");
+        assertNotEquals(pricingService.getEstimatePrice("STANDARD", 24.0),
+                pricingService.getSearchFares(cards, 24.0, null).get(0));
+    }
+
+    // Helper methods
+
+    private static PricingRequest request(long minutes, double estimatedKm) {
+        long start = 1_700_000_000_000L;
+        PricingRequest request = new PricingRequest();
+        request.setVehicleType("STANDARD");
+        request.setPlannedStartTime(start);
+        request.setPlannedEndTime(start + minutes * 60_000L);
+        request.setEstimatedKm(estimatedKm);
+        return request;
+    }
+
+    private static Vehicle vehicle(String licensePlate, Location pickupLocation) {
+        Vehicle vehicle = new Vehicle(licensePlate, "owner1", "FREE");
+        vehicle.setVerified(true);
+        vehicle.setVehicleType("STANDARD");
+        vehicle.setPickupLocation(pickupLocation);
+        return vehicle;
+    }
+
+    private static Location location(double lat, double lon) {
+        Location location = new Location();
+        location.setLat(lat);
+        location.setLon(lon);
+        return location;
+    }
+}
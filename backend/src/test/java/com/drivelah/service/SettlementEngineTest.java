@@ -0,0 +1,91 @@
+package com.drivelah.service;
+
+import com.drivelah.model.trip.SettlementLine;
+import com.drivelah.model.trip.Trip;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SettlementEngineTest {
+
+    private static final String[] DEFAULT_RULES =
+            {"TIME", "DISTANCE", "SURGE", "LATE_RETURN", "EXTRA_KM", "CLEANING", "SERVICE_FEE"};
+
+    @Test
+    public void testLateReturnExtraKmAndCleaning() throws Exception {
+        SettlementEngine engine = new SettlementEngine(rates(), DEFAULT_RULES, 30, 1.5, 1.25, 500);
+
+        // 24h booked with 200km included, returned 2h late after 250km
+        Trip trip = trip(24, 26, 200.0, 250);
+        SettlementEngine.Settlement settlement = engine.settle(trip, "STANDARD", true);
+
+        List<String> codes = settlement.getLines().stream().map(SettlementLine::getCode).collect(Collectors.toList());
+        assertEquals(List.of("TIME", "DISTANCE", "LATE_RETURN", "EXTRA_KM", "CLEANING", "SERVICE_FEE"), codes,
+                "No SURGE line without a surge at booking");
+
+        // 288.00 + 90.00 + 2h x 12.00 x 1.5 + 50km x 0.45 x 1.25 + 500.00, plus 10% fee
+        assertEquals(36.00, settlement.getLines().get(2).getAmount());
+        assertEquals(28.13, settlement.getLines().get(3).getAmount());
+        assertEquals(103634, settlement.getTotalMinor());
+        assertEquals(1036.34, settlement.getTotal());
+    }
+
+    @Test
+    public void testOnTimeTripWithinGraceMatchesQuote() throws Exception {
+        SettlementEngine engine = new SettlementEngine(rates(), DEFAULT_RULES, 30, 1.5, 1.25, 500);
+
+        // 20 minutes late is inside the grace period; 180km is inside the included km
+        Trip trip = trip(24, 24 + 20 / 60.0, 200.0, 180);
+        trip.setSurgeMultiplier(1.5);
+        SettlementEngine.Settlement settlement = engine.settle(trip, "STANDARD", false);
+
+        // (288.00 + 81.00) x 1.5 + 10% fee
+        assertEquals(60885, settlement.getTotalMinor());
+    }
+
+    @Test
+    public void testBookedRatesWinOverCurrentRatesAndHostPrice() throws Exception {
+        SettlementEngine engine = new SettlementEngine(rates(), DEFAULT_RULES, 30, 1.5, 1.25, 500);
+
+        // Booked at 10.00/h and 0.40/km; the host has since raised the price to 20.00/h
+        Trip trip = trip(24, 24, 200.0, 180);
+        trip.setBookedHourlyRate(10.0);
+        trip.setBookedPerKmRate(0.40);
+        trip.setBookedRateVersion(1L);
+        SettlementEngine.Settlement settlement = engine.settle(trip, "STANDARD", 20.0, false);
+
+        // (240.00 + 72.00) + 10% fee
+        assertEquals(240.00, settlement.getLines().get(0).getAmount());
+        assertEquals(72.00, settlement.getLines().get(1).getAmount());
+        assertEquals(34320, settlement.getTotalMinor());
+    }
+
+    @Test
+    public void testUnknownRuleFailsAtStartup() throws Exception {
+        PricingRateTable rates = rates();
+        assertThrows(IllegalArgumentException.class,
+                () -> new SettlementEngine(rates, new String[]{"TIME", "FUEL"}, 30, 1.5, 1.25, 500));
+    }
+
+    private static PricingRateTable rates() throws Exception {
+        PricingRateTable rates = new PricingRateTable("", 5000);
+        rates.start();
+        return rates;
+    }
+
+    private static Trip trip(double plannedHours, double actualHours, Double includedKm, long distanceKm) {
+        long start = 1_700_000_000_000L;
+        Trip trip = new Trip();
+        trip.setPlannedStartTimeEpoch(start);
+        trip.setPlannedEndTimeEpoch(start + (long) (plannedHours * 3_600_000L));
+        trip.setActualStartTimeEpoch(start);
+        trip.setActualEndTimeEpoch(start + (long) (actualHours * 3_600_000L));
+        trip.setStartOdometerReading(10_000L);
+        trip.setEndOdometerReading(10_000L + distanceKm);
+        trip.setIncludedKm(includedKm);
+        return trip;
+    }
+}
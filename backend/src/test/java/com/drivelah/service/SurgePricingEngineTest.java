@@ -0,0 +1,69 @@
+package com.drivelah.service;
+
+import com.drivelah.model.Location;
+import com.drivelah.util.SlidingWindowCounter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SurgePricingEngineTest {
+
+    @Test
+    public void testSlidingWindowDropsExpiredSeconds() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(10);
+        for (int i = 0; i < 5; i++) {
+            counter.increment(100);
+        }
+        counter.increment(105);
+        counter.increment(111);
+
+        assertEquals(6, counter.sum(105), "Both seconds are inside the window");
+        assertEquals(2, counter.sum(111), "Second 100 has slid out of the window");
+        assertEquals(0, counter.sum(200), "Everything has expired");
+    }
+
+    @Test
+    public void testDemandRaisesMultiplierOnlyInItsCell() {
+        SurgePricingEngine engine = new SurgePricingEngine(0.02, 900, 40, 5, 0.5, 2.0, 0.05, 5000);
+        Location busy = location(28.6315, 77.2167);
+        Location quiet = location(28.4950, 77.0890);
+
+        for (int i = 0; i < 60; i++) {
+            engine.recordSearch(busy);
+        }
+        for (int i = 0; i < 4; i++) {
+            engine.recordBooking(busy);
+        }
+        engine.recordSearch(quiet);
+
+        assertEquals(1.0, engine.getMultiplier(busy), "Multipliers only change on recompute");
+
+        engine.recompute();
+
+        // demand = 60 + 5 * 4 = 80 = 2x baseline -> 1 + 0.5 * (2 - 1)
+        assertEquals(1.5, engine.getMultiplier(busy));
+        assertEquals(1.0, engine.getMultiplier(quiet));
+        assertEquals(1.0, engine.getMultiplier(null));
+        assertEquals(1L, engine.getVersion());
+    }
+
+    @Test
+    public void testMultiplierIsCapped() {
+        SurgePricingEngine engine = new SurgePricingEngine(0.02, 900, 10, 5, 1.0, 1.8, 0.05, 5000);
+        Location busy = location(28.6315, 77.2167);
+        for (int i = 0; i < 1000; i++) {
+            engine.recordSearch(busy);
+        }
+
+        engine.recompute();
+
+        assertEquals(1.8, engine.getMultiplier(busy));
+    }
+
+    private static Location location(double lat, double lon) {
+        Location location = new Location();
+        location.setLat(lat);
+        location.setLon(lon);
+        return location;
+    }
+}
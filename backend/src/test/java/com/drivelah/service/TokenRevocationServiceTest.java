@@ -0,0 +1,77 @@
+package com.drivelah.service;
+
+import com.drivelah.client.InMemoryMongoRepo;
+import com.drivelah.client.InMemoryStore;
+import com.drivelah.model.auth.RevokedToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenRevocationServiceTest {
+
+    private TokenRevocationService service;
+
+    @AfterEach
+    public void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testRevocationDuringRebuildSurvivesTheSwap() {
+        long expiresAt = Instant.now().toEpochMilli() + 60_000;
+        RevokingRepo repo = new RevokingRepo(new InMemoryStore());
+        repo.save(new RevokedToken("before-rebuild", "USER-1", "USER-1", 0L, expiresAt));
+        service = new TokenRevocationService(repo, 1000, 0.01, 3_600_000);
+
+        // The revocation lands after the rebuild has read the collection but before it swaps filters
+        repo.duringLoad = () -> service.revoke("during-rebuild", "USER-2", "USER-2", expiresAt);
+        service.start();
+
+        assertTrue(service.isRevoked("before-rebuild"));
+        assertTrue(service.isRevoked("during-rebuild"), "Revocation made while the filter was loading is kept");
+        assertFalse(service.isRevoked("never-revoked"));
+    }
+
+    @Test
+    public void testExpiredRevocationsAreDroppedOnRebuild() {
+        long now = Instant.now().toEpochMilli();
+        RevokingRepo repo = new RevokingRepo(new InMemoryStore());
+        repo.save(new RevokedToken("expired", "USER-1", "USER-1", now - 120_000, now - 60_000));
+        repo.save(new RevokedToken("live", "USER-1", "USER-1", now, now + 60_000));
+        service = new TokenRevocationService(repo, 1000, 0.01, 3_600_000);
+
+        service.start();
+
+        assertTrue(service.isRevoked("live"));
+        assertEquals(1, service.getStats().get("confirmedRevokedCached"));
+    }
+
+    // Helper methods
+
+    // Runs a hook after each find(), i.e. between the rebuild's load and its swap
+    private static class RevokingRepo extends InMemoryMongoRepo<RevokedToken> {
+        Runnable duringLoad;
+
+        RevokingRepo(InMemoryStore store) {
+            super(store);
+        }
+
+        @Override
+        public List<RevokedToken> find(Query query, Class<RevokedToken> entityClass) {
+            List<RevokedToken> found = super.find(query, entityClass);
+            if (duringLoad != null) {
+                Runnable hook = duringLoad;
+                duringLoad = null;
+                hook.run();
+            }
+            return found;
+        }
+    }
+}
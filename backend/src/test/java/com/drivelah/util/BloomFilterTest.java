@@ -0,0 +1,57 @@
+package com.drivelah.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("token-" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("token-" + i), "Added key must always be reported: token-" + i);
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateStaysWithinBudgetAtExpectedLoad() {
+        double budget = 0.01;
+        BloomFilter filter = new BloomFilter(10_000, budget);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("revoked-" + i);
+        }
+
+        int probes = 100_000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("live-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // Sizing targets the budget exactly; allow sampling noise but not a sizing or hashing bug
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate <= budget * 1.5, "False positive rate " + rate + " exceeds budget " + budget);
+    }
+
+    @Test
+    public void testEmptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+
+        assertFalse(filter.mightContain("anything"));
+        assertTrue(filter.getBitCount() > 0);
+        assertTrue(filter.getHashFunctions() >= 1);
+    }
+
+    @Test
+    public void testInvalidSizingIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
@@ -0,0 +1,125 @@
+package com.drivelah.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void testFullBucketAllowsBurstOfCapacityThenReportsWait() {
+        long start = 5 * SECOND;
+        TokenBucket bucket = new TokenBucket(3, 1.0, start);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire(start), "Burst permit " + i);
+        }
+        assertEquals(SECOND, bucket.tryAcquire(start), "Next token is one emission interval away");
+        assertEquals(SECOND / 2, bucket.tryAcquire(start + SECOND / 2));
+    }
+
+    @Test
+    public void testTokensRefillAtConfiguredRate() {
+        long start = 0;
+        TokenBucket bucket = new TokenBucket(2, 4.0, start);
+        bucket.tryAcquire(start);
+        bucket.tryAcquire(start);
+
+        long interval = SECOND / 4;
+        assertTrue(bucket.tryAcquire(start + interval - 1) > 0, "Not refilled a nanosecond early");
+        assertEquals(0, bucket.tryAcquire(start + interval));
+        assertTrue(bucket.tryAcquire(start + interval) > 0, "Only one token refilled");
+    }
+
+    @Test
+    public void testLongIdleRefillsOnlyUpToCapacity() {
+        long start = 0;
+        TokenBucket bucket = new TokenBucket(2, 10.0, start);
+        bucket.tryAcquire(start);
+        bucket.tryAcquire(start);
+
+        long later = start + 3600 * SECOND;
+        assertTrue(bucket.isIdle(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later) > 0, "Idle time does not bank tokens beyond capacity");
+    }
+
+    @Test
+    public void testStaleClockReadingGrantsNoExtraTokens() {
+        long start = 10 * SECOND;
+        TokenBucket bucket = new TokenBucket(1, 1.0, start);
+        assertEquals(0, bucket.tryAcquire(start));
+
+        // A caller that read the clock earlier arrives late with an older timestamp
+        long wait = bucket.tryAcquire(start - 5 * SECOND);
+        assertEquals(6 * SECOND, wait);
+        assertFalse(bucket.isIdle(start - 5 * SECOND));
+    }
+
+    @Test
+    public void testNegativeAndWrappingNanoTimeValues() {
+        // System.nanoTime() has an arbitrary origin: it may be negative, and may wrap past Long.MAX_VALUE
+        long negative = -42 * SECOND;
+        TokenBucket fromNegative = new TokenBucket(1, 1.0, negative);
+        assertEquals(0, fromNegative.tryAcquire(negative));
+        assertEquals(SECOND, fromNegative.tryAcquire(negative));
+        assertEquals(0, fromNegative.tryAcquire(negative + SECOND));
+
+        long beforeWrap = Long.MAX_VALUE - SECOND / 2;
+        TokenBucket acrossWrap = new TokenBucket(1, 1.0, beforeWrap);
+        assertEquals(0, acrossWrap.tryAcquire(beforeWrap));
+        long afterWrap = beforeWrap + SECOND / 2 + 1; // overflows to a large negative value
+        assertTrue(afterWrap < 0);
+        assertEquals(SECOND / 2 - 1, acrossWrap.tryAcquire(afterWrap), "Still waiting out the same interval");
+        assertFalse(acrossWrap.isIdle(afterWrap));
+        assertEquals(0, acrossWrap.tryAcquire(beforeWrap + SECOND));
+        assertTrue(acrossWrap.isIdle(beforeWrap + 3 * SECOND));
+    }
+
+    @Test
+    public void testConcurrentCallersNeverExceedCapacity() throws Exception {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(50, 1.0, now);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                pool.execute(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < 100; i++) {
+                        if (bucket.tryAcquire(now) == 0) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            go.countDown();
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(50, granted.get());
+    }
+
+    @Test
+    public void testInvalidConfigurationIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1.0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0, 0));
+    }
+}
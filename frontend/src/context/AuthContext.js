@@ -66,7 +66,14 @@ export const AuthProvider = ({ children }) => {
     }
   };
 
-  const logout = () => {
+  const logout = async () => {
+    // Revoke the token server-side first: the request interceptor reads it from localStorage.
+    // Local state is cleared regardless of the outcome
+    try {
+      await authAPI.logout();
+    } catch (error) {
+      // Already invalid or server unreachable; nothing more to revoke
+    }
     localStorage.removeItem('authToken');
     localStorage.removeItem('user');
     setUser(null);